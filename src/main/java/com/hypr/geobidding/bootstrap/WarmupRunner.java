@@ -3,6 +3,7 @@ package com.hypr.geobidding.bootstrap;
 import com.hypr.geobidding.dto.bid.BidRequest;
 import com.hypr.geobidding.repository.campaign.CampaignRepository;
 import com.hypr.geobidding.service.campaign.CampaignBidService;
+import com.hypr.geobidding.service.campaign.CampaignDecisionCache;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Component;
@@ -13,11 +14,14 @@ import java.util.List;
 public class WarmupRunner implements ApplicationRunner {
     private final CampaignRepository repository;
     private final CampaignBidService bidService;
+    private final CampaignDecisionCache decisionCache;
 
     public WarmupRunner(CampaignRepository repository,
-                        CampaignBidService bidService) {
+                        CampaignBidService bidService,
+                        CampaignDecisionCache decisionCache) {
         this.repository = repository;
         this.bidService = bidService;
+        this.decisionCache = decisionCache;
     }
 
     @Override
@@ -38,5 +42,8 @@ public class WarmupRunner implements ApplicationRunner {
             e.printStackTrace();
         }
 
+        System.out.printf("Cache de decisões: hit rate %.1f%% (%d hits, %d misses, %d não cacheáveis)%n",
+                decisionCache.getHitRate() * 100, decisionCache.getHits(),
+                decisionCache.getMisses(), decisionCache.getUncacheable());
     }
 }
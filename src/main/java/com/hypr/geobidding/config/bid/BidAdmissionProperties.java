@@ -0,0 +1,98 @@
+package com.hypr.geobidding.config.bid;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * geobidding.admission.*: limite adaptativo de requisições POST /bid simultâneas.
+ * Acima do limite a requisição é descartada na hora, sem chegar ao CampaignBidService.
+ */
+@ConfigurationProperties(prefix = "geobidding.admission")
+public class BidAdmissionProperties {
+
+    /**
+     * Resposta de uma requisição descartada.
+     */
+    public enum ShedResponse {
+        // 200 com decision = no_bid
+        NO_BID,
+        // 204 sem corpo
+        NO_CONTENT
+    }
+
+    private boolean enabled = true;
+
+    /**
+     * Latência aceitável de uma decisão; acima disso o limite cai (multiplicativo),
+     * abaixo ele sobe uma unidade a cada "limite" decisões (aditivo).
+     */
+    private long latencyBudgetMs = 20;
+
+    private int initialLimit = 64;
+
+    private int minLimit = 4;
+
+    private int maxLimit = 1024;
+
+    /**
+     * Fator aplicado ao limite quando uma decisão estoura o orçamento de latência.
+     */
+    private double backoffRatio = 0.9;
+
+    private ShedResponse shedResponse = ShedResponse.NO_BID;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getLatencyBudgetMs() {
+        return latencyBudgetMs;
+    }
+
+    public void setLatencyBudgetMs(long latencyBudgetMs) {
+        this.latencyBudgetMs = latencyBudgetMs;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    public ShedResponse getShedResponse() {
+        return shedResponse;
+    }
+
+    public void setShedResponse(ShedResponse shedResponse) {
+        this.shedResponse = shedResponse;
+    }
+}
@@ -0,0 +1,23 @@
+package com.hypr.geobidding.config.bid;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * geobidding.batch.*: endpoint POST /bid/batch.
+ */
+@ConfigurationProperties(prefix = "geobidding.batch")
+public class BidBatchProperties {
+
+    /**
+     * Máximo de requisições por lote; acima disso o lote inteiro é recusado com 413.
+     */
+    private int maxSize = 1000;
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+}
@@ -0,0 +1,48 @@
+package com.hypr.geobidding.config.bid;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * geobidding.coalescing.*: agrupamento de requisições POST /bid concorrentes numa
+ * única passada do decideBatch.
+ */
+@ConfigurationProperties(prefix = "geobidding.coalescing")
+public class BidCoalescingProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Espera máxima do líder por mais requisições antes de fechar o lote. Só é aplicada
+     * quando os lotes recentes mostram concorrência; requisição sozinha nunca espera.
+     */
+    private long windowMicros = 200;
+
+    /**
+     * Requisições por lote; ao atingir o limite o lote fecha sem esperar a janela.
+     */
+    private int maxBatch = 64;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getWindowMicros() {
+        return windowMicros;
+    }
+
+    public void setWindowMicros(long windowMicros) {
+        this.windowMicros = windowMicros;
+    }
+
+    public int getMaxBatch() {
+        return maxBatch;
+    }
+
+    public void setMaxBatch(int maxBatch) {
+        this.maxBatch = maxBatch;
+    }
+}
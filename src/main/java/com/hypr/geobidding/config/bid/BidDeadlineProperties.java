@@ -0,0 +1,38 @@
+package com.hypr.geobidding.config.bid;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * geobidding.deadline.*: prazo de cada decisão. Estourado, a avaliação das candidatas para
+ * e a resposta sai com o melhor que já foi achado (ou NO_BID), marcada como truncada.
+ */
+@ConfigurationProperties(prefix = "geobidding.deadline")
+public class BidDeadlineProperties {
+
+    /**
+     * Prazo por requisição a partir da chegada no serviço; 0 = sem prazo.
+     */
+    private long timeoutMs;
+
+    /**
+     * Conta o prazo a partir do timestamp da requisição (envio pela exchange) quando ele vem
+     * preenchido, o que desconta o tempo de rede e de fila. Vale o menor dos dois prazos.
+     */
+    private boolean fromRequestTimestamp;
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    public boolean isFromRequestTimestamp() {
+        return fromRequestTimestamp;
+    }
+
+    public void setFromRequestTimestamp(boolean fromRequestTimestamp) {
+        this.fromRequestTimestamp = fromRequestTimestamp;
+    }
+}
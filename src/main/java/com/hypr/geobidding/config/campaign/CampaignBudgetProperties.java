@@ -0,0 +1,332 @@
+package com.hypr.geobidding.config.campaign;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+/**
+ * geobidding.budget.*: controle de gasto por budget_remaining e daily_budget.
+ */
+@ConfigurationProperties(prefix = "geobidding.budget")
+public class CampaignBudgetProperties {
+
+    /**
+     * Desligado, toda campanha ativa tem saldo infinito (comportamento antigo).
+     */
+    private boolean enabled = true;
+
+    /**
+     * Faixas por contador de saldo; arredondado para potência de 2.
+     */
+    private int stripes = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Horário da virada do dia, quando os saldos diários voltam ao daily_budget.
+     */
+    private LocalTime dailyResetTime = LocalTime.MIDNIGHT;
+
+    private ZoneId zone = ZoneId.of("America/Sao_Paulo");
+
+    private Lease lease = new Lease();
+
+    private Journal journal = new Journal();
+
+    private Coordination coordination = new Coordination();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    public void setStripes(int stripes) {
+        this.stripes = stripes;
+    }
+
+    public LocalTime getDailyResetTime() {
+        return dailyResetTime;
+    }
+
+    public void setDailyResetTime(LocalTime dailyResetTime) {
+        this.dailyResetTime = dailyResetTime;
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    public void setZone(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    public Lease getLease() {
+        return lease;
+    }
+
+    public void setLease(Lease lease) {
+        this.lease = lease;
+    }
+
+    public Journal getJournal() {
+        return journal;
+    }
+
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    public Coordination getCoordination() {
+        return coordination;
+    }
+
+    public void setCoordination(Coordination coordination) {
+        this.coordination = coordination;
+    }
+
+    /**
+     * geobidding.budget.lease.*: fatias de saldo por thread para as campanhas quentes.
+     */
+    public static class Lease {
+
+        private boolean enabled = true;
+
+        /**
+         * Impressões reservadas de uma vez por thread.
+         */
+        private int sliceImpressions = 64;
+
+        /**
+         * Teto, em reais, do saldo de uma campanha que pode estar em fatias (somadas as threads).
+         */
+        private BigDecimal tolerance = new BigDecimal("5.00");
+
+        /**
+         * Reservas por intervalo para a campanha passar a usar fatias.
+         */
+        private long hotReservations = 1000;
+
+        /**
+         * Intervalo do recolhimento: fatias paradas voltam ao saldo compartilhado.
+         */
+        private long reclaimIntervalMs = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getSliceImpressions() {
+            return sliceImpressions;
+        }
+
+        public void setSliceImpressions(int sliceImpressions) {
+            this.sliceImpressions = sliceImpressions;
+        }
+
+        public BigDecimal getTolerance() {
+            return tolerance;
+        }
+
+        public void setTolerance(BigDecimal tolerance) {
+            this.tolerance = tolerance;
+        }
+
+        public long getHotReservations() {
+            return hotReservations;
+        }
+
+        public void setHotReservations(long hotReservations) {
+            this.hotReservations = hotReservations;
+        }
+
+        public long getReclaimIntervalMs() {
+            return reclaimIntervalMs;
+        }
+
+        public void setReclaimIntervalMs(long reclaimIntervalMs) {
+            this.reclaimIntervalMs = reclaimIntervalMs;
+        }
+    }
+
+    /**
+     * geobidding.budget.journal.*: diário de gasto em disco, recuperado no restart.
+     */
+    public static class Journal {
+
+        /**
+         * Arquivo do diário; vazio = gasto só em memória (zera a cada restart).
+         */
+        private String path;
+
+        /**
+         * Registros (16 bytes) por pedaço mapeado; o arquivo cresce um pedaço por vez.
+         */
+        private int chunkRecords = 4 * 1024 * 1024;
+
+        /**
+         * Intervalo do fsync em segundo plano: é o que se perde numa queda da máquina.
+         */
+        private long flushIntervalMs = 100;
+
+        /**
+         * Registros anexados que disparam a compactação (snapshot dos saldos num arquivo novo).
+         */
+        private long compactAfterRecords = 16L * 1024 * 1024;
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public int getChunkRecords() {
+            return chunkRecords;
+        }
+
+        public void setChunkRecords(int chunkRecords) {
+            this.chunkRecords = chunkRecords;
+        }
+
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+
+        public long getCompactAfterRecords() {
+            return compactAfterRecords;
+        }
+
+        public void setCompactAfterRecords(long compactAfterRecords) {
+            this.compactAfterRecords = compactAfterRecords;
+        }
+    }
+
+    /**
+     * geobidding.budget.coordination.*: saldo dividido entre várias instâncias.
+     */
+    public static class Coordination {
+
+        public enum Mode {
+            /** Instância única: o saldo do campaigns.json é todo dela. */
+            NONE,
+            /** Coordenador no próprio processo, exposto em POST /budget/tranches. */
+            LOCAL,
+            /** Tranches pedidas ao coordenador em url. */
+            REMOTE
+        }
+
+        private Mode mode = Mode.NONE;
+
+        /**
+         * Endereço da instância coordenadora (mode=remote), ex.: http://localhost:8080.
+         */
+        private String url;
+
+        /**
+         * Identifica a instância no coordenador; vazio = host:pid.
+         */
+        private String instanceId;
+
+        /**
+         * Impressões (no bid_price da campanha) por tranche.
+         */
+        private int trancheImpressions = 1000;
+
+        /**
+         * Fração da tranche abaixo da qual a próxima é pedida.
+         */
+        private double lowWatermark = 0.25;
+
+        private long refillIntervalMs = 20;
+
+        /**
+         * Campanha negada pelo coordenador só é pedida de novo depois disso (ou na virada do dia).
+         */
+        private long exhaustedRetryMs = 30_000;
+
+        /**
+         * Timeout das chamadas ao coordenador (fora da requisição).
+         */
+        private long timeoutMs = 1_000;
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        public void setMode(Mode mode) {
+            this.mode = mode;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getInstanceId() {
+            return instanceId;
+        }
+
+        public void setInstanceId(String instanceId) {
+            this.instanceId = instanceId;
+        }
+
+        public int getTrancheImpressions() {
+            return trancheImpressions;
+        }
+
+        public void setTrancheImpressions(int trancheImpressions) {
+            this.trancheImpressions = trancheImpressions;
+        }
+
+        public double getLowWatermark() {
+            return lowWatermark;
+        }
+
+        public void setLowWatermark(double lowWatermark) {
+            this.lowWatermark = lowWatermark;
+        }
+
+        public long getRefillIntervalMs() {
+            return refillIntervalMs;
+        }
+
+        public void setRefillIntervalMs(long refillIntervalMs) {
+            this.refillIntervalMs = refillIntervalMs;
+        }
+
+        public long getExhaustedRetryMs() {
+            return exhaustedRetryMs;
+        }
+
+        public void setExhaustedRetryMs(long exhaustedRetryMs) {
+            this.exhaustedRetryMs = exhaustedRetryMs;
+        }
+
+        public long getTimeoutMs() {
+            return timeoutMs;
+        }
+
+        public void setTimeoutMs(long timeoutMs) {
+            this.timeoutMs = timeoutMs;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.hypr.geobidding.config.campaign;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * geobidding.evaluation.*: quando a avaliação das candidatas sai da thread da requisição
+ * e vai para o pool dedicado de shards.
+ */
+@ConfigurationProperties(prefix = "geobidding.evaluation")
+public class CampaignEvaluationProperties {
+
+    /**
+     * A partir de quantas candidatas (célula do usuário + "wide") a avaliação é dividida em shards.
+     * Medir com o CampaignEvaluatorBenchmark no hardware de produção.
+     */
+    private int shardThreshold = 4096;
+
+    /**
+     * Quantidade de shards por requisição; a thread da requisição roda um deles e o pool
+     * dedicado os demais. 1 desliga os shards.
+     */
+    private int shards = Runtime.getRuntime().availableProcessors();
+
+    public int getShardThreshold() {
+        return shardThreshold;
+    }
+
+    public void setShardThreshold(int shardThreshold) {
+        this.shardThreshold = shardThreshold;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+}
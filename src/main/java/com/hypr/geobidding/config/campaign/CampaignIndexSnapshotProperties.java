@@ -0,0 +1,23 @@
+package com.hypr.geobidding.config.campaign;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * geobidding.index-snapshot.*: índice compilado em disco, lido no restart.
+ */
+@ConfigurationProperties(prefix = "geobidding.index-snapshot")
+public class CampaignIndexSnapshotProperties {
+
+    /**
+     * Arquivo do snapshot; vazio = índice compilado do JSON a cada load.
+     */
+    private String path;
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+}
@@ -0,0 +1,23 @@
+package com.hypr.geobidding.config.campaign;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * geobidding.winner-table.*: tabela de vencedoras por célula da grade.
+ */
+@ConfigurationProperties(prefix = "geobidding.winner-table")
+public class CampaignWinnerTableProperties {
+
+    /**
+     * Arquivo onde as tabelas são gravadas e lidas no restart; vazio = recalcula sempre.
+     */
+    private String path;
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+}
@@ -1,12 +1,18 @@
 package com.hypr.geobidding.controller.bid;
 
+import com.hypr.geobidding.config.bid.BidAdmissionProperties;
+import com.hypr.geobidding.config.bid.BidBatchProperties;
 import com.hypr.geobidding.dto.bid.*;
+import com.hypr.geobidding.service.bid.BidAdmissionLimiter;
+import com.hypr.geobidding.service.campaign.CampaignBidCoalescer;
 import com.hypr.geobidding.service.campaign.CampaignBidService;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @RestController
 @RequestMapping("/bid")
@@ -14,8 +20,26 @@ public class BidController {
 
     private final CampaignBidService campaignBidService;
 
-    public BidController(CampaignBidService campaignBidService) {
+    private final CampaignBidCoalescer campaignBidCoalescer;
+
+    private final BidAdmissionLimiter admissionLimiter;
+
+    private final BidBatchProperties batchProperties;
+
+    private final BidAdmissionProperties admissionProperties;
+
+    public BidController(
+            CampaignBidService campaignBidService,
+            CampaignBidCoalescer campaignBidCoalescer,
+            BidAdmissionLimiter admissionLimiter,
+            BidBatchProperties batchProperties,
+            BidAdmissionProperties admissionProperties
+    ) {
         this.campaignBidService = campaignBidService;
+        this.campaignBidCoalescer = campaignBidCoalescer;
+        this.admissionLimiter = admissionLimiter;
+        this.batchProperties = batchProperties;
+        this.admissionProperties = admissionProperties;
     }
 
     @PostMapping
@@ -23,12 +47,49 @@ public class BidController {
             @Valid @RequestBody BidRequest request
     ) {
         long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+
+        // acima do limite de concorrência: responde já, sem passar pelo serviço
+        if (!admissionLimiter.tryAcquire()) {
+            return shed(request, start);
+        }
 
-        BidResponse response = campaignBidService.decide(request);
+        BidResponse response;
+        try {
+            // concorrentes podem sair juntas num decideBatch; sozinha vai direto ao decide
+            response = campaignBidCoalescer.decide(request);
+        } finally {
+            admissionLimiter.release(startNanos);
+        }
 
         response.setLatencyMs(System.currentTimeMillis() - start);
 
         return ResponseEntity.ok(response);
     }
-}
 
+    private ResponseEntity<BidResponse> shed(BidRequest request, long start) {
+        if (admissionProperties.getShedResponse() == BidAdmissionProperties.ShedResponse.NO_CONTENT) {
+            return ResponseEntity.noContent().build();
+        }
+
+        BidResponse response = new BidResponse();
+        response.setRequestId(request.getRequestId());
+        response.setDecision(BidDecision.NO_BID);
+        response.setLatencyMs(System.currentTimeMillis() - start);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Lote de requisições; respostas na mesma ordem, cada uma com a própria latência.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<BidResponse>> bidBatch(
+            @RequestBody List<@Valid BidRequest> requests
+    ) {
+        if (requests.size() > batchProperties.getMaxSize()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+
+        return ResponseEntity.ok(campaignBidService.decideBatch(requests));
+    }
+}
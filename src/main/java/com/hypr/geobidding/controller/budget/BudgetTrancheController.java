@@ -0,0 +1,62 @@
+package com.hypr.geobidding.controller.budget;
+
+import com.hypr.geobidding.dto.budget.BudgetTrancheRequest;
+import com.hypr.geobidding.dto.budget.BudgetTrancheResponse;
+import com.hypr.geobidding.repository.campaign.CampaignRepository;
+import com.hypr.geobidding.repository.campaign.LocalCampaignBudgetCoordinator;
+import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Coordenador de saldo para as outras instâncias: só existe na instância com
+ * geobidding.budget.coordination.mode=local.
+ */
+@RestController
+@RequestMapping("/budget/tranches")
+@ConditionalOnProperty(prefix = "geobidding.budget.coordination", name = "mode", havingValue = "local")
+public class BudgetTrancheController {
+
+    private final CampaignRepository campaignRepository;
+
+    public BudgetTrancheController(CampaignRepository campaignRepository) {
+        this.campaignRepository = campaignRepository;
+    }
+
+    @PostMapping
+    public ResponseEntity<BudgetTrancheResponse> grant(@Valid @RequestBody BudgetTrancheRequest request) {
+        LocalCampaignBudgetCoordinator coordinator = campaignRepository.getCoordinator();
+        if (coordinator == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        if (request.getCampaignIds().size() != request.getAmountsNanos().length) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        BudgetTrancheResponse response = new BudgetTrancheResponse();
+        response.setGrantedNanos(coordinator.grant(
+                request.getInstanceId(), request.getCampaignIds(), request.getAmountsNanos()));
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/return")
+    public ResponseEntity<Void> giveBack(@Valid @RequestBody BudgetTrancheRequest request) {
+        LocalCampaignBudgetCoordinator coordinator = campaignRepository.getCoordinator();
+        if (coordinator == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        if (request.getCampaignIds().size() != request.getAmountsNanos().length) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            coordinator.giveBack(request.getInstanceId(), request.getCampaignIds(), request.getAmountsNanos());
+        } catch (IllegalArgumentException e) {
+            // devolução acima do que a instância recebeu: nada é creditado
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok().build();
+    }
+}
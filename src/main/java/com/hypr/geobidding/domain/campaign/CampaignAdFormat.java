@@ -3,12 +3,36 @@ package com.hypr.geobidding.domain.campaign;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
 
+import java.util.Collection;
+
 public enum CampaignAdFormat {
     NATIVE,
     VIDEO,
     BANNER,
     INTERSTITIAL;
 
+    // um bit por formato: elegibilidade de formato vira um AND
+    private final int mask = 1 << ordinal();
+
+    public int mask() {
+        return mask;
+    }
+
+    /**
+     * OR dos bits dos formatos; repetidos e nulls não mudam o resultado.
+     */
+    public static int maskOf(Collection<CampaignAdFormat> formats) {
+        int mask = 0;
+        if (formats != null) {
+            for (CampaignAdFormat format : formats) {
+                if (format != null) {
+                    mask |= format.mask;
+                }
+            }
+        }
+        return mask;
+    }
+
     @JsonCreator
     public static CampaignAdFormat from(String value) {
         return CampaignAdFormat.valueOf(value.toUpperCase());
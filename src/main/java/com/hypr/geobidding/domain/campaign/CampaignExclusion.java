@@ -21,6 +21,9 @@ public class CampaignExclusion {
 
     private List<List<Double>> coords;
 
+    // cache interno, como no CampaignTargeting
+    private List<CampaignGeoPoint> campaignCoords;
+
     public CampaignAreaType getType() {
         return type;
     }
@@ -51,12 +54,17 @@ public class CampaignExclusion {
 
     public void setCoords(List<List<Double>> coords) {
         this.coords = coords;
+        this.campaignCoords = null; // invalida cache
     }
 
     /**
      * Converte [[lat, lon]] para List<CampaignGeoPoint>
      */
     public List<CampaignGeoPoint> getCampaignCoords() {
+        if (campaignCoords != null) {
+            return campaignCoords;
+        }
+
         if (coords == null || coords.size() < 4) {
             return Collections.emptyList();
         }
@@ -74,6 +82,7 @@ public class CampaignExclusion {
             points.add(point);
         }
 
-        return points;
+        this.campaignCoords = points;
+        return campaignCoords;
     }
 }
@@ -0,0 +1,23 @@
+package com.hypr.geobidding.domain.geo;
+
+/**
+ * Testes de um ponto contra vários raios / várias arestas de uma vez, sobre arrays primitivos.
+ * Implementações devem dar exatamente o mesmo resultado da versão escalar (mesmas operações,
+ * na mesma ordem, sem FMA).
+ */
+interface GeoBatchKernel {
+
+    /**
+     * @return true se o ponto estiver a corda ao quadrado <= squaredChords[i] de algum centro
+     * i em [0, length)
+     */
+    boolean anyWithin(double[] centerX, double[] centerY, double[] centerZ, double[] squaredChords,
+                      int length, GeoPoint point);
+
+    /**
+     * Quantidade de arestas cruzadas pelo raio do ray casting (mesma regra do GeoPolygonUtils);
+     * ímpar = dentro.
+     */
+    int crossings(double[] edgeLat, double[] edgeLon, double[] edgeOtherLon,
+                  double[] edgeDeltaLat, double[] edgeDeltaLon, double lat, double lon);
+}
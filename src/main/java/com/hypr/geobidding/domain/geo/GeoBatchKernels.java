@@ -0,0 +1,50 @@
+package com.hypr.geobidding.domain.geo;
+
+/**
+ * Escolhe o kernel uma vez, na carga da classe:
+ * vetorial quando o JVM sobe com --add-modules jdk.incubator.vector, escalar caso contrário.
+ * -Dgeobidding.geo.vector=false força o escalar mesmo com o módulo presente.
+ */
+final class GeoBatchKernels {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final GeoBatchKernel SCALAR = new GeoScalarBatchKernel();
+
+    private static final GeoBatchKernel SELECTED = select();
+
+    private GeoBatchKernels() {}
+
+    static GeoBatchKernel get() {
+        return SELECTED;
+    }
+
+    static GeoBatchKernel scalar() {
+        return SCALAR;
+    }
+
+    static boolean isVectorized() {
+        return SELECTED != SCALAR;
+    }
+
+    private static GeoBatchKernel select() {
+        if (!Boolean.parseBoolean(System.getProperty("geobidding.geo.vector", "true"))
+                || ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            System.out.println("Geometria em lote: escalar");
+            return SCALAR;
+        }
+
+        try {
+            // carregada por nome: sem o módulo, nem a referência à classe pode ser resolvida
+            GeoBatchKernel vector = (GeoBatchKernel) Class
+                    .forName("com.hypr.geobidding.domain.geo.GeoVectorBatchKernel")
+                    .getDeclaredConstructor()
+                    .newInstance();
+            System.out.println("Geometria em lote: " + VECTOR_MODULE);
+            return vector;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.out.println("Geometria em lote: escalar (" + e + ")");
+            return SCALAR;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.hypr.geobidding.domain.geo;
+
+/**
+ * Relação conservadora entre uma célula e um shape: INSIDE/OUTSIDE só quando vale para
+ * todo ponto da célula; na dúvida é BOUNDARY e o ponto cai na geometria exata.
+ */
+public enum GeoCellRelation {
+    INSIDE,
+    OUTSIDE,
+    BOUNDARY
+}
@@ -0,0 +1,338 @@
+package com.hypr.geobidding.domain.geo;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Shape rasterizado em células hierárquicas (quadtree lat/lon, estilo S2/H3).
+ * Cada célula guardada é INTERIOR (aceita sem geometria), BOUNDARY (cai no shape exato)
+ * ou SPLIT (desce para os 4 filhos). Célula ausente = fora do shape.
+ * <p>
+ * A busca parte do índice da célula mais fina e obtém os ancestrais por shift,
+ * então pai e filho nunca discordam por arredondamento.
+ * <p>
+ * A tabela fica em buffers: os arrays do cover, ou direto o arquivo mapeado do snapshot do índice.
+ */
+public final class GeoCoveredShape implements GeoShape {
+
+    public static final double DEFAULT_BASE_DEGREES = 0.05;
+    public static final int DEFAULT_MAX_LEVEL = 6;
+    public static final int DEFAULT_MAX_CELLS = 16_384;
+
+    private static final byte EMPTY = 0;
+    private static final byte INTERIOR = 1;
+    private static final byte BOUNDARY = 2;
+    private static final byte SPLIT = 3;
+
+    // a célula é testada um pouco maior que o seu índice para absorver arredondamento
+    private static final double CELL_EPSILON = 1e-9;
+
+    private final GeoShape exact;
+    private final int maxLevel;
+    private final double finestScale;
+
+    // tabela aberta (linear probing) célula -> estado
+    private final LongBuffer keys;
+    private final ByteBuffer states;
+    private final int mask;
+
+    private GeoCoveredShape(GeoShape exact, int maxLevel, double finestScale, LongBuffer keys, ByteBuffer states) {
+        this.exact = exact;
+        this.maxLevel = maxLevel;
+        this.finestScale = finestScale;
+        this.keys = keys;
+        this.states = states;
+        this.mask = keys.capacity() - 1;
+    }
+
+    public static GeoShape cover(GeoShape exact) {
+        return cover(exact, DEFAULT_BASE_DEGREES, DEFAULT_MAX_LEVEL, DEFAULT_MAX_CELLS);
+    }
+
+    /**
+     * @return o shape coberto, ou o próprio shape exato quando o nível base já estoura maxCells
+     */
+    public static GeoShape cover(GeoShape exact, double baseDegrees, int maxLevel, int maxCells) {
+        List<double[]> boxes = exact.boundingBoxes();
+        if (boxes.isEmpty()) {
+            return exact;
+        }
+
+        double finestScale = (1 << maxLevel) / baseDegrees;
+        Builder builder = new Builder(exact, baseDegrees, maxLevel, maxCells);
+
+        for (double[] box : boxes) {
+            if (!builder.seed(box)) {
+                return exact;
+            }
+        }
+        builder.refine();
+
+        return builder.size == 0
+                ? GeoEmptyShape.INSTANCE
+                : new GeoCoveredShape(exact, maxLevel, finestScale,
+                        LongBuffer.wrap(builder.keys()), ByteBuffer.wrap(builder.states()));
+    }
+
+    /**
+     * Cobertura já calculada (getCellKeys/getCellStates de um shape coberto), sem refazer
+     * o relate por célula nem copiar a tabela; exact tem que ser a mesma geometria.
+     *
+     * @param keys   lido do início à capacidade; não pode mudar depois
+     * @param states idem, uma posição por chave
+     */
+    public static GeoCoveredShape restore(
+            GeoShape exact, int maxLevel, double finestScale, LongBuffer keys, ByteBuffer states) {
+        if (keys.capacity() != states.capacity() || Integer.bitCount(keys.capacity()) != 1) {
+            throw new IllegalArgumentException("tabela de células inválida: " + keys.capacity());
+        }
+        return new GeoCoveredShape(exact, maxLevel, finestScale, keys, states);
+    }
+
+    public GeoShape getExact() {
+        return exact;
+    }
+
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
+    public double getFinestScale() {
+        return finestScale;
+    }
+
+    /**
+     * Tabela aberta de células (sem cópia, só leitura); posição com estado 0 está vazia.
+     */
+    public LongBuffer getCellKeys() {
+        return keys.asReadOnlyBuffer();
+    }
+
+    public ByteBuffer getCellStates() {
+        return states.asReadOnlyBuffer();
+    }
+
+    public int cellCount() {
+        int count = 0;
+        for (int slot = 0; slot <= mask; slot++) {
+            if (states.get(slot) != EMPTY) count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return INSIDE/OUTSIDE quando a cobertura decide sozinha, BOUNDARY quando precisa da geometria
+     */
+    public GeoCellRelation classify(double lat, double lon) {
+        int latIndex = (int) Math.floor((lat + 90.0) * finestScale);
+        int lonIndex = (int) Math.floor((lon + 180.0) * finestScale);
+
+        for (int level = 0; level <= maxLevel; level++) {
+            int shift = maxLevel - level;
+            byte state = get(key(level, latIndex >> shift, lonIndex >> shift));
+
+            if (state == EMPTY) return GeoCellRelation.OUTSIDE;
+            if (state == INTERIOR) return GeoCellRelation.INSIDE;
+            if (state == BOUNDARY) return GeoCellRelation.BOUNDARY;
+        }
+        return GeoCellRelation.BOUNDARY;
+    }
+
+    @Override
+    public boolean contains(double lat, double lon) {
+        switch (classify(lat, lon)) {
+            case INSIDE:
+                return true;
+            case OUTSIDE:
+                return false;
+            default:
+                return exact.contains(lat, lon);
+        }
+    }
+
+    @Override
+    public boolean contains(GeoPoint point) {
+        switch (classify(point.getLat(), point.getLon())) {
+            case INSIDE:
+                return true;
+            case OUTSIDE:
+                return false;
+            default:
+                return exact.contains(point);
+        }
+    }
+
+    @Override
+    public List<double[]> boundingBoxes() {
+        return exact.boundingBoxes();
+    }
+
+    @Override
+    public GeoCellRelation relate(double minLat, double maxLat, double minLon, double maxLon) {
+        return exact.relate(minLat, maxLat, minLon, maxLon);
+    }
+
+    private byte get(long key) {
+        int slot = slot(key, mask);
+        while (states.get(slot) != EMPTY) {
+            if (keys.get(slot) == key) {
+                return states.get(slot);
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    private static long key(int level, int latIndex, int lonIndex) {
+        return ((long) level << 58)
+                | ((latIndex & 0x1FFFFFFFL) << 29)
+                | (lonIndex & 0x1FFFFFFFL);
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    // --------- build ---------
+
+    private static final class Builder {
+
+        private final GeoShape exact;
+        private final double baseDegrees;
+        private final int maxLevel;
+        private final int maxCells;
+
+        private long[] keys = new long[64];
+        private byte[] states = new byte[64];
+        private int size;
+
+        // fila BFS: {level, latIndex, lonIndex}; níveis grossos são refinados primeiro
+        private final ArrayDeque<int[]> queue = new ArrayDeque<>();
+
+        private Builder(GeoShape exact, double baseDegrees, int maxLevel, int maxCells) {
+            this.exact = exact;
+            this.baseDegrees = baseDegrees;
+            this.maxLevel = maxLevel;
+            this.maxCells = maxCells;
+        }
+
+        /**
+         * Enfileira as células de nível 0 do box, com uma célula de folga em cada lado.
+         */
+        boolean seed(double[] box) {
+            for (double bound : box) {
+                if (!Double.isFinite(bound)) return false;
+            }
+
+            long minLat = (long) Math.floor((box[0] + 90.0) / baseDegrees) - 1;
+            long maxLat = (long) Math.floor((box[1] + 90.0) / baseDegrees) + 1;
+            long minLon = (long) Math.floor((box[2] + 180.0) / baseDegrees) - 1;
+            long maxLon = (long) Math.floor((box[3] + 180.0) / baseDegrees) + 1;
+
+            if ((maxLat - minLat + 1) * (maxLon - minLon + 1) + queue.size() > maxCells) {
+                return false;
+            }
+
+            for (long la = minLat; la <= maxLat; la++) {
+                for (long lo = minLon; lo <= maxLon; lo++) {
+                    queue.add(new int[]{0, (int) la, (int) lo});
+                }
+            }
+            return true;
+        }
+
+        void refine() {
+            while (!queue.isEmpty()) {
+                int[] cell = queue.poll();
+                int level = cell[0];
+                long key = key(level, cell[1], cell[2]);
+
+                if (find(key) != EMPTY) {
+                    // boxes de um multi_radius podem repetir células
+                    continue;
+                }
+
+                double cellDegrees = baseDegrees / (1 << level);
+                double minLat = cell[1] * cellDegrees - 90.0 - CELL_EPSILON;
+                double maxLat = (cell[1] + 1) * cellDegrees - 90.0 + CELL_EPSILON;
+                double minLon = cell[2] * cellDegrees - 180.0 - CELL_EPSILON;
+                double maxLon = (cell[2] + 1) * cellDegrees - 180.0 + CELL_EPSILON;
+
+                switch (exact.relate(minLat, maxLat, minLon, maxLon)) {
+                    case INSIDE:
+                        put(key, INTERIOR);
+                        break;
+
+                    case BOUNDARY:
+                        if (level < maxLevel && size + queue.size() + 4 <= maxCells) {
+                            put(key, SPLIT);
+                            for (int dLat = 0; dLat < 2; dLat++) {
+                                for (int dLon = 0; dLon < 2; dLon++) {
+                                    queue.add(new int[]{level + 1, cell[1] * 2 + dLat, cell[2] * 2 + dLon});
+                                }
+                            }
+                        } else {
+                            put(key, BOUNDARY);
+                        }
+                        break;
+
+                    default:
+                        break;
+                }
+            }
+        }
+
+        long[] keys() {
+            return keys;
+        }
+
+        byte[] states() {
+            return states;
+        }
+
+        private byte find(long key) {
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (states[slot] != EMPTY) {
+                if (keys[slot] == key) return states[slot];
+                slot = (slot + 1) & mask;
+            }
+            return EMPTY;
+        }
+
+        private void put(long key, byte state) {
+            // fator de carga máximo de 50%
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            insert(keys, states, key, state);
+            size++;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            byte[] oldStates = states;
+            keys = new long[oldKeys.length * 2];
+            states = new byte[oldKeys.length * 2];
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldStates[i] != EMPTY) {
+                    insert(keys, states, oldKeys[i], oldStates[i]);
+                }
+            }
+        }
+
+        private static void insert(long[] keys, byte[] states, long key, byte state) {
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (states[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            states[slot] = state;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.hypr.geobidding.domain.geo;
+
+import java.util.List;
+
+/**
+ * Shape inválido (polígono aberto, raio sem centro...): nunca contém o usuário.
+ */
+public final class GeoEmptyShape implements GeoShape {
+
+    public static final GeoEmptyShape INSTANCE = new GeoEmptyShape();
+
+    private GeoEmptyShape() {}
+
+    @Override
+    public boolean contains(double lat, double lon) {
+        return false;
+    }
+
+    @Override
+    public List<double[]> boundingBoxes() {
+        return List.of();
+    }
+
+    @Override
+    public GeoCellRelation relate(double minLat, double maxLat, double minLon, double maxLon) {
+        return GeoCellRelation.OUTSIDE;
+    }
+}
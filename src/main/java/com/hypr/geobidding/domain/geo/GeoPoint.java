@@ -0,0 +1,101 @@
+package com.hypr.geobidding.domain.geo;
+
+/**
+ * Ponto lat/lon já convertido para vetor unitário em 3D.
+ * Calculado uma vez por requisição (ou uma vez no load, para os centros dos raios);
+ * a partir daí a distância entre dois pontos é só a corda ao quadrado, sem trigonometria.
+ * <p>
+ * Pontos criados por of() nunca mudam. O ponto do usuário é um rascunho por thread
+ * (scratch + moveTo), reaproveitado entre requisições para não alocar nada por requisição.
+ */
+public final class GeoPoint {
+
+    private double lat;
+    private double lon;
+
+    private double x;
+    private double y;
+    private double z;
+
+    private GeoPoint(double lat, double lon) {
+        set(lat, lon);
+    }
+
+    public static GeoPoint of(double lat, double lon) {
+        return new GeoPoint(lat, lon);
+    }
+
+    /**
+     * Ponto mutável para ser reposicionado com moveTo; nunca compartilhar entre threads
+     * nem guardar além da requisição.
+     */
+    public static GeoPoint scratch() {
+        return new GeoPoint(0.0, 0.0);
+    }
+
+    /**
+     * Só para pontos criados por scratch().
+     */
+    public GeoPoint moveTo(double lat, double lon) {
+        set(lat, lon);
+        return this;
+    }
+
+    private void set(double lat, double lon) {
+        this.lat = lat;
+        this.lon = lon;
+
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lon);
+        double cosPhi = Math.cos(phi);
+
+        this.x = cosPhi * Math.cos(lambda);
+        this.y = cosPhi * Math.sin(lambda);
+        this.z = Math.sin(phi);
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public double getLon() {
+        return lon;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    /**
+     * Quadrado da corda entre os dois vetores: cresce junto com a distância de grande círculo,
+     * então comparar cordas equivale a comparar distâncias.
+     */
+    public double squaredChordTo(GeoPoint other) {
+        double dx = x - other.x;
+        double dy = y - other.y;
+        double dz = z - other.z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Mesmo que squaredChordTo(GeoPoint.of(lat, lon)), sem criar o ponto.
+     */
+    public double squaredChordTo(double lat, double lon) {
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lon);
+        double cosPhi = Math.cos(phi);
+
+        double dx = x - cosPhi * Math.cos(lambda);
+        double dy = y - cosPhi * Math.sin(lambda);
+        double dz = z - Math.sin(phi);
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
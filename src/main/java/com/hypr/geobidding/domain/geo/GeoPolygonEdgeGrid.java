@@ -0,0 +1,102 @@
+package com.hypr.geobidding.domain.geo;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Buckets uniformes sobre o bounding box do polígono, usados só no load para achar as arestas
+ * que cruzam uma célula da cobertura sem percorrer os milhares de vértices de um polígono grande.
+ */
+final class GeoPolygonEdgeGrid {
+
+    private final double[] lats;
+    private final double[] lons;
+
+    private final double minLat;
+    private final double minLon;
+    private final double bucketLat;
+    private final double bucketLon;
+    private final int buckets;
+
+    // CSR: segmentos do bucket b em bucketSegments[bucketStart[b]..bucketStart[b+1])
+    private final int[] bucketStart;
+    private final int[] bucketSegments;
+
+    GeoPolygonEdgeGrid(double[] lats, double[] lons, double minLat, double maxLat, double minLon, double maxLon) {
+        this.lats = lats;
+        this.lons = lons;
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.buckets = Math.max(1, (int) Math.sqrt(lats.length));
+        this.bucketLat = (maxLat - minLat) / buckets;
+        this.bucketLon = (maxLon - minLon) / buckets;
+
+        int cells = buckets * buckets;
+        int[] start = new int[cells + 1];
+
+        // segmento i liga o vértice i - 1 ao i; primeira passada conta, segunda preenche
+        for (int i = 1; i < lats.length; i++) {
+            forEachBucket(i, b -> start[b + 1]++);
+        }
+        for (int b = 0; b < cells; b++) {
+            start[b + 1] += start[b];
+        }
+
+        int[] segments = new int[start[cells]];
+        int[] fill = Arrays.copyOf(start, cells);
+
+        for (int i = 1; i < lats.length; i++) {
+            int segment = i;
+            forEachBucket(i, b -> segments[fill[b]++] = segment);
+        }
+
+        this.bucketStart = start;
+        this.bucketSegments = segments;
+    }
+
+    boolean anySegmentIntersects(double cellMinLat, double cellMaxLat, double cellMinLon, double cellMaxLon) {
+        int la0 = latBucket(cellMinLat);
+        int la1 = latBucket(cellMaxLat);
+        int lo0 = lonBucket(cellMinLon);
+        int lo1 = lonBucket(cellMaxLon);
+
+        for (int la = la0; la <= la1; la++) {
+            for (int lo = lo0; lo <= lo1; lo++) {
+                int b = la * buckets + lo;
+                for (int s = bucketStart[b]; s < bucketStart[b + 1]; s++) {
+                    int i = bucketSegments[s];
+                    if (GeoPolygonShape.segmentIntersectsCell(lats[i - 1], lons[i - 1], lats[i], lons[i],
+                            cellMinLat, cellMaxLat, cellMinLon, cellMaxLon)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void forEachBucket(int segment, IntConsumer action) {
+        int la0 = latBucket(Math.min(lats[segment - 1], lats[segment]));
+        int la1 = latBucket(Math.max(lats[segment - 1], lats[segment]));
+        int lo0 = lonBucket(Math.min(lons[segment - 1], lons[segment]));
+        int lo1 = lonBucket(Math.max(lons[segment - 1], lons[segment]));
+
+        for (int la = la0; la <= la1; la++) {
+            for (int lo = lo0; lo <= lo1; lo++) {
+                action.accept(la * buckets + lo);
+            }
+        }
+    }
+
+    private int latBucket(double lat) {
+        return clamp(bucketLat > 0 ? (int) Math.floor((lat - minLat) / bucketLat) : 0);
+    }
+
+    private int lonBucket(double lon) {
+        return clamp(bucketLon > 0 ? (int) Math.floor((lon - minLon) / bucketLon) : 0);
+    }
+
+    private int clamp(int bucket) {
+        return Math.max(0, Math.min(buckets - 1, bucket));
+    }
+}
@@ -0,0 +1,246 @@
+package com.hypr.geobidding.domain.geo;
+
+import com.hypr.geobidding.domain.campaign.CampaignGeoPoint;
+
+import java.util.List;
+
+/**
+ * Polígono compilado em arrays primitivos (structure-of-arrays), sem boxing nem alocação
+ * por requisição. Mesmo ray casting do GeoPolygonUtils, com as arestas pré-calculadas.
+ * <p>
+ * A partir de {@link #SLAB_VERTEX_THRESHOLD} vértices o polígono também é decomposto em
+ * slabs de longitude (ver {@link GeoPolygonSlabs}) e a consulta passa a ser O(log n).
+ */
+public final class GeoPolygonShape implements GeoShape {
+
+    private static final GeoBatchKernel KERNEL = GeoBatchKernels.get();
+
+    /**
+     * Abaixo disso o loop linear empata ou ganha da busca binária: no GeoPolygonShapeBenchmark
+     * ficou ~36ns x ~35ns com 8 vértices e ~45ns x ~30ns com 16 (escalar). Com o kernel
+     * vetorial (AVX-512) o linear ainda ganha com 64 (~34ns x ~39ns) e perde com 128 (~49ns x ~44ns).
+     */
+    public static final int SLAB_VERTEX_THRESHOLD = GeoBatchKernels.isVectorized() ? 64 : 16;
+
+    // folga para rejeitar por bounding box sem depender de arredondamento no cruzamento
+    private static final double BOX_EPSILON = 1e-9;
+
+    // vértices, na ordem do JSON (último == primeiro)
+    private final double[] lats;
+    private final double[] lons;
+
+    // arestas (j -> i) que podem cruzar o raio, ou seja, com lon_i != lon_j.
+    // O cruzamento é edgeDeltaLat * (lon - edgeLon) / edgeDeltaLon + edgeLat, a mesma
+    // expressão do GeoPolygonUtils, para dar exatamente o mesmo resultado.
+    private final double[] edgeLat;
+    private final double[] edgeLon;
+    private final double[] edgeOtherLon;
+    private final double[] edgeDeltaLat;
+    private final double[] edgeDeltaLon;
+
+    private final double minLat;
+    private final double maxLat;
+    private final double minLon;
+    private final double maxLon;
+
+    // só existem para polígonos grandes
+    private final GeoPolygonSlabs slabs;
+    private final GeoPolygonEdgeGrid edgeGrid;
+
+    /**
+     * Espera um polígono válido para o GeoPolygonUtils (fechado, 4+ pontos).
+     */
+    public GeoPolygonShape(List<CampaignGeoPoint> coords) {
+        this(coords, coords.size() >= SLAB_VERTEX_THRESHOLD);
+    }
+
+    /**
+     * Mesmo polígono a partir dos vértices já em arrays (ex.: lidos do snapshot do índice);
+     * os arrays passam a ser do shape.
+     */
+    public GeoPolygonShape(double[] lats, double[] lons) {
+        this(lats, lons, lats.length >= SLAB_VERTEX_THRESHOLD);
+    }
+
+    GeoPolygonShape(List<CampaignGeoPoint> coords, boolean useSlabs) {
+        this(coordinates(coords, true), coordinates(coords, false), useSlabs);
+    }
+
+    private GeoPolygonShape(double[] lats, double[] lons, boolean useSlabs) {
+        int n = lats.length;
+        this.lats = lats;
+        this.lons = lons;
+
+        int edges = 0;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            if (lons[i] != lons[j]) edges++;
+        }
+
+        this.edgeLat = new double[edges];
+        this.edgeLon = new double[edges];
+        this.edgeOtherLon = new double[edges];
+        this.edgeDeltaLat = new double[edges];
+        this.edgeDeltaLon = new double[edges];
+
+        int e = 0;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            if (lons[i] == lons[j]) {
+                // aresta paralela ao raio nunca satisfaz (yi > lon) != (yj > lon)
+                continue;
+            }
+            edgeLat[e] = lats[i];
+            edgeLon[e] = lons[i];
+            edgeOtherLon[e] = lons[j];
+            edgeDeltaLat[e] = lats[j] - lats[i];
+            edgeDeltaLon[e] = lons[j] - lons[i];
+            e++;
+        }
+
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        double minLon = Double.POSITIVE_INFINITY, maxLon = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < n; i++) {
+            minLat = Math.min(minLat, lats[i]);
+            maxLat = Math.max(maxLat, lats[i]);
+            minLon = Math.min(minLon, lons[i]);
+            maxLon = Math.max(maxLon, lons[i]);
+        }
+
+        this.minLat = minLat;
+        this.maxLat = maxLat;
+        this.minLon = minLon;
+        this.maxLon = maxLon;
+
+        this.slabs = useSlabs
+                ? GeoPolygonSlabs.build(lons, edgeLat, edgeLon, edgeOtherLon, edgeDeltaLat, edgeDeltaLon)
+                : null;
+        this.edgeGrid = useSlabs
+                ? new GeoPolygonEdgeGrid(lats, lons, minLat, maxLat, minLon, maxLon)
+                : null;
+    }
+
+    private static double[] coordinates(List<CampaignGeoPoint> coords, boolean lat) {
+        double[] values = new double[coords.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = lat ? coords.get(i).getLat() : coords.get(i).getLon();
+        }
+        return values;
+    }
+
+    public int vertexCount() {
+        return lats.length;
+    }
+
+    /**
+     * Latitudes dos vértices, na ordem do JSON (sem cópia).
+     */
+    public double[] getLats() {
+        return lats;
+    }
+
+    /**
+     * Longitudes dos vértices, na ordem do JSON (sem cópia).
+     */
+    public double[] getLons() {
+        return lons;
+    }
+
+    public boolean usesSlabs() {
+        return slabs != null;
+    }
+
+    /**
+     * Fora do box o ray casting sempre dá false: com lon fora de [minLon, maxLon) nenhuma aresta
+     * cruza, e com lat fora de [minLat, maxLat] o número de cruzamentos é par ou zero.
+     */
+    @Override
+    public boolean contains(double lat, double lon) {
+        if (lon < minLon || lon >= maxLon
+                || lat < minLat - BOX_EPSILON || lat > maxLat + BOX_EPSILON) {
+            return false;
+        }
+
+        if (slabs != null) {
+            return slabs.contains(lat, lon);
+        }
+
+        // paridade dos cruzamentos; várias arestas por instrução quando vetorizado
+        return (KERNEL.crossings(edgeLat, edgeLon, edgeOtherLon, edgeDeltaLat, edgeDeltaLon, lat, lon) & 1) != 0;
+    }
+
+    @Override
+    public List<double[]> boundingBoxes() {
+        return List.<double[]>of(new double[]{minLat, maxLat, minLon, maxLon});
+    }
+
+    /**
+     * Sem nenhuma aresta cruzando a célula, a paridade do ray casting é a mesma em toda ela:
+     * basta testar o centro.
+     */
+    @Override
+    public GeoCellRelation relate(double cellMinLat, double cellMaxLat, double cellMinLon, double cellMaxLon) {
+        if (cellMaxLat < minLat || cellMinLat > maxLat || cellMaxLon < minLon || cellMinLon > maxLon) {
+            return GeoCellRelation.OUTSIDE;
+        }
+
+        boolean crossed = edgeGrid != null
+                ? edgeGrid.anySegmentIntersects(cellMinLat, cellMaxLat, cellMinLon, cellMaxLon)
+                : anySegmentIntersects(cellMinLat, cellMaxLat, cellMinLon, cellMaxLon);
+
+        if (crossed) {
+            return GeoCellRelation.BOUNDARY;
+        }
+
+        return contains((cellMinLat + cellMaxLat) / 2, (cellMinLon + cellMaxLon) / 2)
+                ? GeoCellRelation.INSIDE
+                : GeoCellRelation.OUTSIDE;
+    }
+
+    private boolean anySegmentIntersects(double cellMinLat, double cellMaxLat, double cellMinLon, double cellMaxLon) {
+        for (int i = 1; i < lats.length; i++) {
+            if (segmentIntersectsCell(lats[i - 1], lons[i - 1], lats[i], lons[i],
+                    cellMinLat, cellMaxLat, cellMinLon, cellMaxLon)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Liang–Barsky: recorta o segmento contra o retângulo fechado da célula.
+     */
+    static boolean segmentIntersectsCell(
+            double lat1, double lon1,
+            double lat2, double lon2,
+            double minLat, double maxLat,
+            double minLon, double maxLon
+    ) {
+        double dLat = lat2 - lat1;
+        double dLon = lon2 - lon1;
+        double[] p = {-dLat, dLat, -dLon, dLon};
+        double[] q = {lat1 - minLat, maxLat - lat1, lon1 - minLon, maxLon - lon1};
+
+        double t0 = 0.0;
+        double t1 = 1.0;
+
+        for (int k = 0; k < 4; k++) {
+            if (p[k] == 0) {
+                if (q[k] < 0) {
+                    return false;
+                }
+                continue;
+            }
+
+            double t = q[k] / p[k];
+            if (p[k] < 0) {
+                t0 = Math.max(t0, t);
+            } else {
+                t1 = Math.min(t1, t);
+            }
+            if (t0 > t1) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,218 @@
+package com.hypr.geobidding.domain.geo;
+
+import java.util.Arrays;
+
+/**
+ * Decomposição do polígono em slabs de longitude para ray casting em O(log n).
+ * <p>
+ * Os slabs são os intervalos [lon_k, lon_k+1) entre longitudes distintas dos vértices.
+ * Dentro de um slab o conjunto de arestas que satisfazem (yi > lon) != (yj > lon) é fixo,
+ * e num polígono simples elas não se cruzam, então ficam ordenadas pela latitude do
+ * cruzamento. A consulta acha o slab por busca binária e conta os cruzamentos acima
+ * do usuário com outra busca binária.
+ * <p>
+ * Os cruzamentos são calculados com a mesma expressão do GeoPolygonUtils, então a paridade
+ * é idêntica à do ray casting linear: a busca só decide a posição, e as arestas quase
+ * empatadas (dentro de TOLERANCE) em volta dela são conferidas uma a uma. Slabs com arestas
+ * que se cruzam (polígono auto-intersectante) caem no loop linear do próprio slab.
+ */
+final class GeoPolygonSlabs {
+
+    // muito maior que o erro de arredondamento de um cruzamento (~1e-14 graus)
+    private static final double TOLERANCE = 1e-9;
+
+    // teto de memória: sem ele um polígono patológico poderia gerar O(n²) entradas
+    private static final int MAX_ENTRIES_PER_VERTEX = 64;
+
+    private final double[] slabLons;
+    private final int[] slabStart;
+    private final int[] slabEdges;
+    private final boolean[] sorted;
+
+    private final double[] edgeLat;
+    private final double[] edgeLon;
+    private final double[] edgeDeltaLat;
+    private final double[] edgeDeltaLon;
+
+    private GeoPolygonSlabs(
+            double[] slabLons, int[] slabStart, int[] slabEdges, boolean[] sorted,
+            double[] edgeLat, double[] edgeLon, double[] edgeDeltaLat, double[] edgeDeltaLon
+    ) {
+        this.slabLons = slabLons;
+        this.slabStart = slabStart;
+        this.slabEdges = slabEdges;
+        this.sorted = sorted;
+        this.edgeLat = edgeLat;
+        this.edgeLon = edgeLon;
+        this.edgeDeltaLat = edgeDeltaLat;
+        this.edgeDeltaLon = edgeDeltaLon;
+    }
+
+    /**
+     * @return os slabs, ou null quando o polígono geraria entradas demais
+     */
+    static GeoPolygonSlabs build(
+            double[] vertexLons,
+            double[] edgeLat, double[] edgeLon, double[] edgeOtherLon,
+            double[] edgeDeltaLat, double[] edgeDeltaLon
+    ) {
+        double[] slabLons = Arrays.stream(vertexLons).sorted().distinct().toArray();
+        int slabCount = slabLons.length - 1;
+        if (slabCount < 1) {
+            return null;
+        }
+
+        // aresta cobre os slabs [first, last) entre as longitudes dos seus vértices
+        int edges = edgeLat.length;
+        int[] first = new int[edges];
+        int[] last = new int[edges];
+        int[] slabStart = new int[slabCount + 1];
+        long total = 0;
+
+        for (int e = 0; e < edges; e++) {
+            first[e] = Arrays.binarySearch(slabLons, Math.min(edgeLon[e], edgeOtherLon[e]));
+            last[e] = Arrays.binarySearch(slabLons, Math.max(edgeLon[e], edgeOtherLon[e]));
+            total += last[e] - first[e];
+
+            for (int k = first[e]; k < last[e]; k++) {
+                slabStart[k + 1]++;
+            }
+            if (total > (long) MAX_ENTRIES_PER_VERTEX * vertexLons.length) {
+                return null;
+            }
+        }
+
+        for (int k = 0; k < slabCount; k++) {
+            slabStart[k + 1] += slabStart[k];
+        }
+
+        int[] slabEdges = new int[(int) total];
+        int[] fill = Arrays.copyOf(slabStart, slabCount);
+
+        for (int e = 0; e < edges; e++) {
+            for (int k = first[e]; k < last[e]; k++) {
+                slabEdges[fill[k]++] = e;
+            }
+        }
+
+        GeoPolygonSlabs slabs = new GeoPolygonSlabs(
+                slabLons, slabStart, slabEdges, new boolean[slabCount],
+                edgeLat, edgeLon, edgeDeltaLat, edgeDeltaLon);
+
+        for (int k = 0; k < slabCount; k++) {
+            slabs.sortSlab(k);
+        }
+        return slabs;
+    }
+
+    boolean contains(double lat, double lon) {
+        // também descarta NaN, como o ray casting linear
+        if (!(lon >= slabLons[0] && lon < slabLons[slabLons.length - 1])) {
+            return false;
+        }
+
+        int k = floorSlab(lon);
+        int from = slabStart[k];
+        int to = slabStart[k + 1];
+
+        if (!sorted[k]) {
+            boolean inside = false;
+            for (int i = from; i < to; i++) {
+                if (lat < crossingLat(slabEdges[i], lon)) {
+                    inside = !inside;
+                }
+            }
+            return inside;
+        }
+
+        // primeira aresta com cruzamento acima do usuário
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (crossingLat(slabEdges[mid], lon) > lat) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+
+        int count = to - lo;
+
+        // arestas quase empatadas podem estar fora de ordem por arredondamento
+        for (int i = lo - 1; i >= from; i--) {
+            double x = crossingLat(slabEdges[i], lon);
+            if (x <= lat - TOLERANCE) break;
+            if (x > lat) count++;
+        }
+        for (int i = lo; i < to; i++) {
+            double x = crossingLat(slabEdges[i], lon);
+            if (x > lat + TOLERANCE) break;
+            if (x <= lat) count--;
+        }
+
+        return (count & 1) == 1;
+    }
+
+    int slabCount() {
+        return sorted.length;
+    }
+
+    int entryCount() {
+        return slabEdges.length;
+    }
+
+    // mesma expressão do GeoPolygonUtils
+    private double crossingLat(int e, double lon) {
+        return edgeDeltaLat[e] * (lon - edgeLon[e]) / edgeDeltaLon[e] + edgeLat[e];
+    }
+
+    // maior k com slabLons[k] <= lon
+    private int floorSlab(double lon) {
+        int lo = 0;
+        int hi = slabLons.length - 2;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (slabLons[mid] <= lon) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Ordena as arestas do slab pelo cruzamento no meio do slab e confere, nas duas bordas,
+     * que nenhuma aresta fica acima de uma posterior por mais de TOLERANCE / 2.
+     * Como os cruzamentos são lineares na longitude, isso vale para o slab inteiro.
+     */
+    private void sortSlab(int k) {
+        int from = slabStart[k];
+        int to = slabStart[k + 1];
+        double mid = (slabLons[k] + slabLons[k + 1]) / 2;
+
+        Integer[] order = new Integer[to - from];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = slabEdges[from + i];
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(crossingLat(a, mid), crossingLat(b, mid)));
+        for (int i = 0; i < order.length; i++) {
+            slabEdges[from + i] = order[i];
+        }
+
+        sorted[k] = isNearlySorted(from, to, slabLons[k]) && isNearlySorted(from, to, slabLons[k + 1]);
+    }
+
+    private boolean isNearlySorted(int from, int to, double lon) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            double x = crossingLat(slabEdges[i], lon);
+            if (max > x + TOLERANCE / 2) {
+                return false;
+            }
+            max = Math.max(max, x);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,185 @@
+package com.hypr.geobidding.domain.geo;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Ball tree sobre os raios de um multi_radius, montado no espaço 3D dos vetores unitários.
+ * Ali cada raio é uma bola euclidiana (centro c, raio = corda), e cada nó guarda uma bola
+ * que envolve todas as bolas dos seus filhos: se o usuário está fora dela, nenhum raio
+ * do nó pode conter o usuário e o nó inteiro é descartado.
+ * <p>
+ * Nas folhas o teste é o mesmo de {@link GeoRadiusShape#contains(GeoPoint)}, na mesma ordem
+ * de operações, então o resultado é idêntico ao loop linear.
+ */
+final class GeoRadiusBallTree {
+
+    static final int LEAF_SIZE = 8;
+
+    // folga no alcance do nó para o arredondamento da desigualdade triangular (valores ~1)
+    private static final double REACH_SLACK = 1e-12;
+
+    // raios reordenados de forma que cada nó cobre um intervalo contíguo
+    private final double[] centerX;
+    private final double[] centerY;
+    private final double[] centerZ;
+    private final double[] squaredChords;
+
+    // nós em pré-ordem: filho esquerdo = nó + 1, direito = nodeRight (-1 em folha)
+    private final double[] nodeX;
+    private final double[] nodeY;
+    private final double[] nodeZ;
+    private final double[] nodeSquaredReach;
+    private final int[] nodeStart;
+    private final int[] nodeEnd;
+    private final int[] nodeRight;
+
+    private int nodeCount;
+
+    /**
+     * @return árvore com os raios que podem conter algum ponto, ou null se nenhum pode
+     */
+    static GeoRadiusBallTree build(GeoRadiusShape[] radii) {
+        // raio negativo nunca contém ninguém e só atrapalharia os alcances
+        GeoRadiusShape[] usable = Arrays.stream(radii)
+                .filter(r -> r.getSquaredChord() >= 0)
+                .toArray(GeoRadiusShape[]::new);
+
+        return usable.length == 0 ? null : new GeoRadiusBallTree(usable);
+    }
+
+    private GeoRadiusBallTree(GeoRadiusShape[] radii) {
+        int n = radii.length;
+        this.centerX = new double[n];
+        this.centerY = new double[n];
+        this.centerZ = new double[n];
+        this.squaredChords = new double[n];
+
+        // folhas <= n, então nós <= 2n - 1
+        int capacity = 2 * n;
+        this.nodeX = new double[capacity];
+        this.nodeY = new double[capacity];
+        this.nodeZ = new double[capacity];
+        this.nodeSquaredReach = new double[capacity];
+        this.nodeStart = new int[capacity];
+        this.nodeEnd = new int[capacity];
+        this.nodeRight = new int[capacity];
+
+        GeoRadiusShape[] order = radii.clone();
+        buildNode(order, 0, n);
+
+        for (int i = 0; i < n; i++) {
+            GeoPoint c = order[i].getCenter();
+            centerX[i] = c.getX();
+            centerY[i] = c.getY();
+            centerZ[i] = c.getZ();
+            squaredChords[i] = order[i].getSquaredChord();
+        }
+    }
+
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    boolean containsAny(GeoPoint point) {
+        return containsAny(0, point.getX(), point.getY(), point.getZ());
+    }
+
+    private boolean containsAny(int node, double x, double y, double z) {
+        double dx = x - nodeX[node];
+        double dy = y - nodeY[node];
+        double dz = z - nodeZ[node];
+        if (dx * dx + dy * dy + dz * dz > nodeSquaredReach[node]) {
+            return false;
+        }
+
+        int right = nodeRight[node];
+        if (right < 0) {
+            for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+                double ex = x - centerX[i];
+                double ey = y - centerY[i];
+                double ez = z - centerZ[i];
+                if (ex * ex + ey * ey + ez * ez <= squaredChords[i]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        return containsAny(node + 1, x, y, z) || containsAny(right, x, y, z);
+    }
+
+    private int buildNode(GeoRadiusShape[] order, int start, int end) {
+        int node = nodeCount++;
+        nodeStart[node] = start;
+        nodeEnd[node] = end;
+
+        // centro do nó = média dos centros (não precisa estar na esfera)
+        double mx = 0, my = 0, mz = 0;
+        for (int i = start; i < end; i++) {
+            GeoPoint c = order[i].getCenter();
+            mx += c.getX();
+            my += c.getY();
+            mz += c.getZ();
+        }
+        int count = end - start;
+        mx /= count;
+        my /= count;
+        mz /= count;
+
+        double reach = 0;
+        for (int i = start; i < end; i++) {
+            GeoPoint c = order[i].getCenter();
+            double dx = c.getX() - mx;
+            double dy = c.getY() - my;
+            double dz = c.getZ() - mz;
+            reach = Math.max(reach, Math.sqrt(dx * dx + dy * dy + dz * dz) + Math.sqrt(order[i].getSquaredChord()));
+        }
+        reach += REACH_SLACK;
+
+        nodeX[node] = mx;
+        nodeY[node] = my;
+        nodeZ[node] = mz;
+        nodeSquaredReach[node] = reach * reach;
+
+        if (count <= LEAF_SIZE) {
+            nodeRight[node] = -1;
+            return node;
+        }
+
+        // divide pela mediana do eixo de maior espalhamento
+        Comparator<GeoRadiusShape> byAxis = axisComparator(order, start, end);
+        Arrays.sort(order, start, end, byAxis);
+
+        int mid = (start + end) >>> 1;
+        buildNode(order, start, mid);
+        nodeRight[node] = buildNode(order, mid, end);
+        return node;
+    }
+
+    private static Comparator<GeoRadiusShape> axisComparator(GeoRadiusShape[] order, int start, int end) {
+        double[] min = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        double[] max = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+
+        for (int i = start; i < end; i++) {
+            GeoPoint c = order[i].getCenter();
+            double[] v = {c.getX(), c.getY(), c.getZ()};
+            for (int a = 0; a < 3; a++) {
+                min[a] = Math.min(min[a], v[a]);
+                max[a] = Math.max(max[a], v[a]);
+            }
+        }
+
+        double spreadX = max[0] - min[0];
+        double spreadY = max[1] - min[1];
+        double spreadZ = max[2] - min[2];
+
+        if (spreadX >= spreadY && spreadX >= spreadZ) {
+            return Comparator.comparingDouble(r -> r.getCenter().getX());
+        }
+        if (spreadY >= spreadZ) {
+            return Comparator.comparingDouble(r -> r.getCenter().getY());
+        }
+        return Comparator.comparingDouble(r -> r.getCenter().getZ());
+    }
+}
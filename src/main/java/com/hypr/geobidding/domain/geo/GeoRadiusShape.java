@@ -0,0 +1,202 @@
+package com.hypr.geobidding.domain.geo;
+
+import com.hypr.geobidding.utils.geo.GeoRadiusUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Raio compilado: centro como vetor unitário e raio como corda ao quadrado.
+ * O teste por requisição é uma diferença de vetores e uma comparação, sem trigonometria.
+ */
+public final class GeoRadiusShape implements GeoShape {
+
+    // raio reduzido usado para declarar uma célula inteira como interna
+    private static final double INTERIOR_MARGIN = 1e-4;
+
+    // folga do bounding box para o arredondamento do asin e das cordas
+    private static final double BOX_PADDING_DEGREES = 1e-7;
+
+    // folga angular (rad) antes de declarar uma célula inteira como externa
+    private static final double EXTERIOR_SLACK = 1e-9;
+
+    private final double centerLat;
+    private final double centerLon;
+    private final double radiusKm;
+
+    private final GeoPoint center;
+    private final double squaredChord;
+    private final double innerSquaredChord;
+
+    // raio como ângulo central (rad), para o teste de célula externa
+    private final double radiusAngle;
+
+    private final List<double[]> boxes;
+
+    public GeoRadiusShape(double centerLat, double centerLon, double radiusKm) {
+        this.centerLat = centerLat;
+        this.centerLon = centerLon;
+        this.radiusKm = radiusKm;
+
+        this.center = GeoPoint.of(centerLat, centerLon);
+        this.squaredChord = GeoRadiusUtils.squaredChordThreshold(radiusKm);
+        this.innerSquaredChord = GeoRadiusUtils.squaredChordThreshold(radiusKm * (1 - INTERIOR_MARGIN));
+        this.radiusAngle = angleOf(squaredChord);
+        this.boxes = radiusKm < 0 ? List.of() : buildBoxes(centerLat, centerLon, radiusKm);
+    }
+
+    public double getCenterLat() {
+        return centerLat;
+    }
+
+    public double getCenterLon() {
+        return centerLon;
+    }
+
+    public double getRadiusKm() {
+        return radiusKm;
+    }
+
+    public GeoPoint getCenter() {
+        return center;
+    }
+
+    /**
+     * Raio como corda ao quadrado entre vetores unitários (negativo = nunca contém).
+     */
+    public double getSquaredChord() {
+        return squaredChord;
+    }
+
+    @Override
+    public boolean contains(double lat, double lon) {
+        return center.squaredChordTo(lat, lon) <= squaredChord;
+    }
+
+    @Override
+    public boolean contains(GeoPoint point) {
+        // mesma conta de GeoRadiusUtils.isPointInsideRadius, com os dois vetores já prontos
+        return GeoRadiusUtils.squaredChord(
+                point.getX(), point.getY(), point.getZ(),
+                center.getX(), center.getY(), center.getZ()
+        ) <= squaredChord;
+    }
+
+    @Override
+    public List<double[]> boundingBoxes() {
+        return boxes;
+    }
+
+    /**
+     * Para uma latitude fixa a distância ao centro cresce com |Δlon|, e ao longo de um meridiano
+     * ela é máxima numa das pontas; então, numa célula lat/lon, o ponto mais distante é um canto
+     * e a célula é interna quando os 4 cantos estão dentro (com margem).
+     * A exceção é a célula que cruza o antimeridiano do centro, tratada como borda.
+     */
+    @Override
+    public GeoCellRelation relate(double cellMinLat, double cellMaxLat, double cellMinLon, double cellMaxLon) {
+        if (!intersectsAnyBox(cellMinLat, cellMaxLat, cellMinLon, cellMaxLon)) {
+            return GeoCellRelation.OUTSIDE;
+        }
+
+        if (crosses(cellMinLon, cellMaxLon, centerLon - 180) || crosses(cellMinLon, cellMaxLon, centerLon + 180)) {
+            return GeoCellRelation.BOUNDARY;
+        }
+
+        if (center.squaredChordTo(cellMinLat, cellMinLon) <= innerSquaredChord
+                && center.squaredChordTo(cellMinLat, cellMaxLon) <= innerSquaredChord
+                && center.squaredChordTo(cellMaxLat, cellMinLon) <= innerSquaredChord
+                && center.squaredChordTo(cellMaxLat, cellMaxLon) <= innerSquaredChord) {
+            return GeoCellRelation.INSIDE;
+        }
+
+        if (isOutside(cellMinLat, cellMaxLat, cellMinLon, cellMaxLon)) {
+            return GeoCellRelation.OUTSIDE;
+        }
+        return GeoCellRelation.BOUNDARY;
+    }
+
+    /**
+     * Pelo mesmo argumento dos cantos, a célula cabe na calota centrada no seu meio com raio
+     * igual à distância ao canto mais longe; se essa calota não alcança o círculo, nenhum ponto
+     * da célula alcança. Pega os cantos do bounding box que o teste de box deixa passar.
+     */
+    private boolean isOutside(double cellMinLat, double cellMaxLat, double cellMinLon, double cellMaxLon) {
+        if (!Double.isFinite(radiusAngle)) {
+            return false;
+        }
+
+        double midLat = (cellMinLat + cellMaxLat) / 2;
+        double midLon = (cellMinLon + cellMaxLon) / 2;
+
+        // a célula é simétrica em longitude em volta do meio: basta um canto de cada latitude
+        double reach = angleOf(Math.max(
+                squaredChord(cellMinLat, cellMinLon, midLat, midLon),
+                squaredChord(cellMaxLat, cellMinLon, midLat, midLon)));
+        if (reach >= Math.PI / 2) {
+            return false;
+        }
+        return angleOf(center.squaredChordTo(midLat, midLon)) > radiusAngle + reach + EXTERIOR_SLACK;
+    }
+
+    private static double squaredChord(double lat1, double lon1, double lat2, double lon2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double dLambda = Math.toRadians(lon2 - lon1);
+
+        // |a - b|² = 2 - 2 a·b
+        double dot = Math.sin(phi1) * Math.sin(phi2) + Math.cos(phi1) * Math.cos(phi2) * Math.cos(dLambda);
+        return Math.max(0.0, 2.0 - 2.0 * dot);
+    }
+
+    // ângulo central a partir da corda ao quadrado entre vetores unitários
+    private static double angleOf(double squaredChord) {
+        if (!(squaredChord < 4.0)) {
+            return squaredChord == Double.POSITIVE_INFINITY ? Double.POSITIVE_INFINITY : Math.PI;
+        }
+        return 2 * Math.asin(Math.sqrt(Math.max(0.0, squaredChord)) / 2);
+    }
+
+    private boolean intersectsAnyBox(double cellMinLat, double cellMaxLat, double cellMinLon, double cellMaxLon) {
+        for (double[] box : boxes) {
+            if (cellMaxLat >= box[0] && cellMinLat <= box[1] && cellMaxLon >= box[2] && cellMinLon <= box[3]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean crosses(double min, double max, double lon) {
+        return min < lon && lon < max;
+    }
+
+    /**
+     * Box exato do círculo de grande círculo; quando passa do antimeridiano vira dois boxes,
+     * e quando alcança um polo cobre todas as longitudes.
+     */
+    private static List<double[]> buildBoxes(double centerLat, double centerLon, double radiusKm) {
+        double deltaLat = GeoRadiusUtils.deltaLatDegrees(radiusKm) + BOX_PADDING_DEGREES;
+        double deltaLon = GeoRadiusUtils.deltaLonDegrees(centerLat, radiusKm) + BOX_PADDING_DEGREES;
+
+        double minLat = Math.max(-90.0, centerLat - deltaLat);
+        double maxLat = Math.min(90.0, centerLat + deltaLat);
+        double minLon = centerLon - deltaLon;
+        double maxLon = centerLon + deltaLon;
+
+        if (!(deltaLon < 180.0)) {
+            return List.<double[]>of(new double[]{minLat, maxLat, -180.0, 180.0});
+        }
+
+        List<double[]> boxes = new ArrayList<>(2);
+        if (minLon < -180.0) {
+            boxes.add(new double[]{minLat, maxLat, minLon + 360.0, 180.0});
+            boxes.add(new double[]{minLat, maxLat, -180.0, maxLon});
+        } else if (maxLon > 180.0) {
+            boxes.add(new double[]{minLat, maxLat, minLon, 180.0});
+            boxes.add(new double[]{minLat, maxLat, -180.0, maxLon - 360.0});
+        } else {
+            boxes.add(new double[]{minLat, maxLat, minLon, maxLon});
+        }
+        return List.copyOf(boxes);
+    }
+}
@@ -0,0 +1,38 @@
+package com.hypr.geobidding.domain.geo;
+
+/**
+ * Loop simples, um elemento por vez; fallback quando o jdk.incubator.vector não está disponível.
+ */
+final class GeoScalarBatchKernel implements GeoBatchKernel {
+
+    @Override
+    public boolean anyWithin(double[] centerX, double[] centerY, double[] centerZ, double[] squaredChords,
+                             int length, GeoPoint point) {
+        double x = point.getX();
+        double y = point.getY();
+        double z = point.getZ();
+
+        for (int i = 0; i < length; i++) {
+            double dx = x - centerX[i];
+            double dy = y - centerY[i];
+            double dz = z - centerZ[i];
+            if (dx * dx + dy * dy + dz * dz <= squaredChords[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int crossings(double[] edgeLat, double[] edgeLon, double[] edgeOtherLon,
+                         double[] edgeDeltaLat, double[] edgeDeltaLon, double lat, double lon) {
+        int count = 0;
+        for (int e = 0; e < edgeLat.length; e++) {
+            if ((edgeLon[e] > lon) != (edgeOtherLon[e] > lon)
+                    && lat < edgeDeltaLat[e] * (lon - edgeLon[e]) / edgeDeltaLon[e] + edgeLat[e]) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
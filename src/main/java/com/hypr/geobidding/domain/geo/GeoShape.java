@@ -0,0 +1,26 @@
+package com.hypr.geobidding.domain.geo;
+
+import java.util.List;
+
+/**
+ * Área de targeting ou exclusão compilada no load das campanhas.
+ */
+public interface GeoShape {
+
+    boolean contains(double lat, double lon);
+
+    /**
+     * Mesmo resultado de contains(lat, lon); os raios usam o vetor unitário já calculado
+     * uma vez para a requisição.
+     */
+    default boolean contains(GeoPoint point) {
+        return contains(point.getLat(), point.getLon());
+    }
+
+    /**
+     * Bounding boxes {minLat, maxLat, minLon, maxLon}; nenhum ponto fora deles está no shape.
+     */
+    List<double[]> boundingBoxes();
+
+    GeoCellRelation relate(double minLat, double maxLat, double minLon, double maxLon);
+}
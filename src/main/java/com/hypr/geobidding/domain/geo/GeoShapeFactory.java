@@ -0,0 +1,187 @@
+package com.hypr.geobidding.domain.geo;
+
+import com.hypr.geobidding.domain.campaign.CampaignAreaType;
+import com.hypr.geobidding.domain.campaign.CampaignExclusion;
+import com.hypr.geobidding.domain.campaign.CampaignGeoPoint;
+import com.hypr.geobidding.domain.campaign.CampaignRadiusTarget;
+import com.hypr.geobidding.domain.campaign.CampaignTargeting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compila targeting/exclusões do JSON em shapes com cobertura de células.
+ * Shapes inválidos viram GeoEmptyShape, que nunca dá match.
+ */
+public final class GeoShapeFactory {
+
+    private GeoShapeFactory() {}
+
+    public static GeoShape fromTargeting(CampaignTargeting targeting) {
+        if (targeting == null || targeting.getType() == null) {
+            return GeoEmptyShape.INSTANCE;
+        }
+
+        switch (targeting.getType()) {
+            case RADIUS:
+                return GeoCoveredShape.cover(radius(targeting.getCenter(), targeting.getRadiusKm()));
+
+            case MULTI_RADIUS:
+                return GeoCoveredShape.cover(multiRadius(targeting.getTargets()));
+
+            case POLYGON:
+                return GeoCoveredShape.cover(polygon(targeting.getCampaignCoords()));
+
+            default:
+                return GeoEmptyShape.INSTANCE;
+        }
+    }
+
+    /**
+     * Exclusões só aceitam RADIUS e POLYGON; outros tipos nunca excluem.
+     */
+    public static GeoShape fromExclusion(CampaignExclusion exclusion) {
+        if (exclusion == null || exclusion.getType() == null) {
+            return GeoEmptyShape.INSTANCE;
+        }
+
+        switch (exclusion.getType()) {
+            case RADIUS:
+                return GeoCoveredShape.cover(radius(exclusion.getCenter(), exclusion.getRadiusKm()));
+
+            case POLYGON:
+                return GeoCoveredShape.cover(polygon(exclusion.getCampaignCoords()));
+
+            default:
+                return GeoEmptyShape.INSTANCE;
+        }
+    }
+
+    public static GeoShape[] fromExclusions(List<CampaignExclusion> exclusions) {
+        if (exclusions == null || exclusions.isEmpty()) {
+            return new GeoShape[0];
+        }
+
+        List<GeoShape> shapes = new ArrayList<>(exclusions.size());
+        for (CampaignExclusion exclusion : exclusions) {
+            GeoShape shape = fromExclusion(exclusion);
+            if (shape != GeoEmptyShape.INSTANCE) {
+                shapes.add(shape);
+            }
+        }
+        return shapes.toArray(new GeoShape[0]);
+    }
+
+    // --------- chaves de interning ---------
+
+    /**
+     * Chave de igualdade geométrica: dois targetings com a mesma chave compilam para o mesmo
+     * shape e podem compartilhar a instância (e o resultado por requisição).
+     *
+     * @return null quando o targeting vira GeoEmptyShape de qualquer jeito
+     */
+    public static Object targetingKey(CampaignTargeting targeting) {
+        if (targeting == null || targeting.getType() == null) {
+            return null;
+        }
+
+        switch (targeting.getType()) {
+            case RADIUS:
+                return radiusKey(targeting.getCenter(), targeting.getRadiusKm());
+
+            case MULTI_RADIUS:
+                return multiRadiusKey(targeting.getTargets());
+
+            case POLYGON:
+                return Arrays.asList(CampaignAreaType.POLYGON, targeting.getCoords());
+
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Mesmo formato de {@link #targetingKey}: uma exclusão igual a um targeting divide o shape.
+     */
+    public static Object exclusionKey(CampaignExclusion exclusion) {
+        if (exclusion == null || exclusion.getType() == null) {
+            return null;
+        }
+
+        switch (exclusion.getType()) {
+            case RADIUS:
+                return radiusKey(exclusion.getCenter(), exclusion.getRadiusKm());
+
+            case POLYGON:
+                return Arrays.asList(CampaignAreaType.POLYGON, exclusion.getCoords());
+
+            default:
+                return null;
+        }
+    }
+
+    private static Object radiusKey(CampaignGeoPoint center, Double radiusKm) {
+        return Arrays.asList(CampaignAreaType.RADIUS,
+                center == null ? null : center.getLat(),
+                center == null ? null : center.getLon(),
+                radiusKm);
+    }
+
+    private static Object multiRadiusKey(List<CampaignRadiusTarget> targets) {
+        if (targets == null) {
+            return null;
+        }
+
+        List<Object> key = new ArrayList<>(targets.size() + 1);
+        key.add(CampaignAreaType.MULTI_RADIUS);
+        for (CampaignRadiusTarget target : targets) {
+            key.add(target == null ? null : radiusKey(target.getCenter(), target.getRadiusKm()));
+        }
+        return key;
+    }
+
+    // --------- exatos ---------
+
+    private static GeoShape radius(CampaignGeoPoint center, Double radiusKm) {
+        if (!isValid(center) || radiusKm == null) {
+            return GeoEmptyShape.INSTANCE;
+        }
+        return new GeoRadiusShape(center.getLat(), center.getLon(), radiusKm);
+    }
+
+    private static GeoShape multiRadius(List<CampaignRadiusTarget> targets) {
+        if (targets == null) {
+            return GeoEmptyShape.INSTANCE;
+        }
+
+        List<GeoRadiusShape> radii = new ArrayList<>(targets.size());
+        for (CampaignRadiusTarget target : targets) {
+            if (target != null && isValid(target.getCenter()) && target.getRadiusKm() != null) {
+                radii.add(new GeoRadiusShape(
+                        target.getCenter().getLat(), target.getCenter().getLon(), target.getRadiusKm()));
+            }
+        }
+        return radii.isEmpty() ? GeoEmptyShape.INSTANCE : new GeoMultiRadiusShape(radii);
+    }
+
+    private static GeoShape polygon(List<CampaignGeoPoint> coords) {
+        // mesmas regras do GeoPolygonUtils: 4+ pontos e primeiro == último
+        if (coords == null || coords.size() < 4) {
+            return GeoEmptyShape.INSTANCE;
+        }
+
+        CampaignGeoPoint first = coords.get(0);
+        CampaignGeoPoint last = coords.get(coords.size() - 1);
+
+        if (Double.compare(first.getLat(), last.getLat()) != 0
+                || Double.compare(first.getLon(), last.getLon()) != 0) {
+            return GeoEmptyShape.INSTANCE;
+        }
+        return new GeoPolygonShape(coords);
+    }
+
+    private static boolean isValid(CampaignGeoPoint point) {
+        return point != null && point.getLat() != null && point.getLon() != null;
+    }
+}
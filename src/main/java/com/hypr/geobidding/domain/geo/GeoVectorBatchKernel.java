@@ -0,0 +1,92 @@
+package com.hypr.geobidding.domain.geo;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Mesmo cálculo do GeoScalarBatchKernel com jdk.incubator.vector: SPECIES_PREFERRED processa
+ * 4 doubles por instrução com AVX2 e 8 com AVX-512. Só é carregada pelo GeoBatchKernels
+ * quando o módulo está no boot layer (--add-modules jdk.incubator.vector).
+ * <p>
+ * As operações por lane são as mesmas do escalar (sub, mul, add, div, sem FMA), então o
+ * resultado é idêntico bit a bit; a cauda que não completa um vetor vai no loop escalar.
+ */
+final class GeoVectorBatchKernel implements GeoBatchKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public boolean anyWithin(double[] centerX, double[] centerY, double[] centerZ, double[] squaredChords,
+                             int length, GeoPoint point) {
+        double x = point.getX();
+        double y = point.getY();
+        double z = point.getZ();
+
+        DoubleVector px = DoubleVector.broadcast(SPECIES, x);
+        DoubleVector py = DoubleVector.broadcast(SPECIES, y);
+        DoubleVector pz = DoubleVector.broadcast(SPECIES, z);
+
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector dx = px.sub(DoubleVector.fromArray(SPECIES, centerX, i));
+            DoubleVector dy = py.sub(DoubleVector.fromArray(SPECIES, centerY, i));
+            DoubleVector dz = pz.sub(DoubleVector.fromArray(SPECIES, centerZ, i));
+            DoubleVector d2 = dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz));
+
+            if (d2.compare(VectorOperators.LE, DoubleVector.fromArray(SPECIES, squaredChords, i)).anyTrue()) {
+                return true;
+            }
+        }
+
+        for (; i < length; i++) {
+            double dx = x - centerX[i];
+            double dy = y - centerY[i];
+            double dz = z - centerZ[i];
+            if (dx * dx + dy * dy + dz * dz <= squaredChords[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int crossings(double[] edgeLat, double[] edgeLon, double[] edgeOtherLon,
+                         double[] edgeDeltaLat, double[] edgeDeltaLon, double lat, double lon) {
+        int length = edgeLat.length;
+        int count = 0;
+
+        DoubleVector pointLon = DoubleVector.broadcast(SPECIES, lon);
+
+        int e = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; e < bound; e += SPECIES.length()) {
+            DoubleVector from = DoubleVector.fromArray(SPECIES, edgeLon, e);
+            VectorMask<Double> fromAbove = from.compare(VectorOperators.GT, lon);
+            VectorMask<Double> toAbove = DoubleVector.fromArray(SPECIES, edgeOtherLon, e).compare(VectorOperators.GT, lon);
+            // (edgeLon > lon) != (edgeOtherLon > lon)
+            VectorMask<Double> spans = fromAbove.eq(toAbove).not();
+            if (!spans.anyTrue()) {
+                continue;
+            }
+
+            // edgeDeltaLat * (lon - edgeLon) / edgeDeltaLon + edgeLat, na mesma ordem do escalar
+            DoubleVector crossing = DoubleVector.fromArray(SPECIES, edgeDeltaLat, e)
+                    .mul(pointLon.sub(from))
+                    .div(DoubleVector.fromArray(SPECIES, edgeDeltaLon, e))
+                    .add(DoubleVector.fromArray(SPECIES, edgeLat, e));
+
+            count += crossing.compare(VectorOperators.GT, lat).and(spans).trueCount();
+        }
+
+        for (; e < length; e++) {
+            if ((edgeLon[e] > lon) != (edgeOtherLon[e] > lon)
+                    && lat < edgeDeltaLat[e] * (lon - edgeLon[e]) / edgeDeltaLon[e] + edgeLat[e]) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
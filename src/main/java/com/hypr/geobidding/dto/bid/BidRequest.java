@@ -1,14 +1,21 @@
 package com.hypr.geobidding.dto.bid;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 
+import java.time.DateTimeException;
 import java.time.OffsetDateTime;
 
 public class BidRequest {
 
+    /**
+     * getTimestampMillis() sem timestamp, ou com um que não é ISO-8601 com offset.
+     */
+    public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
     @NotNull
     @JsonProperty("request_id")
     private String requestId;
@@ -28,6 +35,10 @@ public class BidRequest {
 
     private String timestamp;
 
+    // timestamp em epoch millis, convertido uma vez na desserialização e não a cada leitura
+    @JsonIgnore
+    private long timestampMillis = NO_TIMESTAMP;
+
     public String getRequestId() {
         return requestId;
     }
@@ -58,6 +69,11 @@ public class BidRequest {
 
     public void setTimestamp(String timestamp) {
         this.timestamp = timestamp;
+        this.timestampMillis = toEpochMillis(timestamp);
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
     }
 
     public BidRequestDevice getDevice() {
@@ -67,4 +83,16 @@ public class BidRequest {
     public void setDevice(BidRequestDevice device) {
         this.device = device;
     }
+
+    private static long toEpochMillis(String timestamp) {
+        if (timestamp == null) {
+            return NO_TIMESTAMP;
+        }
+        try {
+            return OffsetDateTime.parse(timestamp).toInstant().toEpochMilli();
+        } catch (DateTimeException e) {
+            // timestamp inválido não recusa a requisição: só fica sem prazo descontado
+            return NO_TIMESTAMP;
+        }
+    }
 }
@@ -1,7 +1,9 @@
 package com.hypr.geobidding.dto.bid;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.hypr.geobidding.domain.campaign.CampaignAdFormat;
+import com.hypr.geobidding.utils.price.PriceMicrosUtils;
 import jakarta.validation.constraints.NotNull;
 
 import java.math.BigDecimal;
@@ -20,6 +22,10 @@ public class BidRequestInventory {
     @JsonProperty("floor_price")
     private BigDecimal floorPrice;
 
+    // convertido uma vez no parse; é o valor comparado com os lances
+    @JsonIgnore
+    private long floorPriceMicros;
+
     private String size;
 
     public String getPublisherId() {
@@ -44,6 +50,11 @@ public class BidRequestInventory {
 
     public void setFloorPrice(BigDecimal floorPrice) {
         this.floorPrice = floorPrice;
+        this.floorPriceMicros = floorPrice == null ? 0L : PriceMicrosUtils.floorToMicros(floorPrice);
+    }
+
+    public long getFloorPriceMicros() {
+        return floorPriceMicros;
     }
 
     public String getSize() {
@@ -1,6 +1,9 @@
 package com.hypr.geobidding.dto.bid;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.hypr.geobidding.utils.price.PriceMicrosUtils;
 import jakarta.validation.constraints.NotNull;
 import java.math.BigDecimal;
 
@@ -13,15 +16,22 @@ public class BidResponse {
     @NotNull
     private BidDecision decision;
 
-    @JsonProperty("bid_price")
-    private BigDecimal bidPrice; // obrigatório só se decision = BID
+    // sem preço (NO_BID); primitivos para o setter não encaixotar em Long
+    private static final long NO_PRICE = Long.MIN_VALUE;
+
+    // em micros; só vira BigDecimal na serialização (getBidPrice)
+    @JsonIgnore
+    private long bidPriceMicros = NO_PRICE; // obrigatório só se decision = BID
 
     @JsonProperty("campaign_id")
     private String campaignId; // obrigatório só se decision = BID
 
-    @NotNull
     @JsonProperty("latency_ms")
-    private Long latencyMs;
+    private long latencyMs;
+
+    // prazo estourou durante a avaliação; só aparece no JSON quando true
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private boolean truncated;
 
     public String getRequestId() {
         return requestId;
@@ -39,12 +49,21 @@ public class BidResponse {
         this.decision = decision;
     }
 
+    @JsonProperty("bid_price")
     public BigDecimal getBidPrice() {
-        return bidPrice;
+        return bidPriceMicros == NO_PRICE ? null : PriceMicrosUtils.fromMicros(bidPriceMicros);
     }
 
     public void setBidPrice(BigDecimal bidPrice) {
-        this.bidPrice = bidPrice;
+        this.bidPriceMicros = bidPrice == null ? NO_PRICE : PriceMicrosUtils.bidToMicros(bidPrice);
+    }
+
+    public Long getBidPriceMicros() {
+        return bidPriceMicros == NO_PRICE ? null : bidPriceMicros;
+    }
+
+    public void setBidPriceMicros(long bidPriceMicros) {
+        this.bidPriceMicros = bidPriceMicros;
     }
 
     public String getCampaignId() {
@@ -55,11 +74,19 @@ public class BidResponse {
         this.campaignId = campaignId;
     }
 
-    public Long getLatencyMs() {
+    public long getLatencyMs() {
         return latencyMs;
     }
 
-    public void setLatencyMs(Long latencyMs) {
+    public void setLatencyMs(long latencyMs) {
         this.latencyMs = latencyMs;
     }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
 }
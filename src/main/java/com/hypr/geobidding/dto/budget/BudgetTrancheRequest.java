@@ -0,0 +1,46 @@
+package com.hypr.geobidding.dto.budget;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+public class BudgetTrancheRequest {
+
+    @NotNull
+    @JsonProperty("instance_id")
+    private String instanceId;
+
+    @NotNull
+    @JsonProperty("campaign_ids")
+    private List<String> campaignIds;
+
+    // nano-reais por campanha, na ordem de campaign_ids
+    @NotNull
+    @JsonProperty("amounts_nanos")
+    private long[] amountsNanos;
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
+    public List<String> getCampaignIds() {
+        return campaignIds;
+    }
+
+    public void setCampaignIds(List<String> campaignIds) {
+        this.campaignIds = campaignIds;
+    }
+
+    public long[] getAmountsNanos() {
+        return amountsNanos;
+    }
+
+    public void setAmountsNanos(long[] amountsNanos) {
+        this.amountsNanos = amountsNanos;
+    }
+}
@@ -0,0 +1,18 @@
+package com.hypr.geobidding.dto.budget;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class BudgetTrancheResponse {
+
+    // nano-reais concedidos por campanha, na ordem do pedido (0 = sem saldo global)
+    @JsonProperty("granted_nanos")
+    private long[] grantedNanos;
+
+    public long[] getGrantedNanos() {
+        return grantedNanos;
+    }
+
+    public void setGrantedNanos(long[] grantedNanos) {
+        this.grantedNanos = grantedNanos;
+    }
+}
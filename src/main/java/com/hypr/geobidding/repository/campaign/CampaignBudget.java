@@ -0,0 +1,443 @@
+package com.hypr.geobidding.repository.campaign;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Orçamento de uma campanha: budget_remaining (total) e daily_budget (por dia), em
+ * nano-reais para caber em long sem arredondar.
+ * <p>
+ * bid_price é CPM, então uma impressão ganha custa bid_price / 1000, que em nano-reais é
+ * exatamente o bid_price em micros. A reserva só passa se o saldo cobre a impressão
+ * inteira nos dois contadores; a que falha marca a campanha como esgotada e avisa o
+ * ledger, que tira a campanha do índice.
+ * <p>
+ * Campanha quente (muitas vitórias por intervalo de recolhimento) passa a reservar por
+ * fatias: cada thread tira sliceImpressions impressões do contador de uma vez e gasta da
+ * sua fatia sem disputar a linha de cache com as outras. O total em fatias fica limitado
+ * pela tolerância; quando o contador não cobre mais, as fatias são recolhidas antes de a
+ * campanha ser dada como esgotada.
+ * <p>
+ * Toda reserva e devolução nos contadores é anexada ao diário de gasto (quando ligado),
+ * para o saldo sobreviver ao restart.
+ */
+public final class CampaignBudget {
+
+    // saldo em nano-reais: 1 real = 10^9
+    private static final int NANO_SCALE = 9;
+
+    // resultado da reserva nos contadores
+    private static final int RESERVED = 0;
+    private static final int DAILY_SHORT = 1;
+    private static final int TOTAL_SHORT = 2;
+
+    static final CampaignBudget UNLIMITED = new CampaignBudget(null, null, 1, () -> {});
+
+    // null = sem limite
+    private final CampaignBudgetCounter total;
+    private final CampaignBudgetCounter daily;
+    private final long totalNanos;
+    private final long dailyNanos;
+
+    // atribuídos antes de o índice ser publicado
+    private CampaignSpendJournal journal = CampaignSpendJournal.disabled();
+    private int slot;
+
+    private final Runnable onExhausted;
+
+    // 0 = sem fatias
+    private final int sliceImpressions;
+    private final long toleranceNanos;
+    private final long hotReservations;
+
+    private final ThreadLocal<CampaignBudgetLease> lease = new ThreadLocal<>();
+    private final List<CampaignBudgetLease> leases = new CopyOnWriteArrayList<>();
+
+    // reservas direto no contador e fatias concedidas: decidem se a campanha é quente
+    private final LongAdder direct = new LongAdder();
+    private final LongAdder grants = new LongAdder();
+    private final LongAdder reclaims = new LongAdder();
+    private long grantsAtLastTick;
+
+    private volatile boolean hot;
+
+    private volatile boolean totalExhausted;
+    private volatile boolean dailyExhausted;
+
+    // lido no hot path: uma leitura volátil só
+    private volatile boolean exhausted;
+
+    // muda a cada virada do dia; falha do dia anterior não esgota o dia novo
+    private volatile int day;
+
+    CampaignBudget(BigDecimal budgetRemaining, BigDecimal dailyBudget, int stripes, Runnable onExhausted) {
+        this(budgetRemaining, dailyBudget, stripes, 0, 0, 0, onExhausted);
+    }
+
+    /**
+     * @param sliceImpressions impressões por fatia (0 = sem fatias)
+     * @param toleranceNanos   teto do saldo em fatias, somadas todas as threads
+     * @param hotReservations  reservas por intervalo de recolhimento para a campanha ser quente
+     */
+    CampaignBudget(
+            BigDecimal budgetRemaining,
+            BigDecimal dailyBudget,
+            int stripes,
+            int sliceImpressions,
+            long toleranceNanos,
+            long hotReservations,
+            Runnable onExhausted
+    ) {
+        this.totalNanos = budgetRemaining == null ? 0 : toNanos(budgetRemaining);
+        this.total = budgetRemaining == null ? null : new CampaignBudgetCounter(totalNanos, stripes);
+        this.dailyNanos = dailyBudget == null ? 0 : toNanos(dailyBudget);
+        this.daily = dailyBudget == null ? null : new CampaignBudgetCounter(dailyNanos, stripes);
+        this.onExhausted = onExhausted;
+        this.sliceImpressions = isLimited() ? Math.max(0, sliceImpressions) : 0;
+        this.toleranceNanos = toleranceNanos;
+        this.hotReservations = Math.max(1, hotReservations);
+
+        // sem saldo já no load (inclui budget negativo): nem entra no índice
+        if (total != null && total.remaining() <= 0) {
+            totalExhausted = true;
+        }
+        if (daily != null && dailyNanos <= 0) {
+            dailyExhausted = true;
+        }
+        this.exhausted = totalExhausted || dailyExhausted;
+    }
+
+    /**
+     * Reserva o custo de uma impressão ganha com o lance bidPriceMicros (CPM).
+     *
+     * @return false quando algum dos saldos não cobre; a campanha passa a ser esgotada
+     */
+    public boolean tryReserve(long bidPriceMicros) {
+        if (exhausted) {
+            return false;
+        }
+        if (hot) {
+            CampaignBudgetLease current = leaseOf(bidPriceMicros);
+            if (current != null) {
+                return reserveFromLease(current, bidPriceMicros);
+            }
+        }
+        if (sliceImpressions > 0) {
+            direct.increment();
+        }
+        return reserveShared(bidPriceMicros);
+    }
+
+    /**
+     * Campanha sem saldo para mais uma impressão (total ou do dia).
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    public boolean isLimited() {
+        return total != null || daily != null;
+    }
+
+    /**
+     * Reservando por fatias desde o último recolhimento.
+     */
+    public boolean isHot() {
+        return hot;
+    }
+
+    /**
+     * Saldo total em nano-reais, sem contar o que está em fatias; Long.MAX_VALUE sem limite.
+     */
+    public long getRemainingNanos() {
+        return total == null ? Long.MAX_VALUE : total.remaining();
+    }
+
+    /**
+     * Saldo do dia em nano-reais, sem contar o que está em fatias; Long.MAX_VALUE sem limite diário.
+     */
+    public long getDailyRemainingNanos() {
+        return daily == null ? Long.MAX_VALUE : daily.remaining();
+    }
+
+    /**
+     * Fatias concedidas (cada uma é uma ida ao contador compartilhado).
+     */
+    public long getLeaseGrants() {
+        return grants.sum();
+    }
+
+    /**
+     * Fatias esvaziadas com saldo de volta ao contador (paradas, campanha fria ou fim do saldo).
+     */
+    public long getLeaseReclaims() {
+        return reclaims.sum();
+    }
+
+    /**
+     * Gasto total em nano-reais desde o load (inclui o que está em fatias).
+     */
+    long getTotalSpentNanos() {
+        return total == null ? 0 : totalNanos - total.remaining();
+    }
+
+    /**
+     * Gasto do dia em nano-reais (inclui o que está em fatias).
+     */
+    long getDailySpentNanos() {
+        return daily == null ? 0 : dailyNanos - daily.remaining();
+    }
+
+    void attach(CampaignSpendJournal journal, int slot) {
+        this.journal = journal;
+        this.slot = slot;
+    }
+
+    /**
+     * Desconta dos saldos o gasto recuperado do diário; chamado no load, antes do índice.
+     */
+    synchronized void restore(long totalSpent, long dailySpent) {
+        if (total != null) {
+            total.reset(Math.max(0, totalNanos - totalSpent));
+            totalExhausted = total.remaining() <= 0;
+        }
+        if (daily != null) {
+            daily.reset(Math.max(0, dailyNanos - dailySpent));
+            dailyExhausted = daily.remaining() <= 0;
+        }
+        exhausted = totalExhausted || dailyExhausted;
+    }
+
+    /**
+     * Soma amount aos saldos: tranche recebida do coordenador ou saldo devolvido por uma
+     * instância (no coordenador, entra no diário como devolução).
+     *
+     * @return true quando a campanha estava esgotada e voltou a ter saldo
+     */
+    synchronized boolean credit(long amount) {
+        return credit(amount, true);
+    }
+
+    /**
+     * Como credit(amount), mas com sameDay=false só o total recebe: devolução de uma tranche
+     * concedida num dia anterior, cujo saldo do dia já foi reiniciado.
+     */
+    synchronized boolean credit(long amount, boolean sameDay) {
+        if (total != null) {
+            total.release(amount);
+        }
+        if (daily != null && sameDay) {
+            daily.release(amount);
+        }
+        journal.append(slot, -amount, sameDay);
+        boolean wasExhausted = exhausted;
+        if (totalExhausted && total != null && total.remaining() > 0) {
+            totalExhausted = false;
+        }
+        if (dailyExhausted && daily != null && daily.remaining() > 0) {
+            dailyExhausted = false;
+        }
+        exhausted = totalExhausted || dailyExhausted;
+        return wasExhausted && !exhausted;
+    }
+
+    /**
+     * Lado do coordenador: reserva até amount dos saldos para uma instância.
+     *
+     * @return quanto foi reservado (0 = sem saldo)
+     */
+    synchronized long grant(long amount) {
+        // o que está em fatias também conta (na instância, ao devolver a sobra no desligamento)
+        reclaimLeases(true);
+        long available = Math.min(getRemainingNanos(), getDailyRemainingNanos());
+        long granted = Math.min(amount, available);
+        if (granted <= 0 || reserveCounters(granted) != RESERVED) {
+            return 0;
+        }
+        return granted;
+    }
+
+    /**
+     * Dia do orçamento; soma 1 a cada virada.
+     */
+    int getDay() {
+        return day;
+    }
+
+    /**
+     * Volta o saldo do dia para o daily_budget.
+     *
+     * @return true quando a campanha estava esgotada só pelo dia e voltou a ter saldo
+     */
+    synchronized boolean resetDaily() {
+        if (daily == null) {
+            return false;
+        }
+        day++;
+        daily.reset(dailyNanos);
+
+        boolean wasExhausted = exhausted;
+        dailyExhausted = dailyNanos <= 0;
+        exhausted = totalExhausted || dailyExhausted;
+        return wasExhausted && !exhausted;
+    }
+
+    /**
+     * Chamado pelo timer a cada intervalo: decide se a campanha segue quente e devolve ao
+     * contador as fatias paradas (ou todas, se a campanha esfriou ou esgotou).
+     */
+    void maintainLeases() {
+        if (sliceImpressions == 0) {
+            return;
+        }
+        long grantsNow = grants.sum();
+        long reservations = direct.sumThenReset() + (grantsNow - grantsAtLastTick) * sliceImpressions;
+        grantsAtLastTick = grantsNow;
+
+        hot = !exhausted && reservations >= hotReservations;
+        reclaimLeases(!hot);
+    }
+
+    private CampaignBudgetLease leaseOf(long bidPriceMicros) {
+        CampaignBudgetLease current = lease.get();
+        if (current != null && !current.isRetired()) {
+            return current;
+        }
+        lease.remove();
+        // cada fatia ocupa até sliceImpressions impressões da tolerância
+        long maxLeases = toleranceNanos / Math.max(1, bidPriceMicros * sliceImpressions);
+        if (leases.size() >= maxLeases) {
+            return null;
+        }
+        synchronized (leases) {
+            if (leases.size() >= maxLeases) {
+                return null;
+            }
+            current = new CampaignBudgetLease();
+            leases.add(current);
+        }
+        lease.set(current);
+        return current;
+    }
+
+    private boolean reserveFromLease(CampaignBudgetLease current, long amount) {
+        int today = day;
+        if (current.getDay() == today && current.tryTake(amount)) {
+            return true;
+        }
+
+        // fatia vazia ou do dia anterior: devolve a sobra e pega outra já com esta impressão
+        giveBack(current);
+        long slice = amount * sliceImpressions;
+        if (reserveCounters(slice) == RESERVED) {
+            grants.increment();
+            if (!current.grant(slice - amount, today)) {
+                // recolhida pelo timer no meio da troca: a sobra volta e a próxima pega outra fatia
+                release(slice - amount, today);
+                lease.remove();
+            }
+            return true;
+        }
+
+        // perto do fim do saldo: sem fatia, só a impressão
+        return reserveShared(amount);
+    }
+
+    private boolean reserveShared(long amount) {
+        int reservedDay = day;
+
+        int result = reserveCounters(amount);
+        // o que falta pode estar nas fatias das outras threads
+        if (result != RESERVED && reclaimLeases(true) > 0) {
+            result = reserveCounters(amount);
+        }
+        if (result == RESERVED) {
+            return true;
+        }
+        markExhausted(result == TOTAL_SHORT, reservedDay);
+        return false;
+    }
+
+    private int reserveCounters(long amount) {
+        if (daily != null && !daily.tryReserve(amount)) {
+            return DAILY_SHORT;
+        }
+        if (total != null && !total.tryReserve(amount)) {
+            if (daily != null) {
+                daily.release(amount);
+            }
+            return TOTAL_SHORT;
+        }
+        journal.append(slot, amount, true);
+        return RESERVED;
+    }
+
+    /**
+     * @return nano-reais devolvidos ao contador
+     */
+    private long reclaimLeases(boolean all) {
+        long returned = 0;
+        for (CampaignBudgetLease current : leases) {
+            long amount = all ? current.retire() : current.retireIfIdle();
+            if (amount < 0) {
+                continue;
+            }
+            // aposentada: a thread dona (viva) pega outra fatia dentro da tolerância
+            leases.remove(current);
+            if (amount > 0) {
+                release(amount, current.getDay());
+                reclaims.increment();
+                returned += amount;
+            }
+        }
+        return returned;
+    }
+
+    private void giveBack(CampaignBudgetLease current) {
+        long amount = current.drain();
+        if (amount > 0) {
+            release(amount, current.getDay());
+        }
+    }
+
+    // fatia de um dia anterior só devolve ao total: o saldo do dia já foi reiniciado
+    private void release(long amount, int leaseDay) {
+        boolean sameDay = leaseDay == day;
+        if (total != null) {
+            total.release(amount);
+        }
+        if (daily != null && sameDay) {
+            daily.release(amount);
+        }
+        journal.append(slot, -amount, sameDay);
+    }
+
+    private void markExhausted(boolean totalSide, int reservedDay) {
+        synchronized (this) {
+            if (totalSide) {
+                totalExhausted = true;
+            } else if (reservedDay == day) {
+                dailyExhausted = true;
+            } else {
+                return;
+            }
+            if (exhausted) {
+                return;
+            }
+            exhausted = true;
+        }
+        onExhausted.run();
+    }
+
+    // para baixo: nunca reserva centavo que não existe
+    static long toNanos(BigDecimal amount) {
+        BigDecimal nanos = amount.setScale(NANO_SCALE, RoundingMode.DOWN).movePointRight(NANO_SCALE);
+        if (nanos.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, nanos.longValue());
+    }
+}
@@ -0,0 +1,26 @@
+package com.hypr.geobidding.repository.campaign;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Dono do saldo global das campanhas quando várias instâncias atendem o mesmo campaigns.json.
+ * <p>
+ * Cada instância pede tranches (pedaços do saldo) fora do caminho da requisição e lança só
+ * com o que já recebeu; o coordenador nunca concede mais do que o saldo global, então a soma
+ * do gasto das instâncias não passa do budget.
+ */
+public interface CampaignBudgetCoordinator {
+
+    /**
+     * Concede a instanceId até amounts[i] nano-reais do saldo de campaignIds.get(i).
+     *
+     * @return concedido por campanha, na mesma ordem (0 = campanha sem saldo global)
+     */
+    long[] grant(String instanceId, List<String> campaignIds, long[] amounts) throws IOException;
+
+    /**
+     * Devolve ao saldo global o que a instância recebeu e não gastou (desligamento).
+     */
+    void giveBack(String instanceId, List<String> campaignIds, long[] amounts) throws IOException;
+}
@@ -0,0 +1,105 @@
+package com.hypr.geobidding.repository.campaign;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Saldo em ponto fixo (long) dividido em faixas, cada uma na sua linha de cache.
+ * <p>
+ * Cada thread reserva da sua faixa com CAS; faixa sem saldo suficiente passa para as
+ * seguintes. Se nenhuma faixa sozinha cobre o valor, as faixas são juntadas na da thread
+ * e a reserva é tentada de novo. O saldo nunca fica negativo e nenhuma reserva passa
+ * do total.
+ */
+final class CampaignBudgetCounter {
+
+    // longs por linha de cache (64 bytes): faixas vizinhas não dividem linha
+    private static final int PAD = 8;
+
+    private final AtomicLongArray cells;
+
+    private final int mask;
+
+    CampaignBudgetCounter(long amount, int stripes) {
+        int count = Integer.highestOneBit(Math.max(1, stripes));
+        if (count < stripes) {
+            count <<= 1;
+        }
+        this.cells = new AtomicLongArray(count * PAD);
+        this.mask = count - 1;
+        reset(amount);
+    }
+
+    /**
+     * @return false quando o saldo não cobre amount (nada é reservado)
+     */
+    boolean tryReserve(long amount) {
+        int home = home();
+        if (tryReserveFromStripes(home, amount)) {
+            return true;
+        }
+        return gatherAndReserve(home, amount);
+    }
+
+    /**
+     * Caminho lento, só perto do fim do saldo: junta todas as faixas na da thread.
+     * Serializado para que nenhuma reserva veja saldo "em trânsito" e conclua que acabou.
+     */
+    private synchronized boolean gatherAndReserve(int home, long amount) {
+        long gathered = 0;
+        for (int stripe = 0; stripe <= mask; stripe++) {
+            if (stripe != home) {
+                gathered += cells.getAndSet(stripe * PAD, 0);
+            }
+        }
+        cells.addAndGet(home * PAD, gathered);
+        return tryReserveFromStripes(home, amount);
+    }
+
+    void release(long amount) {
+        cells.addAndGet(home() * PAD, amount);
+    }
+
+    long remaining() {
+        long sum = 0;
+        for (int stripe = 0; stripe <= mask; stripe++) {
+            sum += cells.get(stripe * PAD);
+        }
+        return sum;
+    }
+
+    /**
+     * Redistribui amount entre as faixas (reserva em curso numa faixa antiga falha o CAS e repete).
+     */
+    synchronized void reset(long amount) {
+        int stripes = mask + 1;
+        long share = amount / stripes;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            cells.set(stripe * PAD, stripe == 0 ? amount - share * (stripes - 1) : share);
+        }
+    }
+
+    int stripes() {
+        return mask + 1;
+    }
+
+    private boolean tryReserveFromStripes(int home, long amount) {
+        for (int k = 0; k <= mask; k++) {
+            int offset = ((home + k) & mask) * PAD;
+            long current = cells.get(offset);
+            while (current >= amount) {
+                if (cells.compareAndSet(offset, current, current - amount)) {
+                    return true;
+                }
+                current = cells.get(offset);
+            }
+        }
+        return false;
+    }
+
+    // faixa fixa por thread
+    private int home() {
+        long id = Thread.currentThread().threadId();
+        id *= 0x9E3779B97F4A7C15L;
+        return (int) (id >>> 32) & mask;
+    }
+}
@@ -0,0 +1,98 @@
+package com.hypr.geobidding.repository.campaign;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fatia do saldo de uma campanha reservada por uma thread.
+ * <p>
+ * A thread dona gasta daqui sem tocar no contador compartilhado; o CAS só disputa com o
+ * timer de recolhimento, que esvazia fatias paradas e devolve o saldo ao contador.
+ * A fatia já saiu dos dois saldos (total e do dia) quando foi concedida.
+ * <p>
+ * Recolhida pelo timer, a fatia é aposentada e sai da lista da campanha: a vaga na
+ * tolerância fica para outra thread, mesmo que a dona tenha morrido segurando a fatia.
+ */
+final class CampaignBudgetLease {
+
+    // saldo da fatia aposentada: não dá nem recebe mais nada
+    private static final long RETIRED = Long.MIN_VALUE;
+
+    private final AtomicLong balance = new AtomicLong();
+
+    // dia do orçamento em que a fatia saiu do saldo diário
+    private volatile int day;
+
+    // saldo visto no último recolhimento (só o timer lê e escreve)
+    private long lastSeen = -1;
+
+    boolean tryTake(long amount) {
+        long current = balance.get();
+        while (current >= amount) {
+            if (balance.compareAndSet(current, current - amount)) {
+                return true;
+            }
+            current = balance.get();
+        }
+        return false;
+    }
+
+    /**
+     * @return false se a fatia foi aposentada: amount continua com quem chamou
+     */
+    boolean grant(long amount, int day) {
+        this.day = day;
+        long current = balance.get();
+        while (current != RETIRED) {
+            if (balance.compareAndSet(current, current + amount)) {
+                return true;
+            }
+            current = balance.get();
+        }
+        return false;
+    }
+
+    /**
+     * Esvazia a fatia sem aposentá-la (a dona, antes de pegar outra).
+     */
+    long drain() {
+        long current = balance.get();
+        while (current > 0) {
+            if (balance.compareAndSet(current, 0)) {
+                return current;
+            }
+            current = balance.get();
+        }
+        return 0;
+    }
+
+    /**
+     * @return saldo que sobrou na fatia
+     */
+    long retire() {
+        long left = balance.getAndSet(RETIRED);
+        return left == RETIRED ? 0 : left;
+    }
+
+    /**
+     * Aposenta a fatia se o saldo não mudou desde o último recolhimento (zerada também:
+     * a dona pode ter morrido logo depois de gastar tudo).
+     *
+     * @return saldo que sobrou, ou -1 se a fatia segue em uso
+     */
+    long retireIfIdle() {
+        long current = balance.get();
+        if (current == lastSeen && current != RETIRED) {
+            return balance.compareAndSet(current, RETIRED) ? current : -1;
+        }
+        lastSeen = current;
+        return -1;
+    }
+
+    boolean isRetired() {
+        return balance.get() == RETIRED;
+    }
+
+    int getDay() {
+        return day;
+    }
+}
@@ -0,0 +1,226 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.hypr.geobidding.domain.campaign.Campaign;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Orçamentos de todas as campanhas carregadas. Vive mais que o índice: o índice é
+ * recompilado sem as campanhas esgotadas e os saldos continuam aqui.
+ * <p>
+ * O aviso de esgotamento vem da thread que tentou reservar; quem ouve (o repositório)
+ * só agenda a recompilação, sem travar a requisição.
+ * <p>
+ * Com fatias ligadas, o timer do repositório chama maintainLeases() a cada intervalo para
+ * marcar as campanhas quentes e recolher as fatias paradas.
+ */
+public final class CampaignBudgetLedger {
+
+    private static final CampaignBudgetLedger UNLIMITED = new CampaignBudgetLedger(List.of(), 1, () -> {});
+
+    // identidade: é o mesmo objeto Campaign em todas as recompilações
+    private final Map<Campaign, CampaignBudget> budgets = new IdentityHashMap<>();
+
+    // na ordem do campaigns.json: a posição é o slot da campanha no diário de gasto
+    private final List<CampaignBudget> slots = new ArrayList<>();
+    private final List<Campaign> slotCampaigns = new ArrayList<>();
+    private final List<String> campaignIds = new ArrayList<>();
+
+    private final boolean coordinated;
+
+    private final Runnable onExhausted;
+
+    private final LongAdder exhaustions = new LongAdder();
+
+    /**
+     * Sem fatias.
+     *
+     * @param onExhausted chamado uma vez a cada campanha que esgota (fora de lock)
+     */
+    public CampaignBudgetLedger(List<Campaign> campaigns, int stripes, Runnable onExhausted) {
+        this(campaigns, stripes, 0, BigDecimal.ZERO, 0, onExhausted);
+    }
+
+    /**
+     * @param sliceImpressions impressões por fatia de thread (0 = sem fatias)
+     * @param tolerance        teto, em reais, do saldo de uma campanha que pode estar em fatias
+     * @param hotReservations  reservas por intervalo de recolhimento para a campanha usar fatias
+     * @param onExhausted      chamado uma vez a cada campanha que esgota (fora de lock)
+     */
+    public CampaignBudgetLedger(
+            List<Campaign> campaigns,
+            int stripes,
+            int sliceImpressions,
+            BigDecimal tolerance,
+            long hotReservations,
+            Runnable onExhausted
+    ) {
+        this(campaigns, stripes, sliceImpressions, tolerance, hotReservations, false, onExhausted);
+    }
+
+    private CampaignBudgetLedger(
+            List<Campaign> campaigns,
+            int stripes,
+            int sliceImpressions,
+            BigDecimal tolerance,
+            long hotReservations,
+            boolean coordinated,
+            Runnable onExhausted
+    ) {
+        this.onExhausted = onExhausted;
+        this.coordinated = coordinated;
+        long toleranceNanos = CampaignBudget.toNanos(tolerance);
+        for (Campaign campaign : campaigns) {
+            // coordenada: o saldo local começa vazio e só cresce com as tranches do coordenador
+            boolean limited = campaign.getBudgetRemaining() != null || campaign.getDailyBudget() != null;
+            CampaignBudget budget = coordinated && limited
+                    ? new CampaignBudget(BigDecimal.ZERO, null, stripes,
+                            sliceImpressions, toleranceNanos, hotReservations, this::exhausted)
+                    : new CampaignBudget(campaign.getBudgetRemaining(), campaign.getDailyBudget(), stripes,
+                            sliceImpressions, toleranceNanos, hotReservations, this::exhausted);
+            budgets.put(campaign, budget);
+            slots.add(budget);
+            slotCampaigns.add(campaign);
+            campaignIds.add(String.valueOf(campaign.getCampaignId()));
+        }
+    }
+
+    /**
+     * Saldos de uma instância entre várias: budget_remaining e daily_budget são do coordenador,
+     * que entrega tranches (CampaignBudgetTranches). Campanha sem limite continua sem limite.
+     */
+    public static CampaignBudgetLedger coordinated(
+            List<Campaign> campaigns,
+            int stripes,
+            int sliceImpressions,
+            BigDecimal tolerance,
+            long hotReservations,
+            Runnable onExhausted
+    ) {
+        return new CampaignBudgetLedger(
+                campaigns, stripes, sliceImpressions, tolerance, hotReservations, true, onExhausted);
+    }
+
+    /**
+     * Sem controle de gasto: toda campanha tem saldo infinito.
+     */
+    public static CampaignBudgetLedger unlimited() {
+        return UNLIMITED;
+    }
+
+    public CampaignBudget budgetOf(Campaign campaign) {
+        CampaignBudget budget = budgets.get(campaign);
+        return budget == null ? CampaignBudget.UNLIMITED : budget;
+    }
+
+    public boolean isAvailable(Campaign campaign) {
+        return !budgetOf(campaign).isExhausted();
+    }
+
+    /**
+     * Virada do dia: todos os saldos diários voltam ao daily_budget.
+     *
+     * @return quantas campanhas esgotadas só pelo dia voltaram a ter saldo
+     */
+    public int resetDaily() {
+        int restored = 0;
+        for (CampaignBudget budget : budgets.values()) {
+            if (budget.resetDaily()) {
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    List<String> getCampaignIds() {
+        return campaignIds;
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    CampaignBudget budgetAt(int slot) {
+        return slots.get(slot);
+    }
+
+    Campaign campaignAt(int slot) {
+        return slotCampaigns.get(slot);
+    }
+
+    public boolean isCoordinated() {
+        return coordinated;
+    }
+
+    /**
+     * Aplica o gasto recuperado do diário; antes de o índice ser compilado.
+     */
+    void restore(CampaignSpendJournal.Recovery recovery) {
+        for (int slot = 0; slot < slots.size(); slot++) {
+            slots.get(slot).restore(recovery.totalSpent[slot], recovery.dailySpent[slot]);
+        }
+    }
+
+    /**
+     * Passa a anexar no diário toda reserva e devolução de saldo.
+     */
+    void attach(CampaignSpendJournal journal) {
+        for (int slot = 0; slot < slots.size(); slot++) {
+            slots.get(slot).attach(journal, slot);
+        }
+    }
+
+    long getTotalSpentNanos(int slot) {
+        return slots.get(slot).getTotalSpentNanos();
+    }
+
+    long getDailySpentNanos(int slot) {
+        return slots.get(slot).getDailySpentNanos();
+    }
+
+    /**
+     * Timer de recolhimento: campanhas quentes passam a usar fatias, frias devolvem todas.
+     */
+    public void maintainLeases() {
+        for (CampaignBudget budget : budgets.values()) {
+            budget.maintainLeases();
+        }
+    }
+
+    public int getExhaustedCount() {
+        return (int) budgets.values().stream().filter(CampaignBudget::isExhausted).count();
+    }
+
+    /**
+     * Campanhas que esgotaram durante a execução (não conta as que já vieram sem saldo).
+     */
+    public long getExhaustions() {
+        return exhaustions.sum();
+    }
+
+    public int getHotCount() {
+        return (int) budgets.values().stream().filter(CampaignBudget::isHot).count();
+    }
+
+    /**
+     * Fatias concedidas por todas as campanhas: com getLeaseReclaims, mede a rotatividade
+     * para ajustar slice-impressions.
+     */
+    public long getLeaseGrants() {
+        return budgets.values().stream().mapToLong(CampaignBudget::getLeaseGrants).sum();
+    }
+
+    public long getLeaseReclaims() {
+        return budgets.values().stream().mapToLong(CampaignBudget::getLeaseReclaims).sum();
+    }
+
+    private void exhausted() {
+        exhaustions.increment();
+        onExhausted.run();
+    }
+}
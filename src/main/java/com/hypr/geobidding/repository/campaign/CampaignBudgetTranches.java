@@ -0,0 +1,211 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.hypr.geobidding.domain.campaign.Campaign;
+import com.hypr.geobidding.utils.price.PriceMicrosUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lado da instância na coordenação de saldo: cada campanha limitada gasta de uma tranche
+ * local do saldo global, pedida ao coordenador fora da requisição.
+ * <p>
+ * Uma thread própria confere os saldos locais a cada intervalo e pede, num lote só, tranches
+ * para as campanhas abaixo da marca (lowWatermark x tranche) ou esgotadas. A decisão nunca
+ * espera o coordenador: sem saldo local, a campanha fica esgotada até a tranche chegar.
+ * Campanha negada pelo coordenador só é pedida de novo depois de exhaustedRetryMs ou na
+ * virada do dia.
+ * <p>
+ * Precisão: o coordenador nunca concede além do saldo global, então o gasto somado das N
+ * instâncias não passa do budget. O que pode ficar sem gastar é no máximo uma tranche por
+ * instância e campanha, devolvido ao coordenador no desligamento.
+ */
+public final class CampaignBudgetTranches implements Closeable {
+
+    private final CampaignBudgetLedger ledger;
+
+    private final CampaignBudgetCoordinator coordinator;
+
+    private final String instanceId;
+
+    private final double lowWatermark;
+
+    private final long exhaustedRetryNanos;
+
+    // slots das campanhas limitadas e o tamanho da tranche de cada uma
+    private final int[] slots;
+    private final long[] trancheNanos;
+
+    // nanoTime até quando a campanha negada não é pedida (só a thread de reposição)
+    private final long[] deniedUntil;
+
+    private final ScheduledExecutorService refiller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "campaign-budget-tranches");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder grantedNanos = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @param trancheImpressions impressões (no bid_price da campanha) por tranche
+     * @param lowWatermark       fração da tranche abaixo da qual a próxima é pedida
+     */
+    public CampaignBudgetTranches(
+            CampaignBudgetLedger ledger,
+            CampaignBudgetCoordinator coordinator,
+            String instanceId,
+            int trancheImpressions,
+            double lowWatermark,
+            long exhaustedRetryMs
+    ) {
+        this.ledger = ledger;
+        this.coordinator = coordinator;
+        this.instanceId = instanceId;
+        this.lowWatermark = lowWatermark;
+        this.exhaustedRetryNanos = TimeUnit.MILLISECONDS.toNanos(exhaustedRetryMs);
+
+        List<Integer> limited = new ArrayList<>();
+        List<Long> sizes = new ArrayList<>();
+        for (int slot = 0; slot < ledger.size(); slot++) {
+            Campaign campaign = ledger.campaignAt(slot);
+            if (ledger.budgetAt(slot).isLimited() && campaign.getBidPrice() != null) {
+                limited.add(slot);
+                // bid_price é CPM: uma impressão custa bid_price em micros, em nano-reais
+                sizes.add(Math.max(1, trancheImpressions) * PriceMicrosUtils.bidToMicros(campaign.getBidPrice()));
+            }
+        }
+        this.slots = limited.stream().mapToInt(Integer::intValue).toArray();
+        this.trancheNanos = sizes.stream().mapToLong(Long::longValue).toArray();
+        this.deniedUntil = new long[slots.length];
+    }
+
+    /**
+     * Reposição periódica; onRestored roda quando alguma campanha esgotada voltou a ter saldo.
+     */
+    public void start(long intervalMs, Runnable onRestored) {
+        long interval = Math.max(1, intervalMs);
+        refiller.scheduleWithFixedDelay(() -> {
+            if (refill() > 0) {
+                onRestored.run();
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Pede num lote só as tranches das campanhas com saldo local baixo.
+     *
+     * @return quantas campanhas esgotadas voltaram a ter saldo
+     */
+    public synchronized int refill() {
+        long now = System.nanoTime();
+        List<String> ids = new ArrayList<>();
+        int[] asked = new int[slots.length];
+        long[] amounts = new long[slots.length];
+
+        for (int k = 0; k < slots.length; k++) {
+            if (deniedUntil[k] != 0 && deniedUntil[k] - now > 0) {
+                continue;
+            }
+            CampaignBudget budget = ledger.budgetAt(slots[k]);
+            if (!budget.isExhausted() && budget.getRemainingNanos() >= lowWatermark * trancheNanos[k]) {
+                continue;
+            }
+            asked[ids.size()] = k;
+            amounts[ids.size()] = trancheNanos[k];
+            ids.add(ledger.getCampaignIds().get(slots[k]));
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        long[] granted;
+        try {
+            requests.increment();
+            granted = coordinator.grant(instanceId, ids, Arrays.copyOf(amounts, ids.size()));
+        } catch (IOException | RuntimeException e) {
+            // coordenador fora: a instância segue com o saldo local e tenta no próximo intervalo
+            if (failures.sum() == 0) {
+                System.out.println("⚠️ Coordenador de saldo indisponível: " + e.getMessage());
+            }
+            failures.increment();
+            return 0;
+        }
+
+        int restored = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            int k = asked[i];
+            if (granted[i] <= 0) {
+                deniedUntil[k] = now + exhaustedRetryNanos;
+                continue;
+            }
+            deniedUntil[k] = 0;
+            grantedNanos.add(granted[i]);
+            if (ledger.budgetAt(slots[k]).credit(granted[i])) {
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * Virada do dia: campanhas negadas voltam a ser pedidas já no próximo intervalo.
+     */
+    public synchronized void retryDenied() {
+        Arrays.fill(deniedUntil, 0);
+    }
+
+    /**
+     * Devolve ao coordenador o saldo local que não foi gasto.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        refiller.shutdownNow();
+
+        List<String> ids = new ArrayList<>();
+        long[] amounts = new long[slots.length];
+        for (int slot : slots) {
+            // reserva o que sobrou para nenhuma requisição atrasada gastar o que foi devolvido
+            long left = ledger.budgetAt(slot).grant(Long.MAX_VALUE);
+            if (left > 0) {
+                amounts[ids.size()] = left;
+                ids.add(ledger.getCampaignIds().get(slot));
+            }
+        }
+        if (!ids.isEmpty()) {
+            coordinator.giveBack(instanceId, ids, Arrays.copyOf(amounts, ids.size()));
+        }
+    }
+
+    CampaignBudgetLedger getLedger() {
+        return ledger;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * Lotes pedidos ao coordenador.
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getGrantedNanos() {
+        return grantedNanos.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+}
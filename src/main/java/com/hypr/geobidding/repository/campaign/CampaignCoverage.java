@@ -0,0 +1,110 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.hypr.geobidding.domain.geo.GeoCellRelation;
+import com.hypr.geobidding.domain.geo.GeoShape;
+
+/**
+ * Bitmap global de cobertura: união dos targetings de todas as campanhas indexadas
+ * (de qualquer formato) numa grade fixa de CELL_DEGREES. Bit desligado = nenhum targeting
+ * toca a célula, então nenhuma campanha pode dar match ali.
+ * <p>
+ * Com 0,25° são 720 x 1440 células, ~130 KB. Exclusões são ignoradas: o bitmap só pode
+ * errar para o lado de "coberto", nunca descarta um ponto que daria match.
+ */
+final class CampaignCoverage {
+
+    static final double CELL_DEGREES = 0.25;
+
+    private static final int LAT_CELLS = (int) Math.round(180.0 / CELL_DEGREES);
+    private static final int LON_CELLS = (int) Math.round(360.0 / CELL_DEGREES);
+
+    // folga na célula para os pontos que caem nela por arredondamento (mesma do GeoCoveredShape)
+    private static final double CELL_EPSILON = 1e-9;
+
+    static final int WORDS = (LAT_CELLS * LON_CELLS + 63) >>> 6;
+
+    private final long[] bits;
+
+    private int coveredCells;
+
+    CampaignCoverage() {
+        this(new long[WORDS], 0);
+    }
+
+    /**
+     * Bitmap já calculado (lido do snapshot do índice).
+     */
+    CampaignCoverage(long[] bits, int coveredCells) {
+        if (bits.length != WORDS) {
+            throw new IllegalArgumentException("bitmap de cobertura com " + bits.length + " palavras");
+        }
+        this.bits = bits;
+        this.coveredCells = coveredCells;
+    }
+
+    void add(GeoShape targeting) {
+        for (double[] box : targeting.boundingBoxes()) {
+            int minLat = latIndex(box[0]);
+            int maxLat = latIndex(box[1]);
+            int minLon = lonIndex(box[2]);
+            int maxLon = lonIndex(box[3]);
+
+            for (int la = minLat; la <= maxLat; la++) {
+                for (int lo = minLon; lo <= maxLon; lo++) {
+                    int bit = la * LON_CELLS + lo;
+                    if (isSet(bit)) {
+                        continue;
+                    }
+
+                    // box grande (ex.: raio de centenas de km) não marca os cantos que o shape não toca
+                    double cellMinLat = la * CELL_DEGREES - 90.0 - CELL_EPSILON;
+                    double cellMinLon = lo * CELL_DEGREES - 180.0 - CELL_EPSILON;
+                    GeoCellRelation relation = targeting.relate(
+                            cellMinLat, cellMinLat + CELL_DEGREES + 2 * CELL_EPSILON,
+                            cellMinLon, cellMinLon + CELL_DEGREES + 2 * CELL_EPSILON);
+
+                    if (relation != GeoCellRelation.OUTSIDE) {
+                        bits[bit >>> 6] |= 1L << bit;
+                        coveredCells++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return false quando nenhuma campanha pode dar match no ponto (inclui coordenadas inválidas)
+     */
+    boolean covers(double lat, double lon) {
+        // comparação falsa para NaN também
+        if (!(lat >= -90.0 && lat <= 90.0 && lon >= -180.0 && lon <= 180.0)) {
+            return false;
+        }
+        return isSet(latIndex(lat) * LON_CELLS + lonIndex(lon));
+    }
+
+    int getCoveredCells() {
+        return coveredCells;
+    }
+
+    long[] bits() {
+        return bits;
+    }
+
+    private boolean isSet(int bit) {
+        return (bits[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    // bounds infinitos (raio chegando no polo) ou fora do intervalo viram a borda da grade
+    private static int latIndex(double lat) {
+        if (!(lat > -90.0)) return 0;
+        if (!(lat < 90.0)) return LAT_CELLS - 1;
+        return Math.min(LAT_CELLS - 1, (int) Math.floor((lat + 90.0) / CELL_DEGREES));
+    }
+
+    private static int lonIndex(double lon) {
+        if (!(lon > -180.0)) return 0;
+        if (!(lon < 180.0)) return LON_CELLS - 1;
+        return Math.min(LON_CELLS - 1, (int) Math.floor((lon + 180.0) / CELL_DEGREES));
+    }
+}
@@ -0,0 +1,114 @@
+package com.hypr.geobidding.repository.campaign;
+
+import java.util.Arrays;
+
+/**
+ * Campanhas ativas de um único formato, ordenadas por bid_price decrescente.
+ * Empates mantêm a ordem original do campaigns.json (ordenação estável).
+ */
+public final class CampaignFormatBucket {
+
+    private final CompiledCampaign[] campaigns;
+
+    // cópia contígua dos preços: o corte pelo floor não precisa tocar nos objetos
+    private final long[] bidPricesMicros;
+
+    private final CampaignSpatialGrid grid;
+
+    // preenchida no load (calculada ou lida do disco) antes do índice ser publicado
+    private CampaignWinnerTable winnerTable = CampaignWinnerTable.none();
+
+    CampaignFormatBucket(CompiledCampaign[] campaigns, double cellDegrees) {
+        this(campaigns, buildGrid(campaigns, cellDegrees));
+    }
+
+    /**
+     * Com a grade pronta (snapshot do índice); campaigns já em ordem de bid_price decrescente.
+     */
+    CampaignFormatBucket(CompiledCampaign[] campaigns, CampaignSpatialGrid grid) {
+        this.campaigns = campaigns;
+
+        this.bidPricesMicros = new long[campaigns.length];
+        for (int i = 0; i < campaigns.length; i++) {
+            bidPricesMicros[i] = campaigns[i].getBidPriceMicros();
+        }
+        this.grid = grid;
+    }
+
+    private static CampaignSpatialGrid buildGrid(CompiledCampaign[] campaigns, double cellDegrees) {
+        CampaignSpatialGrid.Builder builder = CampaignSpatialGrid.builder(cellDegrees);
+        for (int i = 0; i < campaigns.length; i++) {
+            builder.add(i, campaigns[i].getTargeting());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Bucket sem as campanhas esgotadas, com a grade e a tabela de vencedoras renumeradas
+     * (sem recalcular bounding boxes nem as células cuja vencedora continua no bucket).
+     *
+     * @return este bucket se nada saiu, null se todas saíram
+     */
+    CampaignFormatBucket withoutExhausted() {
+        // newPositions[antiga] = posição no bucket filtrado, -1 para a que saiu
+        int[] newPositions = new int[campaigns.length];
+        CompiledCampaign[] kept = new CompiledCampaign[campaigns.length];
+        int size = 0;
+        for (int i = 0; i < campaigns.length; i++) {
+            if (campaigns[i].isExhausted()) {
+                newPositions[i] = -1;
+            } else {
+                newPositions[i] = size;
+                kept[size++] = campaigns[i];
+            }
+        }
+        if (size == campaigns.length) {
+            return this;
+        }
+        if (size == 0) {
+            return null;
+        }
+
+        CampaignFormatBucket filtered = new CampaignFormatBucket(Arrays.copyOf(kept, size), grid.remap(newPositions));
+        filtered.setWinnerTable(winnerTable.remap(filtered, newPositions));
+        return filtered;
+    }
+
+    public int size() {
+        return campaigns.length;
+    }
+
+    public CompiledCampaign get(int position) {
+        return campaigns[position];
+    }
+
+    /**
+     * Grade com as posições candidatas por célula; quem não está na célula do usuário
+     * (nem na lista "wide") não tem como dar match no targeting.
+     */
+    public CampaignSpatialGrid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Vencedora pré-calculada das células puras da grade.
+     */
+    public CampaignWinnerTable getWinnerTable() {
+        return winnerTable;
+    }
+
+    void setWinnerTable(CampaignWinnerTable winnerTable) {
+        this.winnerTable = winnerTable;
+    }
+
+    public long getBidPriceMicros(int position) {
+        return bidPricesMicros[position];
+    }
+
+    /**
+     * Maior bid_price do bucket; se o floor for maior, nenhuma campanha do bucket pode ganhar.
+     */
+    public long getMaxBidPriceMicros() {
+        return bidPricesMicros[0];
+    }
+}
@@ -0,0 +1,252 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.hypr.geobidding.domain.campaign.Campaign;
+import com.hypr.geobidding.domain.campaign.CampaignAdFormat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Índice compilado uma vez no load do repositório.
+ * Separa as campanhas elegíveis por formato e ordena cada bucket por bid_price decrescente,
+ * assim a primeira campanha que passa nas regras geográficas já é a vencedora.
+ * Os buckets ficam num array indexado pelo bit do formato (ordinal), sem hash por requisição.
+ * <p>
+ * Junto vão o bitmap global de cobertura e o maior bid_price por formato, para responder
+ * NO_BID sem tocar nos buckets. Tudo é recompilado junto com as campanhas.
+ */
+public final class CampaignIndex {
+
+    private static final CampaignAdFormat[] FORMATS = CampaignAdFormat.values();
+
+    private static final AtomicInteger GENERATIONS = new AtomicInteger();
+
+    private static final CampaignIndex EMPTY = new CampaignIndex(
+            new CampaignFormatBucket[FORMATS.length], new CampaignShapeTable(), new CampaignCoverage());
+
+    // posição = ordinal do formato; null quando nenhuma campanha atende o formato
+    private final CampaignFormatBucket[] buckets;
+
+    // muda a cada índice montado; quem guarda resultados por índice guarda isto, não a instância
+    private final int generation = GENERATIONS.incrementAndGet();
+
+    // guardada para o snapshot do índice
+    private final CampaignShapeTable shapes;
+
+    private final CampaignCoverage coverage;
+
+    // posição = ordinal do formato; Long.MIN_VALUE quando o formato não tem bucket
+    private final long[] maxBidPricesMicros;
+
+    private CampaignIndex(CampaignFormatBucket[] buckets, CampaignShapeTable shapes, CampaignCoverage coverage) {
+        this.buckets = buckets;
+        this.shapes = shapes;
+        this.coverage = coverage;
+
+        this.maxBidPricesMicros = new long[buckets.length];
+        Arrays.fill(maxBidPricesMicros, Long.MIN_VALUE);
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] != null) {
+                maxBidPricesMicros[i] = buckets[i].getMaxBidPriceMicros();
+            }
+        }
+    }
+
+    public static CampaignIndex empty() {
+        return EMPTY;
+    }
+
+    public static CampaignIndex compile(List<Campaign> campaigns) {
+        return compile(campaigns, CampaignSpatialGrid.DEFAULT_CELL_DEGREES);
+    }
+
+    public static CampaignIndex compile(List<Campaign> campaigns, double cellDegrees) {
+        return compile(campaigns, cellDegrees, true, CampaignBudgetLedger.unlimited());
+    }
+
+    /**
+     * Só com as campanhas que ainda têm saldo no ledger.
+     */
+    public static CampaignIndex compile(List<Campaign> campaigns, CampaignBudgetLedger ledger) {
+        return compile(campaigns, CampaignSpatialGrid.DEFAULT_CELL_DEGREES, true, ledger);
+    }
+
+    /**
+     * Sem as tabelas de vencedoras: o repositório as lê do disco ou chama materializeWinnerTables.
+     */
+    static CampaignIndex compile(List<Campaign> campaigns, double cellDegrees, boolean withWinnerTables) {
+        return compile(campaigns, cellDegrees, withWinnerTables, CampaignBudgetLedger.unlimited());
+    }
+
+    static CampaignIndex compile(
+            List<Campaign> campaigns, double cellDegrees, boolean withWinnerTables, CampaignBudgetLedger ledger) {
+        return compile(campaigns, cellDegrees, withWinnerTables, ledger, true);
+    }
+
+    /**
+     * Com as esgotadas também (puladas pela avaliação até a próxima recompilação): a estrutura
+     * depende só do campaigns.json, então é a que vai para o snapshot. Sem tabelas de vencedoras.
+     */
+    static CampaignIndex compileAll(List<Campaign> campaigns, double cellDegrees, CampaignBudgetLedger ledger) {
+        return compile(campaigns, cellDegrees, false, ledger, false);
+    }
+
+    /**
+     * Índice montado com as partes lidas do snapshot.
+     */
+    static CampaignIndex of(CampaignFormatBucket[] buckets, CampaignShapeTable shapes, CampaignCoverage coverage) {
+        return new CampaignIndex(buckets, shapes, coverage);
+    }
+
+    private static CampaignIndex compile(
+            List<Campaign> campaigns,
+            double cellDegrees,
+            boolean withWinnerTables,
+            CampaignBudgetLedger ledger,
+            boolean skipExhausted
+    ) {
+        List<List<CompiledCampaign>> byFormat = new ArrayList<>(FORMATS.length);
+        for (int i = 0; i < FORMATS.length; i++) {
+            byFormat.add(new ArrayList<>());
+        }
+        CampaignShapeTable shapes = new CampaignShapeTable();
+        CampaignCoverage coverage = new CampaignCoverage();
+        BitSet coveredShapes = new BitSet();
+
+        for (Campaign campaign : campaigns) {
+            // esgotada fica de fora até a virada do dia (ou para sempre, se foi o total)
+            if (!isIndexable(campaign) || (skipExhausted && !ledger.isAvailable(campaign))) {
+                continue;
+            }
+
+            // compilado uma vez e compartilhado entre os buckets dos seus formatos
+            CompiledCampaign compiled = new CompiledCampaign(campaign, shapes, ledger.budgetOf(campaign));
+
+            // geometria compartilhada entra no bitmap uma vez só
+            if (!coveredShapes.get(compiled.getTargetingId())) {
+                coveredShapes.set(compiled.getTargetingId());
+                coverage.add(compiled.getTargeting());
+            }
+
+            // a máscara já descarta formatos repetidos na mesma campanha
+            for (CampaignAdFormat format : FORMATS) {
+                if (compiled.supports(format)) {
+                    byFormat.get(format.ordinal()).add(compiled);
+                }
+            }
+        }
+
+        CampaignFormatBucket[] buckets = new CampaignFormatBucket[FORMATS.length];
+
+        for (int i = 0; i < FORMATS.length; i++) {
+            List<CompiledCampaign> list = byFormat.get(i);
+            if (list.isEmpty()) {
+                continue;
+            }
+            // List.sort é estável: empates preservam a ordem do arquivo
+            list.sort(Comparator.comparingLong(CompiledCampaign::getBidPriceMicros).reversed());
+            buckets[i] = new CampaignFormatBucket(list.toArray(new CompiledCampaign[0]), cellDegrees);
+        }
+
+        CampaignIndex index = new CampaignIndex(buckets, shapes, coverage);
+        if (withWinnerTables) {
+            index.materializeWinnerTables();
+        }
+        return index;
+    }
+
+    /**
+     * Este índice sem as campanhas esgotadas agora, para a recompilação depois de um
+     * esgotamento (ou da volta do saldo, partindo do índice completo do load). Campanhas
+     * compiladas, shapes e cobertura são reaproveitados: só as posições dos buckets, das
+     * grades e das tabelas de vencedoras são refeitas. A cobertura segue a do índice de
+     * origem; ponto coberto só por esgotada cai no avaliador e sai NO_BID.
+     *
+     * @return este mesmo índice quando nenhuma campanha dele está esgotada
+     */
+    CampaignIndex withoutExhausted() {
+        CampaignFormatBucket[] filtered = new CampaignFormatBucket[buckets.length];
+        boolean changed = false;
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] != null) {
+                filtered[i] = buckets[i].withoutExhausted();
+                changed |= filtered[i] != buckets[i];
+            }
+        }
+        return changed ? new CampaignIndex(filtered, shapes, coverage) : this;
+    }
+
+    void materializeWinnerTables() {
+        for (CampaignFormatBucket bucket : buckets) {
+            if (bucket != null) {
+                bucket.setWinnerTable(CampaignWinnerTable.build(bucket));
+            }
+        }
+    }
+
+    /**
+     * @return bucket do formato, ou null quando nenhuma campanha ativa o atende
+     */
+    public CampaignFormatBucket findBucket(CampaignAdFormat format) {
+        return buckets[format.ordinal()];
+    }
+
+    /**
+     * @return false quando o ponto está fora de todo targeting ativo: NO_BID direto
+     */
+    public boolean isCovered(double lat, double lon) {
+        return coverage.covers(lat, lon);
+    }
+
+    /**
+     * Maior bid_price do formato; floor acima disso é NO_BID direto.
+     * Long.MIN_VALUE quando nenhuma campanha ativa atende o formato.
+     */
+    public long getMaxBidPriceMicros(CampaignAdFormat format) {
+        return maxBidPricesMicros[format.ordinal()];
+    }
+
+    /**
+     * Identifica este índice sem segurar a instância (e shapes, grades e tabelas junto).
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    public int getCoveredCells() {
+        return coverage.getCoveredCells();
+    }
+
+    /**
+     * Quantidade de shapes únicos (ids de 0 a shapeCount - 1), para dimensionar a memória
+     * de resultados por requisição.
+     */
+    public int getShapeCount() {
+        return shapes.size();
+    }
+
+    CampaignShapeTable getShapes() {
+        return shapes;
+    }
+
+    CampaignCoverage getCoverage() {
+        return coverage;
+    }
+
+    public int size(CampaignAdFormat format) {
+        CampaignFormatBucket bucket = buckets[format.ordinal()];
+        return bucket == null ? 0 : bucket.size();
+    }
+
+    // campanha sem targeting nunca dá match, então nem entra no índice
+    static boolean isIndexable(Campaign campaign) {
+        return campaign.isActive()
+                && campaign.getBidPrice() != null
+                && campaign.getTargeting() != null
+                && CampaignAdFormat.maskOf(campaign.getAdFormats()) != 0;
+    }
+}
@@ -0,0 +1,792 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.hypr.geobidding.domain.campaign.Campaign;
+import com.hypr.geobidding.domain.campaign.CampaignAdFormat;
+import com.hypr.geobidding.domain.geo.GeoCoveredShape;
+import com.hypr.geobidding.domain.geo.GeoEmptyShape;
+import com.hypr.geobidding.domain.geo.GeoMultiRadiusShape;
+import com.hypr.geobidding.domain.geo.GeoPolygonShape;
+import com.hypr.geobidding.domain.geo.GeoRadiusShape;
+import com.hypr.geobidding.domain.geo.GeoShape;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Campanhas e índice compilado em disco, para o restart não refazer nem o parse do JSON nem a
+ * compilação: os campos das campanhas que índice, ledger e respostas usam, a geometria exata e a
+ * cobertura de células de cada shape, a ordem dos buckets, as grades e o bitmap de cobertura.
+ * <p>
+ * O arquivo é mapeado em memória. As tabelas de células dos shapes cobertos (quase todo o arquivo)
+ * são usadas direto no mapeamento, sem cópia; o resto é lido em cópias em bloco para os arrays do
+ * índice. Por isso o arquivo nunca é reescrito no lugar: write grava ao lado e move por cima.
+ * <p>
+ * As campanhas saem dele só com id, preços, saldos, formatos e active: name, targeting e exclusões
+ * ficam de fora, porque a geometria já vem compilada nos shapes. O Jackson só roda quando o
+ * snapshot não vale.
+ * <p>
+ * Vale só para o mesmo campaigns.json (impressão digital) e o mesmo VERSION; o índice gravado
+ * inclui as campanhas esgotadas (CampaignIndex.compileAll), então o saldo do momento não o invalida.
+ * A leitura valida o arquivo inteiro antes de devolver qualquer coisa: o ledger é montado com as
+ * campanhas lidas, e só depois (toIndex) elas viram o índice.
+ */
+final class CampaignIndexSnapshot {
+
+    private static final int MAGIC = 0x47424958; // "GBIX"
+
+    // incrementar sempre que o formato ou os parâmetros de cobertura/grade mudarem
+    private static final int VERSION = 2;
+
+    private static final byte GEOMETRY_RADIUS = 1;
+    private static final byte GEOMETRY_MULTI_RADIUS = 2;
+    private static final byte GEOMETRY_POLYGON = 3;
+
+    private static final byte FLAG_ACTIVE = 1;
+    private static final byte FLAG_NO_ID = 2;
+
+    // escala gravada no lugar de um BigDecimal null
+    private static final int NULL_SCALE = Integer.MIN_VALUE;
+
+    // bid_price, budget_remaining e daily_budget por campanha
+    private static final int DECIMALS = 3;
+
+    // targeting de campanha que não entrou no índice
+    private static final int NOT_INDEXED = -1;
+
+    private static final int[] NO_IDS = new int[0];
+
+    // a ordem das máquinas x86/ARM: as cópias em bloco dos arrays não trocam bytes
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private static final CampaignAdFormat[] FORMATS = CampaignAdFormat.values();
+
+    // ad_formats de cada máscara, compartilhado entre as campanhas lidas
+    private static final List<List<CampaignAdFormat>> FORMAT_LISTS = formatLists();
+
+    private final List<Campaign> campaigns;
+    private final CampaignShapeTable shapes;
+
+    // por campanha: id do targeting (NOT_INDEXED fora do índice) e fim das suas exclusões em exclusionIds
+    private final int[] targetingIds;
+    private final int[] exclusionEnds;
+    private final int[] exclusionIds;
+
+    private final CampaignCoverage coverage;
+
+    // por formato: posições no campaigns.json em ordem de preço e a grade; null sem bucket
+    private final int[][] bucketOrders;
+    private final CampaignSpatialGrid[] grids;
+
+    private CampaignIndexSnapshot(
+            List<Campaign> campaigns,
+            CampaignShapeTable shapes,
+            int[] targetingIds,
+            int[] exclusionEnds,
+            int[] exclusionIds,
+            CampaignCoverage coverage,
+            int[][] bucketOrders,
+            CampaignSpatialGrid[] grids
+    ) {
+        this.campaigns = campaigns;
+        this.shapes = shapes;
+        this.targetingIds = targetingIds;
+        this.exclusionEnds = exclusionEnds;
+        this.exclusionIds = exclusionIds;
+        this.coverage = coverage;
+        this.bucketOrders = bucketOrders;
+        this.grids = grids;
+    }
+
+    /**
+     * @return snapshot lido e validado, ou null quando o arquivo falta ou não vale
+     */
+    static CampaignIndexSnapshot read(Path path, String fingerprint) {
+        try (Input in = new Input(path)) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !fingerprint.equals(in.readString())) {
+                return null;
+            }
+            if (in.readInt() != FORMATS.length) {
+                return null;
+            }
+            double cellDegrees = in.readDouble();
+            int count = in.readInt();
+
+            List<Campaign> campaigns = readCampaigns(in, count);
+            CampaignShapeTable shapes = CampaignShapeTable.restore(readShapes(in));
+
+            int[] targetingIds = in.readInts(count);
+            int[] exclusionEnds = in.readInts(count);
+            int[] exclusionIds = in.readInts(in.readInt());
+            checkShapeIds(shapes, targetingIds, exclusionEnds, exclusionIds);
+
+            int coveredCells = in.readInt();
+            CampaignCoverage coverage = new CampaignCoverage(in.readLongs(CampaignCoverage.WORDS), coveredCells);
+
+            int[][] bucketOrders = new int[FORMATS.length][];
+            CampaignSpatialGrid[] grids = new CampaignSpatialGrid[FORMATS.length];
+            for (int f = 0; f < FORMATS.length; f++) {
+                if (in.readByte() != 0) {
+                    bucketOrders[f] = readOrder(in, targetingIds);
+                    grids[f] = readGrid(in, cellDegrees);
+                }
+            }
+            if (in.readInt() != MAGIC) {
+                throw new IOException("fim do arquivo inválido");
+            }
+            return new CampaignIndexSnapshot(
+                    campaigns, shapes, targetingIds, exclusionEnds, exclusionIds, coverage, bucketOrders, grids);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("⚠️ Snapshot do índice ignorado (" + path + "): " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Campanhas na ordem do campaigns.json, só com os campos que o motor usa.
+     */
+    List<Campaign> getCampaigns() {
+        return campaigns;
+    }
+
+    /**
+     * Índice sem as tabelas de vencedoras, com o orçamento de cada campanha no ledger.
+     *
+     * @param ledger montado com getCampaigns() (o ledger é por instância de campanha)
+     */
+    CampaignIndex toIndex(CampaignBudgetLedger ledger) {
+        CompiledCampaign[] compiled = new CompiledCampaign[campaigns.size()];
+        for (int i = 0, start = 0; i < compiled.length; start = exclusionEnds[i++]) {
+            if (targetingIds[i] == NOT_INDEXED) {
+                continue;
+            }
+            int[] exclusions = start == exclusionEnds[i]
+                    ? NO_IDS
+                    : Arrays.copyOfRange(exclusionIds, start, exclusionEnds[i]);
+            Campaign campaign = campaigns.get(i);
+            compiled[i] = new CompiledCampaign(campaign, shapes, targetingIds[i], exclusions, ledger.budgetOf(campaign));
+        }
+
+        CampaignFormatBucket[] buckets = new CampaignFormatBucket[FORMATS.length];
+        for (int f = 0; f < FORMATS.length; f++) {
+            int[] order = bucketOrders[f];
+            if (order == null) {
+                continue;
+            }
+            CompiledCampaign[] bucket = new CompiledCampaign[order.length];
+            for (int i = 0; i < order.length; i++) {
+                bucket[i] = compiled[order[i]];
+            }
+            buckets[f] = new CampaignFormatBucket(bucket, grids[f]);
+        }
+        return CampaignIndex.of(buckets, shapes, coverage);
+    }
+
+    /**
+     * Grava num arquivo temporário e move por cima, para um restart nunca ler um arquivo pela metade.
+     *
+     * @param index compilado com CampaignIndex.compileAll a partir de campaigns
+     * @throws IOException também quando algum valor não cabe no formato (ex.: preço com mais de 18 dígitos)
+     */
+    static void write(Path path, String fingerprint, List<Campaign> campaigns, CampaignIndex index) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        Map<Campaign, Integer> positions = new IdentityHashMap<>(campaigns.size());
+        for (int i = 0; i < campaigns.size(); i++) {
+            positions.put(campaigns.get(i), i);
+        }
+
+        double cellDegrees = CampaignSpatialGrid.DEFAULT_CELL_DEGREES;
+        for (CampaignAdFormat format : FORMATS) {
+            CampaignFormatBucket bucket = index.findBucket(format);
+            if (bucket != null) {
+                cellDegrees = bucket.getGrid().getCellDegrees();
+            }
+        }
+
+        try (Output out = new Output(tmp)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeString(fingerprint);
+            out.writeInt(FORMATS.length);
+            out.writeDouble(cellDegrees);
+            out.writeInt(campaigns.size());
+
+            writeCampaigns(out, campaigns);
+
+            CampaignShapeTable shapes = index.getShapes();
+            out.writeInt(shapes.size());
+            for (int id = CampaignShapeTable.EMPTY_ID + 1; id < shapes.size(); id++) {
+                writeShape(out, shapes.get(id));
+            }
+            writeShapeIds(out, campaigns.size(), index, positions);
+
+            CampaignCoverage coverage = index.getCoverage();
+            out.writeInt(coverage.getCoveredCells());
+            out.writeLongs(coverage.bits());
+
+            for (CampaignAdFormat format : FORMATS) {
+                CampaignFormatBucket bucket = index.findBucket(format);
+                out.writeByte(bucket == null ? 0 : 1);
+                if (bucket != null) {
+                    writeBucket(out, bucket, positions);
+                }
+            }
+            out.writeInt(MAGIC);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ids em UTF-8 num bloco só, depois flags, formatos e os três valores como unscaled/scale
+    private static void writeCampaigns(Output out, List<Campaign> campaigns) throws IOException {
+        int count = campaigns.size();
+        ByteArrayOutputStream ids = new ByteArrayOutputStream();
+        int[] idEnds = new int[count];
+        byte[] flags = new byte[count];
+        byte[] formats = new byte[count];
+        long[] unscaled = new long[count * DECIMALS];
+        int[] scales = new int[count * DECIMALS];
+
+        for (int i = 0; i < count; i++) {
+            Campaign campaign = campaigns.get(i);
+            if (campaign.getCampaignId() == null) {
+                flags[i] |= FLAG_NO_ID;
+            } else {
+                ids.writeBytes(campaign.getCampaignId().getBytes(StandardCharsets.UTF_8));
+            }
+            idEnds[i] = ids.size();
+            if (campaign.isActive()) {
+                flags[i] |= FLAG_ACTIVE;
+            }
+            formats[i] = (byte) CampaignAdFormat.maskOf(campaign.getAdFormats());
+
+            putDecimal(unscaled, scales, i * DECIMALS, campaign.getBidPrice());
+            putDecimal(unscaled, scales, i * DECIMALS + 1, campaign.getBudgetRemaining());
+            putDecimal(unscaled, scales, i * DECIMALS + 2, campaign.getDailyBudget());
+        }
+
+        out.writeInt(ids.size());
+        out.writeBytes(ids.toByteArray());
+        out.writeInts(idEnds);
+        out.writeBytes(flags);
+        out.writeBytes(formats);
+        out.writeLongs(unscaled);
+        out.writeInts(scales);
+    }
+
+    private static List<Campaign> readCampaigns(Input in, int count) throws IOException {
+        byte[] ids = in.readBytes(in.readInt());
+        int[] idEnds = in.readInts(count);
+        byte[] flags = in.readBytes(count);
+        byte[] formats = in.readBytes(count);
+        long[] unscaled = in.readLongs(count * DECIMALS);
+        int[] scales = in.readInts(count * DECIMALS);
+
+        Campaign[] campaigns = new Campaign[count];
+        for (int i = 0, start = 0; i < count; start = idEnds[i++]) {
+            if (idEnds[i] < start || idEnds[i] > ids.length) {
+                throw new IOException("ids de campanha inválidos");
+            }
+            Campaign campaign = new Campaign();
+            if ((flags[i] & FLAG_NO_ID) == 0) {
+                campaign.setCampaignId(new String(ids, start, idEnds[i] - start, StandardCharsets.UTF_8));
+            }
+            campaign.setActive((flags[i] & FLAG_ACTIVE) != 0);
+            campaign.setAdFormats(FORMAT_LISTS.get(formats[i] & (FORMAT_LISTS.size() - 1)));
+            campaign.setBidPrice(decimal(unscaled, scales, i * DECIMALS));
+            campaign.setBudgetRemaining(decimal(unscaled, scales, i * DECIMALS + 1));
+            campaign.setDailyBudget(decimal(unscaled, scales, i * DECIMALS + 2));
+            campaigns[i] = campaign;
+        }
+        return List.of(campaigns);
+    }
+
+    private static void putDecimal(long[] unscaled, int[] scales, int slot, BigDecimal value) throws IOException {
+        if (value == null) {
+            scales[slot] = NULL_SCALE;
+            return;
+        }
+        if (value.unscaledValue().bitLength() >= Long.SIZE || value.scale() == NULL_SCALE) {
+            throw new IOException("valor fora do formato do snapshot: " + value);
+        }
+        unscaled[slot] = value.unscaledValue().longValue();
+        scales[slot] = value.scale();
+    }
+
+    private static BigDecimal decimal(long[] unscaled, int[] scales, int slot) {
+        return scales[slot] == NULL_SCALE ? null : BigDecimal.valueOf(unscaled[slot], scales[slot]);
+    }
+
+    // geometria exata e, quando coberto, a tabela de células
+    private static void writeShape(Output out, GeoShape shape) throws IOException {
+        GeoCoveredShape covered = shape instanceof GeoCoveredShape c ? c : null;
+        writeGeometry(out, covered == null ? shape : covered.getExact());
+
+        if (covered == null) {
+            // cobertura estourou maxCells no compile: o shape exato é usado direto
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(1);
+        out.writeInt(covered.getMaxLevel());
+        out.writeDouble(covered.getFinestScale());
+        out.writeInt(covered.getCellKeys().capacity());
+        // alinhada para a leitura usar a tabela direto no arquivo mapeado
+        out.align(Long.BYTES);
+        out.writeLongs(covered.getCellKeys());
+        out.writeBytes(covered.getCellStates());
+    }
+
+    private static void writeGeometry(Output out, GeoShape exact) throws IOException {
+        if (exact instanceof GeoRadiusShape radius) {
+            out.writeByte(GEOMETRY_RADIUS);
+            out.writeDouble(radius.getCenterLat());
+            out.writeDouble(radius.getCenterLon());
+            out.writeDouble(radius.getRadiusKm());
+        } else if (exact instanceof GeoMultiRadiusShape multi) {
+            out.writeByte(GEOMETRY_MULTI_RADIUS);
+            out.writeInt(multi.size());
+            double[] values = new double[multi.size() * 3];
+            for (int i = 0; i < multi.size(); i++) {
+                values[i * 3] = multi.getRadius(i).getCenterLat();
+                values[i * 3 + 1] = multi.getRadius(i).getCenterLon();
+                values[i * 3 + 2] = multi.getRadius(i).getRadiusKm();
+            }
+            out.writeDoubles(values);
+        } else if (exact instanceof GeoPolygonShape polygon) {
+            out.writeByte(GEOMETRY_POLYGON);
+            out.writeInt(polygon.vertexCount());
+            out.writeDoubles(polygon.getLats());
+            out.writeDoubles(polygon.getLons());
+        } else {
+            throw new IOException("shape sem geometria gravável: " + exact.getClass().getSimpleName());
+        }
+    }
+
+    // shapes por id; a geometria exata é refeita dos números, sem passar pelas campanhas
+    private static GeoShape[] readShapes(Input in) throws IOException {
+        int count = in.readInt();
+        if (count <= CampaignShapeTable.EMPTY_ID) {
+            throw new IOException("tabela de shapes vazia");
+        }
+        GeoShape[] shapes = new GeoShape[in.checkLength(count)];
+        shapes[CampaignShapeTable.EMPTY_ID] = GeoEmptyShape.INSTANCE;
+        for (int id = CampaignShapeTable.EMPTY_ID + 1; id < count; id++) {
+            GeoShape exact = readGeometry(in);
+            if (in.readByte() == 0) {
+                shapes[id] = exact;
+                continue;
+            }
+            int maxLevel = in.readInt();
+            double finestScale = in.readDouble();
+            int length = in.readInt();
+            in.align(Long.BYTES);
+            shapes[id] = GeoCoveredShape.restore(
+                    exact, maxLevel, finestScale, in.sliceLongs(length), in.sliceBytes(length));
+        }
+        return shapes;
+    }
+
+    private static GeoShape readGeometry(Input in) throws IOException {
+        switch (in.readByte()) {
+            case GEOMETRY_RADIUS:
+                return new GeoRadiusShape(in.readDouble(), in.readDouble(), in.readDouble());
+            case GEOMETRY_MULTI_RADIUS:
+                int size = in.readInt();
+                double[] values = in.readDoubles(in.checkLength(size) * 3);
+                List<GeoRadiusShape> radii = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    radii.add(new GeoRadiusShape(values[i * 3], values[i * 3 + 1], values[i * 3 + 2]));
+                }
+                return new GeoMultiRadiusShape(radii);
+            case GEOMETRY_POLYGON:
+                int vertices = in.readInt();
+                return new GeoPolygonShape(in.readDoubles(vertices), in.readDoubles(vertices));
+            default:
+                throw new IOException("tipo de geometria inválido");
+        }
+    }
+
+    // ids de shape de cada campanha do campaigns.json, pelas campanhas dos buckets
+    private static void writeShapeIds(
+            Output out, int count, CampaignIndex index, Map<Campaign, Integer> positions) throws IOException {
+        int[] targetingIds = new int[count];
+        Arrays.fill(targetingIds, NOT_INDEXED);
+        int[][] exclusions = new int[count][];
+        for (CampaignAdFormat format : FORMATS) {
+            CampaignFormatBucket bucket = index.findBucket(format);
+            for (int i = 0; bucket != null && i < bucket.size(); i++) {
+                int position = positions.get(bucket.get(i).getCampaign());
+                targetingIds[position] = bucket.get(i).getTargetingId();
+                exclusions[position] = bucket.get(i).getExclusionIds();
+            }
+        }
+
+        int[] exclusionEnds = new int[count];
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            total += exclusions[i] == null ? 0 : exclusions[i].length;
+            exclusionEnds[i] = total;
+        }
+        out.writeInts(targetingIds);
+        out.writeInts(exclusionEnds);
+        out.writeInt(total);
+        for (int[] ids : exclusions) {
+            if (ids != null) {
+                out.writeInts(ids);
+            }
+        }
+    }
+
+    private static void checkShapeIds(
+            CampaignShapeTable shapes, int[] targetingIds, int[] exclusionEnds, int[] exclusionIds) throws IOException {
+        for (int i = 0, start = 0; i < targetingIds.length; start = exclusionEnds[i++]) {
+            if (targetingIds[i] < NOT_INDEXED || targetingIds[i] >= shapes.size()
+                    || exclusionEnds[i] < start || exclusionEnds[i] > exclusionIds.length) {
+                throw new IOException("campanha " + i + " aponta para shape fora da tabela");
+            }
+        }
+        for (int id : exclusionIds) {
+            if (id <= CampaignShapeTable.EMPTY_ID || id >= shapes.size()) {
+                throw new IOException("exclusão aponta para shape fora da tabela: " + id);
+            }
+        }
+    }
+
+    // posições do bucket como índices no campaigns.json, depois a grade em CSR
+    private static void writeBucket(
+            Output out, CampaignFormatBucket bucket, Map<Campaign, Integer> positions) throws IOException {
+        int[] order = new int[bucket.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = positions.get(bucket.get(i).getCampaign());
+        }
+        out.writeInt(order.length);
+        out.writeInts(order);
+
+        CampaignSpatialGrid grid = bucket.getGrid();
+        int cells = grid.cellCount();
+        long[] keys = new long[cells];
+        int[] offsets = new int[cells + 1];
+        for (int c = 0; c < cells; c++) {
+            keys[c] = grid.cellKeyAt(c);
+            offsets[c + 1] = offsets[c] + grid.candidatesAt(c).length;
+        }
+        out.writeInt(cells);
+        out.writeLongs(keys);
+        out.writeInts(offsets);
+        for (int c = 0; c < cells; c++) {
+            out.writeInts(grid.candidatesAt(c));
+        }
+
+        int[] wide = grid.wideCandidates();
+        out.writeInt(wide.length);
+        out.writeInts(wide);
+    }
+
+    private static int[] readOrder(Input in, int[] targetingIds) throws IOException {
+        int[] order = in.readInts(in.readInt());
+        for (int position : order) {
+            if (position < 0 || position >= targetingIds.length || targetingIds[position] == NOT_INDEXED) {
+                throw new IOException("bucket aponta para campanha fora do índice: " + position);
+            }
+        }
+        return order;
+    }
+
+    // cada célula é lida direto no seu array, sem passar por um bloco intermediário
+    private static CampaignSpatialGrid readGrid(Input in, double cellDegrees) throws IOException {
+        int cells = in.readInt();
+        long[] keys = in.readLongs(cells);
+        int[] offsets = in.readInts(cells + 1);
+        int[][] positions = new int[cells][];
+        for (int c = 0; c < cells; c++) {
+            positions[c] = in.readInts(offsets[c + 1] - offsets[c]);
+        }
+        int[] wide = in.readInts(in.readInt());
+        return CampaignSpatialGrid.of(cellDegrees, keys, positions, wide);
+    }
+
+    private static List<List<CampaignAdFormat>> formatLists() {
+        List<List<CampaignAdFormat>> lists = new ArrayList<>(1 << FORMATS.length);
+        for (int mask = 0; mask < 1 << FORMATS.length; mask++) {
+            List<CampaignAdFormat> formats = new ArrayList<>(FORMATS.length);
+            for (CampaignAdFormat format : FORMATS) {
+                if ((mask & format.mask()) != 0) {
+                    formats.add(format);
+                }
+            }
+            lists.add(List.copyOf(formats));
+        }
+        return lists;
+    }
+
+    /**
+     * Leitura por janelas mapeadas (um mapeamento só não passa de 2 GB).
+     */
+    private static final class Input implements Closeable {
+
+        private static final long WINDOW = 64L << 20;
+
+        private final FileChannel channel;
+        private final long size;
+
+        private MappedByteBuffer buffer;
+        private long bufferStart;
+
+        private Input(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.size = channel.size();
+            map(0, 0);
+        }
+
+        int readInt() throws IOException {
+            return ensure(Integer.BYTES).getInt();
+        }
+
+        byte readByte() throws IOException {
+            return ensure(1).get();
+        }
+
+        double readDouble() throws IOException {
+            return ensure(Double.BYTES).getDouble();
+        }
+
+        String readString() throws IOException {
+            return new String(readBytes(readInt()), StandardCharsets.UTF_8);
+        }
+
+        byte[] readBytes(int length) throws IOException {
+            byte[] bytes = new byte[checkLength(length)];
+            ensure(bytes.length).get(bytes);
+            return bytes;
+        }
+
+        int[] readInts(int length) throws IOException {
+            int[] values = new int[checkLength(length)];
+            ByteBuffer view = ensure((long) values.length * Integer.BYTES);
+            view.asIntBuffer().get(values);
+            view.position(view.position() + values.length * Integer.BYTES);
+            return values;
+        }
+
+        double[] readDoubles(int length) throws IOException {
+            double[] values = new double[checkLength(length)];
+            ByteBuffer view = ensure((long) values.length * Double.BYTES);
+            view.asDoubleBuffer().get(values);
+            view.position(view.position() + values.length * Double.BYTES);
+            return values;
+        }
+
+        long[] readLongs(int length) throws IOException {
+            long[] values = new long[checkLength(length)];
+            ByteBuffer view = ensure((long) values.length * Long.BYTES);
+            view.asLongBuffer().get(values);
+            view.position(view.position() + values.length * Long.BYTES);
+            return values;
+        }
+
+        /**
+         * Trecho do arquivo mapeado, sem cópia: continua valendo depois do close.
+         */
+        LongBuffer sliceLongs(int length) throws IOException {
+            return slice((long) checkLength(length) * Long.BYTES).asLongBuffer();
+        }
+
+        ByteBuffer sliceBytes(int length) throws IOException {
+            return slice(checkLength(length));
+        }
+
+        void align(int bytes) throws IOException {
+            long position = bufferStart + buffer.position();
+            int padding = (int) (-position & (bytes - 1));
+            ensure(padding).position(buffer.position() + padding);
+        }
+
+        private ByteBuffer slice(long bytes) throws IOException {
+            ByteBuffer view = ensure(bytes);
+            ByteBuffer slice = view.slice(view.position(), (int) bytes).order(ORDER);
+            view.position(view.position() + (int) bytes);
+            return slice;
+        }
+
+        // tamanho lido do arquivo: negativo ou maior que o resto é arquivo corrompido
+        int checkLength(int length) throws IOException {
+            if (length < 0 || length > size) {
+                throw new IOException("tamanho inválido: " + length);
+            }
+            return length;
+        }
+
+        private ByteBuffer ensure(long bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return buffer;
+            }
+            long position = bufferStart + buffer.position();
+            if (position + bytes > size) {
+                throw new IOException("arquivo truncado");
+            }
+            map(position, bytes);
+            return buffer;
+        }
+
+        private void map(long position, long atLeast) throws IOException {
+            long length = Math.min(size - position, Math.max(WINDOW, atLeast));
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("bloco grande demais: " + length);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            buffer.order(ORDER);
+            bufferStart = position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Escrita com buffer direto e cópias em bloco dos arrays.
+     */
+    private static final class Output implements Closeable {
+
+        private static final int BUFFER = 1 << 20;
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER).order(ORDER);
+
+        // bytes já passados ao arquivo
+        private long written;
+
+        private Output(Path path) throws IOException {
+            this.channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+
+        void writeInt(int value) throws IOException {
+            room(Integer.BYTES).putInt(value);
+        }
+
+        void writeByte(int value) throws IOException {
+            room(1).put((byte) value);
+        }
+
+        void writeDouble(double value) throws IOException {
+            room(Double.BYTES).putDouble(value);
+        }
+
+        void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            writeBytes(bytes);
+        }
+
+        void writeBytes(byte[] values) throws IOException {
+            for (int from = 0; from < values.length; ) {
+                int count = Math.min(values.length - from, room(1).remaining());
+                buffer.put(values, from, count);
+                from += count;
+            }
+        }
+
+        void writeInts(int[] values) throws IOException {
+            for (int from = 0; from < values.length; ) {
+                int count = Math.min(values.length - from, room(Integer.BYTES).remaining() / Integer.BYTES);
+                buffer.asIntBuffer().put(values, from, count);
+                buffer.position(buffer.position() + count * Integer.BYTES);
+                from += count;
+            }
+        }
+
+        void writeDoubles(double[] values) throws IOException {
+            for (int from = 0; from < values.length; ) {
+                int count = Math.min(values.length - from, room(Double.BYTES).remaining() / Double.BYTES);
+                buffer.asDoubleBuffer().put(values, from, count);
+                buffer.position(buffer.position() + count * Double.BYTES);
+                from += count;
+            }
+        }
+
+        void writeLongs(long[] values) throws IOException {
+            for (int from = 0; from < values.length; ) {
+                int count = Math.min(values.length - from, room(Long.BYTES).remaining() / Long.BYTES);
+                buffer.asLongBuffer().put(values, from, count);
+                buffer.position(buffer.position() + count * Long.BYTES);
+                from += count;
+            }
+        }
+
+        void writeLongs(LongBuffer values) throws IOException {
+            for (int from = values.position(); from < values.limit(); ) {
+                int count = Math.min(values.limit() - from, room(Long.BYTES).remaining() / Long.BYTES);
+                buffer.asLongBuffer().put(values.slice(from, count));
+                buffer.position(buffer.position() + count * Long.BYTES);
+                from += count;
+            }
+        }
+
+        void writeBytes(ByteBuffer values) throws IOException {
+            for (int from = values.position(); from < values.limit(); ) {
+                int count = Math.min(values.limit() - from, room(1).remaining());
+                buffer.put(values.slice(from, count));
+                from += count;
+            }
+        }
+
+        // completa com zeros até a posição no arquivo ser múltipla de bytes
+        void align(int bytes) throws IOException {
+            int padding = (int) (-(written + buffer.position()) & (bytes - 1));
+            for (int i = 0; i < padding; i++) {
+                writeByte(0);
+            }
+        }
+
+        private ByteBuffer room(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+            return buffer;
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -2,14 +2,31 @@ package com.hypr.geobidding.repository.campaign;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hypr.geobidding.config.campaign.CampaignBudgetProperties;
+import com.hypr.geobidding.config.campaign.CampaignIndexSnapshotProperties;
+import com.hypr.geobidding.config.campaign.CampaignWinnerTableProperties;
 import com.hypr.geobidding.domain.campaign.Campaign;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Repository;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.URI;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Repository
 @Lazy(false)
@@ -17,10 +34,51 @@ public class CampaignRepository {
 
     private List<Campaign> campaigns;
 
+    // trocado inteiro na recompilação; as requisições em curso terminam no índice antigo
+    private volatile CampaignIndex index;
+
+    // índice do load, com as esgotadas: as recompilações só filtram a partir dele
+    private CampaignIndex base;
+
+    private CampaignBudgetLedger ledger = CampaignBudgetLedger.unlimited();
+
+    private CampaignSpendJournal journal = CampaignSpendJournal.disabled();
+
+    // ledger cujo gasto vai para o diário: o da instância ou, coordenado, o do coordenador
+    private CampaignBudgetLedger journaled = CampaignBudgetLedger.unlimited();
+
+    // mode=local: saldo global servido às instâncias
+    private LocalCampaignBudgetCoordinator coordinator;
+
+    private CampaignBudgetTranches tranches;
+
     private final ObjectMapper objectMapper;
 
-    public CampaignRepository(ObjectMapper objectMapper) {
+    private final CampaignWinnerTableProperties winnerTableProperties;
+
+    private final CampaignBudgetProperties budgetProperties;
+
+    private final CampaignIndexSnapshotProperties snapshotProperties;
+
+    // recompilações e virada do dia numa thread só, fora das requisições
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "campaign-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    public CampaignRepository(
+            ObjectMapper objectMapper,
+            CampaignWinnerTableProperties winnerTableProperties,
+            CampaignBudgetProperties budgetProperties,
+            CampaignIndexSnapshotProperties snapshotProperties
+    ) {
         this.objectMapper = objectMapper;
+        this.winnerTableProperties = winnerTableProperties;
+        this.budgetProperties = budgetProperties;
+        this.snapshotProperties = snapshotProperties;
     }
 
     @PostConstruct
@@ -33,13 +91,357 @@ public class CampaignRepository {
             throw new IllegalStateException("campaigns.json não encontrado no classpath");
         }
 
-        Campaign[] loaded = objectMapper.readValue(is, Campaign[].class);
-        this.campaigns = List.of(loaded);
+        byte[] content;
+        try (is) {
+            content = is.readAllBytes();
+        }
+
+        // uma impressão digital só para diário, snapshot e tabela de vencedoras
+        String fingerprint = fingerprint(content);
+        CampaignIndexSnapshot snapshot = readSnapshot(fingerprint);
+        List<Campaign> list = snapshot != null
+                ? snapshot.getCampaigns()
+                : List.of(objectMapper.readValue(content, Campaign[].class));
+        CampaignBudgetProperties.Coordination coordination = budgetProperties.getCoordination();
+        boolean coordinated = budgetProperties.isEnabled()
+                && coordination.getMode() != CampaignBudgetProperties.Coordination.Mode.NONE;
+        CampaignBudgetLedger budgets = budgetProperties.isEnabled()
+                ? newLedger(list, coordinated)
+                : CampaignBudgetLedger.unlimited();
+        if (coordination.getMode() == CampaignBudgetProperties.Coordination.Mode.LOCAL && coordinated) {
+            // saldo global sem fatias: só o coordenador reserva nele, fora das requisições
+            CampaignBudgetLedger global = new CampaignBudgetLedger(list, budgetProperties.getStripes(), () -> {});
+            openJournal(global, fingerprint);
+            this.coordinator = new LocalCampaignBudgetCoordinator(global);
+        } else if (budgetProperties.isEnabled() && !coordinated) {
+            // gasto de antes do restart sai dos saldos antes de o índice existir
+            openJournal(budgets, fingerprint);
+        }
+        if (coordinated) {
+            this.tranches = newTranches(budgets, coordination);
+            // primeira tranche antes do índice: campanha sem saldo local nem entra nele
+            int funded = tranches.refill();
+            System.out.println("✅ Tranches iniciais de " + tranches.getInstanceId() + ": " + funded + " campanhas");
+        }
+        CampaignIndex compiled = loadIndex(list, budgets, snapshot, fingerprint);
+        loadWinnerTables(compiled, fingerprint);
+
+        this.campaigns = list;
+        this.ledger = budgets;
+        this.base = compiled;
+        this.index = compiled;
         System.out.println("✅ Campanhas carregadas: " + this.campaigns.size());
+        if (budgets.getExhaustedCount() > 0) {
+            // o índice do load inclui as esgotadas: puladas até esta recompilação
+            scheduleRebuild();
+        }
+
+        if (budgetProperties.isEnabled()) {
+            scheduleDailyReset();
+        }
+        if (budgetProperties.isEnabled() && budgetProperties.getLease().isEnabled()) {
+            long interval = Math.max(1, budgetProperties.getLease().getReclaimIntervalMs());
+            maintenance.scheduleWithFixedDelay(budgets::maintainLeases, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        if (tranches != null) {
+            tranches.start(coordination.getRefillIntervalMs(), this::scheduleRebuild);
+        }
+        if (journal != CampaignSpendJournal.disabled()) {
+            long interval = Math.max(1, budgetProperties.getJournal().getFlushIntervalMs());
+            maintenance.scheduleWithFixedDelay(this::flushJournal, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void openJournal(CampaignBudgetLedger budgets, String fingerprint) {
+        CampaignBudgetProperties.Journal properties = budgetProperties.getJournal();
+        String path = properties.getPath();
+        if (path == null || path.isBlank()) {
+            return;
+        }
+
+        Path file = Path.of(path);
+        long start = System.nanoTime();
+        try {
+            CampaignSpendJournal.Recovery recovery = CampaignSpendJournal.recover(
+                    file, fingerprint, budgets.getCampaignIds(), budgetDay());
+            budgets.restore(recovery);
+            this.journal = CampaignSpendJournal.create(
+                    file, fingerprint, budgets.getCampaignIds(), budgetDay(), properties.getChunkRecords(),
+                    budgets::getTotalSpentNanos, budgets::getDailySpentNanos);
+            budgets.attach(journal);
+            this.journaled = budgets;
+            System.out.println("✅ Diário de gasto " + file + ": " + recovery.records + " registros recuperados em "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (IOException e) {
+            // o arquivo antigo fica intacto para a próxima tentativa
+            System.out.println("⚠️ Diário de gasto desligado (" + file + "): " + e.getMessage());
+        }
+    }
+
+    private void flushJournal() {
+        journal.flush();
+        if (journal.getRecords() < budgetProperties.getJournal().getCompactAfterRecords()) {
+            return;
+        }
+        try {
+            journal.compact(journaled::getTotalSpentNanos, journaled::getDailySpentNanos);
+            System.out.println("✅ Diário de gasto compactado");
+        } catch (IOException e) {
+            System.out.println("⚠️ Falha ao compactar o diário de gasto: " + e.getMessage());
+        }
+    }
+
+    // dia do orçamento diário: a data local depois do horário de virada
+    private int budgetDay() {
+        return (int) ZonedDateTime.now(budgetProperties.getZone())
+                .minusNanos(budgetProperties.getDailyResetTime().toNanoOfDay())
+                .toLocalDate()
+                .toEpochDay();
+    }
+
+    private CampaignBudgetLedger newLedger(List<Campaign> list, boolean coordinated) {
+        CampaignBudgetProperties.Lease lease = budgetProperties.getLease();
+        if (coordinated) {
+            return CampaignBudgetLedger.coordinated(
+                    list,
+                    budgetProperties.getStripes(),
+                    lease.isEnabled() ? lease.getSliceImpressions() : 0,
+                    lease.getTolerance(),
+                    lease.getHotReservations(),
+                    this::scheduleRebuild
+            );
+        }
+        if (!lease.isEnabled()) {
+            return new CampaignBudgetLedger(list, budgetProperties.getStripes(), this::scheduleRebuild);
+        }
+        return new CampaignBudgetLedger(
+                list,
+                budgetProperties.getStripes(),
+                lease.getSliceImpressions(),
+                lease.getTolerance(),
+                lease.getHotReservations(),
+                this::scheduleRebuild
+        );
+    }
+
+    private CampaignBudgetTranches newTranches(
+            CampaignBudgetLedger budgets,
+            CampaignBudgetProperties.Coordination coordination
+    ) {
+        CampaignBudgetCoordinator source = coordinator;
+        if (source == null) {
+            String url = coordination.getUrl();
+            if (url == null || url.isBlank()) {
+                throw new IllegalStateException("geobidding.budget.coordination.url é obrigatório com mode=remote");
+            }
+            source = new HttpCampaignBudgetCoordinator(
+                    URI.create(url), objectMapper, Duration.ofMillis(coordination.getTimeoutMs()));
+        }
+        String instanceId = coordination.getInstanceId();
+        if (instanceId == null || instanceId.isBlank()) {
+            instanceId = defaultInstanceId();
+        }
+        return new CampaignBudgetTranches(
+                budgets,
+                source,
+                instanceId,
+                coordination.getTrancheImpressions(),
+                coordination.getLowWatermark(),
+                coordination.getExhaustedRetryMs()
+        );
+    }
+
+    private static String defaultInstanceId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "localhost";
+        }
+        return host + ":" + ManagementFactory.getRuntimeMXBean().getPid();
+    }
+
+    @PreDestroy
+    public void close() {
+        maintenance.shutdownNow();
+        if (tranches != null) {
+            try {
+                // a sobra local volta ao coordenador antes de o diário fechar
+                tranches.close();
+            } catch (IOException e) {
+                System.out.println("⚠️ Falha ao devolver as tranches ao coordenador: " + e.getMessage());
+            }
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("⚠️ Falha ao fechar o diário de gasto: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recompila o índice sem as campanhas esgotadas. Vários esgotamentos seguidos viram
+     * uma recompilação só; até ela terminar, as esgotadas são puladas pela avaliação.
+     * <p>
+     * A recompilação parte sempre do índice completo do load e só filtra posições
+     * (CampaignIndex.withoutExhausted): campanha que volta a ter saldo volta junto, e nada
+     * de geometria é refeito.
+     */
+    void scheduleRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            maintenance.execute(() -> {
+                rebuildPending.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    private void rebuild() {
+        long start = System.nanoTime();
+        this.index = base.withoutExhausted();
+        System.out.println("✅ Índice recompilado em " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                + " ms; campanhas sem saldo: " + ledger.getExhaustedCount());
+    }
+
+    private void scheduleDailyReset() {
+        ZonedDateTime now = ZonedDateTime.now(budgetProperties.getZone());
+        ZonedDateTime next = now.with(budgetProperties.getDailyResetTime());
+        if (!next.isAfter(now)) {
+            next = next.plusDays(1);
+        }
+
+        maintenance.schedule(() -> {
+            // campanhas esgotadas só pelo dia voltam ao índice
+            journal.setDay(budgetDay());
+            if (coordinator != null) {
+                coordinator.getLedger().resetDaily();
+            }
+            if (tranches != null) {
+                tranches.retryDenied();
+            }
+            if (ledger.resetDaily() > 0) {
+                rebuild();
+            }
+            scheduleDailyReset();
+        }, Duration.between(now, next).toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private boolean isSnapshotEnabled() {
+        String path = snapshotProperties.getPath();
+        return path != null && !path.isBlank();
+    }
+
+    /**
+     * Campanhas e índice do snapshot, quando ele vale para este campaigns.json; null sem snapshot.
+     */
+    private CampaignIndexSnapshot readSnapshot(String fingerprint) {
+        if (!isSnapshotEnabled()) {
+            return null;
+        }
+        Path file = Path.of(snapshotProperties.getPath());
+        long start = System.nanoTime();
+        CampaignIndexSnapshot snapshot = CampaignIndexSnapshot.read(file, fingerprint);
+        if (snapshot != null) {
+            System.out.println("✅ Campanhas lidas do snapshot " + file + " em "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        }
+        return snapshot;
+    }
+
+    /**
+     * Monta o índice do snapshot lido no load; sem ele, compila e grava um novo.
+     * <p>
+     * Com as esgotadas também: a estrutura (posições nos buckets) depende só do campaigns.json,
+     * que é o que as chaves da tabela de vencedoras e do snapshot cobrem. O saldo recuperado
+     * do diário ou das tranches não muda posição nenhuma.
+     *
+     * @param snapshot o de readSnapshot, cujas campanhas são list; null para compilar
+     */
+    CampaignIndex loadIndex(
+            List<Campaign> list, CampaignBudgetLedger budgets, CampaignIndexSnapshot snapshot, String fingerprint) {
+        if (snapshot != null) {
+            long start = System.nanoTime();
+            CampaignIndex restored = snapshot.toIndex(budgets);
+            System.out.println("✅ Índice montado do snapshot em "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+            return restored;
+        }
+
+        CampaignIndex compiled = CampaignIndex.compileAll(list, CampaignSpatialGrid.DEFAULT_CELL_DEGREES, budgets);
+        if (!isSnapshotEnabled()) {
+            return compiled;
+        }
+        Path file = Path.of(snapshotProperties.getPath());
+        try {
+            CampaignIndexSnapshot.write(file, fingerprint, list, compiled);
+            System.out.println("✅ Snapshot do índice gravado em " + file);
+        } catch (IOException e) {
+            // o índice em memória continua valendo, só não sobrevive ao restart
+            System.out.println("⚠️ Não foi possível gravar o snapshot do índice: " + e.getMessage());
+        }
+        return compiled;
+    }
+
+    void loadWinnerTables(CampaignIndex compiled, String fingerprint) {
+        String path = winnerTableProperties.getPath();
+        if (path == null || path.isBlank()) {
+            compiled.materializeWinnerTables();
+            return;
+        }
+
+        Path file = Path.of(path);
+        if (CampaignWinnerTableFile.read(file, fingerprint, compiled)) {
+            System.out.println("✅ Tabela de vencedoras lida de " + file);
+            return;
+        }
+
+        compiled.materializeWinnerTables();
+        try {
+            CampaignWinnerTableFile.write(file, fingerprint, compiled);
+            System.out.println("✅ Tabela de vencedoras gravada em " + file);
+        } catch (IOException e) {
+            // a tabela em memória continua valendo, só não sobrevive ao restart
+            System.out.println("⚠️ Não foi possível gravar a tabela de vencedoras: " + e.getMessage());
+        }
+    }
+
+    // posições da tabela e do snapshot dependem do arquivo e do tamanho de célula
+    static String fingerprint(byte[] content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(content);
+            digest.update(Double.toString(CampaignSpatialGrid.DEFAULT_CELL_DEGREES).getBytes());
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     public List<Campaign> findAll() {
         return campaigns == null ? List.of() : campaigns;
     }
+
+    public CampaignIndex getIndex() {
+        CampaignIndex current = index;
+        return current == null ? CampaignIndex.empty() : current;
+    }
+
+    public CampaignBudgetLedger getLedger() {
+        return ledger;
+    }
+
+    /**
+     * Coordenador de saldo desta instância (mode=local); null nos outros modos.
+     */
+    public LocalCampaignBudgetCoordinator getCoordinator() {
+        return coordinator;
+    }
+
+    /**
+     * Tranches da instância coordenada; null sem coordenação.
+     */
+    public CampaignBudgetTranches getTranches() {
+        return tranches;
+    }
 }
 
@@ -0,0 +1,105 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.hypr.geobidding.domain.campaign.CampaignExclusion;
+import com.hypr.geobidding.domain.campaign.CampaignTargeting;
+import com.hypr.geobidding.domain.geo.GeoEmptyShape;
+import com.hypr.geobidding.domain.geo.GeoShape;
+import com.hypr.geobidding.domain.geo.GeoShapeFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Tabela de shapes únicos do índice. Geometrias iguais (a mesma zona de exclusão em várias
+ * campanhas, o mesmo geofence em todos os flights de um anunciante) são compiladas uma vez
+ * e recebem o mesmo id, que indexa o resultado memorizado por requisição.
+ */
+final class CampaignShapeTable {
+
+    // id reservado para targeting inválido, que nunca dá match
+    static final int EMPTY_ID = 0;
+
+    private final Map<Object, Integer> ids = new HashMap<>();
+    private final List<GeoShape> shapes;
+
+    CampaignShapeTable() {
+        this.shapes = new ArrayList<>();
+        shapes.add(GeoEmptyShape.INSTANCE);
+    }
+
+    // tabela lida do snapshot: os ids já vêm resolvidos, nada mais é internado nela
+    private CampaignShapeTable(List<GeoShape> shapes) {
+        this.shapes = shapes;
+    }
+
+    /**
+     * @param shapes shapes por id, com o vazio em EMPTY_ID
+     */
+    static CampaignShapeTable restore(GeoShape[] shapes) {
+        if (shapes.length == 0 || shapes[EMPTY_ID] != GeoEmptyShape.INSTANCE) {
+            throw new IllegalArgumentException("tabela de shapes sem o vazio em " + EMPTY_ID);
+        }
+        return new CampaignShapeTable(Arrays.asList(shapes));
+    }
+
+    int internTargeting(CampaignTargeting targeting) {
+        Object key = GeoShapeFactory.targetingKey(targeting);
+        if (key == null) {
+            return EMPTY_ID;
+        }
+        return intern(key, () -> GeoShapeFactory.fromTargeting(targeting));
+    }
+
+    /**
+     * @return ids das exclusões válidas; exclusões que nunca excluem são descartadas
+     */
+    int[] internExclusions(List<CampaignExclusion> exclusions) {
+        if (exclusions == null || exclusions.isEmpty()) {
+            return new int[0];
+        }
+
+        List<Integer> result = new ArrayList<>(exclusions.size());
+        for (CampaignExclusion exclusion : exclusions) {
+            Object key = GeoShapeFactory.exclusionKey(exclusion);
+            if (key == null) {
+                continue;
+            }
+
+            int id = intern(key, () -> GeoShapeFactory.fromExclusion(exclusion));
+            if (id != EMPTY_ID) {
+                result.add(id);
+            }
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    GeoShape get(int id) {
+        return shapes.get(id);
+    }
+
+    int size() {
+        return shapes.size();
+    }
+
+    // só compila (cobertura de células incluída) na primeira vez que a geometria aparece
+    private int intern(Object key, Supplier<GeoShape> compiler) {
+        Integer existing = ids.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        GeoShape compiled = compiler.get();
+
+        // chave válida que ainda assim compila para vazio (ex.: polígono aberto)
+        int id = compiled == GeoEmptyShape.INSTANCE ? EMPTY_ID : shapes.size();
+        if (id != EMPTY_ID) {
+            shapes.add(compiled);
+        }
+        ids.put(key, id);
+        return id;
+    }
+}
@@ -0,0 +1,206 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.hypr.geobidding.domain.geo.GeoShape;
+import com.hypr.geobidding.utils.geo.GeoCellUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grade lat/lon de um bucket: cada célula guarda as posições (no bucket) das campanhas
+ * cujo bounding box de targeting toca a célula. Posições crescentes = bid_price decrescente,
+ * então a ordem de avaliação do bucket é preservada.
+ */
+public final class CampaignSpatialGrid {
+
+    public static final double DEFAULT_CELL_DEGREES = 0.05;
+
+    // acima disso o shape vai para a lista "wide", consultada em toda requisição
+    static final int MAX_CELLS_PER_TARGETING = 4096;
+
+    private static final int[] NO_CANDIDATES = new int[0];
+
+    private final double cellDegrees;
+
+    // chaves ordenadas para busca binária; cellPositions[i] pertence a cellKeys[i]
+    private final long[] cellKeys;
+    private final int[][] cellPositions;
+
+    private final int[] widePositions;
+
+    private CampaignSpatialGrid(double cellDegrees, long[] cellKeys, int[][] cellPositions, int[] widePositions) {
+        this.cellDegrees = cellDegrees;
+        this.cellKeys = cellKeys;
+        this.cellPositions = cellPositions;
+        this.widePositions = widePositions;
+    }
+
+    /**
+     * @return posições crescentes das campanhas cuja área pode conter o ponto (sem as "wide")
+     */
+    public int[] candidates(double lat, double lon) {
+        int i = cellIndex(lat, lon);
+        return i < 0 ? NO_CANDIDATES : cellPositions[i];
+    }
+
+    /**
+     * @return índice (0 a cellCount - 1) da célula que contém o ponto, ou -1 se nenhuma
+     * campanha "local" toca essa célula
+     */
+    public int cellIndex(double lat, double lon) {
+        int i = Arrays.binarySearch(cellKeys, GeoCellUtils.cellKey(lat, lon, cellDegrees));
+        return i < 0 ? -1 : i;
+    }
+
+    /**
+     * Chave (GeoCellUtils.cellKey) da célula de índice cellIndex.
+     */
+    public long cellKeyAt(int cellIndex) {
+        return cellKeys[cellIndex];
+    }
+
+    public int[] candidatesAt(int cellIndex) {
+        return cellPositions[cellIndex];
+    }
+
+    /**
+     * @return posições crescentes das campanhas com área grande demais para a grade
+     */
+    public int[] wideCandidates() {
+        return widePositions;
+    }
+
+    public double getCellDegrees() {
+        return cellDegrees;
+    }
+
+    public int cellCount() {
+        return cellKeys.length;
+    }
+
+    /**
+     * Grade já montada (lida do snapshot do índice): chaves ordenadas e posições crescentes.
+     */
+    static CampaignSpatialGrid of(double cellDegrees, long[] cellKeys, int[][] cellPositions, int[] widePositions) {
+        return new CampaignSpatialGrid(cellDegrees, cellKeys, cellPositions, widePositions);
+    }
+
+    /**
+     * Mesma grade com as posições renumeradas; newPositions[antiga] = nova, ou -1 para a
+     * campanha que saiu do bucket. A renumeração preserva a ordem, então as listas seguem
+     * crescentes. As células ficam todas (mesmo as que esvaziam): a tabela de vencedoras
+     * continua indexada pela mesma célula.
+     */
+    CampaignSpatialGrid remap(int[] newPositions) {
+        int[][] positions = new int[cellPositions.length][];
+        for (int i = 0; i < cellPositions.length; i++) {
+            positions[i] = remap(cellPositions[i], newPositions);
+        }
+        return new CampaignSpatialGrid(cellDegrees, cellKeys, positions, remap(widePositions, newPositions));
+    }
+
+    private static int[] remap(int[] positions, int[] newPositions) {
+        int count = 0;
+        for (int position : positions) {
+            if (newPositions[position] >= 0) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return NO_CANDIDATES;
+        }
+
+        int[] remapped = new int[count];
+        int next = 0;
+        for (int position : positions) {
+            if (newPositions[position] >= 0) {
+                remapped[next++] = newPositions[position];
+            }
+        }
+        return remapped;
+    }
+
+    static Builder builder(double cellDegrees) {
+        return new Builder(cellDegrees);
+    }
+
+    static final class Builder {
+
+        private final double cellDegrees;
+        private final Map<Long, List<Integer>> cells = new HashMap<>();
+        private final List<Integer> wide = new ArrayList<>();
+
+        private Builder(double cellDegrees) {
+            this.cellDegrees = cellDegrees;
+        }
+
+        /**
+         * Posições devem ser adicionadas em ordem crescente.
+         */
+        void add(int position, GeoShape targeting) {
+            List<double[]> boxes = targeting.boundingBoxes();
+            if (boxes.isEmpty()) {
+                // targeting inválido nunca dá match
+                return;
+            }
+
+            long total = 0;
+            for (double[] box : boxes) {
+                total = Math.min(Long.MAX_VALUE / 2, total + cellCount(box));
+            }
+            if (total > MAX_CELLS_PER_TARGETING) {
+                wide.add(position);
+                return;
+            }
+
+            for (double[] box : boxes) {
+                int minLat = GeoCellUtils.latIndex(box[0], cellDegrees);
+                int maxLat = GeoCellUtils.latIndex(box[1], cellDegrees);
+                int minLon = GeoCellUtils.lonIndex(box[2], cellDegrees);
+                int maxLon = GeoCellUtils.lonIndex(box[3], cellDegrees);
+
+                for (int la = minLat; la <= maxLat; la++) {
+                    for (int lo = minLon; lo <= maxLon; lo++) {
+                        List<Integer> list = cells.computeIfAbsent(
+                                GeoCellUtils.cellKey(la, lo), k -> new ArrayList<>());
+                        // boxes de um multi_radius podem se sobrepor
+                        if (list.isEmpty() || list.get(list.size() - 1) != position) {
+                            list.add(position);
+                        }
+                    }
+                }
+            }
+        }
+
+        CampaignSpatialGrid build() {
+            long[] keys = cells.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            int[][] positions = new int[keys.length][];
+
+            for (int i = 0; i < keys.length; i++) {
+                positions[i] = cells.get(keys[i]).stream().mapToInt(Integer::intValue).toArray();
+            }
+
+            return new CampaignSpatialGrid(
+                    cellDegrees,
+                    keys,
+                    positions,
+                    wide.stream().mapToInt(Integer::intValue).toArray()
+            );
+        }
+
+        private long cellCount(double[] box) {
+            // perto dos polos cos(lat) -> 0 e o box de longitude explode
+            for (double bound : box) {
+                if (!Double.isFinite(bound)) {
+                    return Long.MAX_VALUE;
+                }
+            }
+            long lat = GeoCellUtils.latIndex(box[1], cellDegrees) - GeoCellUtils.latIndex(box[0], cellDegrees) + 1L;
+            long lon = GeoCellUtils.lonIndex(box[3], cellDegrees) - GeoCellUtils.lonIndex(box[2], cellDegrees) + 1L;
+            return lat * lon;
+        }
+    }
+}
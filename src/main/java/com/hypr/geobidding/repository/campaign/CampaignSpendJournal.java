@@ -0,0 +1,499 @@
+package com.hypr.geobidding.repository.campaign;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Diário de gasto em disco: cada reserva (e devolução) de saldo vira um registro fixo de
+ * 16 bytes num arquivo mapeado em memória, escrito sem lock e sem fsync na thread da
+ * requisição. O flush periódico (thread de manutenção) força as páginas para o disco;
+ * queda do processo não perde nada, queda da máquina perde no máximo um intervalo de flush.
+ * <p>
+ * Layout: cabeçalho (magic, versão, snapshot completo, impressão digital do campaigns.json
+ * e ids das campanhas na ordem dos slots) alinhado a 16 bytes, seguido dos registros
+ * [slot + 1 (int), dia (int), nano-reais (long)]; slot 0 = registro vazio. Os dois primeiros
+ * registros de cada slot são o snapshot da compactação, os demais são anexados.
+ * <p>
+ * dia é o epoch day do orçamento diário em que o gasto entrou; NO_DAY só conta no total
+ * (devolução de fatia de um dia que já virou).
+ * <p>
+ * Compactação: os anexos passam para um arquivo novo (path.compact), o snapshot dos saldos
+ * é gravado no início dele e, já forçado e marcado completo, o novo substitui o antigo. Se
+ * o processo cair antes disso, a recuperação soma o antigo com os anexos do novo.
+ */
+public final class CampaignSpendJournal implements Closeable {
+
+    static final int NO_DAY = -1;
+
+    private static final int MAGIC = 0x47425344; // "GBSD"
+
+    // incrementar sempre que o layout mudar
+    private static final int VERSION = 1;
+
+    private static final int RECORD = 16;
+
+    // posição do inteiro "snapshot completo" no cabeçalho
+    private static final long COMPLETE_OFFSET = 8;
+
+    // leitura na recuperação: pedaços mapeados de até 1 GiB
+    private static final long REPLAY_CHUNK_BYTES = 1L << 30;
+
+    private static final CampaignSpendJournal DISABLED = new CampaignSpendJournal(null, null, List.of(), 0, 0);
+
+    private final Path path;
+
+    private final String fingerprint;
+
+    private final List<String> campaignIds;
+
+    private final long chunkBytes;
+
+    private volatile Segment current;
+
+    private volatile int day;
+
+    private final LongAdder failures = new LongAdder();
+
+    private CampaignSpendJournal(Path path, String fingerprint, List<String> campaignIds, int day, int chunkRecords) {
+        this.path = path;
+        this.fingerprint = fingerprint;
+        this.campaignIds = campaignIds;
+        this.day = day;
+        this.chunkBytes = (long) Math.max(1, chunkRecords) * RECORD;
+    }
+
+    /**
+     * Sem diário: o gasto fica só em memória.
+     */
+    public static CampaignSpendJournal disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Abre um diário novo em path já com o snapshot dos saldos atuais (os da recuperação),
+     * substituindo o que estiver lá.
+     *
+     * @param chunkRecords registros por pedaço mapeado; o arquivo cresce um pedaço por vez
+     */
+    static CampaignSpendJournal create(
+            Path path,
+            String fingerprint,
+            List<String> campaignIds,
+            int day,
+            int chunkRecords,
+            IntToLongFunction totalSpent,
+            IntToLongFunction dailySpent
+    ) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        CampaignSpendJournal journal = new CampaignSpendJournal(path, fingerprint, List.copyOf(campaignIds), day, chunkRecords);
+        journal.compact(totalSpent, dailySpent);
+        return journal;
+    }
+
+    /**
+     * Gasto registrado em path (e num path.compact deixado por uma compactação interrompida),
+     * por slot de campaignIds.
+     * <p>
+     * Campanhas que não estão mais no arquivo são ignoradas. Se o campaigns.json mudou
+     * (outra impressão digital), o budget_remaining novo já é o saldo: só o gasto do dia volta.
+     */
+    static Recovery recover(Path path, String fingerprint, List<String> campaignIds, int today) throws IOException {
+        Map<String, Integer> slots = new HashMap<>();
+        for (int slot = 0; slot < campaignIds.size(); slot++) {
+            slots.putIfAbsent(campaignIds.get(slot), slot);
+        }
+        Recovery recovery = new Recovery(campaignIds.size());
+
+        Path compact = compactPath(path);
+        Header compactHeader = Files.exists(compact) ? Header.read(compact) : null;
+
+        if (compactHeader != null && compactHeader.complete) {
+            // caiu entre marcar o snapshot e trocar os arquivos: o novo já tem tudo
+            replay(compact, compactHeader, 0, fingerprint, slots, today, recovery);
+            Files.move(compact, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return recovery;
+        }
+
+        if (Files.exists(path)) {
+            Header header = Header.read(path);
+            if (header != null) {
+                replay(path, header, 0, fingerprint, slots, today, recovery);
+            }
+        }
+        // compactação interrompida: o que foi anexado depois da troca só está no novo
+        if (compactHeader != null) {
+            replay(compact, compactHeader, compactHeader.snapshotRecords(), fingerprint, slots, today, recovery);
+        }
+        Files.deleteIfExists(compact);
+        return recovery;
+    }
+
+    /**
+     * Registra amount nano-reais (negativo = devolução) no slot da campanha.
+     *
+     * @param daily false quando o valor não entra no saldo do dia atual
+     */
+    void append(int slot, long amount, boolean daily) {
+        Segment segment = current;
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.put(segment.next.getAndIncrement(), slot, daily ? day : NO_DAY, amount);
+        } catch (UncheckedIOException | InternalError e) {
+            // disco cheio ou arquivo removido: o lance segue, o gasto fica só em memória.
+            // InternalError é o SIGBUS de página mapeada que o disco não conseguiu alocar
+            // (os pedaços são preenchidos antes de mapear, então só sobra arquivo truncado por fora)
+            if (failures.sum() == 0) {
+                System.out.println("⚠️ Falha ao anexar no diário de gasto: " + e.getMessage());
+            }
+            failures.increment();
+        }
+    }
+
+    /**
+     * Virada do dia: gasto anexado daqui em diante conta no saldo diário de day.
+     */
+    public void setDay(int day) {
+        this.day = day;
+    }
+
+    /**
+     * Força para o disco as páginas escritas desde o último flush.
+     */
+    public synchronized void flush() {
+        Segment segment = current;
+        if (segment != null) {
+            segment.flush();
+        }
+    }
+
+    /**
+     * Troca o arquivo por um novo que começa com o snapshot dos saldos.
+     * <p>
+     * Os anexos passam para o arquivo novo antes de os saldos serem lidos, então todo gasto
+     * anexado no arquivo antigo já está no snapshot; um gasto em curso na troca pode contar
+     * duas vezes (nunca menos), o que só deixa o saldo recuperado mais conservador.
+     */
+    public synchronized void compact(IntToLongFunction totalSpent, IntToLongFunction dailySpent) throws IOException {
+        Path compact = compactPath(path);
+        Segment next = Segment.create(compact, fingerprint, campaignIds, chunkBytes);
+        Segment old = current;
+        current = next;
+
+        int snapshotDay = day;
+        for (int slot = 0; slot < campaignIds.size(); slot++) {
+            long total = totalSpent.applyAsLong(slot);
+            long daily = dailySpent.applyAsLong(slot);
+            if (daily != 0) {
+                next.put(2L * slot, slot, snapshotDay, daily);
+            }
+            if (total - daily != 0) {
+                next.put(2L * slot + 1, slot, NO_DAY, total - daily);
+            }
+        }
+        next.flushAll();
+        next.markComplete();
+        Files.move(compact, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        if (old != null) {
+            old.close();
+        }
+    }
+
+    /**
+     * Registros anexados desde a última compactação.
+     */
+    public long getRecords() {
+        Segment segment = current;
+        return segment == null ? 0 : segment.next.get() - segment.snapshotRecords;
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        Segment segment = current;
+        if (segment != null) {
+            segment.flushAll();
+            segment.close();
+            current = null;
+        }
+    }
+
+    private static Path compactPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".compact");
+    }
+
+    private static void replay(
+            Path file,
+            Header header,
+            long fromRecord,
+            String fingerprint,
+            Map<String, Integer> slots,
+            int today,
+            Recovery recovery
+    ) throws IOException {
+        // slot do diário -> slot atual (-1 = campanha que saiu do arquivo)
+        int[] mapping = new int[header.campaignIds.size()];
+        for (int i = 0; i < mapping.length; i++) {
+            mapping[i] = slots.getOrDefault(header.campaignIds.get(i), -1);
+        }
+        boolean sameFile = fingerprint.equals(header.fingerprint);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long end = channel.size();
+            long position = header.base + fromRecord * RECORD;
+            while (position + RECORD <= end) {
+                long length = Math.min(REPLAY_CHUNK_BYTES, (end - position) / RECORD * RECORD);
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                for (int at = 0; at < length; at += RECORD) {
+                    int stored = chunk.getInt(at);
+                    if (stored <= 0 || stored > mapping.length) {
+                        continue;
+                    }
+                    int slot = mapping[stored - 1];
+                    if (slot < 0) {
+                        continue;
+                    }
+                    long amount = chunk.getLong(at + 8);
+                    if (sameFile) {
+                        recovery.totalSpent[slot] += amount;
+                    }
+                    if (chunk.getInt(at + 4) == today) {
+                        recovery.dailySpent[slot] += amount;
+                    }
+                    recovery.records++;
+                }
+                position += length;
+            }
+        }
+    }
+
+    /**
+     * Gasto recuperado por slot, em nano-reais.
+     */
+    static final class Recovery {
+
+        final long[] totalSpent;
+
+        final long[] dailySpent;
+
+        long records;
+
+        Recovery(int slots) {
+            this.totalSpent = new long[slots];
+            this.dailySpent = new long[slots];
+        }
+    }
+
+    private static final class Header {
+
+        boolean complete;
+        String fingerprint;
+        List<String> campaignIds;
+        long base;
+
+        long snapshotRecords() {
+            return 2L * campaignIds.size();
+        }
+
+        // null = arquivo de outro formato ou cabeçalho pela metade
+        static Header read(Path file) throws IOException {
+            try (DataInputStream in = new DataInputStream(Channels.newInputStream(FileChannel.open(file)))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    return null;
+                }
+                Header header = new Header();
+                header.complete = in.readInt() == 1;
+                header.fingerprint = in.readUTF();
+                int count = in.readInt();
+                List<String> ids = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    ids.add(in.readUTF());
+                }
+                header.campaignIds = ids;
+                header.base = in.readLong();
+                return header;
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        static byte[] write(String fingerprint, List<String> campaignIds) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(0);
+            out.writeUTF(fingerprint);
+            out.writeInt(campaignIds.size());
+            for (String id : campaignIds) {
+                out.writeUTF(id);
+            }
+            long base = (bytes.size() + Long.BYTES + RECORD - 1) / RECORD * RECORD;
+            out.writeLong(base);
+            out.flush();
+            return Arrays.copyOf(bytes.toByteArray(), (int) base);
+        }
+    }
+
+    /**
+     * Um arquivo do diário: os registros são mapeados em pedaços de chunkBytes a partir de base.
+     */
+    private static final class Segment {
+
+        private final FileChannel channel;
+        private final long base;
+        private final long chunkBytes;
+        private final long snapshotRecords;
+
+        // próximo registro livre; os primeiros snapshotRecords são do snapshot
+        final AtomicLong next;
+
+        private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+        // só a thread do flush
+        private long flushedRecords;
+
+        private Segment(FileChannel channel, long base, long chunkBytes, long snapshotRecords) {
+            this.channel = channel;
+            this.base = base;
+            this.chunkBytes = chunkBytes;
+            this.snapshotRecords = snapshotRecords;
+            this.next = new AtomicLong(snapshotRecords);
+        }
+
+        static Segment create(Path file, String fingerprint, List<String> campaignIds, long chunkBytes)
+                throws IOException {
+            FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            byte[] header = Header.write(fingerprint, campaignIds);
+            ByteBuffer buffer = ByteBuffer.wrap(header);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position());
+            }
+            return new Segment(channel, header.length, chunkBytes, 2L * campaignIds.size());
+        }
+
+        void put(long record, int slot, int day, long amount) {
+            long offset = record * RECORD;
+            MappedByteBuffer chunk = chunk((int) (offset / chunkBytes));
+            int at = (int) (offset % chunkBytes);
+            chunk.putInt(at + 4, day);
+            chunk.putLong(at + 8, amount);
+            // slot por último: registro sem slot é ignorado na recuperação
+            chunk.putInt(at, slot + 1);
+        }
+
+        void flush() {
+            growAhead();
+            long upTo = Math.min(next.get(), (long) chunks.length * chunkBytes / RECORD);
+            if (upTo <= flushedRecords) {
+                return;
+            }
+            MappedByteBuffer[] mapped = chunks;
+            int first = (int) (flushedRecords * RECORD / chunkBytes);
+            int last = (int) ((upTo * RECORD - 1) / chunkBytes);
+            for (int k = first; k <= last && k < mapped.length; k++) {
+                mapped[k].force();
+            }
+            flushedRecords = upTo;
+        }
+
+        void flushAll() throws IOException {
+            for (MappedByteBuffer chunk : chunks) {
+                chunk.force();
+            }
+            flushedRecords = next.get();
+            channel.force(true);
+        }
+
+        void markComplete() throws IOException {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, 1), COMPLETE_OFFSET);
+            channel.force(true);
+        }
+
+        void close() throws IOException {
+            // pedaços já mapeados continuam válidos: anexo atrasado cai no arquivo antigo
+            channel.close();
+        }
+
+        private MappedByteBuffer chunk(int index) {
+            MappedByteBuffer[] mapped = chunks;
+            if (index < mapped.length) {
+                return mapped[index];
+            }
+            return grow(index);
+        }
+
+        // passou da metade do último pedaço: o próximo é preparado na thread do flush, não num lance
+        private void growAhead() {
+            int mapped = chunks.length;
+            if (mapped > 0 && next.get() * RECORD < (mapped * chunkBytes) - chunkBytes / 2) {
+                return;
+            }
+            try {
+                grow(mapped);
+            } catch (UncheckedIOException e) {
+                // o anexo que precisar do pedaço tenta de novo e conta a falha
+            }
+        }
+
+        private synchronized MappedByteBuffer grow(int index) {
+            MappedByteBuffer[] mapped = chunks;
+            if (index < mapped.length) {
+                return mapped[index];
+            }
+            MappedByteBuffer[] grown = Arrays.copyOf(mapped, index + 1);
+            try {
+                for (int k = mapped.length; k <= index; k++) {
+                    preallocate(base + k * chunkBytes);
+                    grown[k] = channel.map(FileChannel.MapMode.READ_WRITE, base + k * chunkBytes, chunkBytes);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            chunks = grown;
+            return grown[index];
+        }
+
+        // mapear além do fim deixa o arquivo esparso e o disco cheio só aparece como SIGBUS
+        // (InternalError) no put; escrevendo os zeros antes, ele vira IOException aqui
+        private void preallocate(long position) throws IOException {
+            ByteBuffer zeros = ByteBuffer.allocate((int) Math.min(chunkBytes, 64 * 1024));
+            long end = position + chunkBytes;
+            while (position < end) {
+                zeros.clear().limit((int) Math.min(zeros.capacity(), end - position));
+                position += channel.write(zeros, position);
+            }
+        }
+    }
+}
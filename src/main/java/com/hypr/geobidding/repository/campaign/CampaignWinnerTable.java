@@ -0,0 +1,176 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.hypr.geobidding.domain.geo.GeoCellRelation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Vencedora materializada por célula da grade de um bucket.
+ * <p>
+ * Uma célula é "pura" quando a decisão não depende do ponto dentro dela: percorrendo as
+ * candidatas na ordem do bucket, toda campanha à frente está fora (targeting OUTSIDE ou
+ * exclusão INSIDE) em qualquer ponto da célula e a primeira que não está é elegível em
+ * qualquer ponto. Como o bucket é ordenado por preço, a lista de elegíveis da célula
+ * ordenada por preço se resume à primeira: ela é a vencedora e o floor só decide se ela
+ * lance (uma comparação, sem busca).
+ * <p>
+ * Células em fronteira de algum shape ficam AMBIGUOUS e caem no avaliador normal.
+ */
+public final class CampaignWinnerTable {
+
+    /** Célula sem nenhuma campanha elegível: NO_BID para qualquer floor. */
+    public static final int NO_WINNER = -1;
+
+    /** Decisão depende do ponto (ou célula fora da grade): usar o avaliador. */
+    public static final int AMBIGUOUS = -2;
+
+    // folga na célula para os pontos que caem nela por arredondamento (mesma do GeoCoveredShape)
+    private static final double CELL_EPSILON = 1e-9;
+
+    // acima disso a célula fica AMBIGUOUS em vez de alongar o load
+    private static final int MAX_CHECKS_PER_CELL = 64;
+
+    private static final CampaignWinnerTable NONE = new CampaignWinnerTable(new int[0]);
+
+    // winners[i] = posição no bucket da vencedora da célula i da grade, NO_WINNER ou AMBIGUOUS
+    private final int[] winners;
+
+    private CampaignWinnerTable(int[] winners) {
+        this.winners = winners;
+    }
+
+    /**
+     * Tabela sem células puras: toda consulta cai no avaliador.
+     */
+    static CampaignWinnerTable none() {
+        return NONE;
+    }
+
+    static CampaignWinnerTable build(CampaignFormatBucket bucket) {
+        CampaignSpatialGrid grid = bucket.getGrid();
+        int[] winners = new int[grid.cellCount()];
+
+        for (int i = 0; i < winners.length; i++) {
+            winners[i] = resolve(bucket, i);
+        }
+        return new CampaignWinnerTable(winners);
+    }
+
+    /**
+     * Tabela do bucket filtrado por CampaignFormatBucket.withoutExhausted (mesmas células).
+     * Tirar campanhas não muda a relação das outras com a célula: vencedora que ficou só
+     * troca de posição e NO_WINNER continua. Célula cuja vencedora saiu é resolvida de novo;
+     * AMBIGUOUS fica como está (o avaliador decide certo, só sem o atalho).
+     *
+     * @param newPositions newPositions[antiga] = posição no bucket filtrado, -1 para a que saiu
+     */
+    CampaignWinnerTable remap(CampaignFormatBucket bucket, int[] newPositions) {
+        if (winners.length == 0) {
+            return NONE;
+        }
+
+        int[] remapped = new int[winners.length];
+        for (int i = 0; i < winners.length; i++) {
+            int winner = winners[i];
+            if (winner < 0) {
+                remapped[i] = winner;
+            } else if (newPositions[winner] >= 0) {
+                remapped[i] = newPositions[winner];
+            } else {
+                remapped[i] = resolve(bucket, i);
+            }
+        }
+        return new CampaignWinnerTable(remapped);
+    }
+
+    /**
+     * @param cellIndex índice de CampaignSpatialGrid.cellIndex (-1 = célula fora da grade)
+     * @return posição da vencedora no bucket, NO_WINNER ou AMBIGUOUS
+     */
+    public int winnerAt(int cellIndex) {
+        return cellIndex < 0 || cellIndex >= winners.length ? AMBIGUOUS : winners[cellIndex];
+    }
+
+    public int cellCount() {
+        return winners.length;
+    }
+
+    public int pureCellCount() {
+        int count = 0;
+        for (int winner : winners) {
+            if (winner != AMBIGUOUS) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(winners.length);
+        for (int winner : winners) {
+            out.writeInt(winner);
+        }
+    }
+
+    /**
+     * Lê uma tabela gravada por writeTo para um bucket de expectedCells células.
+     */
+    static CampaignWinnerTable readFrom(DataInput in, int expectedCells, int bucketSize) throws IOException {
+        int length = in.readInt();
+        if (length != expectedCells) {
+            throw new IOException("tabela com " + length + " células, esperado " + expectedCells);
+        }
+
+        int[] winners = new int[length];
+        for (int i = 0; i < length; i++) {
+            int winner = in.readInt();
+            if (winner < AMBIGUOUS || winner >= bucketSize) {
+                throw new IOException("posição inválida na tabela: " + winner);
+            }
+            winners[i] = winner;
+        }
+        return new CampaignWinnerTable(winners);
+    }
+
+    private static int resolve(CampaignFormatBucket bucket, int cellIndex) {
+        CampaignSpatialGrid grid = bucket.getGrid();
+        double cellDegrees = grid.getCellDegrees();
+
+        long key = grid.cellKeyAt(cellIndex);
+        int latIndex = (int) (key >> 32);
+        int lonIndex = (int) key;
+
+        // mesma conta do GeoCellUtils ao contrário
+        double minLat = latIndex * cellDegrees - 90.0 - CELL_EPSILON;
+        double maxLat = (latIndex + 1) * cellDegrees - 90.0 + CELL_EPSILON;
+        double minLon = lonIndex * cellDegrees - 180.0 - CELL_EPSILON;
+        double maxLon = (lonIndex + 1) * cellDegrees - 180.0 + CELL_EPSILON;
+
+        int[] local = grid.candidatesAt(cellIndex);
+        int[] wide = grid.wideCandidates();
+        int i = 0;
+        int j = 0;
+        int checks = 0;
+
+        while (i < local.length || j < wide.length) {
+            int position = (j >= wide.length || (i < local.length && local[i] < wide[j]))
+                    ? local[i++]
+                    : wide[j++];
+
+            if (++checks > MAX_CHECKS_PER_CELL) {
+                return AMBIGUOUS;
+            }
+
+            GeoCellRelation relation = bucket.get(position).relate(minLat, maxLat, minLon, maxLon);
+            if (relation == GeoCellRelation.INSIDE) {
+                return position;
+            }
+            if (relation != GeoCellRelation.OUTSIDE) {
+                return AMBIGUOUS;
+            }
+        }
+        return NO_WINNER;
+    }
+}
@@ -0,0 +1,99 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.hypr.geobidding.domain.campaign.CampaignAdFormat;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Tabelas de vencedoras em disco, para não recalcular todas as células a cada restart.
+ * <p>
+ * O arquivo guarda a impressão digital do campaigns.json (e do tamanho de célula); as posições
+ * das tabelas só valem para o índice compilado a partir do mesmo arquivo, então qualquer
+ * diferença descarta o arquivo e as tabelas são recalculadas.
+ */
+final class CampaignWinnerTableFile {
+
+    private static final int MAGIC = 0x47425754; // "GBWT"
+
+    // incrementar sempre que o formato ou a regra de célula pura mudar
+    private static final int VERSION = 1;
+
+    private static final CampaignAdFormat[] FORMATS = CampaignAdFormat.values();
+
+    private CampaignWinnerTableFile() {}
+
+    /**
+     * @return true se as tabelas foram lidas e aplicadas ao índice
+     */
+    static boolean read(Path path, String fingerprint, CampaignIndex index) {
+        CampaignWinnerTable[] tables = new CampaignWinnerTable[FORMATS.length];
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !fingerprint.equals(in.readUTF())) {
+                return false;
+            }
+            if (in.readInt() != FORMATS.length) {
+                return false;
+            }
+            for (CampaignAdFormat format : FORMATS) {
+                boolean present = in.readBoolean();
+                CampaignFormatBucket bucket = index.findBucket(format);
+                if (present != (bucket != null)) {
+                    return false;
+                }
+                if (present) {
+                    tables[format.ordinal()] = CampaignWinnerTable.readFrom(
+                            in, bucket.getGrid().cellCount(), bucket.size());
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            System.out.println("⚠️ Tabela de vencedoras ignorada (" + path + "): " + e.getMessage());
+            return false;
+        }
+
+        // só aplica depois de ler o arquivo inteiro
+        for (CampaignAdFormat format : FORMATS) {
+            CampaignFormatBucket bucket = index.findBucket(format);
+            if (bucket != null) {
+                bucket.setWinnerTable(tables[format.ordinal()]);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Grava num arquivo temporário e move por cima, para um restart nunca ler um arquivo pela metade.
+     */
+    static void write(Path path, String fingerprint, CampaignIndex index) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(fingerprint);
+            out.writeInt(FORMATS.length);
+            for (CampaignAdFormat format : FORMATS) {
+                CampaignFormatBucket bucket = index.findBucket(format);
+                out.writeBoolean(bucket != null);
+                if (bucket != null) {
+                    bucket.getWinnerTable().writeTo(out);
+                }
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,131 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.hypr.geobidding.domain.campaign.Campaign;
+import com.hypr.geobidding.domain.campaign.CampaignAdFormat;
+import com.hypr.geobidding.domain.geo.GeoCellRelation;
+import com.hypr.geobidding.domain.geo.GeoShape;
+import com.hypr.geobidding.utils.price.PriceMicrosUtils;
+
+/**
+ * Campanha com targeting e exclusões já compilados em shapes (internados na tabela
+ * do índice) e bid_price em micros, feito uma vez no load.
+ * <p>
+ * O orçamento é o do ledger (sobrevive à recompilação); esgotada, a campanha é pulada
+ * até o índice ser recompilado sem ela.
+ */
+public final class CompiledCampaign {
+
+    private final Campaign campaign;
+
+    private final long bidPriceMicros;
+
+    // bits de CampaignAdFormat.mask()
+    private final int formatMask;
+
+    // ids na tabela de shapes do índice; campanhas com a mesma geometria dividem o id
+    private final int targetingId;
+    private final GeoShape targeting;
+
+    private final int[] exclusionIds;
+    private final GeoShape[] exclusions;
+
+    private final CampaignBudget budget;
+
+    CompiledCampaign(Campaign campaign, CampaignShapeTable shapes, CampaignBudget budget) {
+        this(campaign, shapes, shapes.internTargeting(campaign.getTargeting()),
+                shapes.internExclusions(campaign.getExclusions()), budget);
+    }
+
+    /**
+     * Com os ids de shape já resolvidos (lidos do snapshot), sem passar pela geometria da campanha.
+     */
+    CompiledCampaign(Campaign campaign, CampaignShapeTable shapes, int targetingId, int[] exclusionIds, CampaignBudget budget) {
+        this.campaign = campaign;
+        this.budget = budget;
+        this.bidPriceMicros = PriceMicrosUtils.bidToMicros(campaign.getBidPrice());
+        this.formatMask = CampaignAdFormat.maskOf(campaign.getAdFormats());
+
+        this.targetingId = targetingId;
+        this.targeting = shapes.get(targetingId);
+
+        this.exclusionIds = exclusionIds;
+        this.exclusions = new GeoShape[exclusionIds.length];
+        for (int i = 0; i < exclusionIds.length; i++) {
+            exclusions[i] = shapes.get(exclusionIds[i]);
+        }
+    }
+
+    public Campaign getCampaign() {
+        return campaign;
+    }
+
+    public long getBidPriceMicros() {
+        return bidPriceMicros;
+    }
+
+    public int getFormatMask() {
+        return formatMask;
+    }
+
+    public boolean supports(CampaignAdFormat format) {
+        return (formatMask & format.mask()) != 0;
+    }
+
+    public int getTargetingId() {
+        return targetingId;
+    }
+
+    public GeoShape getTargeting() {
+        return targeting;
+    }
+
+    /**
+     * exclusionIds[i] é o id de exclusions[i].
+     */
+    public int[] getExclusionIds() {
+        return exclusionIds;
+    }
+
+    public GeoShape[] getExclusions() {
+        return exclusions;
+    }
+
+    public CampaignBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Sem saldo para mais uma impressão; continua no índice até a próxima recompilação.
+     */
+    public boolean isExhausted() {
+        return budget.isExhausted();
+    }
+
+    /**
+     * Elegibilidade geográfica da campanha numa célula inteira:
+     * INSIDE = elegível em todo ponto (targeting INSIDE e exclusões OUTSIDE),
+     * OUTSIDE = inelegível em todo ponto (targeting OUTSIDE ou alguma exclusão INSIDE),
+     * BOUNDARY = depende do ponto.
+     */
+    public GeoCellRelation relate(double minLat, double maxLat, double minLon, double maxLon) {
+        GeoCellRelation targetingRelation = targeting.relate(minLat, maxLat, minLon, maxLon);
+        if (targetingRelation == GeoCellRelation.OUTSIDE) {
+            return GeoCellRelation.OUTSIDE;
+        }
+
+        boolean allOutside = true;
+        for (GeoShape exclusion : exclusions) {
+            GeoCellRelation relation = exclusion.relate(minLat, maxLat, minLon, maxLon);
+            if (relation == GeoCellRelation.INSIDE) {
+                return GeoCellRelation.OUTSIDE;
+            }
+            if (relation != GeoCellRelation.OUTSIDE) {
+                allOutside = false;
+            }
+        }
+
+        return targetingRelation == GeoCellRelation.INSIDE && allOutside
+                ? GeoCellRelation.INSIDE
+                : GeoCellRelation.BOUNDARY;
+    }
+}
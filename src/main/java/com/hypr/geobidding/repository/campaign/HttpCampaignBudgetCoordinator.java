@@ -0,0 +1,79 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hypr.geobidding.dto.budget.BudgetTrancheRequest;
+import com.hypr.geobidding.dto.budget.BudgetTrancheResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Coordenador em outra instância (a que roda com coordination.mode=local), pelo
+ * POST /budget/tranches. Só é chamado pela thread de reposição das tranches.
+ */
+public final class HttpCampaignBudgetCoordinator implements CampaignBudgetCoordinator {
+
+    private final URI grantUri;
+
+    private final URI giveBackUri;
+
+    private final ObjectMapper objectMapper;
+
+    private final Duration timeout;
+
+    private final HttpClient client;
+
+    public HttpCampaignBudgetCoordinator(URI baseUri, ObjectMapper objectMapper, Duration timeout) {
+        String base = baseUri.toString().replaceAll("/+$", "");
+        this.grantUri = URI.create(base + "/budget/tranches");
+        this.giveBackUri = URI.create(base + "/budget/tranches/return");
+        this.objectMapper = objectMapper;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public long[] grant(String instanceId, List<String> campaignIds, long[] amounts) throws IOException {
+        BudgetTrancheResponse response = objectMapper.readValue(
+                post(grantUri, instanceId, campaignIds, amounts), BudgetTrancheResponse.class);
+        long[] granted = response.getGrantedNanos();
+        if (granted == null || granted.length != campaignIds.size()) {
+            throw new IOException("resposta do coordenador com " + (granted == null ? 0 : granted.length)
+                    + " tranches para " + campaignIds.size() + " campanhas");
+        }
+        return granted;
+    }
+
+    @Override
+    public void giveBack(String instanceId, List<String> campaignIds, long[] amounts) throws IOException {
+        post(giveBackUri, instanceId, campaignIds, amounts);
+    }
+
+    private byte[] post(URI uri, String instanceId, List<String> campaignIds, long[] amounts) throws IOException {
+        BudgetTrancheRequest body = new BudgetTrancheRequest();
+        body.setInstanceId(instanceId);
+        body.setCampaignIds(campaignIds);
+        body.setAmountsNanos(amounts);
+
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+        try {
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw new IOException(uri + " respondeu " + response.statusCode());
+            }
+            return response.body();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrompido", e);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.hypr.geobidding.repository.campaign;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coordenador no próprio processo: o saldo global é um ledger comum (budget_remaining e
+ * daily_budget do campaigns.json) e cada tranche é uma reserva nele.
+ * <p>
+ * Atende as instâncias remotas pelo POST /budget/tranches e a própria instância direto.
+ * Cada instância só devolve até o que recebeu e ainda não devolveu, por campanha.
+ */
+public final class LocalCampaignBudgetCoordinator implements CampaignBudgetCoordinator {
+
+    private final CampaignBudgetLedger ledger;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    private final Map<String, Outstanding> outstandingByInstance = new ConcurrentHashMap<>();
+
+    public LocalCampaignBudgetCoordinator(CampaignBudgetLedger ledger) {
+        this.ledger = ledger;
+        List<String> ids = ledger.getCampaignIds();
+        for (int slot = 0; slot < ids.size(); slot++) {
+            slots.putIfAbsent(ids.get(slot), slot);
+        }
+    }
+
+    @Override
+    public long[] grant(String instanceId, List<String> campaignIds, long[] amounts) {
+        long[] granted = new long[campaignIds.size()];
+        Outstanding outstanding = outstandingOf(instanceId);
+        synchronized (outstanding) {
+            for (int i = 0; i < granted.length; i++) {
+                Integer slot = slots.get(campaignIds.get(i));
+                if (slot == null || amounts[i] <= 0) {
+                    continue;
+                }
+                CampaignBudget budget = ledger.budgetAt(slot);
+                // a virada do dia não entra entre a reserva e o dia anotado
+                synchronized (budget) {
+                    granted[i] = budget.grant(amounts[i]);
+                    if (granted[i] > 0) {
+                        outstanding.moveTo(slot, budget.getDay());
+                        outstanding.total[slot] += granted[i];
+                        outstanding.today[slot] += granted[i];
+                    }
+                }
+            }
+        }
+        return granted;
+    }
+
+    /**
+     * @throws IllegalArgumentException se alguma campanha devolver mais do que a instância
+     *                                  tem concedido nela (nada é creditado nesse caso)
+     */
+    @Override
+    public void giveBack(String instanceId, List<String> campaignIds, long[] amounts) {
+        Outstanding outstanding = outstandingOf(instanceId);
+        synchronized (outstanding) {
+            // o mesmo id pode vir repetido: soma antes de comparar
+            Map<Integer, Long> returned = new HashMap<>();
+            for (int i = 0; i < campaignIds.size(); i++) {
+                if (amounts[i] == 0) {
+                    continue;
+                }
+                Integer slot = slots.get(campaignIds.get(i));
+                long sum = amounts[i] < 0 || slot == null
+                        ? -1
+                        : returned.merge(slot, amounts[i], Long::sum);
+                if (sum < 0 || sum > outstanding.total[slot]) {
+                    throw new IllegalArgumentException("devolução de " + campaignIds.get(i)
+                            + " acima do concedido a " + instanceId);
+                }
+            }
+
+            returned.forEach((slot, amount) -> {
+                CampaignBudget budget = ledger.budgetAt(slot);
+                synchronized (budget) {
+                    outstanding.moveTo(slot, budget.getDay());
+                    // o que veio de dias anteriores sai primeiro, e só volta ao total
+                    long earlier = Math.min(amount, outstanding.total[slot] - outstanding.today[slot]);
+                    long sameDay = amount - earlier;
+                    if (earlier > 0) {
+                        budget.credit(earlier, false);
+                    }
+                    if (sameDay > 0) {
+                        budget.credit(sameDay, true);
+                        outstanding.today[slot] -= sameDay;
+                    }
+                    outstanding.total[slot] -= amount;
+                }
+            });
+        }
+    }
+
+    public CampaignBudgetLedger getLedger() {
+        return ledger;
+    }
+
+    /**
+     * Saldo líquido (concedido menos devolvido) em nano-reais por instância.
+     */
+    public Map<String, Long> getGrantedByInstance() {
+        Map<String, Long> granted = new HashMap<>();
+        outstandingByInstance.forEach((instance, outstanding) -> {
+            synchronized (outstanding) {
+                long sum = 0;
+                for (long amount : outstanding.total) {
+                    sum += amount;
+                }
+                granted.put(instance, sum);
+            }
+        });
+        return granted;
+    }
+
+    private Outstanding outstandingOf(String instanceId) {
+        return outstandingByInstance.computeIfAbsent(instanceId, id -> new Outstanding(ledger.getCampaignIds().size()));
+    }
+
+    /**
+     * Concedido e não devolvido a uma instância, por slot do ledger.
+     */
+    private static final class Outstanding {
+
+        private final long[] total;
+
+        // parte de total concedida no dia days[slot] do orçamento
+        private final long[] today;
+
+        private final int[] days;
+
+        private Outstanding(int slots) {
+            this.total = new long[slots];
+            this.today = new long[slots];
+            this.days = new int[slots];
+        }
+
+        // virou o dia desde a última tranche: tudo que está com a instância é de dia anterior
+        private void moveTo(int slot, int day) {
+            if (days[slot] != day) {
+                days[slot] = day;
+                today[slot] = 0;
+            }
+        }
+    }
+}
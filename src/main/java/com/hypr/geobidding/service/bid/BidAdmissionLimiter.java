@@ -0,0 +1,140 @@
+package com.hypr.geobidding.service.bid;
+
+import com.hypr.geobidding.config.bid.BidAdmissionProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limite de decisões simultâneas com ajuste AIMD pela latência.
+ * <p>
+ * Requisição que chega com o limite ocupado é descartada na hora (resposta rápida), em vez
+ * de esperar numa fila onde já perderia o timeout da exchange. Cada decisão admitida vira
+ * uma amostra: dentro do orçamento, o limite sobe 1 a cada "limite" amostras; estourado,
+ * ele é multiplicado por backoffRatio, no máximo uma vez por orçamento de latência (as
+ * decisões lentas que terminam juntas começaram todas sob o limite antigo).
+ * <p>
+ * Sem lock: contadores atômicos, o hot path é um CAS na entrada e um decremento na saída.
+ */
+@Component
+public class BidAdmissionLimiter {
+
+    private final boolean enabled;
+    private final long latencyBudgetNanos;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger successes = new AtomicInteger();
+    private final AtomicLong lastBackoffNanos;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder overBudget = new LongAdder();
+
+    @Autowired
+    public BidAdmissionLimiter(BidAdmissionProperties properties) {
+        this(properties.isEnabled(), properties.getLatencyBudgetMs(), properties.getInitialLimit(),
+                properties.getMinLimit(), properties.getMaxLimit(), properties.getBackoffRatio());
+    }
+
+    public BidAdmissionLimiter(
+            boolean enabled,
+            long latencyBudgetMs,
+            int initialLimit,
+            int minLimit,
+            int maxLimit,
+            double backoffRatio
+    ) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("limites devem respeitar 1 <= min <= initial <= max");
+        }
+        if (!(backoffRatio > 0 && backoffRatio < 1)) {
+            throw new IllegalArgumentException("backoffRatio deve estar em (0, 1): " + backoffRatio);
+        }
+        this.enabled = enabled;
+        this.latencyBudgetNanos = TimeUnit.MILLISECONDS.toNanos(latencyBudgetMs);
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.limit = new AtomicInteger(initialLimit);
+        this.lastBackoffNanos = new AtomicLong(System.nanoTime() - latencyBudgetNanos);
+    }
+
+    /**
+     * @return false quando a requisição deve ser descartada; true obriga a chamar release()
+     */
+    public boolean tryAcquire() {
+        if (!enabled) {
+            return true;
+        }
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                shed.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                admitted.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param startNanos System.nanoTime() da chegada da requisição
+     */
+    public void release(long startNanos) {
+        if (!enabled) {
+            return;
+        }
+        inFlight.decrementAndGet();
+
+        long now = System.nanoTime();
+        if (now - startNanos > latencyBudgetNanos) {
+            overBudget.increment();
+            backoff(now);
+        } else if (successes.incrementAndGet() >= limit.get()) {
+            successes.set(0);
+            limit.updateAndGet(l -> Math.min(maxLimit, l + 1));
+        }
+    }
+
+    private void backoff(long now) {
+        long last = lastBackoffNanos.get();
+        if (now - last < latencyBudgetNanos || !lastBackoffNanos.compareAndSet(last, now)) {
+            return;
+        }
+        successes.set(0);
+        limit.updateAndGet(l -> Math.max(minLimit, Math.min(l - 1, (int) (l * backoffRatio))));
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getShed() {
+        return shed.sum();
+    }
+
+    /**
+     * Decisões admitidas que terminaram acima do orçamento de latência.
+     */
+    public long getOverBudget() {
+        return overBudget.sum();
+    }
+}
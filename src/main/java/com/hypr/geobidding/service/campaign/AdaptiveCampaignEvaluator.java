@@ -0,0 +1,52 @@
+package com.hypr.geobidding.service.campaign;
+
+import com.hypr.geobidding.config.campaign.CampaignEvaluationProperties;
+import com.hypr.geobidding.domain.geo.GeoPoint;
+import com.hypr.geobidding.repository.campaign.CampaignFormatBucket;
+import com.hypr.geobidding.repository.campaign.CompiledCampaign;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sequencial para poucas candidatas; acima de geobidding.evaluation.shard-threshold
+ * usa os shards. Com um núcleo só (ou shards <= 1) fica sempre no sequencial.
+ */
+@Component
+public class AdaptiveCampaignEvaluator implements CampaignEvaluator {
+
+    private final SequentialCampaignEvaluator sequential = new SequentialCampaignEvaluator();
+
+    // null quando shards estão desligados
+    private final ShardedCampaignEvaluator sharded;
+
+    private final int shardThreshold;
+
+    public AdaptiveCampaignEvaluator(CampaignEvaluationProperties properties) {
+        this.shardThreshold = properties.getShardThreshold();
+        this.sharded = properties.getShards() >= 2 ? new ShardedCampaignEvaluator(properties.getShards()) : null;
+        System.out.println("Avaliação de campanhas: " + (sharded == null
+                ? "sequencial"
+                : properties.getShards() + " shards a partir de " + shardThreshold + " candidatas"));
+    }
+
+    @Override
+    public CompiledCampaign findWinner(
+            CampaignFormatBucket bucket, GeoPoint user, long floorPriceMicros, int shapeCount, CampaignDeadline deadline) {
+        if (sharded != null && bucket != null && candidateCount(bucket, user) >= shardThreshold) {
+            return sharded.findWinner(bucket, user, floorPriceMicros, shapeCount, deadline);
+        }
+        return sequential.findWinner(bucket, user, floorPriceMicros, shapeCount, deadline);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (sharded != null) {
+            sharded.close();
+        }
+    }
+
+    private static int candidateCount(CampaignFormatBucket bucket, GeoPoint user) {
+        return bucket.getGrid().candidates(user.getLat(), user.getLon()).length
+                + bucket.getGrid().wideCandidates().length;
+    }
+}
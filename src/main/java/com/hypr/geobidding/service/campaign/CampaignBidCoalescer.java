@@ -0,0 +1,193 @@
+package com.hypr.geobidding.service.campaign;
+
+import com.hypr.geobidding.config.bid.BidCoalescingProperties;
+import com.hypr.geobidding.dto.bid.BidRequest;
+import com.hypr.geobidding.dto.bid.BidResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Junta requisições POST /bid concorrentes numa única chamada do decideBatch.
+ * <p>
+ * Sem thread própria: a requisição que encontra a fila sem líder vira líder, espera
+ * (ou não) por mais requisições, decide o lote e acorda as outras; quem chega enquanto
+ * o líder decide entra na fila e sai no lote seguinte. Requisição sozinha em voo vai
+ * direto para o decide(), sem fila nem alocação extra.
+ * <p>
+ * A janela se adapta à carga: o líder só espera quando a média móvel dos lotes recentes
+ * passa de uma requisição. Fora isso o lote fecha assim que todas as requisições que já
+ * escolheram a fila estão nela.
+ */
+@Service
+public class CampaignBidCoalescer {
+
+    // média móvel do tamanho dos lotes a partir da qual vale esperar a janela
+    private static final double CONCURRENT_BATCH = 2.0;
+
+    private static final class Pending {
+        final BidRequest request;
+        final Thread waiter;
+        BidResponse response;
+        RuntimeException failure;
+        volatile boolean done;
+
+        Pending(BidRequest request, Thread waiter) {
+            this.request = request;
+            this.waiter = waiter;
+        }
+    }
+
+    private final CampaignBidService service;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatch;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // requisições que escolheram a fila e ainda não foram retiradas por um líder
+    private final AtomicInteger joining = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean leading = new AtomicBoolean();
+
+    // só o líder escreve
+    private volatile double averageBatch = 1.0;
+
+    private final LongAdder direct = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    @Autowired
+    public CampaignBidCoalescer(CampaignBidService service, BidCoalescingProperties properties) {
+        this(service, properties.isEnabled(), properties.getWindowMicros(), properties.getMaxBatch());
+    }
+
+    public CampaignBidCoalescer(CampaignBidService service, boolean enabled, long windowMicros, int maxBatch) {
+        if (windowMicros < 0 || maxBatch < 1) {
+            throw new IllegalArgumentException("windowMicros deve ser >= 0 e maxBatch >= 1");
+        }
+        this.service = service;
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxBatch = maxBatch;
+    }
+
+    /**
+     * Mesmo resultado de service.decide(request).
+     */
+    public BidResponse decide(BidRequest request) {
+        if (!enabled) {
+            return service.decide(request);
+        }
+
+        try {
+            if (inFlight.incrementAndGet() == 1) {
+                direct.increment();
+                return service.decide(request);
+            }
+            return await(request);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private BidResponse await(BidRequest request) {
+        Pending pending = new Pending(request, Thread.currentThread());
+        joining.incrementAndGet();
+        queue.add(pending);
+        queued.incrementAndGet();
+
+        while (!pending.done) {
+            if (leading.compareAndSet(false, true)) {
+                try {
+                    if (!pending.done) {
+                        lead();
+                    }
+                } finally {
+                    leading.set(false);
+                }
+                // quem ficou na fila precisa de outro líder
+                Pending next = queue.peek();
+                if (next != null) {
+                    LockSupport.unpark(next.waiter);
+                }
+            } else {
+                LockSupport.parkNanos(this, Math.max(windowNanos, 1000));
+            }
+        }
+
+        if (pending.failure != null) {
+            throw pending.failure;
+        }
+        return pending.response;
+    }
+
+    private void lead() {
+        boolean expectMore = averageBatch >= CONCURRENT_BATCH;
+        long deadline = System.nanoTime() + windowNanos;
+
+        while (queued.get() < maxBatch) {
+            boolean everyoneQueued = queued.get() >= joining.get();
+            if (everyoneQueued && !expectMore || System.nanoTime() - deadline >= 0) {
+                break;
+            }
+            Thread.yield();
+        }
+
+        List<Pending> batch = new ArrayList<>(Math.min(queued.get(), maxBatch));
+        while (batch.size() < maxBatch) {
+            Pending next = queue.poll();
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        queued.addAndGet(-batch.size());
+        joining.addAndGet(-batch.size());
+
+        averageBatch += (batch.size() - averageBatch) / 8;
+        batches.increment();
+        coalesced.add(batch.size());
+
+        List<BidRequest> requests = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            requests.add(pending.request);
+        }
+
+        try {
+            List<BidResponse> responses = service.decideBatch(requests);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).response = responses.get(i);
+            }
+        } catch (RuntimeException e) {
+            for (Pending pending : batch) {
+                pending.failure = e;
+            }
+        }
+
+        for (Pending pending : batch) {
+            pending.done = true;
+            LockSupport.unpark(pending.waiter);
+        }
+    }
+
+    public long getDirect() {
+        return direct.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+}
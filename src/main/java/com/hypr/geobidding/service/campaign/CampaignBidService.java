@@ -1,135 +1,315 @@
 package com.hypr.geobidding.service.campaign;
 
+import com.hypr.geobidding.config.bid.BidDeadlineProperties;
 import com.hypr.geobidding.domain.campaign.*;
+import com.hypr.geobidding.domain.geo.GeoPoint;
 import com.hypr.geobidding.dto.bid.*;
+import com.hypr.geobidding.repository.campaign.CampaignFormatBucket;
+import com.hypr.geobidding.repository.campaign.CampaignIndex;
 import com.hypr.geobidding.repository.campaign.CampaignRepository;
-import com.hypr.geobidding.utils.geo.*;
+import com.hypr.geobidding.repository.campaign.CampaignSpatialGrid;
+import com.hypr.geobidding.repository.campaign.CampaignWinnerTable;
+import com.hypr.geobidding.repository.campaign.CompiledCampaign;
+import com.hypr.geobidding.utils.geo.GeoCellUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
-
-import static com.hypr.geobidding.domain.campaign.CampaignAreaType.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 public class CampaignBidService {
 
+    // ponto do usuário reaproveitado entre as requisições da mesma thread
+    private static final ThreadLocal<GeoPoint> USER_POINT = ThreadLocal.withInitial(GeoPoint::scratch);
+
+    // prazo da requisição, reiniciado a cada decisão da thread
+    private static final ThreadLocal<CampaignDeadline> DEADLINE = ThreadLocal.withInitial(CampaignDeadline::scratch);
+
+    // vencedoras seguidas sem saldo antes de desistir da requisição
+    private static final int MAX_BUDGET_RETRIES = 8;
+
     private final CampaignRepository campaignRepository;
 
-    public CampaignBidService(CampaignRepository campaignRepository) {
+    private final CampaignEvaluator campaignEvaluator;
+
+    private final CampaignDecisionCache decisionCache;
+
+    // 0 = sem prazo
+    private final long timeoutNanos;
+
+    private final boolean deadlineFromTimestamp;
+
+    private final LongAdder truncations = new LongAdder();
+
+    @Autowired
+    public CampaignBidService(
+            CampaignRepository campaignRepository,
+            CampaignEvaluator campaignEvaluator,
+            CampaignDecisionCache decisionCache,
+            BidDeadlineProperties deadlineProperties
+    ) {
         this.campaignRepository = campaignRepository;
+        this.campaignEvaluator = campaignEvaluator;
+        this.decisionCache = decisionCache;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, deadlineProperties.getTimeoutMs()));
+        this.deadlineFromTimestamp = deadlineProperties.isFromRequestTimestamp();
+    }
+
+    /**
+     * Sem prazo.
+     */
+    public CampaignBidService(
+            CampaignRepository campaignRepository,
+            CampaignEvaluator campaignEvaluator,
+            CampaignDecisionCache decisionCache
+    ) {
+        this(campaignRepository, campaignEvaluator, decisionCache, new BidDeadlineProperties());
     }
 
     public BidResponse decide(BidRequest request) {
 
         double userLat = request.getBidRequestUser().getLat();
         double userLon = request.getBidRequestUser().getLon();
-        BigDecimal floorPrice = request.getBidRequestInventory().getFloorPrice();
+        long floorPriceMicros = request.getBidRequestInventory().getFloorPriceMicros();
         CampaignAdFormat requestedFormat = request.getBidRequestInventory().getAdFormat();
-        Campaign winenrCampaign = null;
-
-        winenrCampaign =
-                campaignRepository.findAll()
-                        .parallelStream()
-                        .filter(Campaign::isActive)
-                        .filter(c -> c.getAdFormats() != null &&
-                                c.getAdFormats().stream()
-                                        .anyMatch(f -> f.name().equalsIgnoreCase(requestedFormat.name())))
-                        .filter(c -> c.getBidPrice().compareTo(floorPrice) >= 0)
-                        .filter(c -> matchesTargeting(userLat, userLon, c.getTargeting()))
-                        .filter(c -> !isInsideAnyExclusion(userLat, userLon, c.getExclusions()))
-                        .max((a, b) -> a.getBidPrice().compareTo(b.getBidPrice()))
-                        .orElse(null);
-
-        if (winenrCampaign == null) {
-            BidResponse response = new BidResponse();
-            response.setRequestId(request.getRequestId());
-            response.setDecision(BidDecision.NO_BID);
-            return response;
-        }
+        CampaignDeadline deadline = DEADLINE.get().reset(deadlineFor(request, System.nanoTime()));
 
-        BidResponse response = new BidResponse();
-        response.setRequestId(request.getRequestId());
-        response.setDecision(BidDecision.BID);
-        response.setBidPrice(winenrCampaign.getBidPrice());
-        response.setCampaignId(winenrCampaign.getCampaignId());
-        return response;
+        CampaignIndex index = campaignRepository.getIndex();
+        CompiledCampaign winnerCampaign = reserve(
+                index,
+                decideWinner(index, requestedFormat, userLat, userLon, floorPriceMicros, deadline),
+                requestedFormat, userLat, userLon, floorPriceMicros, deadline);
+
+        return toResponse(request, winnerCampaign, deadline);
     }
 
-    // --------- helpers ---------
+    /**
+     * Decisões que saíram com o prazo estourado (melhor parcial ou NO_BID).
+     */
+    public long getTruncations() {
+        return truncations.sum();
+    }
 
-    private boolean matchesTargeting(
-            double lat,
-            double lon,
-            CampaignTargeting targeting
-    ) {
-        if (targeting == null) return false;
-
-        switch (targeting.getType()) {
-            case RADIUS:
-                return GeoRadiusUtils.isPointInsideRadius(
-                        lat, lon,
-                        targeting.getCenter().getLat(),
-                        targeting.getCenter().getLon(),
-                        targeting.getRadiusKm()
-                );
-
-            case MULTI_RADIUS:
-                return GeoMultiRadiusUtils.isPointInsideAnyRadius(
-                        lat, lon, targeting
-                );
-
-            case POLYGON:
-                return GeoPolygonUtils.isPointInsidePolygon(
-                        lat, lon, targeting.getCampaignCoords()
-                );
-
-            default:
-                return false;
+    /**
+     * Mesmas decisões de chamar decide() item a item, na ordem recebida.
+     * <p>
+     * Os itens são agrupados por formato e célula da grade: cada grupo resolve bucket,
+     * célula e tabela de vencedoras uma vez só, e quando a célula é pura todos os itens
+     * saem com uma comparação de floor. Nas células ambíguas os itens do grupo são avaliados
+     * em sequência sobre as mesmas candidatas, que já estão quentes no cache da CPU.
+     * <p>
+     * latency_ms de cada item é o tempo desde o início do lote até a decisão dele, e o prazo
+     * de cada item também conta a partir do início do lote.
+     */
+    public List<BidResponse> decideBatch(List<BidRequest> requests) {
+        long start = System.nanoTime();
+        int size = requests.size();
+        CampaignIndex index = campaignRepository.getIndex();
+
+        // formato e célula de cada item, para ordenar sem recalcular
+        int[] formats = new int[size];
+        long[] cells = new long[size];
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            BidRequest request = requests.get(i);
+            formats[i] = request.getBidRequestInventory().getAdFormat().ordinal();
+            cells[i] = GeoCellUtils.cellKey(
+                    request.getBidRequestUser().getLat(),
+                    request.getBidRequestUser().getLon(),
+                    CampaignSpatialGrid.DEFAULT_CELL_DEGREES);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> formats[i]).thenComparingLong(i -> cells[i]));
+
+        BidResponse[] responses = new BidResponse[size];
+        int groupStart = 0;
+        while (groupStart < size) {
+            int first = order[groupStart];
+            int groupEnd = groupStart + 1;
+            while (groupEnd < size
+                    && formats[order[groupEnd]] == formats[first]
+                    && cells[order[groupEnd]] == cells[first]) {
+                groupEnd++;
+            }
+
+            decideGroup(index, requests, order, groupStart, groupEnd, responses, start);
+            groupStart = groupEnd;
         }
+        return Arrays.asList(responses);
     }
 
-    private boolean isInsideAnyExclusion(
-            double lat,
-            double lon,
-            List<CampaignExclusion> exclusions
+    private void decideGroup(
+            CampaignIndex index,
+            List<BidRequest> requests,
+            Integer[] order,
+            int from,
+            int to,
+            BidResponse[] responses,
+            long batchStart
     ) {
-        if (exclusions == null || exclusions.isEmpty()) {
-            return false;
+        BidRequest first = requests.get(order[from]);
+        CampaignAdFormat format = first.getBidRequestInventory().getAdFormat();
+        CampaignFormatBucket bucket = index.findBucket(format);
+
+        // célula pura resolvida uma vez para o grupo inteiro
+        int position = CampaignWinnerTable.AMBIGUOUS;
+        if (bucket == null) {
+            position = CampaignWinnerTable.NO_WINNER;
+        } else if (bucket.getGrid().getCellDegrees() == CampaignSpatialGrid.DEFAULT_CELL_DEGREES) {
+            int cell = bucket.getGrid().cellIndex(
+                    first.getBidRequestUser().getLat(), first.getBidRequestUser().getLon());
+            position = bucket.getWinnerTable().winnerAt(cell);
         }
 
-        for (CampaignExclusion exclusion : exclusions) {
+        CampaignDeadline deadline = DEADLINE.get();
+        for (int k = from; k < to; k++) {
+            int i = order[k];
+            BidRequest request = requests.get(i);
+            long floorPriceMicros = request.getBidRequestInventory().getFloorPriceMicros();
+            deadline.reset(deadlineFor(request, batchStart));
 
-            if (exclusion.getType() == null) {
-                continue;
+            double userLat = request.getBidRequestUser().getLat();
+            double userLon = request.getBidRequestUser().getLon();
+            CompiledCampaign winner;
+            if (position == CampaignWinnerTable.NO_WINNER) {
+                winner = null;
+            } else if (position != CampaignWinnerTable.AMBIGUOUS && !bucket.get(position).isExhausted()) {
+                winner = bucket.getBidPriceMicros(position) >= floorPriceMicros ? bucket.get(position) : null;
+            } else {
+                winner = cannotWin(index, format, userLat, userLon, floorPriceMicros)
+                        ? null
+                        : evaluate(index, format, userLat, userLon, floorPriceMicros, deadline);
             }
+            winner = reserve(index, winner, format, userLat, userLon, floorPriceMicros, deadline);
 
-//            System.out.println("Exclusion :  " + exclusion.toString());
-
-            switch (exclusion.getType()) {
-
-                case RADIUS:
-                    if (GeoRadiusUtils.isPointInsideRadius(
-                            lat, lon,
-                            exclusion.getCenter().getLat(),
-                            exclusion.getCenter().getLon(),
-                            exclusion.getRadiusKm()
-                    )) {
-                        return true;
-                    }
-                    break;
-
-                case POLYGON:
-                    if (GeoPolygonUtils.isPointInsidePolygon(
-                            lat, lon,
-                            exclusion.getCampaignCoords()
-                    )) {
-                        return true;
-                    }
-                    break;
+            BidResponse response = toResponse(request, winner, deadline);
+            response.setLatencyMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batchStart));
+            responses[i] = response;
+        }
+    }
+
+    private CompiledCampaign decideWinner(
+            CampaignIndex index,
+            CampaignAdFormat format,
+            double userLat,
+            double userLon,
+            long floorPriceMicros,
+            CampaignDeadline deadline
+    ) {
+        if (cannotWin(index, format, userLat, userLon, floorPriceMicros)) {
+            return null;
+        }
+
+        // célula pura: vencedora pré-calculada, o floor só decide se ela lança
+        CampaignFormatBucket bucket = index.findBucket(format);
+        if (bucket != null) {
+            int cell = bucket.getGrid().cellIndex(userLat, userLon);
+            int position = bucket.getWinnerTable().winnerAt(cell);
+            if (position == CampaignWinnerTable.NO_WINNER) {
+                return null;
+            }
+            // vencedora pré-calculada sem saldo: a célula volta a ser avaliada até a recompilação
+            if (position != CampaignWinnerTable.AMBIGUOUS && !bucket.get(position).isExhausted()) {
+                return bucket.getBidPriceMicros(position) >= floorPriceMicros ? bucket.get(position) : null;
+            }
+        }
+        return evaluate(index, format, userLat, userLon, floorPriceMicros, deadline);
+    }
+
+    /**
+     * Reserva no orçamento da vencedora o custo da impressão. Se o saldo acabou (outra
+     * requisição levou o resto), a campanha fica esgotada, sai da disputa e a decisão é refeita.
+     */
+    private CompiledCampaign reserve(
+            CampaignIndex index,
+            CompiledCampaign winner,
+            CampaignAdFormat format,
+            double userLat,
+            double userLon,
+            long floorPriceMicros,
+            CampaignDeadline deadline
+    ) {
+        for (int attempt = 0; winner != null; attempt++) {
+            if (winner.getBudget().tryReserve(winner.getBidPriceMicros())) {
+                return winner;
             }
+            if (attempt == MAX_BUDGET_RETRIES) {
+                return null;
+            }
+            winner = decideWinner(index, format, userLat, userLon, floorPriceMicros, deadline);
+        }
+        return null;
+    }
+
+    // fora de toda cobertura ou floor acima do maior preço do formato: nem entra nos buckets
+    private static boolean cannotWin(
+            CampaignIndex index,
+            CampaignAdFormat format,
+            double userLat,
+            double userLon,
+            long floorPriceMicros
+    ) {
+        return floorPriceMicros > index.getMaxBidPriceMicros(format) || !index.isCovered(userLat, userLon);
+    }
+
+    private BidResponse toResponse(BidRequest request, CompiledCampaign winnerCampaign, CampaignDeadline deadline) {
+        BidResponse response = new BidResponse();
+        response.setRequestId(request.getRequestId());
+
+        if (deadline.isTruncated()) {
+            response.setTruncated(true);
+            truncations.increment();
+        }
+
+        if (winnerCampaign == null) {
+            response.setDecision(BidDecision.NO_BID);
+            return response;
+        }
+
+        response.setDecision(BidDecision.BID);
+        response.setBidPriceMicros(winnerCampaign.getBidPriceMicros());
+        response.setCampaignId(winnerCampaign.getCampaign().getCampaignId());
+        return response;
+    }
+
+    /**
+     * Prazo em System.nanoTime() contado de start (chegada da requisição ou início do lote);
+     * com from-request-timestamp, descontado o tempo desde o timestamp da requisição.
+     */
+    private long deadlineFor(BidRequest request, long start) {
+        if (timeoutNanos == 0) {
+            return CampaignDeadline.NO_DEADLINE;
         }
-        return false;
+        long deadline = start + timeoutNanos;
+
+        // timestamp ausente ou inválido: fica só o prazo da instância
+        if (deadlineFromTimestamp && request.getTimestampMillis() != BidRequest.NO_TIMESTAMP) {
+            long elapsedNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - request.getTimestampMillis());
+            deadline -= Math.max(0, elapsedNanos);
+        }
+        return deadline;
     }
 
+    private CompiledCampaign evaluate(
+            CampaignIndex index,
+            CampaignAdFormat format,
+            double userLat,
+            double userLon,
+            long floorPriceMicros,
+            CampaignDeadline deadline
+    ) {
+        // vetor unitário do usuário calculado uma vez e reaproveitado por todos os raios
+        return decisionCache.findWinner(
+                index,
+                format,
+                USER_POINT.get().moveTo(userLat, userLon),
+                floorPriceMicros,
+                campaignEvaluator,
+                deadline
+        );
+    }
 }
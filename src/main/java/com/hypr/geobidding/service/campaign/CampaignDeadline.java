@@ -0,0 +1,91 @@
+package com.hypr.geobidding.service.campaign;
+
+/**
+ * Prazo da avaliação de uma requisição, em System.nanoTime().
+ * <p>
+ * Mutável e reaproveitado pela thread da requisição (como o GeoPoint do usuário): reset()
+ * a cada requisição, sem alocação. O relógio só é lido a cada CHECK_INTERVAL candidatas.
+ * Quando o prazo estoura durante a avaliação, ela devolve o melhor que já achou e a
+ * decisão fica marcada como truncada.
+ */
+public final class CampaignDeadline {
+
+    static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    // candidatas entre duas leituras do relógio
+    private static final int CHECK_INTERVAL = 16;
+
+    /**
+     * Sem prazo; compartilhado, nunca é marcado como truncado.
+     */
+    public static final CampaignDeadline NONE = new CampaignDeadline(NO_DEADLINE);
+
+    private long deadlineNanos;
+
+    private int countdown;
+
+    // o shard 0 roda na thread da requisição, os outros marcam a própria cópia
+    private volatile boolean truncated;
+
+    private CampaignDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static CampaignDeadline scratch() {
+        return new CampaignDeadline(NO_DEADLINE);
+    }
+
+    public static CampaignDeadline at(long deadlineNanos) {
+        return new CampaignDeadline(deadlineNanos);
+    }
+
+    public CampaignDeadline reset(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+        this.countdown = 0;
+        this.truncated = false;
+        return this;
+    }
+
+    public boolean isBounded() {
+        return deadlineNanos != NO_DEADLINE;
+    }
+
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * @return nanos até o prazo (negativo se já passou); Long.MAX_VALUE sem prazo
+     */
+    public long remainingNanos() {
+        return isBounded() ? deadlineNanos - System.nanoTime() : Long.MAX_VALUE;
+    }
+
+    /**
+     * Chamado a cada candidata avaliada; true quando o prazo passou (e a decisão vira truncada).
+     */
+    boolean expired() {
+        if (!isBounded()) {
+            return false;
+        }
+        if (--countdown > 0) {
+            return false;
+        }
+        countdown = CHECK_INTERVAL;
+        if (System.nanoTime() - deadlineNanos >= 0) {
+            truncated = true;
+            return true;
+        }
+        return false;
+    }
+
+    void markTruncated() {
+        if (isBounded()) {
+            truncated = true;
+        }
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+}
@@ -0,0 +1,249 @@
+package com.hypr.geobidding.service.campaign;
+
+import com.hypr.geobidding.config.campaign.CampaignDecisionCacheProperties;
+import com.hypr.geobidding.domain.campaign.CampaignAdFormat;
+import com.hypr.geobidding.domain.geo.GeoCellRelation;
+import com.hypr.geobidding.domain.geo.GeoPoint;
+import com.hypr.geobidding.repository.campaign.CampaignFormatBucket;
+import com.hypr.geobidding.repository.campaign.CampaignIndex;
+import com.hypr.geobidding.repository.campaign.CompiledCampaign;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache de decisões por célula de localização quantizada + formato.
+ * <p>
+ * Cada célula da grade do bucket é subdividida; como a célula de cache fica dentro de uma
+ * célula da grade, todo ponto dela tem as mesmas candidatas. Uma decisão só é guardada quando
+ * ela vale para a célula inteira: toda candidata à frente da vencedora está fora do targeting
+ * (ou dentro de uma exclusão) em qualquer ponto da célula, e a vencedora está dentro do targeting
+ * e fora das exclusões em qualquer ponto. Assim o resultado do cache é exato.
+ * <p>
+ * O que fica guardado não depende do floor além do necessário: a vencedora é a campanha de
+ * maior preço elegível na célula (o floor só decide se ela lance), e "sem vencedora" vale
+ * para qualquer floor maior ou igual ao da avaliação.
+ * <p>
+ * Tabela de tamanho fixo com mapeamento direto (colisão sobrescreve), leitura sem lock.
+ * Entradas guardam a geração do índice (não a instância, para um índice velho não ficar preso
+ * na memória até uma colisão sobrescrever a entrada) e deixam de valer quando ele é recompilado.
+ */
+@Component
+public class CampaignDecisionCache {
+
+    // folga na célula para os pontos que caem nela por arredondamento (mesma do GeoCoveredShape)
+    private static final double CELL_EPSILON = 1e-9;
+
+    // acima disso a verificação custaria mais que a avaliação que ela economiza
+    private static final int MAX_STABILITY_CHECKS = 64;
+
+    private static final class Entry {
+        final int generation;
+        final int format;
+        final int latIndex;
+        final int lonIndex;
+        final int subLat;
+        final int subLon;
+
+        // vencedora na célula inteira, ou null = nenhuma elegível com preço >= noWinnerFloor
+        final CompiledCampaign winner;
+        final long noWinnerFloor;
+
+        Entry(int generation, int format, int latIndex, int lonIndex, int subLat, int subLon,
+              CompiledCampaign winner, long noWinnerFloor) {
+            this.generation = generation;
+            this.format = format;
+            this.latIndex = latIndex;
+            this.lonIndex = lonIndex;
+            this.subLat = subLat;
+            this.subLon = subLon;
+            this.winner = winner;
+            this.noWinnerFloor = noWinnerFloor;
+        }
+
+        boolean matches(int generation, int format, int latIndex, int lonIndex, int subLat, int subLon) {
+            return this.generation == generation && this.format == format
+                    && this.latIndex == latIndex && this.lonIndex == lonIndex
+                    && this.subLat == subLat && this.subLon == subLon;
+        }
+    }
+
+    private final boolean enabled;
+    private final int subdivisions;
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder uncacheable = new LongAdder();
+
+    @Autowired
+    public CampaignDecisionCache(CampaignDecisionCacheProperties properties) {
+        this(properties.isEnabled(), properties.getSubdivisions(), properties.getSize());
+    }
+
+    public CampaignDecisionCache(boolean enabled, int subdivisions, int size) {
+        if (subdivisions < 1 || size < 1) {
+            throw new IllegalArgumentException("subdivisions e size devem ser >= 1");
+        }
+        this.enabled = enabled;
+        this.subdivisions = subdivisions;
+
+        int capacity = Integer.highestOneBit(Math.min(size, 1 << 30));
+        if (capacity < size) {
+            capacity <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(enabled ? capacity : 0);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Mesmo resultado de evaluator.findWinner, passando pelo cache.
+     */
+    public CompiledCampaign findWinner(
+            CampaignIndex index,
+            CampaignAdFormat format,
+            GeoPoint user,
+            long floorPriceMicros,
+            CampaignEvaluator evaluator
+    ) {
+        return findWinner(index, format, user, floorPriceMicros, evaluator, CampaignDeadline.NONE);
+    }
+
+    /**
+     * Com prazo: hit nunca é truncado; decisão truncada não é guardada.
+     */
+    public CompiledCampaign findWinner(
+            CampaignIndex index,
+            CampaignAdFormat format,
+            GeoPoint user,
+            long floorPriceMicros,
+            CampaignEvaluator evaluator,
+            CampaignDeadline deadline
+    ) {
+        CampaignFormatBucket bucket = index.findBucket(format);
+        if (!enabled || bucket == null) {
+            return evaluator.findWinner(bucket, user, floorPriceMicros, index.getShapeCount(), deadline);
+        }
+
+        // mesma conta do GeoCellUtils, para cair na mesma célula da grade
+        double cellDegrees = bucket.getGrid().getCellDegrees();
+        double latPosition = (user.getLat() + 90.0) / cellDegrees;
+        double lonPosition = (user.getLon() + 180.0) / cellDegrees;
+        int latIndex = (int) Math.floor(latPosition);
+        int lonIndex = (int) Math.floor(lonPosition);
+        int subLat = sub(latPosition - latIndex);
+        int subLon = sub(lonPosition - lonIndex);
+        int formatBit = format.ordinal();
+
+        int slot = slot(formatBit, latIndex, lonIndex, subLat, subLon);
+        Entry entry = slots.get(slot);
+
+        if (entry != null && entry.matches(index.getGeneration(), formatBit, latIndex, lonIndex, subLat, subLon)) {
+            // vencedora que esgotou o orçamento: reavalia (a entrada é sobrescrita)
+            if (entry.winner != null && !entry.winner.isExhausted()) {
+                hits.increment();
+                return entry.winner.getBidPriceMicros() >= floorPriceMicros ? entry.winner : null;
+            }
+            if (entry.winner == null && floorPriceMicros >= entry.noWinnerFloor) {
+                hits.increment();
+                return null;
+            }
+        }
+        misses.increment();
+
+        CompiledCampaign winner = evaluator.findWinner(bucket, user, floorPriceMicros, index.getShapeCount(), deadline);
+        if (deadline.isTruncated()) {
+            return winner;
+        }
+
+        double minLat = (latIndex + (double) subLat / subdivisions) * cellDegrees - 90.0 - CELL_EPSILON;
+        double maxLat = (latIndex + (double) (subLat + 1) / subdivisions) * cellDegrees - 90.0 + CELL_EPSILON;
+        double minLon = (lonIndex + (double) subLon / subdivisions) * cellDegrees - 180.0 - CELL_EPSILON;
+        double maxLon = (lonIndex + (double) (subLon + 1) / subdivisions) * cellDegrees - 180.0 + CELL_EPSILON;
+
+        if (isStable(bucket, user, floorPriceMicros, winner, minLat, maxLat, minLon, maxLon)) {
+            slots.set(slot, new Entry(index.getGeneration(), formatBit, latIndex, lonIndex, subLat, subLon, winner, floorPriceMicros));
+        } else {
+            uncacheable.increment();
+        }
+        return winner;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Misses cuja decisão não podia ser guardada (célula ambígua para alguma candidata).
+     */
+    public long getUncacheable() {
+        return uncacheable.sum();
+    }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /**
+     * Percorre as candidatas na mesma ordem do avaliador até a vencedora (ou até o floor).
+     */
+    private boolean isStable(
+            CampaignFormatBucket bucket,
+            GeoPoint user,
+            long floorPriceMicros,
+            CompiledCampaign winner,
+            double minLat, double maxLat, double minLon, double maxLon
+    ) {
+        int[] local = bucket.getGrid().candidates(user.getLat(), user.getLon());
+        int[] wide = bucket.getGrid().wideCandidates();
+        int i = 0;
+        int j = 0;
+        int checks = 0;
+
+        while (i < local.length || j < wide.length) {
+            int position = (j >= wide.length || (i < local.length && local[i] < wide[j]))
+                    ? local[i++]
+                    : wide[j++];
+
+            if (bucket.getBidPriceMicros(position) < floorPriceMicros) {
+                break;
+            }
+            if (++checks > MAX_STABILITY_CHECKS) {
+                return false;
+            }
+
+            CompiledCampaign compiled = bucket.get(position);
+            GeoCellRelation relation = compiled.relate(minLat, maxLat, minLon, maxLon);
+            if (compiled == winner) {
+                return relation == GeoCellRelation.INSIDE;
+            }
+            if (relation != GeoCellRelation.OUTSIDE) {
+                return false;
+            }
+        }
+        return winner == null;
+    }
+
+    private int sub(double fraction) {
+        int sub = (int) (fraction * subdivisions);
+        return Math.max(0, Math.min(subdivisions - 1, sub));
+    }
+
+    private int slot(int format, int latIndex, int lonIndex, int subLat, int subLon) {
+        long h = ((long) latIndex << 32) ^ (lonIndex & 0xFFFFFFFFL);
+        h = h * 0x9E3779B97F4A7C15L + ((long) subLat << 20 | (long) subLon << 4 | format);
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 32;
+        return (int) h & mask;
+    }
+}
@@ -0,0 +1,30 @@
+package com.hypr.geobidding.service.campaign;
+
+import com.hypr.geobidding.domain.geo.GeoPoint;
+import com.hypr.geobidding.repository.campaign.CampaignFormatBucket;
+import com.hypr.geobidding.repository.campaign.CompiledCampaign;
+
+/**
+ * Estratégia de avaliação das candidatas de um bucket. Toda implementação devolve a mesma
+ * vencedora: a campanha de menor posição (maior bid_price) que passa no floor, no targeting
+ * e nas exclusões.
+ */
+public interface CampaignEvaluator {
+
+    /**
+     * @param user só vale durante a chamada (é o rascunho da thread da requisição)
+     * @return vencedora, ou null para NO_BID
+     */
+    default CompiledCampaign findWinner(CampaignFormatBucket bucket, GeoPoint user, long floorPriceMicros, int shapeCount) {
+        return findWinner(bucket, user, floorPriceMicros, shapeCount, CampaignDeadline.NONE);
+    }
+
+    /**
+     * Com prazo: se ele estourar no meio da avaliação, devolve a melhor campanha elegível
+     * já encontrada (ou null) e marca o deadline como truncado.
+     *
+     * @param deadline rascunho da thread da requisição, como o user
+     */
+    CompiledCampaign findWinner(
+            CampaignFormatBucket bucket, GeoPoint user, long floorPriceMicros, int shapeCount, CampaignDeadline deadline);
+}
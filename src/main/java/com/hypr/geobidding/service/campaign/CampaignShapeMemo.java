@@ -0,0 +1,59 @@
+package com.hypr.geobidding.service.campaign;
+
+import com.hypr.geobidding.domain.geo.GeoPoint;
+import com.hypr.geobidding.domain.geo.GeoShape;
+
+import java.util.Arrays;
+
+/**
+ * Resultado de contains por shape único durante uma requisição: cada id da tabela de shapes
+ * é avaliado no máximo uma vez, mesmo aparecendo em várias campanhas.
+ * <p>
+ * Um por thread, reaproveitado entre requisições. Em vez de limpar os arrays a cada
+ * requisição, cada entrada guarda a época em que foi escrita e só vale na época atual.
+ */
+final class CampaignShapeMemo {
+
+    private static final ThreadLocal<CampaignShapeMemo> CURRENT = ThreadLocal.withInitial(CampaignShapeMemo::new);
+
+    private int[] epochs = new int[0];
+    private boolean[] results = new boolean[0];
+    private int epoch;
+
+    private CampaignShapeMemo() {}
+
+    /**
+     * Começa uma requisição nova na thread atual e invalida os resultados da anterior.
+     */
+    static CampaignShapeMemo begin(int shapeCount) {
+        CampaignShapeMemo memo = CURRENT.get();
+        memo.reset(shapeCount);
+        return memo;
+    }
+
+    boolean contains(int id, GeoShape shape, GeoPoint user) {
+        if (epochs[id] == epoch) {
+            return results[id];
+        }
+
+        boolean result = shape.contains(user);
+        results[id] = result;
+        epochs[id] = epoch;
+        return result;
+    }
+
+    private void reset(int shapeCount) {
+        if (epochs.length < shapeCount) {
+            // índice recarregado com mais shapes
+            epochs = Arrays.copyOf(epochs, shapeCount);
+            results = Arrays.copyOf(results, shapeCount);
+        }
+
+        epoch++;
+        if (epoch == 0) {
+            // deu a volta no int: zera para nenhuma entrada antiga parecer válida
+            Arrays.fill(epochs, 0);
+            epoch = 1;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.hypr.geobidding.service.campaign;
+
+import com.hypr.geobidding.domain.geo.GeoPoint;
+import com.hypr.geobidding.domain.geo.GeoShape;
+import com.hypr.geobidding.repository.campaign.CampaignFormatBucket;
+import com.hypr.geobidding.repository.campaign.CompiledCampaign;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Avalia tudo na thread da requisição, sem handoff nenhum.
+ */
+public final class SequentialCampaignEvaluator implements CampaignEvaluator {
+
+    @Override
+    public CompiledCampaign findWinner(
+            CampaignFormatBucket bucket, GeoPoint user, long floorPriceMicros, int shapeCount, CampaignDeadline deadline) {
+        if (bucket == null || bucket.getMaxBidPriceMicros() < floorPriceMicros) {
+            return null;
+        }
+        return scan(bucket, user, floorPriceMicros, CampaignShapeMemo.begin(shapeCount),
+                0, bucket.size(), null, 0, deadline);
+    }
+
+    /**
+     * O bucket já vem ordenado por bid_price decrescente, então a primeira campanha
+     * que passa no targeting e nas exclusões é a de maior preço: para ali.
+     * Só são avaliadas as posições da célula do usuário na grade, mais as "wide";
+     * as duas listas são crescentes e percorridas em merge para manter a ordem de preço.
+     * <p>
+     * Percorre só as posições em [from, to). Com bestShard, desiste assim que um shard
+     * anterior (de preço maior) já tiver achado vencedora.
+     * <p>
+     * Prazo estourado devolve null: como a ordem é de preço, nada elegível foi visto até ali.
+     */
+    static CompiledCampaign scan(
+            CampaignFormatBucket bucket,
+            GeoPoint user,
+            long floorPriceMicros,
+            CampaignShapeMemo memo,
+            int from,
+            int to,
+            AtomicInteger bestShard,
+            int shard,
+            CampaignDeadline deadline
+    ) {
+        int[] local = bucket.getGrid().candidates(user.getLat(), user.getLon());
+        int[] wide = bucket.getGrid().wideCandidates();
+        int i = lowerBound(local, from);
+        int j = lowerBound(wide, from);
+
+        while (i < local.length || j < wide.length) {
+            int position = (j >= wide.length || (i < local.length && local[i] < wide[j]))
+                    ? local[i++]
+                    : wide[j++];
+
+            if (position >= to || bucket.getBidPriceMicros(position) < floorPriceMicros) {
+                return null;
+            }
+            if (bestShard != null && bestShard.get() < shard) {
+                return null;
+            }
+            if (deadline.expired()) {
+                return null;
+            }
+
+            CompiledCampaign compiled = bucket.get(position);
+
+            // esgotada ainda no índice (até a recompilação): a próxima do preço assume
+            if (matchesTargeting(user, memo, compiled)
+                    && !isInsideAnyExclusion(user, memo, compiled)
+                    && !compiled.isExhausted()) {
+                return compiled;
+            }
+        }
+        return null;
+    }
+
+    private static boolean matchesTargeting(
+            GeoPoint user,
+            CampaignShapeMemo memo,
+            CompiledCampaign compiled
+    ) {
+        return memo.contains(compiled.getTargetingId(), compiled.getTargeting(), user);
+    }
+
+    private static boolean isInsideAnyExclusion(
+            GeoPoint user,
+            CampaignShapeMemo memo,
+            CompiledCampaign compiled
+    ) {
+        int[] ids = compiled.getExclusionIds();
+        GeoShape[] exclusions = compiled.getExclusions();
+
+        for (int i = 0; i < ids.length; i++) {
+            if (memo.contains(ids[i], exclusions[i], user)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // primeiro índice com valor >= key (arrays crescentes)
+    private static int lowerBound(int[] values, int key) {
+        int lo = 0;
+        int hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
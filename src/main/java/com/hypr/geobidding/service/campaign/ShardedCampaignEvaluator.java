@@ -0,0 +1,295 @@
+package com.hypr.geobidding.service.campaign;
+
+import com.hypr.geobidding.domain.geo.GeoPoint;
+import com.hypr.geobidding.repository.campaign.CampaignFormatBucket;
+import com.hypr.geobidding.repository.campaign.CompiledCampaign;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Divide as candidatas em shards de posições contíguas (cada shard é uma faixa de preço)
+ * e avalia cada shard em paralelo num pool dedicado, fora do ForkJoinPool comum.
+ * <p>
+ * A vencedora de um shard é a sua primeira campanha válida; a do shard de menor índice ganha.
+ * Assim que um shard acha vencedora, os shards de índice maior (preço menor) param.
+ * <p>
+ * Com prazo, a thread da requisição só espera cada shard até ele; se um shard não terminar
+ * a tempo, vale a vencedora do primeiro shard seguinte que já tiver terminado.
+ * <p>
+ * O estado de uma avaliação (cópia do ponto, fronteiras, tarefas e prazos dos shards) é um
+ * rascunho da thread da requisição, reaproveitado entre chamadas como o GeoPoint do usuário.
+ */
+public final class ShardedCampaignEvaluator implements CampaignEvaluator, AutoCloseable {
+
+    // tarefas na fila do pool por thread; acima disso o shard roda na thread da requisição
+    private static final int QUEUE_PER_THREAD = 1024;
+
+    private final int shards;
+
+    // shards - 1 threads: o shard 0 roda na thread da requisição
+    private final ExecutorService pool;
+
+    // dois rascunhos por thread: o da chamada anterior pode ter shards ainda parando
+    private final ThreadLocal<ShardRun[]> runs;
+
+    public ShardedCampaignEvaluator(int shards) {
+        if (shards < 2) {
+            throw new IllegalArgumentException("shards deve ser >= 2: " + shards);
+        }
+        this.shards = shards;
+        this.runs = ThreadLocal.withInitial(() -> new ShardRun[]{new ShardRun(shards), new ShardRun(shards)});
+
+        AtomicInteger counter = new AtomicInteger();
+        // fila em array: enfileirar não aloca nó; cheia, o shard roda na thread da requisição
+        this.pool = new ThreadPoolExecutor(
+                shards - 1, shards - 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_PER_THREAD * (shards - 1)),
+                r -> {
+                    Thread thread = new Thread(r, "bid-shard-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (task, executor) -> task.run());
+    }
+
+    @Override
+    public CompiledCampaign findWinner(
+            CampaignFormatBucket bucket, GeoPoint user, long floorPriceMicros, int shapeCount, CampaignDeadline deadline) {
+        if (bucket == null || bucket.getMaxBidPriceMicros() < floorPriceMicros) {
+            return null;
+        }
+
+        ShardRun run = acquire();
+        int count = shardBounds(bucket, user, run.bounds);
+        run.begin(bucket, user, floorPriceMicros, shapeCount);
+
+        // cada shard do pool marca a própria cópia do prazo
+        for (int shard = 1; shard < count; shard++) {
+            run.tasks[shard].prepare(deadline.getDeadlineNanos());
+            pool.execute(run.tasks[shard]);
+        }
+
+        CompiledCampaign winner = runShard(run, user, 0, deadline);
+        if (winner != null) {
+            // shard 0 tem os maiores preços; os outros já estão parando pelo bestShard
+            return winner;
+        }
+
+        boolean truncated = deadline.isTruncated();
+        for (int shard = 1; shard < count; shard++) {
+            ShardTask task = run.tasks[shard];
+            CompiledCampaign result;
+            if (truncated) {
+                // um shard de preço maior não terminou: só aproveita quem já acabou
+                result = task.done ? task.result() : null;
+            } else {
+                boolean finished = await(task, deadline);
+                result = finished ? task.result() : null;
+                truncated = result == null && (!finished || task.deadline.isTruncated());
+            }
+            if (result != null) {
+                if (truncated) {
+                    deadline.markTruncated();
+                }
+                return result;
+            }
+        }
+        if (truncated) {
+            deadline.markTruncated();
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Rascunho sem shard em andamento. Shards que ficaram rodando depois do retorno param logo
+     * (pelo bestShard ou pelo prazo), então quase sempre um dos dois está livre; se nenhum
+     * estiver, os atrasados ficam com o antigo e a thread passa a usar um novo.
+     */
+    private ShardRun acquire() {
+        ShardRun[] pair = runs.get();
+        for (ShardRun run : pair) {
+            if (run.running.get() == 0) {
+                return run;
+            }
+        }
+        pair[0] = new ShardRun(shards);
+        return pair[0];
+    }
+
+    private static CompiledCampaign runShard(ShardRun run, GeoPoint user, int shard, CampaignDeadline deadline) {
+        // cada thread tem a sua memória de shapes
+        CompiledCampaign result = SequentialCampaignEvaluator.scan(
+                run.bucket, user, run.floorPriceMicros, CampaignShapeMemo.begin(run.shapeCount),
+                run.bounds[shard], run.bounds[shard + 1], run.bestShard, shard, deadline);
+
+        if (result != null) {
+            run.bestShard.accumulateAndGet(shard, Math::min);
+        }
+        return result;
+    }
+
+    /**
+     * Fronteiras de posição que dividem as candidatas da célula (mais as "wide") em shards
+     * com a mesma quantidade de candidatas. bounds[k] é o início do shard k.
+     *
+     * @return quantidade de shards (bounds é preenchido até bounds[count])
+     */
+    private int shardBounds(CampaignFormatBucket bucket, GeoPoint user, int[] bounds) {
+        int[] local = bucket.getGrid().candidates(user.getLat(), user.getLon());
+        int[] wide = bucket.getGrid().wideCandidates();
+        int total = local.length + wide.length;
+        int count = Math.max(1, Math.min(shards, total));
+
+        bounds[0] = 0;
+        for (int k = 1; k < count; k++) {
+            bounds[k] = kthPosition(local, wide, (int) ((long) k * total / count), bucket.size());
+        }
+        bounds[count] = bucket.size();
+        return count;
+    }
+
+    // menor posição p com mais de k candidatas <= p, por busca binária sobre a posição
+    private static int kthPosition(int[] a, int[] b, int k, int size) {
+        int lo = 0;
+        int hi = size - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (countAtMost(a, mid) + countAtMost(b, mid) > k) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    private static int countAtMost(int[] values, int key) {
+        int lo = 0;
+        int hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] <= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // espera até o prazo; estourado, devolve false com o shard ainda rodando (ele para sozinho)
+    private static boolean await(ShardTask task, CampaignDeadline deadline) {
+        task.waiter = Thread.currentThread();
+        while (!task.done) {
+            if (deadline.isBounded()) {
+                long remaining = deadline.remainingNanos();
+                if (remaining <= 0) {
+                    return task.done;
+                }
+                LockSupport.parkNanos(task, remaining);
+            } else {
+                LockSupport.park(task);
+            }
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("avaliação de shard interrompida");
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estado de uma avaliação: o que as tarefas do pool leem e o que devolvem.
+     * Só é reaproveitado com running em zero, quando nenhuma tarefa dele está na fila ou rodando.
+     */
+    private static final class ShardRun {
+
+        private final GeoPoint user = GeoPoint.scratch();
+        private final int[] bounds;
+        private final AtomicInteger bestShard = new AtomicInteger();
+        private final AtomicInteger running = new AtomicInteger();
+        private final ShardTask[] tasks;
+
+        private CampaignFormatBucket bucket;
+        private long floorPriceMicros;
+        private int shapeCount;
+
+        private ShardRun(int shards) {
+            this.bounds = new int[shards + 1];
+            this.tasks = new ShardTask[shards];
+            for (int shard = 1; shard < shards; shard++) {
+                tasks[shard] = new ShardTask(this, shard);
+            }
+        }
+
+        private void begin(CampaignFormatBucket bucket, GeoPoint user, long floorPriceMicros, int shapeCount) {
+            // os shards podem seguir rodando depois do retorno; o ponto do chamador é rascunho da thread
+            this.user.moveTo(user.getLat(), user.getLon());
+            this.bucket = bucket;
+            this.floorPriceMicros = floorPriceMicros;
+            this.shapeCount = shapeCount;
+            this.bestShard.set(Integer.MAX_VALUE);
+        }
+    }
+
+    private static final class ShardTask implements Runnable {
+
+        private final ShardRun run;
+        private final int shard;
+        private final CampaignDeadline deadline = CampaignDeadline.scratch();
+
+        private CompiledCampaign result;
+        private Throwable failure;
+        private volatile Thread waiter;
+        private volatile boolean done;
+
+        private ShardTask(ShardRun run, int shard) {
+            this.run = run;
+            this.shard = shard;
+        }
+
+        private void prepare(long deadlineNanos) {
+            deadline.reset(deadlineNanos);
+            result = null;
+            failure = null;
+            waiter = null;
+            done = false;
+            run.running.incrementAndGet();
+        }
+
+        @Override
+        public void run() {
+            try {
+                result = runShard(run, run.user, shard, deadline);
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                // done antes de ler o waiter: ou a espera vê done, ou esta leitura vê o waiter
+                done = true;
+                Thread toWake = waiter;
+                // depois daqui a tarefa não toca mais no ShardRun, que pode ser reaproveitado
+                run.running.decrementAndGet();
+                if (toWake != null) {
+                    LockSupport.unpark(toWake);
+                }
+            }
+        }
+
+        private CompiledCampaign result() {
+            if (failure != null) {
+                throw new IllegalStateException("falha na avaliação de shard", failure);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.hypr.geobidding.utils.geo;
+
+/**
+ * Grade uniforme lat/lon: célula = floor((lat + 90) / tamanho), floor((lon + 180) / tamanho).
+ * Como floor é monotônico, um ponto dentro de um bounding box sempre cai numa célula
+ * entre as células dos cantos do box.
+ */
+public final class GeoCellUtils {
+
+    private GeoCellUtils() {}
+
+    public static int latIndex(double lat, double cellDegrees) {
+        return (int) Math.floor((lat + 90.0) / cellDegrees);
+    }
+
+    public static int lonIndex(double lon, double cellDegrees) {
+        return (int) Math.floor((lon + 180.0) / cellDegrees);
+    }
+
+    public static long cellKey(int latIndex, int lonIndex) {
+        return ((long) latIndex << 32) | (lonIndex & 0xFFFFFFFFL);
+    }
+
+    public static long cellKey(double lat, double lon, double cellDegrees) {
+        return cellKey(latIndex(lat, cellDegrees), lonIndex(lon, cellDegrees));
+    }
+}
@@ -1,5 +1,9 @@
 package com.hypr.geobidding.utils.geo;
 
+/**
+ * Distância de grande círculo exata, comparada como corda entre vetores unitários:
+ * dentro do raio quando |u - c|² <= (2 sin(d / 2R))².
+ */
 public final class GeoRadiusUtils {
 
     private static final double EARTH_RADIUS_KM = 6371.0088;
@@ -13,74 +17,92 @@ public final class GeoRadiusUtils {
             double centerLon,
             double radiusKm
     ) {
-        if (!isPointInsideBoundingBox(
-                userLat, userLon, centerLat, centerLon, radiusKm)) {
-            return false;
-        }
-
-        if (radiusKm < 50) {
-            return isPointInsideRadiusEquirectangular(
-                    userLat, userLon, centerLat, centerLon, radiusKm);
-        }
+        double userPhi = Math.toRadians(userLat);
+        double userLambda = Math.toRadians(userLon);
+        double userCosPhi = Math.cos(userPhi);
+
+        double centerPhi = Math.toRadians(centerLat);
+        double centerLambda = Math.toRadians(centerLon);
+        double centerCosPhi = Math.cos(centerPhi);
+
+        return squaredChord(
+                userCosPhi * Math.cos(userLambda), userCosPhi * Math.sin(userLambda), Math.sin(userPhi),
+                centerCosPhi * Math.cos(centerLambda), centerCosPhi * Math.sin(centerLambda), Math.sin(centerPhi)
+        ) <= squaredChordThreshold(radiusKm);
+    }
 
-        return haversine(userLat, userLon, centerLat, centerLon) <= radiusKm;
+    /**
+     * Corda ao quadrado entre dois vetores unitários já calculados (x, y, z).
+     */
+    public static double squaredChord(double x1, double y1, double z1, double x2, double y2, double z2) {
+        double dx = x1 - x2;
+        double dy = y1 - y2;
+        double dz = z1 - z2;
+        return dx * dx + dy * dy + dz * dz;
     }
 
-    private static boolean isPointInsideRadiusEquirectangular(
+    /**
+     * Pré-filtro barato: o box exato do círculo, com a longitude comparada pelo menor arco
+     * para não errar perto do antimeridiano.
+     */
+    public static boolean isPointInsideBoundingBox(
             double userLat,
             double userLon,
             double centerLat,
             double centerLon,
             double radiusKm
     ) {
-        double lat1 = Math.toRadians(userLat);
-        double lat2 = Math.toRadians(centerLat);
-
-        double x = Math.toRadians(userLon - centerLon)
-                * Math.cos((lat1 + lat2) / 2);
-
-        double y = Math.toRadians(userLat - centerLat);
+        if (radiusKm < 0) {
+            return false;
+        }
 
-        double distanceKm = Math.sqrt(x * x + y * y) * EARTH_RADIUS_KM;
+        double deltaLon = Math.abs(userLon - centerLon) % 360;
+        if (deltaLon > 180) {
+            deltaLon = 360 - deltaLon;
+        }
 
-        return distanceKm <= radiusKm;
+        return Math.abs(userLat - centerLat) <= deltaLatDegrees(radiusKm)
+                && deltaLon <= deltaLonDegrees(centerLat, radiusKm);
     }
 
-    private static double haversine(
-            double lat1,
-            double lon1,
-            double lat2,
-            double lon2
-    ) {
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
+    /**
+     * Corda ao quadrado equivalente ao raio; calculada uma vez por raio no load.
+     */
+    public static double squaredChordThreshold(double radiusKm) {
+        if (radiusKm < 0) {
+            return -1.0;   // nenhum ponto
+        }
 
-        double a =
-                Math.pow(Math.sin(dLat / 2), 2)
-                        + Math.cos(Math.toRadians(lat1))
-                        * Math.cos(Math.toRadians(lat2))
-                        * Math.pow(Math.sin(dLon / 2), 2);
+        double angle = radiusKm / EARTH_RADIUS_KM;
+        if (angle >= Math.PI) {
+            return Double.POSITIVE_INFINITY;   // cobre o globo inteiro
+        }
 
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        double chord = 2 * Math.sin(angle / 2);
+        return chord * chord;
+    }
 
-        return EARTH_RADIUS_KM * c;
+    /**
+     * Meia altura, em graus de latitude, do bounding box de um raio.
+     */
+    public static double deltaLatDegrees(double radiusKm) {
+        return Math.toDegrees(radiusKm / EARTH_RADIUS_KM);
     }
 
-    public static boolean isPointInsideBoundingBox(
-            double userLat,
-            double userLon,
-            double centerLat,
-            double centerLon,
-            double radiusKm
-    ) {
-        double deltaLat = Math.toDegrees(radiusKm / EARTH_RADIUS_KM);
-        double deltaLon = Math.toDegrees(
-                radiusKm / (EARTH_RADIUS_KM * Math.cos(Math.toRadians(centerLat)))
-        );
-
-        return userLat >= centerLat - deltaLat
-                && userLat <= centerLat + deltaLat
-                && userLon >= centerLon - deltaLon
-                && userLon <= centerLon + deltaLon;
+    /**
+     * Meia largura, em graus de longitude, do bounding box de um raio centrado em centerLat.
+     * O ponto mais a leste do círculo fica um pouco mais perto do polo que o centro,
+     * por isso é asin(sin r / cos lat) e não r / cos lat.
+     *
+     * @return infinito quando o círculo alcança um polo (todas as longitudes)
+     */
+    public static double deltaLonDegrees(double centerLat, double radiusKm) {
+        double angle = radiusKm / EARTH_RADIUS_KM;
+        double ratio = Math.sin(angle) / Math.cos(Math.toRadians(centerLat));
+
+        if (angle >= Math.PI / 2 || Math.abs(centerLat) + Math.toDegrees(angle) >= 90 || ratio >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.toDegrees(Math.asin(ratio));
     }
 }
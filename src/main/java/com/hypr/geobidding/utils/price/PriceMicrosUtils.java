@@ -0,0 +1,39 @@
+package com.hypr.geobidding.utils.price;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Preços em micros (1 unidade = 1_000_000 micros) para comparar com long no hot path.
+ * Conversão feita uma vez no load da campanha e uma vez no parse da requisição.
+ *
+ * Com até 6 casas decimais a conversão é exata. Acima disso o lance arredonda para baixo
+ * e o floor para cima, então o arredondamento nunca faz um lance abaixo do floor ganhar.
+ */
+public final class PriceMicrosUtils {
+
+    public static final int SCALE = 6;
+
+    private PriceMicrosUtils() {}
+
+    public static long bidToMicros(BigDecimal price) {
+        return toMicros(price, RoundingMode.FLOOR);
+    }
+
+    public static long floorToMicros(BigDecimal price) {
+        return toMicros(price, RoundingMode.CEILING);
+    }
+
+    /**
+     * Sem zeros à direita, mas nunca com escala negativa: 10 sairia como 1E+1 no JSON.
+     */
+    public static BigDecimal fromMicros(long micros) {
+        BigDecimal stripped = BigDecimal.valueOf(micros, SCALE).stripTrailingZeros();
+        return stripped.scale() < 0 ? stripped.setScale(0) : stripped;
+    }
+
+    private static long toMicros(BigDecimal price, RoundingMode rounding) {
+        // longValueExact estoura com ArithmeticException fora de ~9.2 trilhões
+        return price.setScale(SCALE, rounding).unscaledValue().longValueExact();
+    }
+}
@@ -1,24 +1,36 @@
 package com.hypr.geobidding.controller.bid;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hypr.geobidding.config.bid.BidAdmissionProperties;
+import com.hypr.geobidding.config.bid.BidBatchProperties;
+import com.hypr.geobidding.config.bid.BidCoalescingProperties;
 import com.hypr.geobidding.domain.campaign.CampaignAdFormat;
 import com.hypr.geobidding.dto.bid.*;
+import com.hypr.geobidding.service.bid.BidAdmissionLimiter;
+import com.hypr.geobidding.service.campaign.CampaignBidCoalescer;
 import com.hypr.geobidding.service.campaign.CampaignBidService;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
 
 import static org.hamcrest.Matchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(BidController.class)
+@EnableConfigurationProperties({BidBatchProperties.class, BidCoalescingProperties.class, BidAdmissionProperties.class})
+@Import({CampaignBidCoalescer.class, BidAdmissionLimiter.class})
 class BidControllerTest {
 
     @Autowired
@@ -30,6 +42,9 @@ class BidControllerTest {
     @MockitoBean
     private CampaignBidService campaignBidService;
 
+    @MockitoSpyBean
+    private BidAdmissionLimiter admissionLimiter;
+
     private BidRequest buildRequest() {
         BidRequest request = new BidRequest();
         request.setRequestId("req-123");
@@ -88,8 +103,98 @@ class BidControllerTest {
                         .content(objectMapper.writeValueAsString(buildRequest())))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.decision").value("no_bid"))
-                .andExpect(jsonPath("$.latency_ms", greaterThanOrEqualTo(0)));
+                .andExpect(jsonPath("$.latency_ms", greaterThanOrEqualTo(0)))
+                .andExpect(jsonPath("$.truncated").doesNotExist());
 
         Mockito.verify(campaignBidService).decide(Mockito.any());
     }
+
+    @Test
+    void shouldShedWithNoBidAboveConcurrencyLimit() throws Exception {
+        Mockito.doReturn(false).when(admissionLimiter).tryAcquire();
+
+        mockMvc.perform(post("/bid")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(buildRequest())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.request_id").value("req-123"))
+                .andExpect(jsonPath("$.decision").value("no_bid"));
+
+        Mockito.verifyNoInteractions(campaignBidService);
+        Mockito.verify(admissionLimiter, Mockito.never()).release(Mockito.anyLong());
+    }
+
+    @Test
+    void shouldFlagTruncatedDecision() throws Exception {
+        BidResponse response = new BidResponse();
+        response.setRequestId("req-123");
+        response.setDecision(BidDecision.NO_BID);
+        response.setTruncated(true);
+
+        Mockito.when(campaignBidService.decide(Mockito.any()))
+                .thenReturn(response);
+
+        mockMvc.perform(post("/bid")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(buildRequest())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.decision").value("no_bid"))
+                .andExpect(jsonPath("$.truncated").value(true));
+    }
+
+    @Test
+    void shouldReturnBatchResponsesInRequestOrder() throws Exception {
+        BidResponse bid = new BidResponse();
+        bid.setRequestId("req-1");
+        bid.setDecision(BidDecision.BID);
+        bid.setBidPrice(BigDecimal.valueOf(1.23));
+        bid.setCampaignId("camp-1");
+
+        BidResponse noBid = new BidResponse();
+        noBid.setRequestId("req-2");
+        noBid.setDecision(BidDecision.NO_BID);
+
+        Mockito.when(campaignBidService.decideBatch(Mockito.anyList()))
+                .thenReturn(List.of(bid, noBid));
+
+        BidRequest first = buildRequest();
+        first.setRequestId("req-1");
+        BidRequest second = buildRequest();
+        second.setRequestId("req-2");
+
+        mockMvc.perform(post("/bid/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(first, second))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].request_id").value("req-1"))
+                .andExpect(jsonPath("$[0].decision").value("bid"))
+                .andExpect(jsonPath("$[1].decision").value("no_bid"))
+                .andExpect(jsonPath("$[1].latency_ms", greaterThanOrEqualTo(0)));
+    }
+
+    @Test
+    void shouldRejectBatchAboveMaxSize() throws Exception {
+        List<BidRequest> requests = Collections.nCopies(1001, buildRequest());
+
+        mockMvc.perform(post("/bid/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isPayloadTooLarge());
+
+        Mockito.verifyNoInteractions(campaignBidService);
+    }
+
+    @Test
+    void shouldRejectBatchWithInvalidItem() throws Exception {
+        BidRequest invalid = buildRequest();
+        invalid.getBidRequestUser().setLat(null);
+
+        mockMvc.perform(post("/bid/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(buildRequest(), invalid))))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(campaignBidService);
+    }
 }
@@ -2,8 +2,12 @@ package com.hypr.geobidding.domain.campaign;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class CampaignAdFormatTest {
 
@@ -31,4 +35,24 @@ public class CampaignAdFormatTest {
         );
     }
 
+    @Test
+    void shouldGiveEachFormatItsOwnBit() {
+        int all = 0;
+        for (CampaignAdFormat format : CampaignAdFormat.values()) {
+            assertEquals(1, Integer.bitCount(format.mask()));
+            assertEquals(0, all & format.mask());
+            all |= format.mask();
+        }
+        assertTrue(CampaignAdFormat.values().length <= Integer.SIZE);
+    }
+
+    @Test
+    void shouldIgnoreRepeatedAndNullFormatsInMask() {
+        assertEquals(
+                CampaignAdFormat.BANNER.mask() | CampaignAdFormat.VIDEO.mask(),
+                CampaignAdFormat.maskOf(Arrays.asList(CampaignAdFormat.BANNER, null, CampaignAdFormat.VIDEO, CampaignAdFormat.BANNER))
+        );
+        assertEquals(0, CampaignAdFormat.maskOf(null));
+        assertEquals(0, CampaignAdFormat.maskOf(List.of()));
+    }
 }
@@ -61,4 +61,28 @@ class CampaignExclusionTest {
         assertEquals(2, points.size());
     }
 
+    @Test
+    void shouldCacheConvertedCoordsUntilCoordsChange() {
+        CampaignExclusion exclusion = new CampaignExclusion();
+        exclusion.setCoords(List.of(
+                List.of(1.0, 2.0),
+                List.of(3.0, 4.0),
+                List.of(5.0, 6.0),
+                List.of(1.0, 2.0)
+        ));
+
+        List<CampaignGeoPoint> first = exclusion.getCampaignCoords();
+        assertSame(first, exclusion.getCampaignCoords());
+
+        exclusion.setCoords(List.of(
+                List.of(7.0, 8.0),
+                List.of(3.0, 4.0),
+                List.of(5.0, 6.0),
+                List.of(7.0, 8.0)
+        ));
+
+        assertNotSame(first, exclusion.getCampaignCoords());
+        assertEquals(7.0, exclusion.getCampaignCoords().get(0).getLat());
+    }
+
 }
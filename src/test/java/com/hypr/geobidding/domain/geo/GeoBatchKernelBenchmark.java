@@ -0,0 +1,126 @@
+package com.hypr.geobidding.domain.geo;
+
+import com.hypr.geobidding.domain.campaign.CampaignGeoPoint;
+import com.hypr.geobidding.utils.geo.GeoPolygonUtils;
+import com.hypr.geobidding.utils.geo.GeoRadiusUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kernel vetorial x escalar x utils originais, no pior caso (nenhum raio contém o ponto,
+ * todas as arestas são testadas). Precisa de --add-modules jdk.incubator.vector (o profile
+ * "benchmark" já passa); rodar em máquina com AVX2/AVX-512.
+ * <p>
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark=GeoBatchKernelBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoBatchKernelBenchmark {
+
+    @Param({"8", "16", "32", "128"})
+    public int size;
+
+    private final GeoBatchKernel scalar = GeoBatchKernels.scalar();
+    private final GeoBatchKernel vector = new GeoVectorBatchKernel();
+
+    private double[][] centers;
+    private double[] radiiKm;
+    private double[] x, y, z, squaredChords;
+
+    private List<CampaignGeoPoint> polygon;
+    private double[] edgeLat, edgeLon, edgeOtherLon, edgeDeltaLat, edgeDeltaLon;
+
+    private final double userLat = -23.5;
+    private final double userLon = -46.6;
+    private GeoPoint user;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        user = GeoPoint.of(userLat, userLon);
+
+        centers = new double[size][];
+        radiiKm = new double[size];
+        x = new double[size];
+        y = new double[size];
+        z = new double[size];
+        squaredChords = new double[size];
+        for (int i = 0; i < size; i++) {
+            // longe do usuário: nenhum raio contém, o loop vai até o fim
+            centers[i] = new double[]{-22.0 + random.nextDouble(), -45.0 + random.nextDouble()};
+            radiiKm[i] = 1.0;
+            GeoRadiusShape shape = new GeoRadiusShape(centers[i][0], centers[i][1], radiiKm[i]);
+            x[i] = shape.getCenter().getX();
+            y[i] = shape.getCenter().getY();
+            z[i] = shape.getCenter().getZ();
+            squaredChords[i] = shape.getSquaredChord();
+        }
+
+        // polígono regular de size vértices em volta do usuário
+        polygon = new ArrayList<>(size + 1);
+        for (int i = 0; i <= size; i++) {
+            double angle = 2 * Math.PI * (i % size) / size;
+            CampaignGeoPoint p = new CampaignGeoPoint();
+            p.setLat(userLat + 0.1 * Math.sin(angle));
+            p.setLon(userLon + 0.1 * Math.cos(angle));
+            polygon.add(p);
+        }
+        int n = polygon.size();
+        edgeLat = new double[n];
+        edgeLon = new double[n];
+        edgeOtherLon = new double[n];
+        edgeDeltaLat = new double[n];
+        edgeDeltaLon = new double[n];
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            edgeLat[i] = polygon.get(i).getLat();
+            edgeLon[i] = polygon.get(i).getLon();
+            edgeOtherLon[i] = polygon.get(j).getLon();
+            edgeDeltaLat[i] = polygon.get(j).getLat() - polygon.get(i).getLat();
+            // aresta vertical: deltaLon 0 nunca é usada, o teste de span falha antes
+            edgeDeltaLon[i] = polygon.get(j).getLon() - polygon.get(i).getLon();
+        }
+    }
+
+    @Benchmark
+    public boolean radiusUtils() {
+        for (int i = 0; i < size; i++) {
+            if (GeoRadiusUtils.isPointInsideRadius(userLat, userLon, centers[i][0], centers[i][1], radiiKm[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean radiusScalar() {
+        return scalar.anyWithin(x, y, z, squaredChords, size, user);
+    }
+
+    @Benchmark
+    public boolean radiusVector() {
+        return vector.anyWithin(x, y, z, squaredChords, size, user);
+    }
+
+    @Benchmark
+    public boolean polygonUtils() {
+        return GeoPolygonUtils.isPointInsidePolygon(userLat, userLon, polygon);
+    }
+
+    @Benchmark
+    public int polygonScalar() {
+        return scalar.crossings(edgeLat, edgeLon, edgeOtherLon, edgeDeltaLat, edgeDeltaLon, userLat, userLon);
+    }
+
+    @Benchmark
+    public int polygonVector() {
+        return vector.crossings(edgeLat, edgeLon, edgeOtherLon, edgeDeltaLat, edgeDeltaLon, userLat, userLon);
+    }
+}
@@ -0,0 +1,73 @@
+package com.hypr.geobidding.domain.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class GeoBatchKernelTest {
+
+    private final GeoBatchKernel scalar = GeoBatchKernels.scalar();
+
+    @Test
+    void shouldUseVectorKernelWhenModuleIsPresent() {
+        // surefire sobe com --add-modules jdk.incubator.vector
+        assertEquals(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(), GeoBatchKernels.isVectorized());
+    }
+
+    @Test
+    void shouldMatchScalarRadiusCheckBitForBit() {
+        assumeTrue(GeoBatchKernels.isVectorized());
+        GeoBatchKernel vector = GeoBatchKernels.get();
+        Random random = new Random(11);
+
+        for (int n = 0; n < 2_000; n++) {
+            int length = 1 + random.nextInt(40);
+            double[] x = new double[length];
+            double[] y = new double[length];
+            double[] z = new double[length];
+            double[] sq = new double[length];
+            for (int i = 0; i < length; i++) {
+                GeoPoint center = GeoPoint.of(-23.5 + random.nextGaussian() * 0.05, -46.6 + random.nextGaussian() * 0.05);
+                x[i] = center.getX();
+                y[i] = center.getY();
+                z[i] = center.getZ();
+                sq[i] = random.nextInt(10) == 0 ? -1 : 1e-7 * random.nextDouble();
+            }
+
+            GeoPoint user = GeoPoint.of(-23.5 + random.nextGaussian() * 0.05, -46.6 + random.nextGaussian() * 0.05);
+            assertEquals(scalar.anyWithin(x, y, z, sq, length, user), vector.anyWithin(x, y, z, sq, length, user));
+        }
+    }
+
+    @Test
+    void shouldMatchScalarCrossingCount() {
+        assumeTrue(GeoBatchKernels.isVectorized());
+        GeoBatchKernel vector = GeoBatchKernels.get();
+        Random random = new Random(12);
+
+        for (int n = 0; n < 2_000; n++) {
+            int length = 1 + random.nextInt(40);
+            double[] lat = new double[length];
+            double[] lon = new double[length];
+            double[] otherLon = new double[length];
+            double[] deltaLat = new double[length];
+            double[] deltaLon = new double[length];
+            for (int i = 0; i < length; i++) {
+                lat[i] = random.nextDouble();
+                lon[i] = random.nextDouble();
+                otherLon[i] = random.nextDouble();
+                deltaLat[i] = random.nextDouble() - lat[i];
+                deltaLon[i] = otherLon[i] - lon[i];
+            }
+
+            double pointLat = random.nextDouble();
+            double pointLon = random.nextDouble();
+            assertEquals(
+                    scalar.crossings(lat, lon, otherLon, deltaLat, deltaLon, pointLat, pointLon),
+                    vector.crossings(lat, lon, otherLon, deltaLat, deltaLon, pointLat, pointLon));
+        }
+    }
+}
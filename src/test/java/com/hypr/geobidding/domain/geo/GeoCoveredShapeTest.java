@@ -0,0 +1,71 @@
+package com.hypr.geobidding.domain.geo;
+
+import com.hypr.geobidding.domain.campaign.Campaign;
+import com.hypr.geobidding.domain.campaign.CampaignExclusion;
+import com.hypr.geobidding.repository.campaign.CampaignFixtures;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoCoveredShapeTest {
+
+    @Test
+    void shouldClassifyCenterAsInteriorAndFarPointAsOutside() {
+        GeoCoveredShape covered = (GeoCoveredShape) GeoCoveredShape.cover(new GeoRadiusShape(-23.55, -46.63, 5));
+
+        assertEquals(GeoCellRelation.INSIDE, covered.classify(-23.55, -46.63));
+        assertEquals(GeoCellRelation.OUTSIDE, covered.classify(-22.90, -43.17));
+        assertTrue(covered.cellCount() > 0);
+    }
+
+    @Test
+    void shouldFallBackToExactShapeWhenBaseLevelIsTooLarge() {
+        GeoShape exact = new GeoRadiusShape(-23.55, -46.63, 5);
+
+        assertSame(exact, GeoCoveredShape.cover(exact, 0.05, 6, 4));
+    }
+
+    @Test
+    void shouldAgreeWithExactGeometryForEveryCampaignShape() throws Exception {
+        List<Campaign> campaigns = CampaignFixtures.campaignsJson();
+
+        List<GeoShape> exactShapes = new ArrayList<>();
+        List<GeoShape> coveredShapes = new ArrayList<>();
+
+        for (Campaign campaign : campaigns) {
+            GeoShape targeting = GeoShapeFactory.fromTargeting(campaign.getTargeting());
+            exactShapes.add(((GeoCoveredShape) targeting).getExact());
+            coveredShapes.add(targeting);
+
+            if (campaign.getExclusions() == null) continue;
+            for (CampaignExclusion exclusion : campaign.getExclusions()) {
+                GeoShape shape = GeoShapeFactory.fromExclusion(exclusion);
+                exactShapes.add(((GeoCoveredShape) shape).getExact());
+                coveredShapes.add(shape);
+            }
+        }
+
+        Random random = new Random(7);
+        for (int n = 0; n < 5_000; n++) {
+            double lat = -24.0 + random.nextDouble() * 1.2;
+            double lon = -47.2 + random.nextDouble() * 1.2;
+
+            for (int s = 0; s < exactShapes.size(); s++) {
+                int shape = s;
+                assertEquals(exactShapes.get(s).contains(lat, lon), coveredShapes.get(s).contains(lat, lon),
+                        () -> "shape " + shape + " em " + lat + "," + lon);
+            }
+        }
+    }
+
+    @Test
+    void shouldDetectSegmentCrossingCell() {
+        assertTrue(GeoPolygonShape.segmentIntersectsCell(-1, 0.5, 2, 0.5, 0, 1, 0, 1));
+        assertTrue(GeoPolygonShape.segmentIntersectsCell(0.2, 0.2, 0.3, 0.3, 0, 1, 0, 1));
+        assertFalse(GeoPolygonShape.segmentIntersectsCell(2, 2, 3, 3, 0, 1, 0, 1));
+    }
+}
@@ -0,0 +1,90 @@
+package com.hypr.geobidding.domain.geo;
+
+import com.hypr.geobidding.domain.campaign.CampaignAreaType;
+import com.hypr.geobidding.domain.campaign.CampaignGeoPoint;
+import com.hypr.geobidding.domain.campaign.CampaignRadiusTarget;
+import com.hypr.geobidding.domain.campaign.CampaignTargeting;
+import com.hypr.geobidding.utils.geo.GeoMultiRadiusUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stream do GeoMultiRadiusUtils x loop compilado x ball tree, por número de raios;
+ * o cruzamento das curvas define GeoMultiRadiusShape.BALL_TREE_THRESHOLD.
+ * <p>
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark=GeoMultiRadiusShapeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoMultiRadiusShapeBenchmark {
+
+    private static final int POINTS = 1024;
+
+    @Param({"10", "32", "100", "1000", "10000"})
+    public int targets;
+
+    private CampaignTargeting targeting;
+    private GeoMultiRadiusShape linear;
+    private GeoMultiRadiusShape tree;
+
+    private final double[] lats = new double[POINTS];
+    private final double[] lons = new double[POINTS];
+    private final GeoPoint[] points = new GeoPoint[POINTS];
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        List<GeoRadiusShape> radii = GeoMultiRadiusShapeTest.stores(random, targets, -23.5, -46.6, 2.0);
+
+        List<CampaignRadiusTarget> list = new ArrayList<>(targets);
+        for (GeoRadiusShape radius : radii) {
+            CampaignGeoPoint center = new CampaignGeoPoint();
+            center.setLat(radius.getCenterLat());
+            center.setLon(radius.getCenterLon());
+
+            CampaignRadiusTarget target = new CampaignRadiusTarget();
+            target.setCenter(center);
+            target.setRadiusKm(radius.getRadiusKm());
+            list.add(target);
+        }
+        targeting = new CampaignTargeting();
+        targeting.setType(CampaignAreaType.MULTI_RADIUS);
+        targeting.setTargets(list);
+
+        linear = new GeoMultiRadiusShape(radii, false);
+        tree = new GeoMultiRadiusShape(radii, true);
+
+        for (int i = 0; i < POINTS; i++) {
+            lats[i] = -23.5 + (random.nextDouble() - 0.5) * 2.0;
+            lons[i] = -46.6 + (random.nextDouble() - 0.5) * 2.0;
+            points[i] = GeoPoint.of(lats[i], lons[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean stream() {
+        int i = next++ & (POINTS - 1);
+        return GeoMultiRadiusUtils.isPointInsideAnyRadius(lats[i], lons[i], targeting);
+    }
+
+    @Benchmark
+    public boolean linear() {
+        int i = next++ & (POINTS - 1);
+        return linear.contains(points[i]);
+    }
+
+    @Benchmark
+    public boolean tree() {
+        int i = next++ & (POINTS - 1);
+        return tree.contains(points[i]);
+    }
+}
@@ -0,0 +1,82 @@
+package com.hypr.geobidding.domain.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoMultiRadiusShapeTest {
+
+    /**
+     * Raios de "lojas" espalhados num box, como uma rede de farmácias.
+     */
+    static List<GeoRadiusShape> stores(Random random, int count, double lat, double lon, double spread) {
+        List<GeoRadiusShape> radii = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            radii.add(new GeoRadiusShape(
+                    lat + (random.nextDouble() - 0.5) * spread,
+                    lon + (random.nextDouble() - 0.5) * spread,
+                    0.3 + random.nextDouble() * 3));
+        }
+        return radii;
+    }
+
+    @Test
+    void shouldPickBallTreeAboveThreshold() {
+        Random random = new Random(1);
+
+        assertFalse(new GeoMultiRadiusShape(stores(random, GeoMultiRadiusShape.BALL_TREE_THRESHOLD - 1, 0, 0, 1)).usesBallTree());
+        assertTrue(new GeoMultiRadiusShape(stores(random, GeoMultiRadiusShape.BALL_TREE_THRESHOLD, 0, 0, 1)).usesBallTree());
+    }
+
+    @Test
+    void shouldMatchLinearScanWithBallTree() {
+        Random random = new Random(2);
+
+        for (int count : new int[]{40, 500, 5000}) {
+            List<GeoRadiusShape> radii = stores(random, count, -23.5, -46.6, 2.0);
+            assertSameAnswers(random, radii, -23.5, -46.6, 2.4);
+        }
+    }
+
+    @Test
+    void shouldMatchLinearScanWithHugeTinyAndNegativeRadii() {
+        Random random = new Random(3);
+        List<GeoRadiusShape> radii = stores(random, 100, 10, 179.5, 3.0);
+        radii.add(new GeoRadiusShape(50, 0, 25_000));   // globo inteiro
+        radii.add(new GeoRadiusShape(10, 179.5, 0));
+        radii.add(new GeoRadiusShape(10, 179.6, -5));
+
+        assertSameAnswers(random, radii, 10, 179.5, 4.0);
+        assertTrue(new GeoMultiRadiusShape(radii, true).contains(GeoPoint.of(-80, -100)));
+    }
+
+    @Test
+    void shouldNeverMatchWhenEveryRadiusIsNegative() {
+        List<GeoRadiusShape> radii = List.of(new GeoRadiusShape(0, 0, -1), new GeoRadiusShape(1, 1, -2));
+
+        assertFalse(new GeoMultiRadiusShape(radii, true).contains(GeoPoint.of(0, 0)));
+    }
+
+    private void assertSameAnswers(Random random, List<GeoRadiusShape> radii, double lat, double lon, double spread) {
+        GeoMultiRadiusShape linear = new GeoMultiRadiusShape(radii, false);
+        GeoMultiRadiusShape tree = new GeoMultiRadiusShape(radii, true);
+
+        for (int n = 0; n < 20_000; n++) {
+            GeoPoint point = GeoPoint.of(
+                    lat + (random.nextDouble() - 0.5) * spread,
+                    lon + (random.nextDouble() - 0.5) * spread);
+            assertEquals(linear.contains(point), tree.contains(point),
+                    () -> "divergência em " + point.getLat() + "," + point.getLon());
+        }
+
+        // nas bordas exatas de cada raio
+        for (GeoRadiusShape radius : radii) {
+            GeoPoint center = radius.getCenter();
+            assertEquals(linear.contains(center), tree.contains(center));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.hypr.geobidding.domain.geo;
+
+import com.hypr.geobidding.domain.campaign.CampaignGeoPoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ray casting linear x slabs por número de vértices; o cruzamento das curvas define
+ * GeoPolygonShape.SLAB_VERTEX_THRESHOLD.
+ * <p>
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark=GeoPolygonShapeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoPolygonShapeBenchmark {
+
+    private static final int POINTS = 1024;
+
+    @Param({"8", "16", "32", "48", "64", "128", "512", "5000", "50000"})
+    public int vertices;
+
+    private GeoPolygonShape linear;
+    private GeoPolygonShape slabs;
+
+    private final double[] lats = new double[POINTS];
+    private final double[] lons = new double[POINTS];
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        List<CampaignGeoPoint> coords = GeoPolygonShapeTest.boundaryPolygon(random, vertices, -23.5, -46.6, 0.3);
+
+        linear = new GeoPolygonShape(coords, false);
+        slabs = new GeoPolygonShape(coords, true);
+
+        // pontos dentro do bounding box, onde o loop não é cortado pela rejeição rápida
+        for (int i = 0; i < POINTS; i++) {
+            lats[i] = -23.5 + (random.nextDouble() - 0.5) * 0.5;
+            lons[i] = -46.6 + (random.nextDouble() - 0.5) * 0.5;
+        }
+    }
+
+    @Benchmark
+    public boolean linear() {
+        int i = next++ & (POINTS - 1);
+        return linear.contains(lats[i], lons[i]);
+    }
+
+    @Benchmark
+    public boolean slabs() {
+        int i = next++ & (POINTS - 1);
+        return slabs.contains(lats[i], lons[i]);
+    }
+}
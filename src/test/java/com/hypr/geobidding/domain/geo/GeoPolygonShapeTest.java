@@ -0,0 +1,157 @@
+package com.hypr.geobidding.domain.geo;
+
+import com.hypr.geobidding.domain.campaign.CampaignGeoPoint;
+import com.hypr.geobidding.utils.geo.GeoPolygonUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoPolygonShapeTest {
+
+    private CampaignGeoPoint p(double lat, double lon) {
+        CampaignGeoPoint g = new CampaignGeoPoint();
+        g.setLat(lat);
+        g.setLon(lon);
+        return g;
+    }
+
+    /**
+     * Polígono estrelado (não convexo) fechado, com raio aleatório por vértice.
+     */
+    static List<CampaignGeoPoint> randomPolygon(Random random, int vertices, double lat, double lon, double size) {
+        List<CampaignGeoPoint> coords = new ArrayList<>(vertices + 1);
+        for (int i = 0; i < vertices; i++) {
+            double angle = 2 * Math.PI * i / vertices;
+            double r = size * (0.3 + 0.7 * random.nextDouble());
+            CampaignGeoPoint g = new CampaignGeoPoint();
+            g.setLat(lat + r * Math.sin(angle));
+            g.setLon(lon + r * Math.cos(angle));
+            coords.add(g);
+        }
+        coords.add(coords.get(0));
+        return coords;
+    }
+
+    /**
+     * Contorno ondulado com ruído da ordem do espaçamento entre vértices, parecido com
+     * o limite de um município: cada reta vertical cruza poucas arestas.
+     */
+    static List<CampaignGeoPoint> boundaryPolygon(Random random, int vertices, double lat, double lon, double size) {
+        double phase = random.nextDouble() * Math.PI;
+        double noise = 4 * Math.PI / vertices;
+        List<CampaignGeoPoint> coords = new ArrayList<>(vertices + 1);
+        for (int i = 0; i < vertices; i++) {
+            double angle = 2 * Math.PI * i / vertices;
+            double r = size * (0.7 + 0.2 * Math.sin(7 * angle + phase)) * (1 + noise * (random.nextDouble() - 0.5));
+            CampaignGeoPoint g = new CampaignGeoPoint();
+            g.setLat(lat + r * Math.sin(angle));
+            g.setLon(lon + r * Math.cos(angle));
+            coords.add(g);
+        }
+        coords.add(coords.get(0));
+        return coords;
+    }
+
+    @Test
+    void shouldContainPointInsideSquare() {
+        GeoPolygonShape square = new GeoPolygonShape(List.of(
+                p(0, 0), p(0, 10), p(10, 10), p(10, 0), p(0, 0)
+        ));
+
+        assertTrue(square.contains(5, 5));
+        assertFalse(square.contains(15, 15));
+        assertFalse(square.contains(-1, 5));
+        assertEquals(5, square.vertexCount());
+    }
+
+    @Test
+    void shouldAgreeWithRayCastingOnRandomPolygons() {
+        Random random = new Random(11);
+
+        for (int poly = 0; poly < 50; poly++) {
+            List<CampaignGeoPoint> coords = randomPolygon(random, 5 + random.nextInt(200), -23.5, -46.6, 0.2);
+            GeoPolygonShape shape = new GeoPolygonShape(coords);
+
+            for (int n = 0; n < 2_000; n++) {
+                double lat = -23.8 + random.nextDouble() * 0.6;
+                double lon = -46.9 + random.nextDouble() * 0.6;
+                assertEquals(GeoPolygonUtils.isPointInsidePolygon(lat, lon, coords), shape.contains(lat, lon));
+            }
+
+            // pontos exatamente sobre vértices e sobre as latitudes/longitudes deles
+            for (int i = 0; i < coords.size(); i++) {
+                double lat = coords.get(i).getLat();
+                double lon = coords.get(i).getLon();
+                double otherLat = coords.get((i + 3) % coords.size()).getLat();
+                assertEquals(GeoPolygonUtils.isPointInsidePolygon(lat, lon, coords), shape.contains(lat, lon));
+                assertEquals(GeoPolygonUtils.isPointInsidePolygon(otherLat, lon, coords), shape.contains(otherLat, lon));
+            }
+        }
+    }
+
+    @Test
+    void shouldPickSlabsAboveVertexThreshold() {
+        Random random = new Random(3);
+
+        assertFalse(new GeoPolygonShape(boundaryPolygon(random, 8, 0, 0, 1)).usesSlabs());
+        assertTrue(new GeoPolygonShape(boundaryPolygon(random, GeoPolygonShape.SLAB_VERTEX_THRESHOLD, 0, 0, 1)).usesSlabs());
+    }
+
+    @Test
+    void shouldMatchLinearRayCastingWithSlabs() {
+        Random random = new Random(5);
+
+        for (int poly = 0; poly < 30; poly++) {
+            List<CampaignGeoPoint> coords = boundaryPolygon(random, 50 + random.nextInt(5_000), -23.5, -46.6, 0.3);
+            assertTrue(new GeoPolygonShape(coords).usesSlabs());
+            assertSlabsAgree(random, coords);
+        }
+    }
+
+    @Test
+    void shouldMatchLinearRayCastingOnSnappedAndSelfIntersectingPolygons() {
+        Random random = new Random(9);
+
+        for (int poly = 0; poly < 30; poly++) {
+            // vértices numa grade de 0.01: muitas longitudes e latitudes repetidas
+            List<CampaignGeoPoint> snapped = new ArrayList<>();
+            for (CampaignGeoPoint point : boundaryPolygon(random, 60 + random.nextInt(500), -23.5, -46.6, 0.3)) {
+                snapped.add(p(Math.round(point.getLat() * 100) / 100.0, Math.round(point.getLon() * 100) / 100.0));
+            }
+            assertSlabsAgree(random, snapped);
+
+            // vértices em ordem aleatória: arestas se cruzando
+            List<CampaignGeoPoint> tangled = new ArrayList<>();
+            for (int i = 0; i < 60 + random.nextInt(200); i++) {
+                tangled.add(p(-23.5 + random.nextDouble() * 0.5, -46.6 + random.nextDouble() * 0.5));
+            }
+            tangled.add(tangled.get(0));
+            assertSlabsAgree(random, tangled);
+        }
+    }
+
+    private void assertSlabsAgree(Random random, List<CampaignGeoPoint> coords) {
+        GeoPolygonShape linear = new GeoPolygonShape(coords, false);
+        // polígonos patológicos podem estourar o teto de entradas e cair no loop linear
+        GeoPolygonShape slabs = new GeoPolygonShape(coords, true);
+
+        for (int n = 0; n < 3_000; n++) {
+            double lat = -24.0 + random.nextDouble() * 1.2;
+            double lon = -47.1 + random.nextDouble() * 1.2;
+            assertEquals(linear.contains(lat, lon), slabs.contains(lat, lon));
+        }
+
+        // coordenadas exatas dos vértices, combinadas entre si
+        for (int i = 0; i < 300; i++) {
+            double lon = coords.get(random.nextInt(coords.size())).getLon();
+            for (int j = 0; j < 10; j++) {
+                double lat = coords.get(random.nextInt(coords.size())).getLat();
+                assertEquals(GeoPolygonUtils.isPointInsidePolygon(lat, lon, coords), slabs.contains(lat, lon));
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.hypr.geobidding.domain.geo;
+
+import com.hypr.geobidding.utils.geo.GeoRadiusUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoRadiusShapeTest {
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    @Test
+    void shouldMatchHaversineAwayFromTheBoundary() {
+        Random random = new Random(3);
+
+        for (int n = 0; n < 20_000; n++) {
+            double centerLat = -80 + random.nextDouble() * 160;
+            double centerLon = -180 + random.nextDouble() * 360;
+            double radiusKm = random.nextDouble() * 3000;
+            double lat = -90 + random.nextDouble() * 180;
+            double lon = -180 + random.nextDouble() * 360;
+
+            double distance = haversine(lat, lon, centerLat, centerLon);
+            if (Math.abs(distance - radiusKm) < 1e-6) continue;
+
+            GeoRadiusShape shape = new GeoRadiusShape(centerLat, centerLon, radiusKm);
+            assertEquals(distance <= radiusKm, shape.contains(lat, lon));
+            assertEquals(shape.contains(lat, lon), shape.contains(GeoPoint.of(lat, lon)));
+            assertEquals(shape.contains(lat, lon),
+                    GeoRadiusUtils.isPointInsideRadius(lat, lon, centerLat, centerLon, radiusKm));
+        }
+    }
+
+    @Test
+    void shouldKeepEveryMatchInsideBoundingBoxes() {
+        Random random = new Random(11);
+
+        // latitudes altas e perto do antimeridiano, onde o box equiretangular ficava estreito demais
+        double[][] centers = {{60, 10}, {-75, -60}, {0, 179.9}, {45, -179.95}, {88, 0}};
+        for (double[] c : centers) {
+            GeoRadiusShape shape = new GeoRadiusShape(c[0], c[1], 300);
+            List<double[]> boxes = shape.boundingBoxes();
+
+            for (int n = 0; n < 20_000; n++) {
+                double lat = Math.max(-90, Math.min(90, c[0] + (random.nextDouble() - 0.5) * 12));
+                double lon = c[1] + (random.nextDouble() - 0.5) * 60;
+                if (lon > 180) lon -= 360;
+                if (lon < -180) lon += 360;
+
+                if (shape.contains(lat, lon)) {
+                    assertTrue(insideAny(boxes, lat, lon), "ponto " + lat + "," + lon + " fora do box");
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldSplitBoxAtAntimeridian() {
+        GeoRadiusShape shape = new GeoRadiusShape(0, 179.99, 10);
+        List<double[]> boxes = shape.boundingBoxes();
+
+        assertEquals(2, boxes.size());
+        assertTrue(shape.contains(0, -179.99));
+        assertTrue(insideAny(boxes, 0, -179.99));
+    }
+
+    @Test
+    void shouldCoverAllLongitudesWhenReachingThePole() {
+        List<double[]> boxes = new GeoRadiusShape(89.5, 0, 100).boundingBoxes();
+
+        assertEquals(1, boxes.size());
+        assertEquals(-180.0, boxes.get(0)[2]);
+        assertEquals(180.0, boxes.get(0)[3]);
+        assertEquals(90.0, boxes.get(0)[1]);
+    }
+
+    @Test
+    void shouldOnlyReportInsideForCellsFullyInside() {
+        GeoRadiusShape shape = new GeoRadiusShape(62.0, 25.0, 40);
+        Random random = new Random(5);
+        double size = 0.05;
+
+        for (int la = 0; la < 40; la++) {
+            for (int lo = 0; lo < 80; lo++) {
+                double minLat = 61.6 + la * size;
+                double minLon = 24.0 + lo * size;
+
+                if (shape.relate(minLat, minLat + size, minLon, minLon + size) != GeoCellRelation.INSIDE) continue;
+
+                for (int n = 0; n < 50; n++) {
+                    assertTrue(shape.contains(
+                            minLat + random.nextDouble() * size,
+                            minLon + random.nextDouble() * size));
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldOnlyReportOutsideForCellsFullyOutside() {
+        GeoRadiusShape shape = new GeoRadiusShape(62.0, 25.0, 40);
+        Random random = new Random(6);
+        double size = 0.05;
+        int outsideInBox = 0;
+
+        for (int la = 0; la < 40; la++) {
+            for (int lo = 0; lo < 80; lo++) {
+                double minLat = 61.6 + la * size;
+                double minLon = 24.0 + lo * size;
+
+                if (shape.relate(minLat, minLat + size, minLon, minLon + size) != GeoCellRelation.OUTSIDE) continue;
+                if (insideAny(shape.boundingBoxes(), minLat + size / 2, minLon + size / 2)) outsideInBox++;
+
+                for (int n = 0; n < 50; n++) {
+                    assertFalse(shape.contains(
+                            minLat + random.nextDouble() * size,
+                            minLon + random.nextDouble() * size));
+                }
+            }
+        }
+
+        // cantos do bounding box também são descartados
+        assertTrue(outsideInBox > 0);
+    }
+
+    @Test
+    void shouldNeverMatchNegativeRadius() {
+        GeoRadiusShape shape = new GeoRadiusShape(0, 0, -1);
+
+        assertFalse(shape.contains(0, 0));
+        assertTrue(shape.boundingBoxes().isEmpty());
+    }
+
+    private boolean insideAny(List<double[]> boxes, double lat, double lon) {
+        for (double[] box : boxes) {
+            if (lat >= box[0] && lat <= box[1] && lon >= box[2] && lon <= box[3]) return true;
+        }
+        return false;
+    }
+
+    private double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.pow(Math.sin(dLat / 2), 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+        return EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
@@ -0,0 +1,242 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.hypr.geobidding.domain.campaign.*;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.hypr.geobidding.repository.campaign.CampaignFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CampaignBudgetTest {
+
+    @Test
+    void shouldNeverReserveMoreThanTheCounterHolds() throws Exception {
+        CampaignBudgetCounter counter = new CampaignBudgetCounter(10_000, 8);
+        int threads = 8;
+        AtomicInteger reserved = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            CountDownLatch start = new CountDownLatch(1);
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 5_000; i++) {
+                        if (counter.tryReserve(7)) {
+                            reserved.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // 10_000 / 7 = 1428 reservas; sobra 4, que não cobre mais nenhuma
+        assertEquals(1428, reserved.get());
+        assertEquals(4, counter.remaining());
+    }
+
+    @Test
+    void shouldGatherStripesWhenNoSingleStripeCoversTheAmount() {
+        CampaignBudgetCounter counter = new CampaignBudgetCounter(1_000, 4);
+        assertEquals(4, counter.stripes());
+
+        // cada faixa tem 250: só junta as faixas cobre 900
+        assertTrue(counter.tryReserve(900));
+        assertEquals(100, counter.remaining());
+        assertFalse(counter.tryReserve(101));
+        assertTrue(counter.tryReserve(100));
+        assertEquals(0, counter.remaining());
+    }
+
+    @Test
+    void shouldChargeBidPriceAsCpmAndExhaustOnce() {
+        AtomicInteger notified = new AtomicInteger();
+        // R$ 2,00 de CPM = R$ 0,002 por impressão: R$ 0,005 cobre duas
+        CampaignBudget budget = new CampaignBudget(new BigDecimal("0.005"), null, 2, notified::incrementAndGet);
+
+        assertTrue(budget.tryReserve(2_000_000));
+        assertTrue(budget.tryReserve(2_000_000));
+        assertFalse(budget.isExhausted());
+
+        assertFalse(budget.tryReserve(2_000_000));
+        assertFalse(budget.tryReserve(2_000_000));
+        assertTrue(budget.isExhausted());
+        assertEquals(1, notified.get());
+        assertEquals(1_000_000, budget.getRemainingNanos());
+    }
+
+    @Test
+    void shouldRestoreDailyBudgetButNotTotal() {
+        Campaign daily = radiusWithBudget("daily", 2.0, null, "0.002");
+        Campaign total = radiusWithBudget("total", 2.0, "0.002", null);
+        CampaignBudgetLedger ledger = new CampaignBudgetLedger(List.of(daily, total), 2, () -> {});
+
+        assertTrue(ledger.budgetOf(daily).tryReserve(2_000_000));
+        assertTrue(ledger.budgetOf(total).tryReserve(2_000_000));
+        assertFalse(ledger.budgetOf(daily).tryReserve(2_000_000));
+        assertFalse(ledger.budgetOf(total).tryReserve(2_000_000));
+        assertEquals(2, ledger.getExhaustedCount());
+        assertEquals(2, ledger.getExhaustions());
+
+        assertEquals(1, ledger.resetDaily());
+        assertTrue(ledger.isAvailable(daily));
+        assertFalse(ledger.isAvailable(total));
+        assertTrue(ledger.budgetOf(daily).tryReserve(2_000_000));
+    }
+
+    @Test
+    void shouldKeepCampaignsWithoutBudgetOutOfTheIndex() {
+        Campaign negative = radiusWithBudget("negative", 9.0, "-1", null);
+        Campaign zeroDaily = radiusWithBudget("zero-daily", 8.0, "100", "0");
+        Campaign unlimited = radiusWithBudget("unlimited", 1.0, null, null);
+        CampaignBudgetLedger ledger = new CampaignBudgetLedger(List.of(negative, zeroDaily, unlimited), 2, () -> {});
+
+        CampaignIndex index = CampaignIndex.compile(List.of(negative, zeroDaily, unlimited), ledger);
+        CampaignFormatBucket bucket = index.findBucket(CampaignAdFormat.BANNER);
+
+        assertEquals(1, bucket.size());
+        assertEquals("unlimited", bucket.get(0).getCampaign().getCampaignId());
+        assertFalse(bucket.get(0).getBudget().isLimited());
+        assertEquals(0, ledger.getExhaustions());
+    }
+
+    // ------------------ FATIAS ------------------
+
+    private CampaignBudget leased(String budgetRemaining, int sliceImpressions, long toleranceNanos) {
+        return new CampaignBudget(new BigDecimal(budgetRemaining), null, 4, sliceImpressions, toleranceNanos, 1, () -> {});
+    }
+
+    @Test
+    void shouldSpendFromThreadSliceOnceCampaignIsHot() {
+        // 1 real, impressão de 1_000_000 nano-reais (CPM R$ 1,00), fatia de 10 impressões
+        CampaignBudget budget = leased("1", 10, 100_000_000);
+
+        assertTrue(budget.tryReserve(1_000_000));
+        assertFalse(budget.isHot());
+        budget.maintainLeases();
+        assertTrue(budget.isHot());
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(budget.tryReserve(1_000_000));
+        }
+        // 1 direta + uma fatia de 10 saiu do contador de uma vez
+        assertEquals(1, budget.getLeaseGrants());
+        assertEquals(1_000_000_000L - 11_000_000, budget.getRemainingNanos());
+
+        assertTrue(budget.tryReserve(1_000_000));
+        assertEquals(2, budget.getLeaseGrants());
+        assertEquals(1_000_000_000L - 21_000_000, budget.getRemainingNanos());
+    }
+
+    @Test
+    void shouldReturnSlicesWhenCampaignCoolsDown() {
+        CampaignBudget budget = leased("1", 10, 100_000_000);
+        budget.tryReserve(1_000_000);
+        budget.maintainLeases();
+        budget.tryReserve(1_000_000);
+        assertEquals(1_000_000_000L - 11_000_000, budget.getRemainingNanos());
+
+        // 1 fatia x 10 impressões = 10 reservas no intervalo: continua quente, fatia ativa
+        budget.maintainLeases();
+        assertTrue(budget.isHot());
+        assertEquals(0, budget.getLeaseReclaims());
+
+        // nada no intervalo: esfria e a sobra da fatia volta ao contador
+        budget.maintainLeases();
+        assertFalse(budget.isHot());
+        assertEquals(1, budget.getLeaseReclaims());
+        assertEquals(1_000_000_000L - 2_000_000, budget.getRemainingNanos());
+    }
+
+    @Test
+    void shouldCapSlicesByTolerance() throws Exception {
+        // tolerância de uma fatia: a segunda thread reserva direto no contador
+        CampaignBudget budget = leased("1", 10, 10_000_000);
+        budget.tryReserve(1_000_000);
+        budget.maintainLeases();
+
+        assertTrue(budget.tryReserve(1_000_000));
+        Thread other = new Thread(() -> budget.tryReserve(1_000_000));
+        other.start();
+        other.join();
+
+        assertEquals(1, budget.getLeaseGrants());
+        assertEquals(1_000_000_000L - 12_000_000, budget.getRemainingNanos());
+    }
+
+    @Test
+    void shouldFreeSliceOfDeadThreadForOtherThreads() throws Exception {
+        // tolerância de uma fatia, tomada por uma thread que morreu
+        CampaignBudget budget = leased("1", 10, 10_000_000);
+        budget.tryReserve(1_000_000);
+        budget.maintainLeases();
+
+        Thread dead = new Thread(() -> budget.tryReserve(1_000_000));
+        dead.start();
+        dead.join();
+        assertEquals(1, budget.getLeaseGrants());
+
+        // esfriou: a sobra volta ao contador e a vaga na tolerância é liberada
+        budget.maintainLeases();
+        budget.maintainLeases();
+        assertEquals(1_000_000_000L - 2_000_000, budget.getRemainingNanos());
+
+        budget.tryReserve(1_000_000);
+        budget.maintainLeases();
+        assertTrue(budget.tryReserve(1_000_000));
+        assertEquals(2, budget.getLeaseGrants());
+        assertEquals(1_000_000_000L - 13_000_000, budget.getRemainingNanos());
+    }
+
+    @Test
+    void shouldSpendWholeBudgetThroughSlicesWithoutOverspending() throws Exception {
+        // 1000 impressões de saldo, fatias de 16, tolerância de 8 fatias
+        CampaignBudget budget = leased("1", 16, 8 * 16_000_000L);
+        budget.tryReserve(1_000_000);
+        budget.maintainLeases();
+
+        int threads = 8;
+        AtomicInteger reserved = new AtomicInteger(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            CountDownLatch start = new CountDownLatch(1);
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 1_000; i++) {
+                        if (budget.tryReserve(1_000_000)) {
+                            reserved.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertTrue(budget.isExhausted());
+        assertTrue(budget.getLeaseGrants() > 1);
+        // nunca passa do saldo; o que sobra em fatias fica abaixo da tolerância
+        assertTrue(reserved.get() <= 1_000, "reservas: " + reserved.get());
+        assertTrue(reserved.get() > 1_000 - 8 * 16, "reservas: " + reserved.get());
+    }
+}
@@ -0,0 +1,227 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.hypr.geobidding.domain.campaign.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.hypr.geobidding.repository.campaign.CampaignFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CampaignBudgetTranchesTest {
+
+    // R$ 2,00 de CPM: R$ 0,002 por impressão
+    private static final long IMPRESSION = 2_000_000;
+
+    private CampaignBudgetTranches instance(
+            String id,
+            List<Campaign> campaigns,
+            CampaignBudgetCoordinator coordinator,
+            int trancheImpressions,
+            long exhaustedRetryMs
+    ) {
+        CampaignBudgetLedger ledger = CampaignBudgetLedger.coordinated(campaigns, 2, 0, BigDecimal.ZERO, 0, () -> {});
+        return new CampaignBudgetTranches(ledger, coordinator, id, trancheImpressions, 0.25, exhaustedRetryMs);
+    }
+
+    private CampaignBudget budget(CampaignBudgetTranches tranches) {
+        return tranches.getLedger().budgetAt(0);
+    }
+
+    @Test
+    void shouldStartEmptyAndSpendOnlyGrantedTranches() {
+        List<Campaign> campaigns = List.of(budgetOnly("a", "0.100", null), budgetOnly("free", null, null));
+        LocalCampaignBudgetCoordinator coordinator =
+                new LocalCampaignBudgetCoordinator(new CampaignBudgetLedger(campaigns, 2, () -> {}));
+        CampaignBudgetTranches tranches = instance("i1", campaigns, coordinator, 10, 30_000);
+
+        // sem tranche, a campanha limitada não ganha; a ilimitada segue sem limite
+        assertFalse(tranches.getLedger().isAvailable(campaigns.get(0)));
+        assertTrue(tranches.getLedger().isAvailable(campaigns.get(1)));
+
+        assertEquals(1, tranches.refill());
+        assertEquals(10 * IMPRESSION, budget(tranches).getRemainingNanos());
+        assertEquals(40 * IMPRESSION, coordinator.getLedger().budgetAt(0).getRemainingNanos());
+        assertEquals(10 * IMPRESSION, coordinator.getGrantedByInstance().get("i1"));
+
+        // acima da marca baixa não pede outra
+        assertEquals(0, tranches.refill());
+        assertEquals(1, tranches.getRequests());
+    }
+
+    @Test
+    void shouldNeverSpendMoreThanGlobalBudgetAcrossInstances() throws Exception {
+        List<Campaign> campaigns = List.of(budgetOnly("a", "1.000", "0.600"));
+        LocalCampaignBudgetCoordinator coordinator =
+                new LocalCampaignBudgetCoordinator(new CampaignBudgetLedger(campaigns, 2, () -> {}));
+        List<CampaignBudgetTranches> instances = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            instances.add(instance("i" + i, campaigns, coordinator, 7, 0));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<Long>> wins = new ArrayList<>();
+        for (CampaignBudgetTranches tranches : instances) {
+            pool.submit(() -> {
+                while (running.get()) {
+                    tranches.refill();
+                }
+            });
+            wins.add(pool.submit(() -> {
+                long won = 0;
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+                while (System.nanoTime() < deadline) {
+                    if (budget(tranches).tryReserve(IMPRESSION)) {
+                        won++;
+                    }
+                }
+                return won;
+            }));
+        }
+        long won = 0;
+        for (Future<Long> future : wins) {
+            won += future.get();
+        }
+        running.set(false);
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        // o diário (R$ 0,60) limita: 300 impressões somadas as 4 instâncias
+        assertTrue(won <= 300, "ganhou " + won);
+        assertTrue(won >= 300 - 4 * 7, "ganhou " + won);
+        assertEquals(0, coordinator.getLedger().budgetAt(0).getDailyRemainingNanos());
+    }
+
+    @Test
+    void shouldRestoreExhaustedCampaignOnRefillAndBackOffWhenDenied() {
+        List<Campaign> campaigns = List.of(budgetOnly("a", "0.030", null));
+        LocalCampaignBudgetCoordinator coordinator =
+                new LocalCampaignBudgetCoordinator(new CampaignBudgetLedger(campaigns, 2, () -> {}));
+        CampaignBudgetTranches tranches = instance("i1", campaigns, coordinator, 10, 60_000);
+
+        assertEquals(1, tranches.refill());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(budget(tranches).tryReserve(IMPRESSION));
+        }
+        assertFalse(budget(tranches).tryReserve(IMPRESSION));
+        assertTrue(budget(tranches).isExhausted());
+
+        // a última tranche só tem 5 impressões: o coordenador concede o que sobrou
+        assertEquals(1, tranches.refill());
+        assertEquals(5 * IMPRESSION, budget(tranches).getRemainingNanos());
+        for (int i = 0; i < 5; i++) {
+            assertTrue(budget(tranches).tryReserve(IMPRESSION));
+        }
+        assertFalse(budget(tranches).tryReserve(IMPRESSION));
+
+        // saldo global zerado: nega uma vez e não pergunta de novo até o intervalo passar
+        long requests = tranches.getRequests();
+        assertEquals(0, tranches.refill());
+        assertEquals(0, tranches.refill());
+        assertEquals(requests + 1, tranches.getRequests());
+
+        tranches.retryDenied();
+        tranches.refill();
+        assertEquals(requests + 2, tranches.getRequests());
+    }
+
+    @Test
+    void shouldGiveUnspentBalanceBackOnClose() throws IOException {
+        List<Campaign> campaigns = List.of(budgetOnly("a", "0.100", null));
+        LocalCampaignBudgetCoordinator coordinator =
+                new LocalCampaignBudgetCoordinator(new CampaignBudgetLedger(campaigns, 2, () -> {}));
+        CampaignBudgetTranches tranches = instance("i1", campaigns, coordinator, 10, 30_000);
+
+        tranches.refill();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(budget(tranches).tryReserve(IMPRESSION));
+        }
+        tranches.close();
+
+        assertEquals(47 * IMPRESSION, coordinator.getLedger().budgetAt(0).getRemainingNanos());
+        assertEquals(3 * IMPRESSION, coordinator.getGrantedByInstance().get("i1"));
+        // nada fica para requisições atrasadas na instância que saiu
+        assertFalse(budget(tranches).tryReserve(IMPRESSION));
+    }
+
+    @Test
+    void shouldRejectReturnAboveOutstandingGrant() {
+        List<Campaign> campaigns = List.of(budgetOnly("a", "0.100", null), budgetOnly("b", "0.100", null));
+        LocalCampaignBudgetCoordinator coordinator =
+                new LocalCampaignBudgetCoordinator(new CampaignBudgetLedger(campaigns, 2, () -> {}));
+        coordinator.grant("i1", List.of("a"), new long[]{10 * IMPRESSION});
+
+        // outra instância, outra campanha, acima do concedido (mesmo repetindo o id) ou negativo
+        assertThrows(IllegalArgumentException.class,
+                () -> coordinator.giveBack("i2", List.of("a"), new long[]{IMPRESSION}));
+        assertThrows(IllegalArgumentException.class,
+                () -> coordinator.giveBack("i1", List.of("b"), new long[]{IMPRESSION}));
+        assertThrows(IllegalArgumentException.class,
+                () -> coordinator.giveBack("i1", List.of("a"), new long[]{11 * IMPRESSION}));
+        assertThrows(IllegalArgumentException.class,
+                () -> coordinator.giveBack("i1", List.of("a", "a"), new long[]{6 * IMPRESSION, 6 * IMPRESSION}));
+        assertThrows(IllegalArgumentException.class,
+                () -> coordinator.giveBack("i1", List.of("a"), new long[]{-IMPRESSION}));
+        assertThrows(IllegalArgumentException.class,
+                () -> coordinator.giveBack("i1", List.of("x"), new long[]{IMPRESSION}));
+        assertEquals(40 * IMPRESSION, coordinator.getLedger().budgetAt(0).getRemainingNanos());
+        assertEquals(50 * IMPRESSION, coordinator.getLedger().budgetAt(1).getRemainingNanos());
+
+        coordinator.giveBack("i1", List.of("a"), new long[]{10 * IMPRESSION});
+        assertEquals(50 * IMPRESSION, coordinator.getLedger().budgetAt(0).getRemainingNanos());
+        assertEquals(0, coordinator.getGrantedByInstance().get("i1"));
+        assertThrows(IllegalArgumentException.class,
+                () -> coordinator.giveBack("i1", List.of("a"), new long[]{IMPRESSION}));
+    }
+
+    @Test
+    void shouldNotCreditEarlierDayTrancheToTodaysDailyBalance() {
+        List<Campaign> campaigns = List.of(budgetOnly("a", "1.000", "0.100"));
+        LocalCampaignBudgetCoordinator coordinator =
+                new LocalCampaignBudgetCoordinator(new CampaignBudgetLedger(campaigns, 2, () -> {}));
+        CampaignBudget global = coordinator.getLedger().budgetAt(0);
+
+        coordinator.grant("i1", List.of("a"), new long[]{20 * IMPRESSION});
+        coordinator.getLedger().resetDaily();
+        coordinator.grant("i1", List.of("a"), new long[]{10 * IMPRESSION});
+        assertEquals(40 * IMPRESSION, global.getDailyRemainingNanos());
+
+        // 25 de volta: as 20 de ontem só ao total, 5 de hoje aos dois
+        coordinator.giveBack("i1", List.of("a"), new long[]{25 * IMPRESSION});
+        assertEquals(45 * IMPRESSION, global.getDailyRemainingNanos());
+        assertEquals(495 * IMPRESSION, global.getRemainingNanos());
+
+        coordinator.giveBack("i1", List.of("a"), new long[]{5 * IMPRESSION});
+        assertEquals(50 * IMPRESSION, global.getDailyRemainingNanos());
+        assertEquals(500 * IMPRESSION, global.getRemainingNanos());
+    }
+
+    @Test
+    void shouldKeepLocalBalanceWhenCoordinatorIsDown() {
+        List<Campaign> campaigns = List.of(budgetOnly("a", "0.100", null));
+        CampaignBudgetTranches tranches = instance("i1", campaigns, new CampaignBudgetCoordinator() {
+            @Override
+            public long[] grant(String instanceId, List<String> campaignIds, long[] amounts) throws IOException {
+                throw new IOException("fora");
+            }
+
+            @Override
+            public void giveBack(String instanceId, List<String> campaignIds, long[] amounts) throws IOException {
+                throw new IOException("fora");
+            }
+        }, 10, 30_000);
+
+        assertEquals(0, tranches.refill());
+        assertEquals(1, tranches.getFailures());
+        assertTrue(budget(tranches).isExhausted());
+    }
+}
@@ -0,0 +1,81 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.hypr.geobidding.domain.campaign.*;
+import com.hypr.geobidding.domain.geo.GeoPoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static com.hypr.geobidding.repository.campaign.CampaignFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CampaignCoverageTest {
+
+    private Campaign campaign(String id, double price, double lat, double lon, double radiusKm, CampaignAdFormat format) {
+        Campaign c = radius(id, price, lat, lon, radiusKm);
+        c.setAdFormats(List.of(format));
+        return c;
+    }
+
+    @Test
+    void shouldCoverOnlyCellsAroundTargeting() {
+        CampaignIndex index = CampaignIndex.compile(List.of(
+                campaign("sp", 2.0, -23.55, -46.63, 5, CampaignAdFormat.BANNER)
+        ));
+
+        assertTrue(index.isCovered(-23.55, -46.63));
+        assertFalse(index.isCovered(-3.73, -38.52));     // Fortaleza
+        assertFalse(index.isCovered(Double.NaN, -46.63));
+        assertFalse(index.isCovered(-123.0, -46.63));
+        assertTrue(index.getCoveredCells() <= 4);
+    }
+
+    @Test
+    void shouldNotMarkCornersOfLargeRadiusBox() {
+        CampaignIndex index = CampaignIndex.compile(List.of(
+                campaign("br", 2.0, -15.0, -50.0, 500, CampaignAdFormat.BANNER)
+        ));
+
+        assertTrue(index.isCovered(-15.0, -50.0));
+        // dentro do bounding box (~±4,5°), mas a ~690 km do centro
+        assertFalse(index.isCovered(-10.6, -45.4));
+    }
+
+    @Test
+    void shouldExposeMaxBidPricePerFormat() {
+        CampaignIndex index = CampaignIndex.compile(List.of(
+                campaign("c1", 2.0, -23.55, -46.63, 5, CampaignAdFormat.BANNER),
+                campaign("c2", 3.5, -23.55, -46.63, 5, CampaignAdFormat.BANNER),
+                campaign("c3", 1.0, -23.55, -46.63, 5, CampaignAdFormat.VIDEO)
+        ));
+
+        assertEquals(3_500_000L, index.getMaxBidPriceMicros(CampaignAdFormat.BANNER));
+        assertEquals(1_000_000L, index.getMaxBidPriceMicros(CampaignAdFormat.VIDEO));
+        assertEquals(Long.MIN_VALUE, index.getMaxBidPriceMicros(CampaignAdFormat.NATIVE));
+    }
+
+    @Test
+    void shouldCoverEveryPointWhereSomeCampaignMatches() throws Exception {
+        CampaignIndex index = CampaignIndex.compile(campaignsJson());
+
+        Random random = new Random(7);
+        for (int n = 0; n < 30_000; n++) {
+            double lat = -26.0 + random.nextDouble() * 6.0;
+            double lon = -50.0 + random.nextDouble() * 6.0;
+            GeoPoint user = GeoPoint.of(lat, lon);
+
+            for (CampaignAdFormat format : CampaignAdFormat.values()) {
+                CampaignFormatBucket bucket = index.findBucket(format);
+                if (bucket == null) {
+                    continue;
+                }
+                for (int position = 0; position < bucket.size(); position++) {
+                    if (bucket.get(position).getTargeting().contains(user)) {
+                        assertTrue(index.isCovered(lat, lon), () -> "ponto descartado: " + lat + "," + lon);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hypr.geobidding.domain.campaign.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Campanhas de teste compartilhadas entre os pacotes: as do campaigns.json do classpath e
+ * campanhas BANNER ativas montadas na hora.
+ */
+public final class CampaignFixtures {
+
+    // centro padrão dos raios, em São Paulo
+    public static final double LAT = -23.52;
+    public static final double LON = -46.62;
+
+    private CampaignFixtures() {}
+
+    /**
+     * BANNER a R$ 2,00 sem targeting, com saldos em reais; null é sem limite.
+     */
+    public static Campaign budgetOnly(String id, String budgetRemaining, String dailyBudget) {
+        Campaign c = new Campaign();
+        c.setCampaignId(id);
+        c.setActive(true);
+        c.setAdFormats(List.of(CampaignAdFormat.BANNER));
+        c.setBidPrice(BigDecimal.valueOf(2.0));
+        c.setBudgetRemaining(budgetRemaining == null ? null : new BigDecimal(budgetRemaining));
+        c.setDailyBudget(dailyBudget == null ? null : new BigDecimal(dailyBudget));
+        return c;
+    }
+
+    /**
+     * Raio de radiusKm em volta de (LAT, LON), sem limite de saldo.
+     */
+    public static Campaign radius(String id, double price, double radiusKm) {
+        return radius(id, price, LAT, LON, radiusKm);
+    }
+
+    /**
+     * Raio de radiusKm em volta de (lat, lon), sem limite de saldo.
+     */
+    public static Campaign radius(String id, double price, double lat, double lon, double radiusKm) {
+        CampaignGeoPoint center = new CampaignGeoPoint();
+        center.setLat(lat);
+        center.setLon(lon);
+
+        CampaignTargeting targeting = new CampaignTargeting();
+        targeting.setType(CampaignAreaType.RADIUS);
+        targeting.setCenter(center);
+        targeting.setRadiusKm(radiusKm);
+
+        Campaign c = new Campaign();
+        c.setCampaignId(id);
+        c.setActive(true);
+        c.setAdFormats(List.of(CampaignAdFormat.BANNER));
+        c.setBidPrice(BigDecimal.valueOf(price));
+        c.setTargeting(targeting);
+        return c;
+    }
+
+    /**
+     * Raio de 5 km em volta de (LAT, LON) com saldos em reais; null é sem limite.
+     */
+    public static Campaign radiusWithBudget(String id, double price, String budgetRemaining, String dailyBudget) {
+        Campaign c = radius(id, price, 5.0);
+        c.setBudgetRemaining(budgetRemaining == null ? null : new BigDecimal(budgetRemaining));
+        c.setDailyBudget(dailyBudget == null ? null : new BigDecimal(dailyBudget));
+        return c;
+    }
+
+    public static List<Campaign> campaignsJson() throws IOException {
+        return List.of(new ObjectMapper().readValue(campaignsJsonBytes(), Campaign[].class));
+    }
+
+    public static byte[] campaignsJsonBytes() throws IOException {
+        try (InputStream is = CampaignFixtures.class.getClassLoader().getResourceAsStream("campaigns.json")) {
+            return is.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hypr.geobidding.domain.campaign.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup com e sem o snapshot do índice, em campanhas sintéticas espalhadas pelo Brasil
+ * (70% raio de até 3 km, 30% polígono de até ~3 km). Sem snapshot o restart paga fingerprint,
+ * parseJson e compile; com ele, fingerprint e readSnapshot (campanhas, ledger e índice).
+ * <p>
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark="CampaignIndexSnapshotBenchmark -p campaigns=1000000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx3g"})
+public class CampaignIndexSnapshotBenchmark {
+
+    @Param({"100000"})
+    public int campaigns;
+
+    private final ObjectMapper objectMapper =
+            new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private Path dir;
+    private Path file;
+    private List<Campaign> list;
+    private byte[] json;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(11);
+        CampaignAdFormat[] formats = CampaignAdFormat.values();
+        list = new ArrayList<>(campaigns);
+        for (int i = 0; i < campaigns; i++) {
+            Campaign c = new Campaign();
+            c.setCampaignId("camp_" + i);
+            c.setActive(true);
+            c.setAdFormats(List.of(formats[random.nextInt(formats.length)]));
+            c.setBidPrice(BigDecimal.valueOf(10 + random.nextInt(490), 2));
+            double lat = -30.0 + random.nextDouble() * 25.0;
+            double lon = -55.0 + random.nextDouble() * 20.0;
+            c.setTargeting(random.nextInt(10) < 7
+                    ? radius(lat, lon, 0.2 + random.nextDouble() * 3.0)
+                    : polygon(lat, lon, 0.002 + random.nextDouble() * 0.03, random.nextBoolean() ? 8 : 64));
+            list.add(c);
+        }
+        json = objectMapper.writeValueAsBytes(list);
+
+        dir = Files.createTempDirectory("index-snapshot");
+        file = dir.resolve("campaign-index.bin");
+        CampaignIndexSnapshot.write(file, "fp", list,
+                CampaignIndex.compileAll(list, CampaignSpatialGrid.DEFAULT_CELL_DEGREES, CampaignBudgetLedger.unlimited()));
+    }
+
+    @Benchmark
+    public Campaign[] parseJson() throws IOException {
+        return objectMapper.readValue(json, Campaign[].class);
+    }
+
+    @Benchmark
+    public CampaignIndex compile() {
+        return CampaignIndex.compileAll(list, CampaignSpatialGrid.DEFAULT_CELL_DEGREES, CampaignBudgetLedger.unlimited());
+    }
+
+    @Benchmark
+    public String fingerprint() {
+        return CampaignRepository.fingerprint(json);
+    }
+
+    @Benchmark
+    public CampaignIndex readSnapshot() {
+        CampaignIndexSnapshot snapshot = CampaignIndexSnapshot.read(file, "fp");
+        CampaignBudgetLedger ledger = new CampaignBudgetLedger(snapshot.getCampaigns(), 16, () -> {});
+        return snapshot.toIndex(ledger);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir);
+    }
+
+    private static CampaignTargeting radius(double lat, double lon, double radiusKm) {
+        CampaignTargeting targeting = new CampaignTargeting();
+        targeting.setType(CampaignAreaType.RADIUS);
+        targeting.setCenter(point(lat, lon));
+        targeting.setRadiusKm(radiusKm);
+        return targeting;
+    }
+
+    private static CampaignTargeting polygon(double lat, double lon, double size, int vertices) {
+        List<List<Double>> coords = new ArrayList<>(vertices + 1);
+        for (int v = 0; v < vertices; v++) {
+            double angle = 2 * Math.PI * v / vertices;
+            coords.add(List.of(lat + size * Math.sin(angle), lon + size * Math.cos(angle)));
+        }
+        coords.add(coords.get(0));
+
+        CampaignTargeting targeting = new CampaignTargeting();
+        targeting.setType(CampaignAreaType.POLYGON);
+        targeting.setCoords(coords);
+        return targeting;
+    }
+
+    private static CampaignGeoPoint point(double lat, double lon) {
+        CampaignGeoPoint point = new CampaignGeoPoint();
+        point.setLat(lat);
+        point.setLon(lon);
+        return point;
+    }
+}
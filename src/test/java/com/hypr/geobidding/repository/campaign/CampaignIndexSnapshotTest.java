@@ -0,0 +1,149 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.hypr.geobidding.domain.campaign.*;
+import com.hypr.geobidding.domain.geo.GeoCoveredShape;
+import com.hypr.geobidding.domain.geo.GeoShape;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static com.hypr.geobidding.repository.campaign.CampaignFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CampaignIndexSnapshotTest {
+
+    private static final double CELL = CampaignSpatialGrid.DEFAULT_CELL_DEGREES;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldRestoreSameIndexFromSnapshot() throws Exception {
+        Path file = tempDir.resolve("index.bin");
+        List<Campaign> campaigns = campaignsJson();
+        CampaignIndex compiled = CampaignIndex.compileAll(campaigns, CELL, CampaignBudgetLedger.unlimited());
+        CampaignIndexSnapshot.write(file, "fp", campaigns, compiled);
+
+        CampaignIndexSnapshot snapshot = CampaignIndexSnapshot.read(file, "fp");
+        assertNotNull(snapshot);
+        CampaignIndex restored = snapshot.toIndex(CampaignBudgetLedger.unlimited());
+        assertEquals(compiled.getShapeCount(), restored.getShapeCount());
+        assertEquals(compiled.getCoveredCells(), restored.getCoveredCells());
+
+        for (CampaignAdFormat format : CampaignAdFormat.values()) {
+            CampaignFormatBucket expected = compiled.findBucket(format);
+            CampaignFormatBucket actual = restored.findBucket(format);
+            if (expected == null) {
+                assertNull(actual);
+                continue;
+            }
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertSameFields(expected.get(i).getCampaign(), actual.get(i).getCampaign());
+                assertEquals(expected.get(i).getTargetingId(), actual.get(i).getTargetingId());
+                assertArrayEquals(expected.get(i).getExclusionIds(), actual.get(i).getExclusionIds());
+            }
+            assertEquals(expected.getGrid().cellCount(), actual.getGrid().cellCount());
+            for (int c = 0; c < expected.getGrid().cellCount(); c++) {
+                assertEquals(expected.getGrid().cellKeyAt(c), actual.getGrid().cellKeyAt(c));
+                assertArrayEquals(expected.getGrid().candidatesAt(c), actual.getGrid().candidatesAt(c));
+            }
+            assertArrayEquals(expected.getGrid().wideCandidates(), actual.getGrid().wideCandidates());
+        }
+
+        // cobertura restaurada classifica igual à calculada
+        List<GeoShape> expectedShapes = shapes(compiled);
+        List<GeoShape> actualShapes = shapes(restored);
+        Random random = new Random(7);
+        for (int n = 0; n < 20_000; n++) {
+            double lat = -24.2 + random.nextDouble() * 2.0;
+            double lon = -47.5 + random.nextDouble() * 2.0;
+            assertEquals(compiled.isCovered(lat, lon), restored.isCovered(lat, lon));
+            int s = random.nextInt(expectedShapes.size());
+            assertEquals(expectedShapes.get(s).contains(lat, lon), actualShapes.get(s).contains(lat, lon));
+        }
+    }
+
+    @Test
+    void shouldRestoreCampaignFieldsWithoutJson() throws Exception {
+        Path file = tempDir.resolve("index.bin");
+        List<Campaign> campaigns = new ArrayList<>(campaignsJson());
+        Campaign inactive = radiusWithBudget("sem-orçamento-diário", 1.25, "7.500", null);
+        inactive.setActive(false);
+        inactive.setAdFormats(List.of(CampaignAdFormat.VIDEO, CampaignAdFormat.BANNER));
+        campaigns.add(inactive);
+        CampaignIndexSnapshot.write(file, "fp", campaigns,
+                CampaignIndex.compileAll(campaigns, CELL, CampaignBudgetLedger.unlimited()));
+
+        List<Campaign> restored = CampaignIndexSnapshot.read(file, "fp").getCampaigns();
+        assertEquals(campaigns.size(), restored.size());
+        for (int i = 0; i < campaigns.size(); i++) {
+            assertSameFields(campaigns.get(i), restored.get(i));
+            assertEquals(campaigns.get(i).isActive(), restored.get(i).isActive());
+        }
+        assertNull(restored.get(restored.size() - 1).getDailyBudget());
+    }
+
+    @Test
+    void shouldIgnoreSnapshotOfAnotherFileOrTruncated() throws Exception {
+        Path file = tempDir.resolve("index.bin");
+        List<Campaign> campaigns = campaignsJson();
+        CampaignIndexSnapshot.write(file, "old", campaigns,
+                CampaignIndex.compileAll(campaigns, CELL, CampaignBudgetLedger.unlimited()));
+
+        assertNull(CampaignIndexSnapshot.read(file, "new"));
+        assertNull(CampaignIndexSnapshot.read(tempDir.resolve("missing.bin"), "old"));
+
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length / 2));
+        assertNull(CampaignIndexSnapshot.read(file, "old"));
+    }
+
+    @Test
+    void shouldKeepExhaustedCampaignsInSnapshotIndex() throws Exception {
+        Path file = tempDir.resolve("index.bin");
+        List<Campaign> campaigns = List.of(radiusWithBudget("broke", 3.0, "0", null), radiusWithBudget("ok", 1.0, "10", null));
+        CampaignIndexSnapshot.write(file, "fp", campaigns,
+                CampaignIndex.compileAll(campaigns, CELL, new CampaignBudgetLedger(campaigns, 2, () -> {})));
+
+        // o saldo de agora não invalida o arquivo: a esgotada fica no índice e é pulada
+        CampaignIndexSnapshot snapshot = CampaignIndexSnapshot.read(file, "fp");
+        assertNotNull(snapshot);
+        CampaignBudgetLedger ledger = new CampaignBudgetLedger(snapshot.getCampaigns(), 2, () -> {});
+        CampaignIndex restored = snapshot.toIndex(ledger);
+        CampaignFormatBucket bucket = restored.findBucket(CampaignAdFormat.BANNER);
+        assertEquals(2, bucket.size());
+        assertTrue(bucket.get(0).isExhausted());
+        assertFalse(bucket.get(1).isExhausted());
+
+        // a recompilação só filtra o índice do load (as campanhas do snapshot não têm targeting): sai
+        assertEquals(1, restored.withoutExhausted().size(CampaignAdFormat.BANNER));
+    }
+
+    // o snapshot guarda só o que índice, ledger e respostas usam
+    private void assertSameFields(Campaign expected, Campaign actual) {
+        assertEquals(expected.getCampaignId(), actual.getCampaignId());
+        assertEquals(expected.getBidPrice(), actual.getBidPrice());
+        assertEquals(expected.getBudgetRemaining(), actual.getBudgetRemaining());
+        assertEquals(expected.getDailyBudget(), actual.getDailyBudget());
+        // ad_formats volta na ordem do enum
+        assertEquals(Set.copyOf(expected.getAdFormats()), Set.copyOf(actual.getAdFormats()));
+    }
+
+    private List<GeoShape> shapes(CampaignIndex index) {
+        List<GeoShape> shapes = new ArrayList<>();
+        for (int id = 0; id < index.getShapeCount(); id++) {
+            shapes.add(index.getShapes().get(id));
+        }
+        // os shapes do campaigns.json cabem na cobertura: o teste cobre a restauração de verdade
+        assertTrue(shapes.stream().anyMatch(GeoCoveredShape.class::isInstance));
+        return shapes;
+    }
+}
@@ -0,0 +1,167 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.hypr.geobidding.domain.campaign.*;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CampaignIndexTest {
+
+    private Campaign campaign(String id, double price, boolean active, CampaignAdFormat... formats) {
+        CampaignGeoPoint center = new CampaignGeoPoint();
+        center.setLat(-23.5);
+        center.setLon(-46.6);
+
+        CampaignTargeting targeting = new CampaignTargeting();
+        targeting.setType(CampaignAreaType.RADIUS);
+        targeting.setCenter(center);
+        targeting.setRadiusKm(1.0);
+
+        Campaign c = new Campaign();
+        c.setCampaignId(id);
+        c.setActive(active);
+        c.setBidPrice(BigDecimal.valueOf(price));
+        c.setAdFormats(List.of(formats));
+        c.setTargeting(targeting);
+        return c;
+    }
+
+    @Test
+    void shouldSortBucketByBidPriceDescending() {
+        CampaignIndex index = CampaignIndex.compile(List.of(
+                campaign("c1", 1.0, true, CampaignAdFormat.BANNER),
+                campaign("c2", 3.0, true, CampaignAdFormat.BANNER),
+                campaign("c3", 2.0, true, CampaignAdFormat.BANNER)
+        ));
+
+        CampaignFormatBucket bucket = index.findBucket(CampaignAdFormat.BANNER);
+
+        assertEquals(3, bucket.size());
+        assertEquals("c2", bucket.get(0).getCampaign().getCampaignId());
+        assertEquals("c3", bucket.get(1).getCampaign().getCampaignId());
+        assertEquals("c1", bucket.get(2).getCampaign().getCampaignId());
+        assertEquals(3_000_000L, bucket.getMaxBidPriceMicros());
+        assertEquals(1_000_000L, bucket.getBidPriceMicros(2));
+    }
+
+    @Test
+    void shouldKeepFileOrderOnTies() {
+        CampaignIndex index = CampaignIndex.compile(List.of(
+                campaign("first", 2.0, true, CampaignAdFormat.VIDEO),
+                campaign("second", 2.0, true, CampaignAdFormat.VIDEO)
+        ));
+
+        assertEquals("first", index.findBucket(CampaignAdFormat.VIDEO).get(0).getCampaign().getCampaignId());
+    }
+
+    @Test
+    void shouldBucketCampaignUnderEachOfItsFormatsOnce() {
+        CampaignIndex index = CampaignIndex.compile(List.of(
+                campaign("c1", 1.0, true, CampaignAdFormat.BANNER, CampaignAdFormat.VIDEO, CampaignAdFormat.BANNER)
+        ));
+
+        assertEquals(1, index.size(CampaignAdFormat.BANNER));
+        assertEquals(1, index.size(CampaignAdFormat.VIDEO));
+        assertNull(index.findBucket(CampaignAdFormat.NATIVE));
+    }
+
+    @Test
+    void shouldInternIdenticalGeometriesIntoOneShape() {
+        CampaignGeoPoint center = new CampaignGeoPoint();
+        center.setLat(-23.5);
+        center.setLon(-46.6);
+
+        // mesma geometria do targeting dos flights: divide o shape também
+        CampaignExclusion exclusion = new CampaignExclusion();
+        exclusion.setType(CampaignAreaType.RADIUS);
+        exclusion.setCenter(center);
+        exclusion.setRadiusKm(1.0);
+
+        Campaign flight1 = campaign("f1", 2.0, true, CampaignAdFormat.BANNER);
+        Campaign flight2 = campaign("f2", 1.0, true, CampaignAdFormat.BANNER);
+        Campaign other = campaign("other", 3.0, true, CampaignAdFormat.BANNER);
+        other.getTargeting().setRadiusKm(2.0);
+        other.setExclusions(List.of(exclusion));
+
+        CampaignIndex index = CampaignIndex.compile(List.of(flight1, flight2, other));
+        CampaignFormatBucket bucket = index.findBucket(CampaignAdFormat.BANNER);
+
+        CompiledCampaign o = bucket.get(0);
+        CompiledCampaign f1 = bucket.get(1);
+        CompiledCampaign f2 = bucket.get(2);
+
+        assertEquals(f1.getTargetingId(), f2.getTargetingId());
+        assertSame(f1.getTargeting(), f2.getTargeting());
+        assertNotEquals(f1.getTargetingId(), o.getTargetingId());
+        assertArrayEquals(new int[]{f1.getTargetingId()}, o.getExclusionIds());
+
+        // vazio + 2 raios
+        assertEquals(3, index.getShapeCount());
+    }
+
+    @Test
+    void shouldSkipInactiveAndUntargetedCampaigns() {
+        Campaign untargeted = campaign("c2", 5.0, true, CampaignAdFormat.BANNER);
+        untargeted.setTargeting(null);
+
+        CampaignIndex index = CampaignIndex.compile(List.of(
+                campaign("c1", 5.0, false, CampaignAdFormat.BANNER),
+                untargeted
+        ));
+
+        assertNull(index.findBucket(CampaignAdFormat.BANNER));
+    }
+
+    @Test
+    void shouldFilterExhaustedCampaignsLikeAFullCompile() throws Exception {
+        List<Campaign> campaigns = CampaignFixtures.campaignsJson();
+        CampaignBudgetLedger ledger = new CampaignBudgetLedger(campaigns, 2, () -> {});
+        CampaignIndex base = CampaignIndex.compileAll(campaigns, CampaignSpatialGrid.DEFAULT_CELL_DEGREES, ledger);
+        base.materializeWinnerTables();
+        assertSame(base, base.withoutExhausted());
+
+        for (int i = 0; i < campaigns.size(); i += 3) {
+            CampaignBudget budget = ledger.budgetOf(campaigns.get(i));
+            budget.grant(Long.MAX_VALUE);
+            assertFalse(budget.tryReserve(1));
+        }
+        CampaignIndex filtered = base.withoutExhausted();
+        CampaignIndex compiled = CampaignIndex.compile(campaigns, ledger);
+
+        Random random = new Random(5);
+        int pure = 0;
+        for (CampaignAdFormat format : CampaignAdFormat.values()) {
+            CampaignFormatBucket expected = compiled.findBucket(format);
+            CampaignFormatBucket actual = filtered.findBucket(format);
+            if (expected == null) {
+                assertNull(actual);
+                continue;
+            }
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertSame(expected.get(i).getCampaign(), actual.get(i).getCampaign());
+            }
+            assertEquals(compiled.getMaxBidPriceMicros(format), filtered.getMaxBidPriceMicros(format));
+            assertArrayEquals(expected.getGrid().wideCandidates(), actual.getGrid().wideCandidates());
+
+            for (int n = 0; n < 20_000; n++) {
+                double lat = -24.2 + random.nextDouble() * 2.0;
+                double lon = -47.5 + random.nextDouble() * 2.0;
+                assertArrayEquals(expected.getGrid().candidates(lat, lon), actual.getGrid().candidates(lat, lon));
+
+                // vencedora renumerada ou resolvida de novo: a mesma da compilação completa
+                int expectedWinner = expected.getWinnerTable().winnerAt(expected.getGrid().cellIndex(lat, lon));
+                int actualWinner = actual.getWinnerTable().winnerAt(actual.getGrid().cellIndex(lat, lon));
+                if (expectedWinner != CampaignWinnerTable.AMBIGUOUS && actualWinner != CampaignWinnerTable.AMBIGUOUS) {
+                    assertEquals(expectedWinner, actualWinner);
+                    pure++;
+                }
+            }
+        }
+        assertTrue(pure > 0);
+    }
+}
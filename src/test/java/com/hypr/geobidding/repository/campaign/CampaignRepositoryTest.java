@@ -0,0 +1,155 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hypr.geobidding.config.campaign.CampaignBudgetProperties;
+import com.hypr.geobidding.config.campaign.CampaignIndexSnapshotProperties;
+import com.hypr.geobidding.config.campaign.CampaignWinnerTableProperties;
+import com.hypr.geobidding.domain.campaign.Campaign;
+import com.hypr.geobidding.domain.campaign.CampaignAdFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CampaignRepositoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private CampaignRepository repository() {
+        return repository(new CampaignIndexSnapshotProperties());
+    }
+
+    private CampaignRepository repository(CampaignIndexSnapshotProperties snapshot) {
+        CampaignWinnerTableProperties winnerTables = new CampaignWinnerTableProperties();
+        winnerTables.setPath(tempDir.resolve("winners.bin").toString());
+
+        CampaignBudgetProperties budgets = new CampaignBudgetProperties();
+        budgets.getLease().setEnabled(false);
+        budgets.getJournal().setPath(tempDir.resolve("spend.journal").toString());
+        budgets.getJournal().setChunkRecords(1024);
+
+        return new CampaignRepository(
+                new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false),
+                winnerTables,
+                budgets,
+                snapshot
+        );
+    }
+
+    @Test
+    void shouldKeepWinnerTablesAlignedWhenJournalExhaustsCampaignOnRestart() throws Exception {
+        CampaignRepository first = repository();
+        first.load();
+        assertTrue(Files.exists(tempDir.resolve("winners.bin")));
+
+        // campanha mais cara que a vencedora de alguma célula pura e cuja saída não muda a
+        // contagem de células: a tabela antiga passaria pelas checagens do arquivo, só com as
+        // posições deslocadas
+        Campaign exhausted = null;
+        for (CampaignAdFormat format : CampaignAdFormat.values()) {
+            CampaignFormatBucket bucket = first.getIndex().findBucket(format);
+            if (bucket == null) {
+                continue;
+            }
+            int lastWinner = -1;
+            for (int cell = 0; cell < bucket.getWinnerTable().cellCount(); cell++) {
+                lastWinner = Math.max(lastWinner, bucket.getWinnerTable().winnerAt(cell));
+            }
+            for (int position = 0; position < lastWinner && exhausted == null; position++) {
+                if (keepsCellCounts(first, bucket.get(position).getCampaign())) {
+                    exhausted = bucket.get(position).getCampaign();
+                }
+            }
+        }
+        assertNotNull(exhausted);
+        assertTrue(first.getLedger().budgetOf(exhausted).grant(Long.MAX_VALUE) > 0);
+        first.close();
+
+        CampaignRepository second = repository();
+        second.load();
+        try {
+            String exhaustedId = exhausted.getCampaignId();
+            Campaign reloaded = second.findAll().stream()
+                    .filter(c -> c.getCampaignId().equals(exhaustedId))
+                    .findFirst()
+                    .orElseThrow();
+            assertTrue(second.getLedger().budgetOf(reloaded).isExhausted());
+
+            // o índice do load, antes da recompilação que tira a esgotada: a tabela lida do
+            // arquivo aponta para as mesmas campanhas que uma recalculada
+            String fingerprint = CampaignRepository.fingerprint(CampaignFixtures.campaignsJsonBytes());
+            CampaignIndex index = second.loadIndex(second.findAll(), second.getLedger(), null, fingerprint);
+            second.loadWinnerTables(index, fingerprint);
+            for (CampaignAdFormat format : CampaignAdFormat.values()) {
+                CampaignFormatBucket bucket = index.findBucket(format);
+                if (bucket == null) {
+                    continue;
+                }
+                CampaignWinnerTable expected = CampaignWinnerTable.build(bucket);
+                CampaignWinnerTable actual = bucket.getWinnerTable();
+                assertEquals(expected.cellCount(), actual.cellCount());
+                for (int cell = 0; cell < expected.cellCount(); cell++) {
+                    assertEquals(expected.winnerAt(cell), actual.winnerAt(cell), format + " célula " + cell);
+                }
+            }
+        } finally {
+            second.close();
+        }
+    }
+
+    @Test
+    void shouldLoadCampaignsFromSnapshotWithoutJsonOnRestart() throws Exception {
+        CampaignIndexSnapshotProperties snapshot = new CampaignIndexSnapshotProperties();
+        snapshot.setPath(tempDir.resolve("campaign-index.bin").toString());
+
+        CampaignRepository first = repository(snapshot);
+        first.load();
+        first.close();
+        assertTrue(Files.exists(tempDir.resolve("campaign-index.bin")));
+
+        CampaignRepository second = repository(snapshot);
+        second.load();
+        try {
+            // campanhas do snapshot: sem targeting, que só a compilação usa
+            assertEquals(first.findAll().size(), second.findAll().size());
+            assertTrue(second.findAll().stream().allMatch(c -> c.getTargeting() == null));
+            for (CampaignAdFormat format : CampaignAdFormat.values()) {
+                assertEquals(first.getIndex().size(format), second.getIndex().size(format));
+                CampaignFormatBucket expected = first.getIndex().findBucket(format);
+                CampaignFormatBucket actual = second.getIndex().findBucket(format);
+                for (int i = 0; expected != null && i < expected.size(); i++) {
+                    assertEquals(expected.get(i).getCampaign().getCampaignId(), actual.get(i).getCampaign().getCampaignId());
+                    assertEquals(expected.get(i).getCampaign().getBidPrice(), actual.get(i).getCampaign().getBidPrice());
+                }
+            }
+        } finally {
+            second.close();
+        }
+    }
+
+    private boolean keepsCellCounts(CampaignRepository repository, Campaign removed) {
+        List<Campaign> others = repository.findAll().stream().filter(c -> c != removed).toList();
+        CampaignIndex without = CampaignIndex.compileAll(
+                others, CampaignSpatialGrid.DEFAULT_CELL_DEGREES, CampaignBudgetLedger.unlimited());
+        for (CampaignAdFormat format : CampaignAdFormat.values()) {
+            CampaignFormatBucket expected = repository.getIndex().findBucket(format);
+            CampaignFormatBucket actual = without.findBucket(format);
+            if (expected == null || actual == null) {
+                if (expected != actual) {
+                    return false;
+                }
+                continue;
+            }
+            if (expected.getGrid().cellCount() != actual.getGrid().cellCount()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,109 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.hypr.geobidding.domain.campaign.*;
+import com.hypr.geobidding.domain.geo.GeoShapeFactory;
+import com.hypr.geobidding.utils.geo.GeoMultiRadiusUtils;
+import com.hypr.geobidding.utils.geo.GeoPolygonUtils;
+import com.hypr.geobidding.utils.geo.GeoRadiusUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CampaignSpatialGridTest {
+
+    private CampaignTargeting radius(double lat, double lon, double km) {
+        CampaignGeoPoint center = new CampaignGeoPoint();
+        center.setLat(lat);
+        center.setLon(lon);
+
+        CampaignTargeting t = new CampaignTargeting();
+        t.setType(CampaignAreaType.RADIUS);
+        t.setCenter(center);
+        t.setRadiusKm(km);
+        return t;
+    }
+
+    @Test
+    void shouldReturnOnlyCampaignsAroundThePoint() {
+        CampaignSpatialGrid.Builder builder = CampaignSpatialGrid.builder(0.05);
+        builder.add(0, GeoShapeFactory.fromTargeting(radius(-23.55, -46.63, 2)));   // São Paulo
+        builder.add(1, GeoShapeFactory.fromTargeting(radius(-22.90, -43.17, 2)));   // Rio
+        CampaignSpatialGrid grid = builder.build();
+
+        assertArrayEquals(new int[]{0}, grid.candidates(-23.55, -46.63));
+        assertArrayEquals(new int[]{1}, grid.candidates(-22.90, -43.17));
+        assertEquals(0, grid.candidates(-3.73, -38.52).length);   // Fortaleza
+    }
+
+    @Test
+    void shouldSendHugeAreasToWideList() {
+        CampaignSpatialGrid.Builder builder = CampaignSpatialGrid.builder(0.05);
+        builder.add(0, GeoShapeFactory.fromTargeting(radius(-23.55, -46.63, 2000)));
+        CampaignSpatialGrid grid = builder.build();
+
+        assertEquals(0, grid.cellCount());
+        assertArrayEquals(new int[]{0}, grid.wideCandidates());
+    }
+
+    @Test
+    void shouldIgnoreInvalidPolygon() {
+        CampaignTargeting t = new CampaignTargeting();
+        t.setType(CampaignAreaType.POLYGON);
+        t.setCoords(List.of(List.of(1.0, 2.0), List.of(3.0, 4.0)));
+
+        CampaignSpatialGrid.Builder builder = CampaignSpatialGrid.builder(0.05);
+        builder.add(0, GeoShapeFactory.fromTargeting(t));
+        CampaignSpatialGrid grid = builder.build();
+
+        assertEquals(0, grid.cellCount());
+        assertEquals(0, grid.wideCandidates().length);
+    }
+
+    @Test
+    void shouldNeverPruneACampaignWhoseTargetingMatches() throws Exception {
+        Campaign[] campaigns = CampaignFixtures.campaignsJson().toArray(new Campaign[0]);
+
+        CampaignSpatialGrid.Builder builder = CampaignSpatialGrid.builder(0.05);
+        for (int i = 0; i < campaigns.length; i++) {
+            builder.add(i, GeoShapeFactory.fromTargeting(campaigns[i].getTargeting()));
+        }
+        CampaignSpatialGrid grid = builder.build();
+
+        Random random = new Random(42);
+        for (int n = 0; n < 20_000; n++) {
+            double lat = -24.0 + random.nextDouble() * 1.2;
+            double lon = -47.2 + random.nextDouble() * 1.2;
+            int[] candidates = grid.candidates(lat, lon);
+
+            for (int i = 0; i < campaigns.length; i++) {
+                if (matches(lat, lon, campaigns[i].getTargeting())) {
+                    String id = campaigns[i].getCampaignId();
+                    assertTrue(contains(candidates, i) || contains(grid.wideCandidates(), i),
+                            () -> "campanha " + id + " podada em " + lat + "," + lon);
+                }
+            }
+        }
+    }
+
+    private boolean matches(double lat, double lon, CampaignTargeting t) {
+        switch (t.getType()) {
+            case RADIUS:
+                return GeoRadiusUtils.isPointInsideRadius(lat, lon,
+                        t.getCenter().getLat(), t.getCenter().getLon(), t.getRadiusKm());
+            case MULTI_RADIUS:
+                return GeoMultiRadiusUtils.isPointInsideAnyRadius(lat, lon, t);
+            default:
+                return GeoPolygonUtils.isPointInsidePolygon(lat, lon, t.getCampaignCoords());
+        }
+    }
+
+    private boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) return true;
+        }
+        return false;
+    }
+}
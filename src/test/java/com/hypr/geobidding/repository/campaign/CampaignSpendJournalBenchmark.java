@@ -0,0 +1,63 @@
+package com.hypr.geobidding.repository.campaign;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recuperação do diário de gasto no restart: 100M registros são 1,6 GB em disco, lidos
+ * sequencialmente pelo mapeamento. O esperado é ficar na casa de poucos segundos com o
+ * arquivo no page cache.
+ * <p>
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark="CampaignSpendJournalBenchmark -p records=100000000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class CampaignSpendJournalBenchmark {
+
+    private static final int CAMPAIGNS = 10_000;
+
+    @Param({"10000000"})
+    public long records;
+
+    private Path dir;
+    private Path file;
+    private List<String> ids;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("spend-journal");
+        file = dir.resolve("spend.journal");
+        ids = new ArrayList<>(CAMPAIGNS);
+        for (int i = 0; i < CAMPAIGNS; i++) {
+            ids.add("camp_" + i);
+        }
+
+        CampaignSpendJournal journal = CampaignSpendJournal.create(
+                file, "fp", ids, 1, 4 * 1024 * 1024, slot -> 0, slot -> 0);
+        for (long i = 0; i < records; i++) {
+            journal.append((int) (i % CAMPAIGNS), 2_000_000, true);
+        }
+        journal.close();
+    }
+
+    @Benchmark
+    public long recover() throws IOException {
+        return CampaignSpendJournal.recover(file, "fp", ids, 1).records;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir);
+    }
+}
@@ -0,0 +1,144 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.hypr.geobidding.domain.campaign.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.hypr.geobidding.repository.campaign.CampaignFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CampaignSpendJournalTest {
+
+    private static final int TODAY = 20_000;
+
+    @TempDir
+    Path tempDir;
+
+    private CampaignSpendJournal open(Path file, List<String> ids, long[] total, long[] daily) throws IOException {
+        return CampaignSpendJournal.create(file, "fp", ids, TODAY, 4, slot -> total[slot], slot -> daily[slot]);
+    }
+
+    @Test
+    void shouldRecoverAppendedSpendAcrossChunks() throws IOException {
+        Path file = tempDir.resolve("spend.journal");
+        List<String> ids = List.of("a", "b");
+        CampaignSpendJournal journal = open(file, ids, new long[2], new long[2]);
+
+        // 4 registros por pedaço: 10 anexos mapeiam 3 pedaços
+        for (int i = 0; i < 10; i++) {
+            journal.append(i % 2, 100, true);
+        }
+        journal.append(0, -50, true);
+        // devolução de fatia de um dia anterior: só no total
+        journal.append(1, -30, false);
+        journal.close();
+
+        CampaignSpendJournal.Recovery recovery = CampaignSpendJournal.recover(file, "fp", ids, TODAY);
+        assertEquals(12, recovery.records);
+        assertArrayEquals(new long[]{450, 470}, recovery.totalSpent);
+        assertArrayEquals(new long[]{450, 500}, recovery.dailySpent);
+
+        // outro dia: o gasto do dia anterior não conta mais no diário
+        CampaignSpendJournal.Recovery nextDay = CampaignSpendJournal.recover(file, "fp", ids, TODAY + 1);
+        assertArrayEquals(new long[]{450, 470}, nextDay.totalSpent);
+        assertArrayEquals(new long[]{0, 0}, nextDay.dailySpent);
+    }
+
+    @Test
+    void shouldMapSlotsByCampaignIdAndDropTotalsWhenFileChanged() throws IOException {
+        Path file = tempDir.resolve("spend.journal");
+        CampaignSpendJournal journal = open(file, List.of("a", "gone", "b"), new long[3], new long[3]);
+        journal.append(0, 10, true);
+        journal.append(1, 20, true);
+        journal.append(2, 30, true);
+        journal.close();
+
+        CampaignSpendJournal.Recovery recovery = CampaignSpendJournal.recover(file, "fp", List.of("b", "a", "new"), TODAY);
+        assertArrayEquals(new long[]{30, 10, 0}, recovery.totalSpent);
+
+        // campaigns.json novo: budget_remaining já é o saldo, só o gasto do dia volta
+        CampaignSpendJournal.Recovery changed = CampaignSpendJournal.recover(file, "other", List.of("b", "a"), TODAY);
+        assertArrayEquals(new long[]{0, 0}, changed.totalSpent);
+        assertArrayEquals(new long[]{30, 10}, changed.dailySpent);
+    }
+
+    @Test
+    void shouldKeepBalancesAfterCompaction() throws IOException {
+        Path file = tempDir.resolve("spend.journal");
+        List<String> ids = List.of("a");
+        long[] total = {0};
+        long[] daily = {0};
+        CampaignSpendJournal journal = open(file, ids, total, daily);
+        for (int i = 0; i < 9; i++) {
+            journal.append(0, 100, true);
+        }
+        assertEquals(9, journal.getRecords());
+
+        // 300 do dia anterior (só total) e 600 de hoje
+        total[0] = 900;
+        daily[0] = 600;
+        journal.compact(slot -> total[slot], slot -> daily[slot]);
+        assertEquals(0, journal.getRecords());
+        journal.append(0, 100, true);
+        journal.close();
+
+        assertFalse(Files.exists(tempDir.resolve("spend.journal.compact")));
+        CampaignSpendJournal.Recovery recovery = CampaignSpendJournal.recover(file, "fp", ids, TODAY);
+        assertEquals(1000, recovery.totalSpent[0]);
+        assertEquals(700, recovery.dailySpent[0]);
+    }
+
+    @Test
+    void shouldSumOldAndNewFilesWhenCompactionWasInterrupted() throws IOException {
+        Path file = tempDir.resolve("spend.journal");
+        List<String> ids = List.of("a");
+        CampaignSpendJournal journal = open(file, ids, new long[1], new long[1]);
+        journal.append(0, 100, true);
+        journal.append(0, 100, true);
+        journal.flush();
+
+        // anexo durante a troca e queda antes de o snapshot ficar completo
+        assertThrows(IllegalStateException.class, () -> journal.compact(
+                slot -> {
+                    journal.append(0, 50, true);
+                    throw new IllegalStateException("queda");
+                },
+                slot -> 0));
+        journal.close();
+        assertTrue(Files.exists(tempDir.resolve("spend.journal.compact")));
+
+        CampaignSpendJournal.Recovery recovery = CampaignSpendJournal.recover(file, "fp", ids, TODAY);
+        assertEquals(250, recovery.totalSpent[0]);
+        assertFalse(Files.exists(tempDir.resolve("spend.journal.compact")));
+    }
+
+    @Test
+    void shouldRestoreLedgerBalancesAfterRestart() throws IOException {
+        Path file = tempDir.resolve("spend.journal");
+        // R$ 2,00 de CPM: R$ 0,002 por impressão
+        List<Campaign> campaigns = List.of(budgetOnly("a", "0.010", null), budgetOnly("b", null, "0.004"));
+
+        CampaignBudgetLedger ledger = new CampaignBudgetLedger(campaigns, 2, () -> {});
+        CampaignSpendJournal journal = CampaignSpendJournal.create(file, "fp", ledger.getCampaignIds(), TODAY, 64,
+                ledger::getTotalSpentNanos, ledger::getDailySpentNanos);
+        ledger.attach(journal);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(ledger.budgetOf(campaigns.get(0)).tryReserve(2_000_000));
+        }
+        assertTrue(ledger.budgetOf(campaigns.get(1)).tryReserve(2_000_000));
+        assertTrue(ledger.budgetOf(campaigns.get(1)).tryReserve(2_000_000));
+        journal.close();
+
+        CampaignBudgetLedger restarted = new CampaignBudgetLedger(campaigns, 2, () -> {});
+        restarted.restore(CampaignSpendJournal.recover(file, "fp", restarted.getCampaignIds(), TODAY));
+
+        assertEquals(4_000_000, restarted.budgetOf(campaigns.get(0)).getRemainingNanos());
+        assertFalse(restarted.isAvailable(campaigns.get(1)));
+        assertEquals(0, restarted.getExhaustions());
+    }
+}
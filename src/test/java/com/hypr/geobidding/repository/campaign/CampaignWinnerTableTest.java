@@ -0,0 +1,133 @@
+package com.hypr.geobidding.repository.campaign;
+
+import com.hypr.geobidding.domain.campaign.*;
+import com.hypr.geobidding.domain.geo.GeoPoint;
+import com.hypr.geobidding.domain.geo.GeoShape;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static com.hypr.geobidding.repository.campaign.CampaignFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CampaignWinnerTableTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldResolveCellInsideTargetingToTheHighestPrice() {
+        CampaignIndex index = CampaignIndex.compile(List.of(
+                radius("cheap", 1.0, 20),
+                radius("expensive", 2.0, 20)
+        ));
+        CampaignFormatBucket bucket = index.findBucket(CampaignAdFormat.BANNER);
+
+        int cell = bucket.getGrid().cellIndex(LAT, LON);
+        int position = bucket.getWinnerTable().winnerAt(cell);
+
+        assertEquals("expensive", bucket.get(position).getCampaign().getCampaignId());
+        assertTrue(bucket.getWinnerTable().pureCellCount() > 0);
+        assertTrue(bucket.getWinnerTable().pureCellCount() < bucket.getWinnerTable().cellCount());
+    }
+
+    @Test
+    void shouldTreatCellsOutsideTheGridAsAmbiguous() {
+        CampaignIndex index = CampaignIndex.compile(List.of(radius("c1", 1.0, 5)));
+        CampaignFormatBucket bucket = index.findBucket(CampaignAdFormat.BANNER);
+
+        assertEquals(CampaignWinnerTable.AMBIGUOUS, bucket.getWinnerTable().winnerAt(-1));
+        assertEquals(-1, bucket.getGrid().cellIndex(-3.73, -38.52));
+    }
+
+    @Test
+    void shouldAgreeWithFullEvaluationOnPureCells() throws Exception {
+        CampaignIndex index = CampaignIndex.compile(campaignsJson());
+        Random random = new Random(13);
+        int pureHits = 0;
+
+        for (int n = 0; n < 30_000; n++) {
+            double lat = -24.0 + random.nextDouble() * 1.2;
+            double lon = -47.2 + random.nextDouble() * 1.2;
+            GeoPoint user = GeoPoint.of(lat, lon);
+
+            for (CampaignAdFormat format : CampaignAdFormat.values()) {
+                CampaignFormatBucket bucket = index.findBucket(format);
+                if (bucket == null) {
+                    continue;
+                }
+                int position = bucket.getWinnerTable().winnerAt(bucket.getGrid().cellIndex(lat, lon));
+                if (position == CampaignWinnerTable.AMBIGUOUS) {
+                    continue;
+                }
+                pureHits++;
+
+                int expected = firstEligible(bucket, user);
+                String where = format + " em " + lat + "," + lon;
+                assertEquals(expected < 0 ? CampaignWinnerTable.NO_WINNER : expected, position, where);
+            }
+        }
+
+        assertTrue(pureHits > 0);
+    }
+
+    @Test
+    void shouldReadBackTablesWrittenForTheSameCampaigns() throws Exception {
+        List<Campaign> campaigns = campaignsJson();
+        Path file = tempDir.resolve("tables.bin");
+
+        CampaignIndex written = CampaignIndex.compile(campaigns);
+        CampaignWinnerTableFile.write(file, "abc", written);
+
+        CampaignIndex read = CampaignIndex.compile(campaigns, CampaignSpatialGrid.DEFAULT_CELL_DEGREES, false);
+        assertTrue(CampaignWinnerTableFile.read(file, "abc", read));
+
+        for (CampaignAdFormat format : CampaignAdFormat.values()) {
+            CampaignFormatBucket expected = written.findBucket(format);
+            CampaignFormatBucket actual = read.findBucket(format);
+            if (expected == null) {
+                assertNull(actual);
+                continue;
+            }
+            CampaignWinnerTable expectedTable = expected.getWinnerTable();
+            CampaignWinnerTable actualTable = actual.getWinnerTable();
+            assertEquals(expectedTable.cellCount(), actualTable.cellCount());
+            for (int i = 0; i < expectedTable.cellCount(); i++) {
+                assertEquals(expectedTable.winnerAt(i), actualTable.winnerAt(i));
+            }
+        }
+    }
+
+    @Test
+    void shouldRejectFileFromOtherCampaigns() throws Exception {
+        Path file = tempDir.resolve("tables.bin");
+        CampaignWinnerTableFile.write(file, "old", CampaignIndex.compile(campaignsJson()));
+
+        CampaignIndex index = CampaignIndex.compile(campaignsJson(), CampaignSpatialGrid.DEFAULT_CELL_DEGREES, false);
+
+        assertFalse(CampaignWinnerTableFile.read(file, "new", index));
+        assertFalse(CampaignWinnerTableFile.read(tempDir.resolve("missing.bin"), "new", index));
+        assertEquals(0, index.findBucket(CampaignAdFormat.BANNER).getWinnerTable().cellCount());
+    }
+
+    // avaliação completa, sem grade: primeira campanha do bucket elegível no ponto
+    private int firstEligible(CampaignFormatBucket bucket, GeoPoint user) {
+        for (int position = 0; position < bucket.size(); position++) {
+            CompiledCampaign compiled = bucket.get(position);
+            if (!compiled.getTargeting().contains(user)) {
+                continue;
+            }
+            boolean excluded = false;
+            for (GeoShape exclusion : compiled.getExclusions()) {
+                excluded |= exclusion.contains(user);
+            }
+            if (!excluded) {
+                return position;
+            }
+        }
+        return -1;
+    }
+}
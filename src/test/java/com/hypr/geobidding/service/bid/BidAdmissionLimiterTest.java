@@ -0,0 +1,81 @@
+package com.hypr.geobidding.service.bid;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BidAdmissionLimiterTest {
+
+    private static final long ONE_SECOND_NANOS = 1_000_000_000L;
+
+    @Test
+    void shouldShedAboveLimit() {
+        BidAdmissionLimiter limiter = new BidAdmissionLimiter(true, 1_000, 4, 1, 4, 0.5);
+
+        for (int n = 0; n < 4; n++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1, limiter.getShed());
+        assertEquals(4, limiter.getInFlight());
+
+        limiter.release(System.nanoTime());
+        assertTrue(limiter.tryAcquire());
+        assertEquals(5, limiter.getAdmitted());
+    }
+
+    @Test
+    void shouldGrowLimitByOneAfterLimitFastDecisions() {
+        BidAdmissionLimiter limiter = new BidAdmissionLimiter(true, 1_000, 4, 1, 10, 0.5);
+
+        for (int n = 0; n < 4; n++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(System.nanoTime());
+        }
+
+        assertEquals(5, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void shouldBackOffOncePerBudgetWhenOverBudget() {
+        BidAdmissionLimiter limiter = new BidAdmissionLimiter(true, 60_000, 64, 4, 1024, 0.5);
+
+        // três decisões lentas terminando juntas: o limite cai uma vez só
+        for (int n = 0; n < 3; n++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(System.nanoTime() - 120 * ONE_SECOND_NANOS);
+        }
+
+        assertEquals(32, limiter.getLimit());
+        assertEquals(3, limiter.getOverBudget());
+    }
+
+    @Test
+    void shouldNotGoBelowMinLimit() {
+        BidAdmissionLimiter limiter = new BidAdmissionLimiter(true, 0, 8, 4, 16, 0.1);
+
+        for (int n = 0; n < 10; n++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(System.nanoTime() - ONE_SECOND_NANOS);
+        }
+
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void shouldAdmitEverythingWhenDisabled() {
+        BidAdmissionLimiter limiter = new BidAdmissionLimiter(false, 1_000, 1, 1, 1, 0.5);
+
+        for (int n = 0; n < 100; n++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertEquals(0, limiter.getShed());
+    }
+
+    @Test
+    void shouldRejectInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new BidAdmissionLimiter(true, 20, 2, 4, 8, 0.5));
+        assertThrows(IllegalArgumentException.class, () -> new BidAdmissionLimiter(true, 20, 4, 4, 8, 1.0));
+    }
+}
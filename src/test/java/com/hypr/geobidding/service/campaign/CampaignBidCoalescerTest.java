@@ -0,0 +1,172 @@
+package com.hypr.geobidding.service.campaign;
+
+import com.hypr.geobidding.domain.campaign.Campaign;
+import com.hypr.geobidding.domain.campaign.CampaignAdFormat;
+import com.hypr.geobidding.dto.bid.*;
+import com.hypr.geobidding.repository.campaign.CampaignFixtures;
+import com.hypr.geobidding.repository.campaign.CampaignIndex;
+import com.hypr.geobidding.repository.campaign.CampaignRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CampaignBidCoalescerTest {
+
+    private BidRequest request(String id, double lat, double lon, BigDecimal floor, CampaignAdFormat format) {
+        BidRequestUser user = new BidRequestUser();
+        user.setLat(lat);
+        user.setLon(lon);
+
+        BidRequestInventory inventory = new BidRequestInventory();
+        inventory.setFloorPrice(floor);
+        inventory.setAdFormat(format);
+
+        BidRequest request = new BidRequest();
+        request.setRequestId(id);
+        request.setBidRequestUser(user);
+        request.setBidRequestInventory(inventory);
+        return request;
+    }
+
+    private BidResponse answer(BidRequest request) {
+        BidResponse response = new BidResponse();
+        response.setRequestId(request.getRequestId());
+        response.setDecision(BidDecision.NO_BID);
+        return response;
+    }
+
+    @Test
+    void shouldGoDirectWhenAlone() {
+        CampaignBidService service = Mockito.mock(CampaignBidService.class);
+        Mockito.when(service.decide(Mockito.any())).thenAnswer(i -> answer(i.getArgument(0)));
+        CampaignBidCoalescer coalescer = new CampaignBidCoalescer(service, true, 200, 64);
+
+        for (int n = 0; n < 10; n++) {
+            assertEquals("req-" + n, coalescer.decide(
+                    request("req-" + n, 0, 0, BigDecimal.ONE, CampaignAdFormat.BANNER)).getRequestId());
+        }
+
+        assertEquals(10, coalescer.getDirect());
+        assertEquals(0, coalescer.getBatches());
+        Mockito.verify(service, Mockito.never()).decideBatch(Mockito.anyList());
+    }
+
+    @Test
+    void shouldBatchRequestsArrivingWhileAnotherIsInFlight() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CampaignBidService service = Mockito.mock(CampaignBidService.class);
+        Mockito.when(service.decide(Mockito.any())).thenAnswer(i -> {
+            release.await();
+            return answer(i.getArgument(0));
+        });
+        Mockito.when(service.decideBatch(Mockito.anyList())).thenAnswer(i -> {
+            List<BidRequest> requests = i.getArgument(0);
+            return requests.stream().map(this::answer).toList();
+        });
+        CampaignBidCoalescer coalescer = new CampaignBidCoalescer(service, true, 200, 64);
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<BidResponse> blocked = pool.submit(() ->
+                    coalescer.decide(request("first", 0, 0, BigDecimal.ONE, CampaignAdFormat.BANNER)));
+            while (coalescer.getDirect() == 0) {
+                Thread.onSpinWait();
+            }
+
+            List<Future<BidResponse>> others = new ArrayList<>();
+            for (int n = 0; n < 3; n++) {
+                String id = "other-" + n;
+                others.add(pool.submit(() ->
+                        coalescer.decide(request(id, 0, 0, BigDecimal.ONE, CampaignAdFormat.BANNER))));
+            }
+            for (int n = 0; n < 3; n++) {
+                assertEquals("other-" + n, others.get(n).get(5, TimeUnit.SECONDS).getRequestId());
+            }
+
+            release.countDown();
+            assertEquals("first", blocked.get(5, TimeUnit.SECONDS).getRequestId());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, coalescer.getDirect());
+        assertEquals(3, coalescer.getCoalesced());
+        assertTrue(coalescer.getBatches() >= 1 && coalescer.getBatches() <= 3);
+    }
+
+    @Test
+    void shouldPropagateBatchFailureToEveryWaiter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CampaignBidService service = Mockito.mock(CampaignBidService.class);
+        Mockito.when(service.decide(Mockito.any())).thenAnswer(i -> {
+            release.await();
+            return answer(i.getArgument(0));
+        });
+        Mockito.when(service.decideBatch(Mockito.anyList())).thenThrow(new IllegalStateException("falhou"));
+        CampaignBidCoalescer coalescer = new CampaignBidCoalescer(service, true, 200, 64);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            pool.submit(() -> coalescer.decide(request("first", 0, 0, BigDecimal.ONE, CampaignAdFormat.BANNER)));
+            while (coalescer.getDirect() == 0) {
+                Thread.onSpinWait();
+            }
+
+            Future<BidResponse> failed = pool.submit(() ->
+                    coalescer.decide(request("other", 0, 0, BigDecimal.ONE, CampaignAdFormat.BANNER)));
+            ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldMatchDecideUnderConcurrentLoad() throws Exception {
+        CampaignRepository repository = Mockito.mock(CampaignRepository.class);
+        Mockito.when(repository.getIndex()).thenReturn(CampaignIndex.compile(CampaignFixtures.campaignsJson()));
+        CampaignBidService service = new CampaignBidService(
+                repository, new SequentialCampaignEvaluator(), new CampaignDecisionCache(true, 16, 1024));
+        CampaignBidCoalescer coalescer = new CampaignBidCoalescer(service, true, 200, 16);
+
+        Random random = new Random(23);
+        CampaignAdFormat[] formats = CampaignAdFormat.values();
+        List<BidRequest> requests = new ArrayList<>();
+        for (int n = 0; n < 4000; n++) {
+            requests.add(request(
+                    "req-" + n,
+                    -24.0 + random.nextDouble() * 1.2,
+                    -47.2 + random.nextDouble() * 1.2,
+                    BigDecimal.valueOf(random.nextInt(300), 2),
+                    formats[random.nextInt(formats.length)]));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<BidResponse>> futures = new ArrayList<>();
+        try {
+            for (BidRequest request : requests) {
+                futures.add(pool.submit(() -> coalescer.decide(request)));
+            }
+            for (int n = 0; n < requests.size(); n++) {
+                BidResponse expected = service.decide(requests.get(n));
+                BidResponse actual = futures.get(n).get(10, TimeUnit.SECONDS);
+
+                assertEquals(expected.getRequestId(), actual.getRequestId());
+                assertEquals(expected.getDecision(), actual.getDecision());
+                assertEquals(expected.getCampaignId(), actual.getCampaignId());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(requests.size(), coalescer.getDirect() + coalescer.getCoalesced());
+    }
+}
@@ -1,9 +1,12 @@
 package com.hypr.geobidding.service.campaign;
 
+import com.hypr.geobidding.config.bid.BidDeadlineProperties;
 import com.hypr.geobidding.domain.campaign.*;
 import com.hypr.geobidding.dto.bid.*;
+import com.hypr.geobidding.repository.campaign.CampaignBudgetLedger;
+import com.hypr.geobidding.repository.campaign.CampaignFixtures;
+import com.hypr.geobidding.repository.campaign.CampaignIndex;
 import com.hypr.geobidding.repository.campaign.CampaignRepository;
-import com.hypr.geobidding.utils.geo.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,7 +14,10 @@ import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -22,13 +28,15 @@ class CampaignBidServiceTest {
     @Mock
     private CampaignRepository campaignRepository;
 
-    @InjectMocks
     private CampaignBidService service;
 
     private BidRequest request;
 
     @BeforeEach
     void setup() {
+        service = new CampaignBidService(
+                campaignRepository, new SequentialCampaignEvaluator(), new CampaignDecisionCache(true, 16, 1024));
+
         request = new BidRequest();
         request.setRequestId("req-1");
 
@@ -47,7 +55,7 @@ class CampaignBidServiceTest {
 
     @Test
     void shouldReturnNoBidWhenNoCampaignMatches() {
-        when(campaignRepository.findAll()).thenReturn(List.of());
+        when(campaignRepository.getIndex()).thenReturn(CampaignIndex.compile(List.of()));
 
         BidResponse response = service.decide(request);
 
@@ -64,20 +72,14 @@ class CampaignBidServiceTest {
         campaign.setBidPrice(BigDecimal.valueOf(2.0));
         campaign.setTargeting(radiusTargeting());
 
-        when(campaignRepository.findAll()).thenReturn(List.of(campaign));
-
-        try (MockedStatic<GeoRadiusUtils> geoMock = mockStatic(GeoRadiusUtils.class)) {
-
-            geoMock.when(() ->
-                    GeoRadiusUtils.isPointInsideRadius(anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble())
-            ).thenReturn(true);
+        when(campaignRepository.getIndex()).thenReturn(CampaignIndex.compile(List.of(campaign)));
 
-            BidResponse response = service.decide(request);
+        // coordenadas reais: o usuário do request está dentro do raio do targeting
+        BidResponse response = service.decide(request);
 
-            assertThat(response.getDecision()).isEqualTo(BidDecision.BID);
-            assertThat(response.getCampaignId()).isEqualTo("c1");
-            assertThat(response.getBidPrice()).isEqualByComparingTo("2.0");
-        }
+        assertThat(response.getDecision()).isEqualTo(BidDecision.BID);
+        assertThat(response.getCampaignId()).isEqualTo("c1");
+        assertThat(response.getBidPrice()).isEqualByComparingTo("2.0");
     }
 
     // ------------------ FLOOR PRICE ------------------
@@ -88,13 +90,47 @@ class CampaignBidServiceTest {
         Campaign campaign = buildBaseCampaign();
         campaign.setBidPrice(BigDecimal.valueOf(1.0)); // abaixo do floor
 
-        when(campaignRepository.findAll()).thenReturn(List.of(campaign));
+        when(campaignRepository.getIndex()).thenReturn(CampaignIndex.compile(List.of(campaign)));
 
         BidResponse response = service.decide(request);
 
         assertThat(response.getDecision()).isEqualTo(BidDecision.NO_BID);
     }
 
+    @Test
+    void shouldBidWhenBidPriceEqualsFloor() {
+
+        Campaign campaign = buildBaseCampaign();
+        campaign.setBidPrice(new BigDecimal("1.50"));
+        campaign.setTargeting(radiusTargeting());
+
+        when(campaignRepository.getIndex()).thenReturn(CampaignIndex.compile(List.of(campaign)));
+
+        BidResponse response = service.decide(request);
+
+        assertThat(response.getDecision()).isEqualTo(BidDecision.BID);
+        assertThat(response.getBidPriceMicros()).isEqualTo(1_500_000L);
+        assertThat(response.getBidPrice()).isEqualByComparingTo("1.5");
+    }
+
+    // ------------------ COVERAGE ------------------
+
+    @Test
+    void shouldNotBidOutsideEveryTargeting() {
+
+        Campaign campaign = buildBaseCampaign();
+        campaign.setBidPrice(BigDecimal.valueOf(2.0));
+        campaign.setTargeting(radiusTargeting());
+
+        when(campaignRepository.getIndex()).thenReturn(CampaignIndex.compile(List.of(campaign)));
+
+        request.getBidRequestUser().setLat(-3.73);
+        request.getBidRequestUser().setLon(-38.52);
+        BidResponse response = service.decide(request);
+
+        assertThat(response.getDecision()).isEqualTo(BidDecision.NO_BID);
+    }
+
     // ------------------ EXCLUSION ------------------
 
     @Test
@@ -105,23 +141,186 @@ class CampaignBidServiceTest {
         campaign.setTargeting(radiusTargeting());
         campaign.setExclusions(List.of(radiusExclusion()));
 
-        when(campaignRepository.findAll()).thenReturn(List.of(campaign));
+        when(campaignRepository.getIndex()).thenReturn(CampaignIndex.compile(List.of(campaign)));
+
+        // coordenadas reais: o usuário está dentro do targeting e também do raio de exclusão
+        BidResponse response = service.decide(request);
+
+        assertThat(response.getDecision()).isEqualTo(BidDecision.NO_BID);
+    }
 
-        try (
-                MockedStatic<GeoRadiusUtils> radiusMock = mockStatic(GeoRadiusUtils.class)
-        ) {
+    // ------------------ PRICE ORDER ------------------
+
+    @Test
+    void shouldPickHighestPricedCampaignThatMatches() {
 
-            // targeting = true
-            radiusMock.when(() ->
-                    GeoRadiusUtils.isPointInsideRadius(
-                            anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble()
-                    )
-            ).thenReturn(true);
+        Campaign cheap = buildBaseCampaign();
+        cheap.setCampaignId("cheap");
+        cheap.setBidPrice(BigDecimal.valueOf(2.0));
+        cheap.setTargeting(radiusTargeting());
 
-            BidResponse response = service.decide(request);
+        Campaign expensive = buildBaseCampaign();
+        expensive.setCampaignId("expensive");
+        expensive.setBidPrice(BigDecimal.valueOf(4.0));
+        expensive.setTargeting(radiusTargeting());
 
-            assertThat(response.getDecision()).isEqualTo(BidDecision.NO_BID);
+        Campaign otherFormat = buildBaseCampaign();
+        otherFormat.setCampaignId("video");
+        otherFormat.setBidPrice(BigDecimal.valueOf(9.0));
+        otherFormat.setAdFormats(List.of(CampaignAdFormat.VIDEO));
+        otherFormat.setTargeting(radiusTargeting());
+
+        when(campaignRepository.getIndex()).thenReturn(CampaignIndex.compile(List.of(cheap, expensive, otherFormat)));
+
+        BidResponse response = service.decide(request);
+
+        assertThat(response.getDecision()).isEqualTo(BidDecision.BID);
+        assertThat(response.getCampaignId()).isEqualTo("expensive");
+        assertThat(response.getBidPrice()).isEqualByComparingTo("4.0");
+    }
+
+    // ------------------ BUDGET ------------------
+
+    @Test
+    void shouldFallBackToNextCampaignWhenWinnerRunsOutOfBudget() {
+
+        Campaign cheap = buildBaseCampaign();
+        cheap.setCampaignId("cheap");
+        cheap.setBidPrice(BigDecimal.valueOf(2.0));
+        cheap.setTargeting(radiusTargeting());
+
+        // R$ 4,00 de CPM: R$ 0,004 por impressão, saldo para uma só
+        Campaign expensive = buildBaseCampaign();
+        expensive.setCampaignId("expensive");
+        expensive.setBidPrice(BigDecimal.valueOf(4.0));
+        expensive.setTargeting(radiusTargeting());
+        expensive.setDailyBudget(new BigDecimal("0.006"));
+
+        List<Campaign> campaigns = List.of(cheap, expensive);
+        CampaignBudgetLedger ledger = new CampaignBudgetLedger(campaigns, 2, () -> {});
+        when(campaignRepository.getIndex()).thenReturn(CampaignIndex.compile(campaigns, ledger));
+
+        assertThat(service.decide(request).getCampaignId()).isEqualTo("expensive");
+        assertThat(service.decide(request).getCampaignId()).isEqualTo("cheap");
+        assertThat(service.decideBatch(List.of(request, request)))
+                .extracting(BidResponse::getCampaignId)
+                .containsExactly("cheap", "cheap");
+
+        assertThat(ledger.getExhaustions()).isEqualTo(1);
+        assertThat(ledger.budgetOf(expensive).getDailyRemainingNanos()).isEqualTo(2_000_000);
+    }
+
+    // ------------------ BATCH ------------------
+
+    @Test
+    void shouldDecideBatchLikeSingleRequestsInOrder() throws Exception {
+        when(campaignRepository.getIndex()).thenReturn(CampaignIndex.compile(CampaignFixtures.campaignsJson()));
+
+        Random random = new Random(17);
+        CampaignAdFormat[] formats = CampaignAdFormat.values();
+        List<BidRequest> requests = new ArrayList<>();
+        for (int n = 0; n < 2000; n++) {
+            BidRequest item = new BidRequest();
+            item.setRequestId("req-" + n);
+
+            // poucas células distintas, para formar grupos com vários itens
+            BidRequestUser user = new BidRequestUser();
+            user.setLat(-23.6 + random.nextInt(8) * 0.05 + random.nextDouble() * 0.05);
+            user.setLon(-46.7 + random.nextInt(8) * 0.05 + random.nextDouble() * 0.05);
+            item.setBidRequestUser(user);
+
+            BidRequestInventory inventory = new BidRequestInventory();
+            inventory.setFloorPrice(BigDecimal.valueOf(random.nextInt(300), 2));
+            inventory.setAdFormat(formats[random.nextInt(formats.length)]);
+            item.setBidRequestInventory(inventory);
+            requests.add(item);
+        }
+
+        List<BidResponse> batch = service.decideBatch(requests);
+
+        assertThat(batch).hasSize(requests.size());
+        int bids = 0;
+        for (int n = 0; n < requests.size(); n++) {
+            BidResponse single = service.decide(requests.get(n));
+            BidResponse batched = batch.get(n);
+
+            assertThat(batched.getRequestId()).isEqualTo("req-" + n);
+            assertThat(batched.getDecision()).isEqualTo(single.getDecision());
+            assertThat(batched.getCampaignId()).isEqualTo(single.getCampaignId());
+            assertThat(batched.getBidPriceMicros()).isEqualTo(single.getBidPriceMicros());
+            assertThat(batched.getLatencyMs()).isGreaterThanOrEqualTo(0);
+            if (batched.getDecision() == BidDecision.BID) bids++;
+        }
+        assertThat(bids).isPositive();
+    }
+
+    @Test
+    void shouldReturnEmptyBatchForEmptyInput() {
+        when(campaignRepository.getIndex()).thenReturn(CampaignIndex.compile(List.of()));
+
+        assertThat(service.decideBatch(List.of())).isEmpty();
+    }
+
+    // ------------------ DEADLINE ------------------
+
+    @Test
+    void shouldAnswerTruncatedNoBidWhenRequestIsAlreadyLate() throws Exception {
+        when(campaignRepository.getIndex()).thenReturn(CampaignIndex.compile(CampaignFixtures.campaignsJson()));
+
+        BidDeadlineProperties properties = new BidDeadlineProperties();
+        properties.setTimeoutMs(50);
+        properties.setFromRequestTimestamp(true);
+        CampaignBidService late = new CampaignBidService(
+                campaignRepository, new SequentialCampaignEvaluator(), new CampaignDecisionCache(true, 16, 1024),
+                properties);
+
+        Random random = new Random(29);
+        CampaignAdFormat[] formats = CampaignAdFormat.values();
+        int truncated = 0;
+        for (int n = 0; n < 2000; n++) {
+            request.getBidRequestUser().setLat(-24.0 + random.nextDouble() * 1.2);
+            request.getBidRequestUser().setLon(-47.2 + random.nextDouble() * 1.2);
+            request.getBidRequestInventory().setFloorPrice(BigDecimal.ZERO);
+            request.getBidRequestInventory().setAdFormat(formats[random.nextInt(formats.length)]);
+            // enviado pela exchange há um minuto: prazo já estourado ao chegar
+            request.setTimestamp(OffsetDateTime.now().minusMinutes(1).toString());
+
+            BidResponse expected = service.decide(request);
+            BidResponse response = late.decide(request);
+
+            assertThat(expected.isTruncated()).isFalse();
+            if (response.isTruncated()) {
+                truncated++;
+                assertThat(response.getDecision()).isEqualTo(BidDecision.NO_BID);
+            } else {
+                // células puras e descartes O(1) não passam pela avaliação
+                assertThat(response.getCampaignId()).isEqualTo(expected.getCampaignId());
+            }
         }
+
+        assertThat(truncated).isPositive();
+        assertThat(late.getTruncations()).isEqualTo(truncated);
+        assertThat(service.getTruncations()).isZero();
+    }
+
+    @Test
+    void shouldIgnoreInvalidTimestampForDeadline() {
+        Campaign campaign = buildBaseCampaign();
+        campaign.setTargeting(radiusTargeting());
+        when(campaignRepository.getIndex()).thenReturn(CampaignIndex.compile(List.of(campaign)));
+
+        BidDeadlineProperties properties = new BidDeadlineProperties();
+        properties.setTimeoutMs(1_000);
+        properties.setFromRequestTimestamp(true);
+        CampaignBidService withDeadline = new CampaignBidService(
+                campaignRepository, new SequentialCampaignEvaluator(), new CampaignDecisionCache(true, 16, 1024),
+                properties);
+
+        request.setTimestamp("ontem");
+        BidResponse response = withDeadline.decide(request);
+
+        assertThat(response.getDecision()).isEqualTo(BidDecision.BID);
+        assertThat(response.isTruncated()).isFalse();
     }
 
     // ------------------ HELPERS ------------------
@@ -0,0 +1,95 @@
+package com.hypr.geobidding.service.campaign;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hypr.geobidding.config.campaign.CampaignBudgetProperties;
+import com.hypr.geobidding.config.campaign.CampaignIndexSnapshotProperties;
+import com.hypr.geobidding.config.campaign.CampaignWinnerTableProperties;
+import com.hypr.geobidding.domain.campaign.CampaignAdFormat;
+import com.hypr.geobidding.dto.bid.BidRequest;
+import com.hypr.geobidding.dto.bid.BidRequestInventory;
+import com.hypr.geobidding.dto.bid.BidRequestUser;
+import com.hypr.geobidding.dto.bid.BidResponse;
+import com.hypr.geobidding.repository.campaign.CampaignRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * decide() de ponta a ponta sobre o campaigns.json, com requisições já parseadas.
+ * Com -prof gc o esperado é só o BidResponse por operação (algumas dezenas de B/op);
+ * qualquer coisa acima disso é alocação no caminho da decisão.
+ * <p>
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark="CampaignDecisionBenchmark -prof gc"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CampaignDecisionBenchmark {
+
+    private static final int REQUESTS = 4096;
+
+    @Param({"true", "false"})
+    public boolean decisionCache;
+
+    private CampaignBidService service;
+    private BidRequest[] requests;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        CampaignRepository repository = new CampaignRepository(
+                new ObjectMapper(), new CampaignWinnerTableProperties(), disabledBudgets(),
+                new CampaignIndexSnapshotProperties());
+        repository.load();
+
+        service = new CampaignBidService(
+                repository, new SequentialCampaignEvaluator(), new CampaignDecisionCache(decisionCache, 16, 65536));
+
+        Random random = new Random(3);
+        CampaignAdFormat[] formats = CampaignAdFormat.values();
+        requests = new BidRequest[REQUESTS];
+        for (int n = 0; n < REQUESTS; n++) {
+            requests[n] = request(
+                    "req-" + n,
+                    -24.0 + random.nextDouble() * 1.2,
+                    -47.2 + random.nextDouble() * 1.2,
+                    BigDecimal.valueOf(random.nextInt(300), 2),
+                    formats[random.nextInt(formats.length)]);
+        }
+    }
+
+    @Benchmark
+    public BidResponse decide() {
+        BidRequest request = requests[next];
+        next = (next + 1) & (REQUESTS - 1);
+        return service.decide(request);
+    }
+
+    // milhões de vitórias esgotariam os orçamentos no meio da medição
+    private static CampaignBudgetProperties disabledBudgets() {
+        CampaignBudgetProperties properties = new CampaignBudgetProperties();
+        properties.setEnabled(false);
+        return properties;
+    }
+
+    private BidRequest request(String id, double lat, double lon, BigDecimal floor, CampaignAdFormat format) {
+        BidRequestUser user = new BidRequestUser();
+        user.setLat(lat);
+        user.setLon(lon);
+
+        BidRequestInventory inventory = new BidRequestInventory();
+        inventory.setFloorPrice(floor);
+        inventory.setAdFormat(format);
+
+        BidRequest request = new BidRequest();
+        request.setRequestId(id);
+        request.setBidRequestUser(user);
+        request.setBidRequestInventory(inventory);
+        return request;
+    }
+}
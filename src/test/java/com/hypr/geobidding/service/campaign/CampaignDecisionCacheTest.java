@@ -0,0 +1,140 @@
+package com.hypr.geobidding.service.campaign;
+
+import com.hypr.geobidding.domain.campaign.*;
+import com.hypr.geobidding.domain.geo.GeoPoint;
+import com.hypr.geobidding.repository.campaign.CampaignIndex;
+import com.hypr.geobidding.repository.campaign.CompiledCampaign;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Random;
+
+import static com.hypr.geobidding.repository.campaign.CampaignFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CampaignDecisionCacheTest {
+
+    private final SequentialCampaignEvaluator evaluator = new SequentialCampaignEvaluator();
+
+    // centro das campanhas de raio e ponto consultado
+    private static final double LAT = -23.5;
+    private static final double LON = -46.6;
+
+    @Test
+    void shouldAgreeWithEvaluatorOnRepeatedLocations() throws Exception {
+        CampaignIndex index = CampaignIndex.compile(campaignsJson());
+        CampaignDecisionCache cache = new CampaignDecisionCache(true, 16, 4096);
+
+        Random random = new Random(21);
+        double[][] venues = new double[300][];
+        for (int v = 0; v < venues.length; v++) {
+            venues[v] = new double[]{-24.0 + random.nextDouble() * 1.2, -47.2 + random.nextDouble() * 1.2};
+        }
+
+        CampaignAdFormat[] formats = CampaignAdFormat.values();
+        for (int n = 0; n < 30_000; n++) {
+            double[] venue = venues[random.nextInt(venues.length)];
+            // GPS com ruído de poucos metros em volta do mesmo lugar
+            GeoPoint user = GeoPoint.of(venue[0] + random.nextGaussian() * 1e-5, venue[1] + random.nextGaussian() * 1e-5);
+            CampaignAdFormat format = formats[random.nextInt(formats.length)];
+            long floor = random.nextInt(1000) * 10_000L;
+
+            CompiledCampaign expected = evaluator.findWinner(index.findBucket(format), user, floor, index.getShapeCount());
+            CompiledCampaign actual = cache.findWinner(index, format, user, floor, evaluator);
+
+            assertSame(expected, actual, () -> "divergência em " + user.getLat() + "," + user.getLon());
+        }
+
+        assertTrue(cache.getHits() > 0);
+        assertTrue(cache.getHitRate() > 0 && cache.getHitRate() < 1);
+    }
+
+    @Test
+    void shouldApplyFloorExactlyOnCachedWinner() {
+        CampaignIndex index = CampaignIndex.compile(List.of(radius("c1", 2.0, LAT, LON, 50)));
+        CampaignDecisionCache cache = new CampaignDecisionCache(true, 16, 64);
+        GeoPoint user = GeoPoint.of(LAT, LON);
+
+        assertEquals("c1", cache.findWinner(index, CampaignAdFormat.BANNER, user, 1_000_000L, evaluator).getCampaign().getCampaignId());
+        assertNull(cache.findWinner(index, CampaignAdFormat.BANNER, user, 2_000_001L, evaluator));
+        assertNotNull(cache.findWinner(index, CampaignAdFormat.BANNER, user, 2_000_000L, evaluator));
+
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    void shouldReuseNoBidOnlyForHigherOrEqualFloor() {
+        // alvo longe do usuário: nenhuma candidata elegível
+        Campaign far = radius("far", 2.0, LAT, LON, 1);
+        far.getTargeting().getCenter().setLat(-22.0);
+        CampaignIndex index = CampaignIndex.compile(List.of(far));
+        CampaignDecisionCache cache = new CampaignDecisionCache(true, 16, 64);
+        GeoPoint user = GeoPoint.of(LAT, LON);
+
+        assertNull(cache.findWinner(index, CampaignAdFormat.BANNER, user, 1_000_000L, evaluator));
+        assertNull(cache.findWinner(index, CampaignAdFormat.BANNER, user, 1_500_000L, evaluator));
+        assertEquals(1, cache.getHits());
+
+        assertNull(cache.findWinner(index, CampaignAdFormat.BANNER, user, 500_000L, evaluator));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void shouldNotCacheCellOnTargetingBoundary() {
+        CampaignIndex index = CampaignIndex.compile(List.of(radius("c1", 2.0, LAT, LON, 1)));
+        CampaignDecisionCache cache = new CampaignDecisionCache(true, 1, 64);
+
+        // célula de 0,05° inteira contra um raio de 1 km: sempre ambígua
+        GeoPoint user = GeoPoint.of(LAT, LON);
+        cache.findWinner(index, CampaignAdFormat.BANNER, user, 0, evaluator);
+        cache.findWinner(index, CampaignAdFormat.BANNER, user, 0, evaluator);
+
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getUncacheable());
+    }
+
+    @Test
+    void shouldInvalidateWhenIndexChanges() {
+        List<Campaign> campaigns = List.of(radius("c1", 2.0, LAT, LON, 50));
+        CampaignDecisionCache cache = new CampaignDecisionCache(true, 16, 64);
+        GeoPoint user = GeoPoint.of(LAT, LON);
+
+        cache.findWinner(CampaignIndex.compile(campaigns), CampaignAdFormat.BANNER, user, 0, evaluator);
+        CompiledCampaign reloaded = cache.findWinner(CampaignIndex.compile(campaigns), CampaignAdFormat.BANNER, user, 0, evaluator);
+
+        assertEquals(0, cache.getHits());
+        assertEquals("c1", reloaded.getCampaign().getCampaignId());
+    }
+
+    @Test
+    void shouldNotHoldOnToReplacedIndex() throws Exception {
+        List<Campaign> campaigns = List.of(radius("c1", 2.0, LAT, LON, 50));
+        CampaignDecisionCache cache = new CampaignDecisionCache(true, 16, 64);
+        GeoPoint user = GeoPoint.of(LAT, LON);
+
+        CampaignIndex old = CampaignIndex.compile(campaigns);
+        cache.findWinner(old, CampaignAdFormat.BANNER, user, 0, evaluator);
+        WeakReference<CampaignIndex> ref = new WeakReference<>(old);
+        old = null;
+
+        // a entrada continua na tabela, mas não segura o índice recompilado por cima
+        for (int i = 0; i < 20 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get());
+    }
+
+    @Test
+    void shouldBypassWhenDisabled() {
+        CampaignIndex index = CampaignIndex.compile(List.of(radius("c1", 2.0, LAT, LON, 50)));
+        CampaignDecisionCache cache = new CampaignDecisionCache(false, 16, 64);
+        GeoPoint user = GeoPoint.of(LAT, LON);
+
+        assertNotNull(cache.findWinner(index, CampaignAdFormat.BANNER, user, 0, evaluator));
+        assertNotNull(cache.findWinner(index, CampaignAdFormat.BANNER, user, 0, evaluator));
+        assertEquals(0, cache.getHits() + cache.getMisses());
+    }
+}
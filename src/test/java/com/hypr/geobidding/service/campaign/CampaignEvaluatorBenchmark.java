@@ -0,0 +1,101 @@
+package com.hypr.geobidding.service.campaign;
+
+import com.hypr.geobidding.domain.campaign.*;
+import com.hypr.geobidding.domain.geo.GeoPoint;
+import com.hypr.geobidding.repository.campaign.CampaignFormatBucket;
+import com.hypr.geobidding.repository.campaign.CampaignIndex;
+import com.hypr.geobidding.repository.campaign.CompiledCampaign;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequencial x shards por número de candidatas, no pior caso: todas as candidatas passam
+ * no targeting e caem numa exclusão, então nenhuma para o loop cedo.
+ * O cruzamento das curvas define geobidding.evaluation.shard-threshold; rodar no hardware
+ * de produção, com -Dshards igual ao que vai ser configurado.
+ * <p>
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark=CampaignEvaluatorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CampaignEvaluatorBenchmark {
+
+    @Param({"256", "1024", "4096"})
+    public int candidates;
+
+    private CampaignIndex index;
+    private CampaignFormatBucket bucket;
+    private GeoPoint user;
+
+    private SequentialCampaignEvaluator sequential;
+    private ShardedCampaignEvaluator sharded;
+
+    @Setup
+    public void setup() {
+        List<Campaign> campaigns = new ArrayList<>(candidates);
+        for (int n = 0; n < candidates; n++) {
+            campaigns.add(campaign(n));
+        }
+
+        index = CampaignIndex.compile(campaigns);
+        bucket = index.findBucket(CampaignAdFormat.BANNER);
+        user = GeoPoint.of(-23.5, -46.6);
+
+        sequential = new SequentialCampaignEvaluator();
+        sharded = new ShardedCampaignEvaluator(
+                Integer.getInteger("shards", Math.max(2, Runtime.getRuntime().availableProcessors())));
+    }
+
+    @TearDown
+    public void tearDown() {
+        sharded.close();
+    }
+
+    @Benchmark
+    public CompiledCampaign sequential() {
+        return sequential.findWinner(bucket, user, 0, index.getShapeCount());
+    }
+
+    @Benchmark
+    public CompiledCampaign sharded() {
+        return sharded.findWinner(bucket, user, 0, index.getShapeCount());
+    }
+
+    private Campaign campaign(int n) {
+        // raio enorme vai para a lista "wide": toda campanha é candidata
+        CampaignTargeting targeting = new CampaignTargeting();
+        targeting.setType(CampaignAreaType.RADIUS);
+        targeting.setCenter(point(-23.5, -46.6));
+        targeting.setRadiusKm(2000.0 + n * 1e-3);
+
+        // raios distintos para não serem internados num shape só
+        CampaignExclusion exclusion = new CampaignExclusion();
+        exclusion.setType(CampaignAreaType.RADIUS);
+        exclusion.setCenter(point(-23.5, -46.6));
+        exclusion.setRadiusKm(5.0 + n * 1e-3);
+
+        Campaign c = new Campaign();
+        c.setCampaignId("c" + n);
+        c.setActive(true);
+        c.setAdFormats(List.of(CampaignAdFormat.BANNER));
+        c.setBidPrice(BigDecimal.valueOf(candidates - n, 2));
+        c.setTargeting(targeting);
+        c.setExclusions(List.of(exclusion));
+        return c;
+    }
+
+    private CampaignGeoPoint point(double lat, double lon) {
+        CampaignGeoPoint p = new CampaignGeoPoint();
+        p.setLat(lat);
+        p.setLon(lon);
+        return p;
+    }
+}
@@ -0,0 +1,71 @@
+package com.hypr.geobidding.service.campaign;
+
+import com.hypr.geobidding.domain.geo.GeoCellRelation;
+import com.hypr.geobidding.domain.geo.GeoPoint;
+import com.hypr.geobidding.domain.geo.GeoShape;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CampaignShapeMemoTest {
+
+    private static final class CountingShape implements GeoShape {
+
+        private int calls;
+        private boolean answer;
+
+        @Override
+        public boolean contains(double lat, double lon) {
+            calls++;
+            return answer;
+        }
+
+        @Override
+        public List<double[]> boundingBoxes() {
+            return List.of();
+        }
+
+        @Override
+        public GeoCellRelation relate(double minLat, double maxLat, double minLon, double maxLon) {
+            return GeoCellRelation.BOUNDARY;
+        }
+    }
+
+    @Test
+    void shouldEvaluateSharedShapeOncePerRequest() {
+        CountingShape shape = new CountingShape();
+        shape.answer = true;
+        GeoPoint user = GeoPoint.of(-23.5, -46.6);
+
+        CampaignShapeMemo memo = CampaignShapeMemo.begin(4);
+        for (int campaign = 0; campaign < 50; campaign++) {
+            assertTrue(memo.contains(2, shape, user));
+        }
+
+        assertEquals(1, shape.calls);
+    }
+
+    @Test
+    void shouldForgetResultsOnNextRequest() {
+        CountingShape shape = new CountingShape();
+        shape.answer = true;
+
+        assertTrue(CampaignShapeMemo.begin(4).contains(1, shape, GeoPoint.of(0, 0)));
+
+        shape.answer = false;
+        assertFalse(CampaignShapeMemo.begin(4).contains(1, shape, GeoPoint.of(10, 10)));
+        assertEquals(2, shape.calls);
+    }
+
+    @Test
+    void shouldGrowWhenIndexHasMoreShapes() {
+        CountingShape shape = new CountingShape();
+
+        CampaignShapeMemo.begin(2);
+        CampaignShapeMemo memo = CampaignShapeMemo.begin(100);
+
+        assertFalse(memo.contains(99, shape, GeoPoint.of(0, 0)));
+    }
+}
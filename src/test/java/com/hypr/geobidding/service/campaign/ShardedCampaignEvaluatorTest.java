@@ -0,0 +1,188 @@
+package com.hypr.geobidding.service.campaign;
+
+import com.hypr.geobidding.domain.campaign.*;
+import com.hypr.geobidding.domain.geo.GeoPoint;
+import com.hypr.geobidding.repository.campaign.CampaignFormatBucket;
+import com.hypr.geobidding.repository.campaign.CampaignIndex;
+import com.hypr.geobidding.repository.campaign.CompiledCampaign;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedCampaignEvaluatorTest {
+
+    private Campaign campaign(Random random, int n) {
+        CampaignGeoPoint center = new CampaignGeoPoint();
+        center.setLat(-23.5 + (random.nextDouble() - 0.5) * 0.4);
+        center.setLon(-46.6 + (random.nextDouble() - 0.5) * 0.4);
+
+        CampaignTargeting targeting = new CampaignTargeting();
+        targeting.setType(CampaignAreaType.RADIUS);
+        targeting.setCenter(center);
+        // alguns raios enormes para cair na lista "wide"
+        targeting.setRadiusKm(random.nextInt(10) == 0 ? 2000 : 1 + random.nextDouble() * 10);
+
+        Campaign c = new Campaign();
+        c.setCampaignId("c" + n);
+        c.setActive(true);
+        c.setAdFormats(List.of(CampaignAdFormat.BANNER));
+        c.setBidPrice(BigDecimal.valueOf(random.nextInt(500), 2));
+        c.setTargeting(targeting);
+        return c;
+    }
+
+    @Test
+    void shouldPickSameWinnerAsSequential() {
+        Random random = new Random(9);
+        List<Campaign> campaigns = new ArrayList<>();
+        for (int n = 0; n < 2_000; n++) {
+            campaigns.add(campaign(random, n));
+        }
+
+        CampaignIndex index = CampaignIndex.compile(campaigns);
+        CampaignFormatBucket bucket = index.findBucket(CampaignAdFormat.BANNER);
+        SequentialCampaignEvaluator sequential = new SequentialCampaignEvaluator();
+
+        for (int shards : new int[]{2, 3, 8}) {
+            try (ShardedCampaignEvaluator sharded = new ShardedCampaignEvaluator(shards)) {
+                for (int n = 0; n < 500; n++) {
+                    GeoPoint user = GeoPoint.of(
+                            -23.5 + (random.nextDouble() - 0.5) * 0.6,
+                            -46.6 + (random.nextDouble() - 0.5) * 0.6);
+                    long floor = random.nextInt(500) * 10_000L;
+
+                    CompiledCampaign expected = sequential.findWinner(bucket, user, floor, index.getShapeCount());
+                    CompiledCampaign actual = sharded.findWinner(bucket, user, floor, index.getShapeCount());
+
+                    assertSame(expected, actual);
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldPickSameWinnerFromConcurrentRequestThreads() throws Exception {
+        Random random = new Random(11);
+        List<Campaign> campaigns = new ArrayList<>();
+        for (int n = 0; n < 2_000; n++) {
+            campaigns.add(campaign(random, n));
+        }
+
+        CampaignIndex index = CampaignIndex.compile(campaigns);
+        CampaignFormatBucket bucket = index.findBucket(CampaignAdFormat.BANNER);
+        SequentialCampaignEvaluator sequential = new SequentialCampaignEvaluator();
+
+        // o rascunho de cada thread é reaproveitado enquanto shards da chamada anterior ainda param
+        ExecutorService requests = Executors.newFixedThreadPool(4);
+        try (ShardedCampaignEvaluator sharded = new ShardedCampaignEvaluator(3)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                long seed = random.nextLong();
+                futures.add(requests.submit(() -> {
+                    Random local = new Random(seed);
+                    GeoPoint user = GeoPoint.scratch();
+                    for (int n = 0; n < 500; n++) {
+                        user.moveTo(
+                                -23.5 + (local.nextDouble() - 0.5) * 0.6,
+                                -46.6 + (local.nextDouble() - 0.5) * 0.6);
+                        long floor = local.nextInt(500) * 10_000L;
+
+                        assertSame(
+                                sequential.findWinner(bucket, user, floor, index.getShapeCount()),
+                                sharded.findWinner(bucket, user, floor, index.getShapeCount()));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            requests.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldReturnBestFoundSoFarPastDeadline() {
+        Random random = new Random(12);
+        List<Campaign> campaigns = new ArrayList<>();
+        for (int n = 0; n < 2_000; n++) {
+            campaigns.add(campaign(random, n));
+        }
+
+        CampaignIndex index = CampaignIndex.compile(campaigns);
+        CampaignFormatBucket bucket = index.findBucket(CampaignAdFormat.BANNER);
+        SequentialCampaignEvaluator sequential = new SequentialCampaignEvaluator();
+
+        try (ShardedCampaignEvaluator sharded = new ShardedCampaignEvaluator(4)) {
+            for (int n = 0; n < 200; n++) {
+                GeoPoint user = GeoPoint.of(
+                        -23.5 + (random.nextDouble() - 0.5) * 0.6,
+                        -46.6 + (random.nextDouble() - 0.5) * 0.6);
+                CompiledCampaign expected = sequential.findWinner(bucket, user, 0, index.getShapeCount());
+
+                // sequencial com prazo vencido: nada elegível visto ainda
+                CampaignDeadline late = CampaignDeadline.at(System.nanoTime() - 1);
+                assertNull(sequential.findWinner(bucket, user, 0, index.getShapeCount(), late));
+                assertTrue(late.isTruncated());
+
+                // sharded: o que vier é elegível e nunca melhor que a vencedora real
+                CampaignDeadline shardedLate = CampaignDeadline.at(System.nanoTime() - 1);
+                CompiledCampaign partial = sharded.findWinner(bucket, user, 0, index.getShapeCount(), shardedLate);
+                if (partial != null) {
+                    assertTrue(partial.getTargeting().contains(user));
+                    assertTrue(partial.getBidPriceMicros() <= expected.getBidPriceMicros());
+                }
+                if (partial != expected) {
+                    assertTrue(shardedLate.isTruncated());
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldNotTruncateWithinDeadline() {
+        Random random = new Random(13);
+        List<Campaign> campaigns = new ArrayList<>();
+        for (int n = 0; n < 500; n++) {
+            campaigns.add(campaign(random, n));
+        }
+
+        CampaignIndex index = CampaignIndex.compile(campaigns);
+        CampaignFormatBucket bucket = index.findBucket(CampaignAdFormat.BANNER);
+        SequentialCampaignEvaluator sequential = new SequentialCampaignEvaluator();
+
+        try (ShardedCampaignEvaluator sharded = new ShardedCampaignEvaluator(3)) {
+            for (int n = 0; n < 200; n++) {
+                GeoPoint user = GeoPoint.of(
+                        -23.5 + (random.nextDouble() - 0.5) * 0.6,
+                        -46.6 + (random.nextDouble() - 0.5) * 0.6);
+                CompiledCampaign expected = sequential.findWinner(bucket, user, 0, index.getShapeCount());
+
+                CampaignDeadline deadline = CampaignDeadline.at(System.nanoTime() + 60_000_000_000L);
+                assertSame(expected, sharded.findWinner(bucket, user, 0, index.getShapeCount(), deadline));
+                assertFalse(deadline.isTruncated());
+            }
+        }
+    }
+
+    @Test
+    void shouldReturnNullWithoutBucket() {
+        try (ShardedCampaignEvaluator sharded = new ShardedCampaignEvaluator(2)) {
+            assertNull(sharded.findWinner(null, GeoPoint.of(0, 0), 0, 1));
+        }
+    }
+
+    @Test
+    void shouldRejectSingleShard() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardedCampaignEvaluator(1));
+    }
+}
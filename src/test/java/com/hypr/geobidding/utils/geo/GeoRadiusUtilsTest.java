@@ -65,4 +65,18 @@ class GeoRadiusUtilsTest {
         );
         assertTrue(result);
     }
+
+    @Test
+    void shouldKeepWholeCircleInsideBoundingBox() {
+        // ponto dentro do raio também está dentro do box
+        assertTrue(GeoRadiusUtils.isPointInsideRadius(-60.3, -45.9, -60, -46, 40));
+        assertTrue(GeoRadiusUtils.isPointInsideBoundingBox(-60.3, -45.9, -60, -46, 40));
+        assertFalse(GeoRadiusUtils.isPointInsideBoundingBox(0, 0, 50, 50, 10));
+    }
+
+    @Test
+    void shouldWrapBoundingBoxAcrossAntimeridian() {
+        assertTrue(GeoRadiusUtils.isPointInsideBoundingBox(0, -179.99, 0, 179.99, 5));
+        assertFalse(GeoRadiusUtils.isPointInsideBoundingBox(0, -179.0, 0, 179.99, 5));
+    }
 }
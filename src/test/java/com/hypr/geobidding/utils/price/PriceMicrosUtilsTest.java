@@ -0,0 +1,45 @@
+package com.hypr.geobidding.utils.price;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceMicrosUtilsTest {
+
+    @Test
+    void shouldConvertExactlyUpToSixDecimals() {
+        assertEquals(2_500_000L, PriceMicrosUtils.bidToMicros(new BigDecimal("2.5")));
+        assertEquals(1_234_567L, PriceMicrosUtils.floorToMicros(new BigDecimal("1.234567")));
+        assertEquals(0L, PriceMicrosUtils.bidToMicros(BigDecimal.ZERO));
+    }
+
+    @Test
+    void shouldRoundBidDownAndFloorUp() {
+        BigDecimal price = new BigDecimal("1.0000005");
+
+        assertEquals(1_000_000L, PriceMicrosUtils.bidToMicros(price));
+        assertEquals(1_000_001L, PriceMicrosUtils.floorToMicros(price));
+    }
+
+    @Test
+    void shouldConvertBackWithoutTrailingZeros() {
+        assertEquals(new BigDecimal("2.5"), PriceMicrosUtils.fromMicros(2_500_000L));
+        assertEquals(0, new BigDecimal("3").compareTo(PriceMicrosUtils.fromMicros(3_000_000L)));
+    }
+
+    @Test
+    void shouldKeepIntegerPricesOutOfScientificNotation() throws Exception {
+        assertEquals("10", PriceMicrosUtils.fromMicros(10_000_000L).toString());
+        assertEquals("100", new ObjectMapper().writeValueAsString(PriceMicrosUtils.fromMicros(100_000_000L)));
+        assertEquals("0", PriceMicrosUtils.fromMicros(0L).toString());
+    }
+
+    @Test
+    void shouldFailOnPriceOutsideLongRange() {
+        assertThrows(ArithmeticException.class,
+                () -> PriceMicrosUtils.bidToMicros(new BigDecimal("1e20")));
+    }
+}